@@ -0,0 +1,167 @@
+package hudson.plugins.performance.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Writes synthetic report files for the benchmarks. Files are deterministic for a given format and row count, and are
+ * kept in <code>${java.io.tmpdir}/performance-benchmarks</code>, so that large files are generated once rather than
+ * for every fork.
+ */
+public final class ReportGenerator {
+
+    public enum Format {
+        JMETER_XML(".jtl"),
+        JMETER_CSV(".csv"),
+        LOCUST(".csv"),
+        WRK(".wrk"),
+        IAGO(".log");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private static final long START = 1500000000000L;
+
+    private static final int LABELS = 50;
+
+    private ReportGenerator() {
+    }
+
+    /**
+     * Returns a report file of the given format, generating it if it does not exist yet.
+     *
+     * @param rows number of samples, endpoints (Locust), latency buckets (wrk) or stats lines (Iago)
+     */
+    public static File getReportFile(Format format, int rows) throws IOException {
+        final File dir = new File(System.getProperty("java.io.tmpdir"), "performance-benchmarks");
+        final File file = new File(dir, format.name().toLowerCase() + "-" + rows + format.extension);
+        if (!file.isFile()) {
+            Files.createDirectories(dir.toPath());
+            final File tmp = new File(dir, file.getName() + ".tmp");
+            try (Writer out = new BufferedWriter(Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8), 1 << 16)) {
+                write(format, rows, out);
+            }
+            Files.move(tmp.toPath(), file.toPath());
+        }
+        return file;
+    }
+
+    static void write(Format format, int rows, Writer out) throws IOException {
+        final Random random = new Random(rows);
+        switch (format) {
+            case JMETER_XML:
+                writeJMeterXml(rows, random, out);
+                break;
+            case JMETER_CSV:
+                writeJMeterCsv(rows, random, out);
+                break;
+            case LOCUST:
+                writeLocust(rows, random, out);
+                break;
+            case WRK:
+                writeWrk(rows, random, out);
+                break;
+            case IAGO:
+                writeIago(rows, random, out);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown format " + format);
+        }
+    }
+
+    /**
+     * Response times roughly follow a log-normal distribution with a long tail, like real measurements.
+     */
+    private static long duration(Random random) {
+        return Math.max(1L, (long) Math.exp(4.5 + random.nextGaussian() * 0.8));
+    }
+
+    private static void writeJMeterXml(int rows, Random random, Writer out) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<testResults version=\"1.2\">\n");
+        for (int i = 0; i < rows; i++) {
+            final long duration = duration(random);
+            final boolean success = random.nextInt(100) != 0;
+            out.write("<httpSample t=\"" + duration + "\" it=\"0\" lt=\"" + (duration / 2) + "\" ct=\"3\" ts=\""
+                    + (START + i * 10L) + "\" s=\"" + success + "\" lb=\"/api/endpoint" + random.nextInt(LABELS)
+                    + "\" rc=\"" + (success ? "200" : "500") + "\" rm=\"OK\" tn=\"Thread Group 1-" + (i % 20)
+                    + "\" dt=\"text\" by=\"" + (512 + random.nextInt(8192)) + "\" sby=\"120\" ng=\"20\" na=\"20\"/>\n");
+        }
+        out.write("</testResults>\n");
+    }
+
+    private static void writeJMeterCsv(int rows, Random random, Writer out) throws IOException {
+        out.write("timeStamp,elapsed,label,responseCode,responseMessage,threadName,dataType,success,failureMessage,"
+                + "bytes,sentBytes,grpThreads,allThreads,URL,Latency,IdleTime,Connect\n");
+        for (int i = 0; i < rows; i++) {
+            final long duration = duration(random);
+            final boolean success = random.nextInt(100) != 0;
+            final String label = "/api/endpoint" + random.nextInt(LABELS);
+            out.write((START + i * 10L) + "," + duration + "," + label + "," + (success ? "200,OK" : "500,Error")
+                    + ",Thread Group 1-" + (i % 20) + ",text," + success + ",," + (512 + random.nextInt(8192))
+                    + ",120,20,20,http://localhost" + label + "," + (duration / 2) + ",0,3\n");
+        }
+    }
+
+    private static void writeLocust(int rows, Random random, Writer out) throws IOException {
+        out.write("Type,Name,Request Count,Failure Count,Median Response Time,Average Response Time,"
+                + "Min Response Time,Max Response Time,Average Content Size,Requests/s,Failures/s,"
+                + "50%,66%,75%,80%,90%,95%,98%,99%,99.9%,99.99%,100%\n");
+        for (int i = 0; i < rows; i++) {
+            final long median = duration(random);
+            out.write("GET,/api/endpoint" + i + "," + (1000 + random.nextInt(1000)) + "," + random.nextInt(10)
+                    + "," + median + ".0," + (median * 1.1) + "," + (median / 4) + ".0," + (median * 8) + ".0,"
+                    + (512 + random.nextInt(8192)) + ".0,12.5,0.1");
+            for (double factor : new double[]{1, 1.2, 1.4, 1.5, 2, 2.5, 3, 4, 6, 7, 8}) {
+                out.write("," + (long) (median * factor));
+            }
+            out.write("\n");
+        }
+    }
+
+    /**
+     * wrk prints one summary per run; rows are written as buckets of the latency distribution.
+     */
+    private static void writeWrk(int rows, Random random, Writer out) throws IOException {
+        out.write("Running 30s test @ http://localhost:8080/api/endpoint\n");
+        out.write("  4 threads and 64 connections\n");
+        out.write("  Thread Stats   Avg      Stdev     Max   +/- Stdev\n");
+        out.write("    Latency    42.28ms    3.67ms  946.51ms   66.67%\n");
+        out.write("    Req/Sec   380.33     27.51   425.00     66.67%\n");
+        out.write("  Latency Distribution\n");
+        for (int i = 0; i < rows; i++) {
+            out.write("     " + (100L * (i + 1) / (rows + 1)) + "%   " + duration(random) + ".00ms\n");
+        }
+        out.write("  45678 requests in 30.01s, 852.59MB read\n");
+        out.write("  Non-2xx or 3xx responses: " + random.nextInt(100) + "\n");
+        out.write("Requests/sec:   1522.10\n");
+        out.write("Transfer/sec:     28.41MB\n");
+    }
+
+    private static void writeIago(int rows, Random random, Writer out) throws IOException {
+        for (int i = 0; i < rows; i++) {
+            final long average = duration(random);
+            final int requests = 100 + random.nextInt(100);
+            out.write("INF [20140611-21:" + String.format("%02d:%02d", (i / 60) % 60, i % 60) + ".224] stats: {"
+                    + "\"client/request_latency_ms_average\":" + average
+                    + ",\"client/request_latency_ms_minimum\":" + (average / 4)
+                    + ",\"client/request_latency_ms_maximum\":" + (average * 8)
+                    + ",\"client/request_latency_ms_p50\":" + average
+                    + ",\"client/request_latency_ms_p99\":" + (average * 6)
+                    + ",\"client/sent_bytes\":" + (requests * 140)
+                    + ",\"client/received_bytes\":" + (requests * 576)
+                    + ",\"client/requests\":" + requests
+                    + ",\"client/success\":" + (requests - random.nextInt(3))
+                    + ",\"jvm_heap_used\":235366344,\"service\":\"parrot_web\",\"source\":\"benchmark\""
+                    + ",\"timestamp\":" + (START / 1000 + i * 60L) + "}\n");
+        }
+    }
+}
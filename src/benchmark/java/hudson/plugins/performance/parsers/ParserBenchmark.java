@@ -0,0 +1,73 @@
+package hudson.plugins.performance.parsers;
+
+import hudson.plugins.performance.benchmarks.ReportGenerator;
+import hudson.plugins.performance.benchmarks.ReportGenerator.Format;
+import hudson.plugins.performance.reports.PerformanceReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse throughput of the stream based parsers. Bytes allocated per sample are the <code>gc.alloc.rate.norm</code>
+ * secondary result of the GC profiler, which the <code>benchmarks</code> profile enables, divided by
+ * <code>rows</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ParserBenchmark {
+
+    @Param({"JMETER_XML", "JMETER_CSV", "LOCUST", "WRK", "IAGO"})
+    public Format format;
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    private AbstractParser parser;
+
+    private File reportFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        reportFile = ReportGenerator.getReportFile(format, rows);
+        parser = createParser(format);
+    }
+
+    static AbstractParser createParser(Format format) {
+        final String percentiles = "0,50,90,95,100";
+        switch (format) {
+            case JMETER_XML:
+                return new JMeterParser(null, percentiles);
+            case JMETER_CSV:
+                return new JMeterCsvParser(null, percentiles);
+            case LOCUST:
+                return new LocustParser(null, percentiles);
+            case WRK:
+                return new WrkSummarizerParser(null, percentiles);
+            case IAGO:
+                return new IagoParser(null, percentiles);
+            default:
+                throw new IllegalArgumentException("Unknown format " + format);
+        }
+    }
+
+    @Benchmark
+    public PerformanceReport parse() throws Exception {
+        return parser.parse(reportFile);
+    }
+}
@@ -0,0 +1,119 @@
+package hudson.plugins.performance.reports;
+
+import hudson.plugins.performance.data.HttpSample;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Report aggregation: adding samples, and the latency of percentile queries on a report of <code>rows</code>
+ * samples. Percentile benchmarks add one sample before every invocation, so that every query sorts again, as the
+ * first query after parsing does.
+ */
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ReportBenchmark {
+
+    private static final int DISTINCT_SAMPLES = 4096;
+
+    static HttpSample[] createSamples() {
+        final Random random = new Random(DISTINCT_SAMPLES);
+        final HttpSample[] samples = new HttpSample[DISTINCT_SAMPLES];
+        for (int i = 0; i < samples.length; i++) {
+            final HttpSample sample = new HttpSample();
+            sample.setUri("/api/endpoint");
+            sample.setDate(new Date(1500000000000L + i * 10L));
+            sample.setDuration(Math.max(1L, (long) Math.exp(4.5 + random.nextGaussian() * 0.8)));
+            sample.setSuccessful(random.nextInt(100) != 0);
+            sample.setHttpCode(sample.isSuccessful() ? "200" : "500");
+            sample.setSizeInKb(4.5);
+            samples[i] = sample;
+        }
+        return samples;
+    }
+
+    @State(Scope.Thread)
+    public static class Appending {
+        private final HttpSample[] samples = createSamples();
+
+        private UriReport report;
+
+        private int next;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            report = new UriReport(new PerformanceReport("0,50,90,95,100"), "_api_endpoint", "/api/endpoint");
+        }
+
+        HttpSample nextSample() {
+            return samples[next++ & (DISTINCT_SAMPLES - 1)];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Aggregated {
+        @Param({"10000", "1000000"})
+        public int rows;
+
+        private final HttpSample[] samples = createSamples();
+
+        private PerformanceReport report;
+
+        private UriReport uriReport;
+
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            report = new PerformanceReport("0,50,90,95,100");
+            uriReport = new UriReport(report, "_api_endpoint", "/api/endpoint");
+            for (int i = 0; i < rows; i++) {
+                report.addSample(samples[i % DISTINCT_SAMPLES]);
+                uriReport.addHttpSample(samples[i % DISTINCT_SAMPLES]);
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void invalidate() {
+            final HttpSample sample = samples[next++ & (DISTINCT_SAMPLES - 1)];
+            report.addSample(sample);
+            uriReport.addHttpSample(sample);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void addHttpSample(Appending state) {
+        state.report.addHttpSample(state.nextSample());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Long> getSortedDuration(Aggregated state) {
+        return state.uriReport.getSortedDuration();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long getDurationAt(Aggregated state) {
+        return state.report.getDurationAt(90);
+    }
+}
@@ -0,0 +1,95 @@
+package hudson.plugins.performance.reports;
+
+import hudson.plugins.performance.data.HttpSample;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load time of stored reports, i.e. what loading a report of a previous build costs on a cache miss: the snapshot
+ * with and without samples, and the Java serialization of reports of older versions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SnapshotBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    private File snapshotFile;
+
+    private File serializedFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final Random random = new Random(rows);
+        final PerformanceReport report = new PerformanceReport("0,50,90,95,100");
+        report.setReportFileName("results.jtl");
+        for (int i = 0; i < rows; i++) {
+            final HttpSample sample = new HttpSample();
+            sample.setUri("/api/endpoint" + random.nextInt(50));
+            sample.setDate(new Date(1500000000000L + i * 10L));
+            sample.setDuration(Math.max(1L, (long) Math.exp(4.5 + random.nextGaussian() * 0.8)));
+            sample.setSuccessful(random.nextInt(100) != 0);
+            sample.setHttpCode(sample.isSuccessful() ? "200" : "500");
+            sample.setSizeInKb(4.5);
+            report.addSample(sample);
+        }
+        snapshotFile = File.createTempFile("results.jtl", ReportSnapshot.FILE_SUFFIX);
+        ReportSnapshot.write(snapshotFile, report);
+        serializedFile = File.createTempFile("results.jtl", ".serialized");
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(serializedFile.toPath())))) {
+            out.writeObject(report);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotFile.toPath());
+        Files.deleteIfExists(serializedFile.toPath());
+    }
+
+    @Benchmark
+    public PerformanceReport readSnapshot() throws IOException {
+        return ReportSnapshot.read(snapshotFile, true);
+    }
+
+    @Benchmark
+    public PerformanceReport readSnapshotSummary() throws IOException {
+        return ReportSnapshot.read(snapshotFile, false);
+    }
+
+    @Benchmark
+    public Object readSerialized() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(Files.newInputStream(serializedFile.toPath())))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package hudson.plugins.performance;
+
+import java.awt.HeadlessException;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import hudson.util.Graph;
+
+/**
+ * A {@link Graph} whose image is kept in the {@link GraphCache}. Callers check the cache with
+ * {@link GraphCache#serve(String, StaplerRequest, StaplerResponse)} before they compute the data set of the graph,
+ * and create this graph with the same key if the image was not cached.
+ */
+public abstract class CachedGraph extends Graph {
+
+    private final String key;
+    private final int defaultWidth;
+    private final int defaultHeight;
+
+    /**
+     * @param key see {@link GraphCache#key(hudson.model.Job, String, StaplerRequest, Object...)}
+     */
+    protected CachedGraph(String key, int defaultWidth, int defaultHeight) {
+        super(-1, defaultWidth, defaultHeight);
+        this.key = key;
+        this.defaultWidth = defaultWidth;
+        this.defaultHeight = defaultHeight;
+    }
+
+    @Override
+    public void doPng(StaplerRequest request, StaplerResponse response) throws IOException {
+        final int width = GraphCache.getRequestedSize(request, "width", defaultWidth);
+        final int height = GraphCache.getRequestedSize(request, "height", defaultHeight);
+        final ByteArrayOutputStream png = new ByteArrayOutputStream();
+        try {
+            final BufferedImage image = createGraph().createBufferedImage(width, height);
+            ImageIO.write(image, "PNG", png);
+        } catch (HeadlessException e) {
+            response.sendRedirect2(request.getContextPath() + "/images/headless.png");
+            return;
+        }
+        GraphCache.getInstance().putAndSend(key, png.toByteArray(), request, response);
+    }
+}
@@ -0,0 +1,295 @@
+package hudson.plugins.performance;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.Hashing;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+
+/**
+ * A cache of rendered graph images, so that pages that are polled, such as wallboards, do not compute the data set
+ * and render the image again on every request.
+ * <p>
+ * Images are cached per job, graph and everything the image depends on besides the builds of the job, e.g. the
+ * requested size and the range of builds. The images of a job are dropped when one of its builds completes or is
+ * deleted, or when the job is changed. Images are sent with an <code>ETag</code> and a <code>Last-Modified</code>
+ * header, so that clients that already have an image get a <code>304 Not Modified</code> response.
+ * <p>
+ * The cache holds up to {@value #DEFAULT_MAX_BYTES} bytes of images, or the number of bytes given by the system
+ * property {@value #MAX_BYTES_PROPERTY}.
+ */
+public final class GraphCache {
+
+    public static final String MAX_BYTES_PROPERTY = GraphCache.class.getName() + ".maxBytes";
+
+    static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * Upper bound of the requested width or height of a graph.
+     */
+    public static final int MAX_GRAPH_SIZE = 2000;
+
+    private static final char KEY_SEPARATOR = '\n';
+
+    private static final GraphCache INSTANCE = new GraphCache(Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES));
+
+    private final long maxBytes;
+
+    private final Cache<String, Image> cache;
+
+    /**
+     * The sum of the sizes of all cached images.
+     */
+    private final AtomicLong bytes = new AtomicLong();
+
+    GraphCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.cache = CacheBuilder.newBuilder()
+                .concurrencyLevel(1)
+                .maximumWeight(maxBytes)
+                .weigher(new Weigher<String, Image>() {
+                    @Override
+                    public int weigh(String key, Image image) {
+                        return image.png.length;
+                    }
+                })
+                .removalListener(new RemovalListener<String, Image>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<String, Image> notification) {
+                        if (notification.getValue() != null) {
+                            bytes.addAndGet(-notification.getValue().png.length);
+                        }
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public static GraphCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates the key of the image of a graph as it is requested.
+     *
+     * @param job     the job whose builds the graph shows, or <code>null</code>
+     * @param graph   name of the graph, unique among the graphs of the plugin
+     * @param request the request, whose URL and query are part of the key
+     * @param variant anything else the image depends on, such as the range of builds
+     */
+    public static String key(Job<?, ?> job, String graph, StaplerRequest request, Object... variant) {
+        return key(job != null ? job.getFullName() : null, graph, request.getRequestURI(), request.getQueryString(),
+                variant);
+    }
+
+    static String key(String jobName, String graph, String uri, String query, Object... variant) {
+        final StringBuilder key = new StringBuilder();
+        key.append(jobName).append(KEY_SEPARATOR).append(graph).append(KEY_SEPARATOR).append(uri).append('?')
+                .append(query);
+        for (Object part : variant) {
+            key.append(KEY_SEPARATOR).append(part);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Sends the cached image for the given key, if there is one.
+     *
+     * @return true if the request has been answered
+     */
+    public boolean serve(String key, StaplerRequest request, StaplerResponse response) throws IOException {
+        final Image image = cache.getIfPresent(key);
+        if (image == null) {
+            return false;
+        }
+        send(image, request, response);
+        return true;
+    }
+
+    /**
+     * Caches a rendered image and sends it.
+     */
+    void putAndSend(String key, byte[] png, StaplerRequest request, StaplerResponse response) throws IOException {
+        final Image image = put(key, png);
+        send(image, request, response);
+    }
+
+    Image put(String key, byte[] png) {
+        final Image image = new Image(png, System.currentTimeMillis());
+        bytes.addAndGet(png.length);
+        cache.put(key, image);
+        return image;
+    }
+
+    Image getIfPresent(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    private static void send(Image image, StaplerRequest request, StaplerResponse response) throws IOException {
+        response.setHeader("ETag", image.etag);
+        response.setDateHeader("Last-Modified", image.lastModified);
+        // clients may keep the image, but have to ask whether it is still current
+        response.setHeader("Cache-Control", "no-cache");
+        if (image.isNotModified(request.getHeader("If-None-Match"), request.getDateHeader("If-Modified-Since"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType("image/png");
+        response.setContentLength(image.png.length);
+        final ServletOutputStream out = response.getOutputStream();
+        out.write(image.png);
+        out.close();
+    }
+
+    /**
+     * Drops the images of the given job.
+     */
+    public void invalidate(Job<?, ?> job) {
+        invalidate(job.getFullName());
+    }
+
+    void invalidate(String jobName) {
+        final String prefix = jobName + KEY_SEPARATOR;
+        final Iterator<String> keys = cache.asMap().keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().startsWith(prefix)) {
+                keys.remove();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return the size of all cached images in bytes
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getSize() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    /**
+     * @return the width or height of a graph as requested by the parameter, within sane bounds
+     */
+    public static int getRequestedSize(StaplerRequest request, String parameter, int defaultSize) {
+        final String value = request.getParameter(parameter);
+        if (value == null) {
+            return defaultSize;
+        }
+        try {
+            return Math.max(1, Math.min(MAX_GRAPH_SIZE, Integer.parseInt(value)));
+        } catch (NumberFormatException e) {
+            return defaultSize;
+        }
+    }
+
+    /**
+     * A rendered image.
+     */
+    static final class Image {
+        final byte[] png;
+        final String etag;
+        final long lastModified;
+
+        Image(byte[] png, long lastModified) {
+            this.png = png;
+            // the same image gets the same tag, even when it was rendered again
+            this.etag = '"' + Hashing.murmur3_128().hashBytes(png).toString() + '"';
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * @param ifNoneMatch     the <code>If-None-Match</code> header, or <code>null</code>
+         * @param ifModifiedSince the <code>If-Modified-Since</code> header, or -1
+         * @return true if the client has this image already
+         */
+        boolean isNotModified(String ifNoneMatch, long ifModifiedSince) {
+            if (ifNoneMatch != null) {
+                return ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(etag);
+            }
+            // the header has a precision of seconds
+            return ifModifiedSince >= 0 && ifModifiedSince / 1000 >= lastModified / 1000;
+        }
+    }
+
+    /**
+     * Drops the images of a job when one of its builds completes or is deleted.
+     */
+    @Extension
+    public static final class BuildListener extends RunListener<Run<?, ?>> {
+
+        @Override
+        public void onCompleted(Run<?, ?> run, @NonNull TaskListener listener) {
+            getInstance().invalidate(run.getParent());
+        }
+
+        @Override
+        public void onDeleted(Run<?, ?> run) {
+            getInstance().invalidate(run.getParent());
+        }
+    }
+
+    /**
+     * Drops the images of a job when it is changed, e.g. when the values shown by its graphs are configured, and when
+     * it is renamed or moved, since its images are kept by its old name.
+     */
+    @Extension
+    public static final class JobListener extends ItemListener {
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            getInstance().invalidate(oldFullName);
+        }
+
+        @Override
+        public void onUpdated(Item item) {
+            if (item instanceof Job) {
+                getInstance().invalidate((Job<?, ?>) item);
+            }
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            if (item instanceof Job) {
+                getInstance().invalidate((Job<?, ?>) item);
+            }
+        }
+    }
+}
@@ -38,9 +38,11 @@ import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.plugins.performance.actions.ExternalBuildReportAction;
+import hudson.plugins.performance.actions.LivePerformanceReportAction;
 import hudson.plugins.performance.actions.PerformanceBuildAction;
 import hudson.plugins.performance.actions.PerformanceProjectAction;
 import hudson.plugins.performance.constraints.AbstractConstraint;
+import hudson.plugins.performance.constraints.BaselineStore;
 import hudson.plugins.performance.constraints.ConstraintChecker;
 import hudson.plugins.performance.constraints.ConstraintEvaluation;
 import hudson.plugins.performance.constraints.ConstraintFactory;
@@ -62,6 +64,7 @@ import hudson.plugins.performance.parsers.JMeterCsvParser;
 import hudson.plugins.performance.parsers.JMeterParser;
 import hudson.plugins.performance.parsers.JUnitParser;
 import hudson.plugins.performance.parsers.JmeterSummarizerParser;
+import hudson.plugins.performance.parsers.LoadRunnerParser;
 import hudson.plugins.performance.parsers.ParserFactory;
 import hudson.plugins.performance.parsers.PerformanceReportParser;
 import hudson.plugins.performance.parsers.TaurusParser;
@@ -69,8 +72,10 @@ import hudson.plugins.performance.parsers.WrkSummarizerParser;
 import hudson.plugins.performance.reports.AbstractReport;
 import hudson.plugins.performance.reports.ConstraintReport;
 import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.reports.ReportSnapshot;
 import hudson.plugins.performance.reports.ThroughputReport;
 import hudson.plugins.performance.reports.UriReport;
+import hudson.plugins.performance.tools.ReportCompression;
 import hudson.plugins.performance.tools.SafeMaths;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
@@ -116,6 +121,16 @@ public class PerformancePublisher extends Recorder implements SimpleBuildStep {
 
     public static final String PRT = "PRT";
 
+    /**
+     * Raw report files parsed on an agent are copied to the build directory as they are.
+     */
+    public static final String RAW_REPORTS_COPY = "COPY";
+
+    /**
+     * Raw report files parsed on an agent are not archived, only their parsed reports are.
+     */
+    public static final String RAW_REPORTS_NONE = "NONE";
+
     public String optionType = "ART";
 
     private static final String ARCHIVE_DIRECTORY = "archive";
@@ -127,6 +142,36 @@ public class PerformancePublisher extends Recorder implements SimpleBuildStep {
      */
     private boolean excludeResponseTime;
 
+    /**
+     * Keep only aggregated duration statistics instead of every sample
+     */
+    private boolean streamingStatistics;
+
+    /**
+     * Maximum number of report files parsed concurrently
+     */
+    private int parseWorkers = 1;
+
+    /**
+     * Number of threads that parse chunks of a single large CSV report file
+     */
+    private int csvChunkWorkers = 1;
+
+    /**
+     * Parse report files on the agent that holds them, transferring only the parsed reports to the controller
+     */
+    private boolean parseOnAgent;
+
+    /**
+     * How raw report files parsed on an agent are archived, see {@link #RAW_REPORTS_COPY}
+     */
+    private String rawReportArchiving = RAW_REPORTS_COPY;
+
+    /**
+     * Archive report files in the build directory gzip compressed
+     */
+    private boolean compressArchivedReports;
+
     /**
      * Show Trends mode.
      */
@@ -337,7 +382,7 @@ public class PerformancePublisher extends Recorder implements SimpleBuildStep {
                 if (!filePath.isEmpty()) {
                     try {
                         logger.println("Creating parser with percentiles:'" + percentiles + ",' filterRegex:" + filterRegex);
-                        parsers.addAll(ParserFactory.getParser(build, workspace, logger, filePath, env, percentiles, filterRegex));
+                        parsers.addAll(ParserFactory.getParser(build, workspace, logger, filePath, env, percentiles, filterRegex, parseOnAgent));
                     } catch (IOException ex) {
                         logger.println("Cannot detect file type because of error: " + ex.getMessage());
                     }
@@ -432,6 +477,13 @@ public class PerformancePublisher extends Recorder implements SimpleBuildStep {
             r.setBuildAction(a);
         }
 
+        // trend graphs of the project read the aggregates of this build from its summary index
+        try {
+            a.writeSummaryIndex(parsedReports);
+        } catch (IOException e) {
+            listener.getLogger().println("Performance: Failed to write summary index: " + e.getMessage());
+        }
+
         return parsedReports;
     }
 
@@ -474,8 +526,14 @@ public class PerformancePublisher extends Recorder implements SimpleBuildStep {
                 return Collections.emptyList();
             }
 
+            if (parseOnAgent && parser instanceof AbstractParser) {
+                logger.println("Performance: " + parser.getReportName() + " parsing reports on agent, files '" + files + "'");
+                performanceReports.addAll(parseReportsOnAgent(run, listener, files, (AbstractParser) parser));
+                continue;
+            }
+
             logger.println("Performance: " + parser.getReportName() + " copying reports to master, files '" + files + "'");
-            List<File> localReports = copyReportsToMaster(run, logger, files, parser.getDescriptor().getDisplayName());
+            List<File> localReports = copyReportsToMaster(run, logger, files, parser);
             logger.println("Performance: " + parser.getReportName() + " parsing local reports '" + localReports
                     + "'");
             performanceReports.addAll(parser.parse(run, localReports, listener));
@@ -489,6 +547,9 @@ public class PerformancePublisher extends Recorder implements SimpleBuildStep {
     private void prepareParsers(Collection<PerformanceReportParser> performanceReportParsers) {
         for (PerformanceReportParser parser : performanceReportParsers) {
             parser.setExcludeResponseTime(excludeResponseTime);
+            parser.setStreamingStatistics(streamingStatistics);
+            parser.setParseWorkers(parseWorkers);
+            parser.setCsvChunkWorkers(csvChunkWorkers);
             parser.setShowTrendGraphs(showTrendGraphs);
             parser.setBaselineBuild(baselineBuild);
         }
@@ -1044,7 +1105,8 @@ public class PerformancePublisher extends Recorder implements SimpleBuildStep {
         ConstraintFactory factory = new ConstraintFactory();
         ConstraintSettings settings = new ConstraintSettings(listener, ignoreFailedBuilds, ignoreUnstableBuilds,
                 persistConstraintLog, getBaselineBuild());
-        ConstraintChecker checker = new ConstraintChecker(settings, run.getParent().getBuilds());
+        ConstraintChecker checker = new ConstraintChecker(settings, run.getParent().getBuilds(),
+                BaselineStore.getInstance().get(run.getParent()));
         ArrayList<ConstraintEvaluation> ceList = new ArrayList<>();
         try {
             ceList = checker.checkAllConstraints(factory.createConstraintClones(run, constraints));
@@ -1089,20 +1151,86 @@ public class PerformancePublisher extends Recorder implements SimpleBuildStep {
     }
 
     private List<File> copyReportsToMaster(Run<?, ?> build, PrintStream logger, List<FilePath> files,
-                                           String parserDisplayName) throws IOException, InterruptedException {
+                                           PerformanceReportParser parser) throws IOException, InterruptedException {
         List<File> localReports = new ArrayList<>();
         for (FilePath src : files) {
-            final File localReport = getPerformanceReport(build, parserDisplayName, src.getName());
+            final File localReport = getPerformanceReport(build, parser.getDescriptor().getDisplayName(),
+                    ReportCompression.getArchiveName(src.getName()));
             if (src.isDirectory()) {
                 logger.println("Performance: File '" + src.getName() + "' is a directory, not a Performance Report");
                 continue;
             }
-            src.copyTo(new FilePath(localReport));
+            archiveReport(src, localReport, parser);
+            adoptLiveReport(build, src, localReport, parser, logger);
             localReports.add(localReport);
         }
         return localReports;
     }
 
+    /**
+     * Takes over the report of a file that was read while the load test was running, see
+     * {@link hudson.plugins.performance.build.LivePerformanceReport}, provided that the file has not changed since
+     * and that the report was created with the settings of the given parser.
+     *
+     * @return true if the report was taken over; it is then loaded instead of parsed
+     */
+    private boolean adoptLiveReport(Run<?, ?> build, FilePath src, File localReport, PerformanceReportParser parser,
+                                    PrintStream logger) throws IOException, InterruptedException {
+        final LivePerformanceReportAction liveAction = build.getAction(LivePerformanceReportAction.class);
+        if (liveAction == null || !(parser instanceof AbstractParser)) {
+            return false;
+        }
+        final LivePerformanceReportAction.LiveFile liveFile = liveAction.takeFile(src.getRemote(), src.length());
+        if (liveFile != null && ((AbstractParser) parser).adoptReport(localReport, liveFile.getReport(),
+                liveFile.getParser())) {
+            logger.println("Performance: Using the live report of '" + src.getName() + "'");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Copies a report file to the build directory, compressed if so configured. LoadRunner databases are always
+     * copied as they are, as they are not read as a stream.
+     */
+    private void archiveReport(FilePath src, File localReport, PerformanceReportParser parser)
+            throws IOException, InterruptedException {
+        if (compressArchivedReports && !(parser instanceof LoadRunnerParser)) {
+            ReportCompression.copyCompressed(src, localReport);
+        } else {
+            src.copyTo(new FilePath(localReport));
+        }
+    }
+
+    /**
+     * Parses report files on the agent that holds them. Depending on {@link #getRawReportArchiving()}, the raw files
+     * are copied to the build directory as well.
+     */
+    private List<PerformanceReport> parseReportsOnAgent(Run<?, ?> build, TaskListener listener, List<FilePath> files,
+                                                        AbstractParser parser) throws IOException, InterruptedException {
+        final boolean archiveRawReports = !RAW_REPORTS_NONE.equals(getRawReportArchiving());
+        List<PerformanceReport> reports = new ArrayList<>();
+        for (FilePath src : files) {
+            if (src.isDirectory()) {
+                listener.getLogger().println("Performance: File '" + src.getName() + "' is a directory, not a Performance Report");
+                continue;
+            }
+            final File localReport = getPerformanceReport(build, parser.getDescriptor().getDisplayName(),
+                    ReportCompression.getArchiveName(src.getName()));
+            if (archiveRawReports) {
+                archiveReport(src, localReport, parser);
+            }
+            if (adoptLiveReport(build, src, localReport, parser, listener.getLogger())) {
+                reports.addAll(parser.parse(build, Collections.singletonList(localReport), listener));
+                continue;
+            }
+            final PerformanceReport report = parser.parseOnAgent(src, localReport, listener);
+            if (report != null) {
+                reports.add(report);
+            }
+        }
+        return reports;
+    }
 
     public int getErrorFailedThreshold() {
         return errorFailedThreshold;
@@ -1197,21 +1325,11 @@ public class PerformancePublisher extends Recorder implements SimpleBuildStep {
     }
 
     private List<File> getExistingReports(Run<?, ?> build, PrintStream logger, String parserDisplayName) {
-        List<File> localReports = new ArrayList<>();
-        final File[] localReport = getPerformanceReportDirectory(build, parserDisplayName, logger);
-
-        for (int i = 0; i < localReport.length; i++) {
-
-            String name = localReport[i].getName();
-            String[] arr = name.split("\\.");
-
-            // skip the serialized jmeter report file
-            if (arr[arr.length - 1].equalsIgnoreCase("serialized"))
-                continue;
+        File folder = new File(build.getRootDir(), PerformanceReportMap.getPerformanceReportFileRelativePath(parserDisplayName, ""));
 
-            localReports.add(localReport[i]);
-        }
-        return localReports;
+        // skips the snapshots of parsed reports, but includes reports parsed on an agent without their raw file
+        final File[] localReports = ReportSnapshot.listReportFiles(folder);
+        return (localReports != null) ? new ArrayList<>(Arrays.asList(localReports)) : new ArrayList<File>();
     }
 
     public double getRelativeFailedThresholdPositive() {
@@ -1389,6 +1507,60 @@ public class PerformancePublisher extends Recorder implements SimpleBuildStep {
         this.excludeResponseTime = excludeResponseTime;
     }
 
+    public boolean isStreamingStatistics() {
+        return streamingStatistics;
+    }
+
+    @DataBoundSetter
+    public void setStreamingStatistics(boolean streamingStatistics) {
+        this.streamingStatistics = streamingStatistics;
+    }
+
+    public int getParseWorkers() {
+        return parseWorkers;
+    }
+
+    @DataBoundSetter
+    public void setParseWorkers(int parseWorkers) {
+        this.parseWorkers = Math.max(1, parseWorkers);
+    }
+
+    public int getCsvChunkWorkers() {
+        return csvChunkWorkers;
+    }
+
+    @DataBoundSetter
+    public void setCsvChunkWorkers(int csvChunkWorkers) {
+        this.csvChunkWorkers = Math.max(1, csvChunkWorkers);
+    }
+
+    public boolean isParseOnAgent() {
+        return parseOnAgent;
+    }
+
+    @DataBoundSetter
+    public void setParseOnAgent(boolean parseOnAgent) {
+        this.parseOnAgent = parseOnAgent;
+    }
+
+    public boolean isCompressArchivedReports() {
+        return compressArchivedReports;
+    }
+
+    @DataBoundSetter
+    public void setCompressArchivedReports(boolean compressArchivedReports) {
+        this.compressArchivedReports = compressArchivedReports;
+    }
+
+    public String getRawReportArchiving() {
+        return (rawReportArchiving == null) ? RAW_REPORTS_COPY : rawReportArchiving;
+    }
+
+    @DataBoundSetter
+    public void setRawReportArchiving(String rawReportArchiving) {
+        this.rawReportArchiving = rawReportArchiving;
+    }
+
     public String getJunitOutput() {
         return junitOutput;
     }
@@ -1542,6 +1714,13 @@ public class PerformancePublisher extends Recorder implements SimpleBuildStep {
             return getResponseTimeOptions();
         }
 
+        public ListBoxModel doFillRawReportArchivingItems() {
+            ListBoxModel items = new ListBoxModel();
+            items.add("Copy to the build directory", RAW_REPORTS_COPY);
+            items.add("Do not archive", RAW_REPORTS_NONE);
+            return items;
+        }
+
         private ListBoxModel getResponseTimeOptions() {
             ListBoxModel items = new ListBoxModel();
             items.add("Average Response Time", "ART");
@@ -8,28 +8,32 @@ import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.plugins.performance.actions.PerformanceBuildAction;
 import hudson.plugins.performance.actions.PerformanceProjectAction;
+import hudson.plugins.performance.data.ReportDataWriter;
 import hudson.plugins.performance.data.ReportValueSelector;
 import hudson.plugins.performance.details.GraphConfigurationDetail;
 import hudson.plugins.performance.parsers.JMeterParser;
 import hudson.plugins.performance.parsers.PerformanceReportParser;
 import hudson.plugins.performance.reports.AbstractReport;
 import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.reports.ReportSnapshot;
 import hudson.plugins.performance.data.PerformanceReportPosition;
 import hudson.plugins.performance.reports.ThroughputReport;
 import hudson.plugins.performance.reports.UriReport;
 import hudson.util.ChartUtil;
 import hudson.util.ChartUtil.NumberOnlyBuildLabel;
 import hudson.util.DataSetBuilder;
-import hudson.util.Graph;
+
+import com.google.gson.stream.JsonWriter;
 
 import org.jfree.chart.JFreeChart;
 import org.jfree.data.category.CategoryDataset;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 
+import javax.servlet.http.HttpServletResponse;
+
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
@@ -62,6 +66,8 @@ public class PerformanceReportMap implements ModelObject {
     private static final String PERFORMANCE_REPORTS_DIRECTORY = "performance-reports";
     private static final String PLUGIN_NAME = "performance";
     private static final String TRENDREPORT_LINK = "trendReport";
+    private static final int URI_DATA_PAGE_SIZE = 100;
+    private static final int MAX_URI_DATA_PAGE_SIZE = 1000;
 
     public PerformanceReportMap(final PerformanceBuildAction buildAction,
                                 TaskListener listener) throws IOException {
@@ -239,10 +245,15 @@ public class PerformanceReportMap implements ModelObject {
                                       StaplerResponse response) throws IOException {
         String parameter = request.getParameter("performanceReportPosition");
         Run<?, ?> previousBuild = getBuild();
+        ReportValueSelector valueSelector = ReportValueSelector.get(getBuild().getParent());
+        final String graphKey = GraphCache.key(getBuild().getParent(), "build.respondingTime", request,
+                valueSelector.getGraphType());
+        if (GraphCache.getInstance().serve(graphKey, request, response)) {
+            return;
+        }
         final Map<Run<?, ?>, Map<String, PerformanceReport>> buildReports = getBuildReports(parameter, previousBuild);
         // Now we should have the data necessary to generate the graphs!
         DataSetBuilder<String, NumberOnlyBuildLabel> dataSetBuilder = new DataSetBuilder<String, NumberOnlyBuildLabel>();
-        ReportValueSelector valueSelector = ReportValueSelector.get(getBuild().getParent());
         String keyLabel = getKeyLabel(valueSelector.getGraphType());
         for (Map.Entry<Run<?, ?>, Map<String, PerformanceReport>> entry : buildReports.entrySet()) {
             NumberOnlyBuildLabel label = new NumberOnlyBuildLabel(entry.getKey());
@@ -252,7 +263,7 @@ public class PerformanceReportMap implements ModelObject {
         }
         String legendLimit = request.getParameter("legendLimit");
         int limit = (legendLimit != null && !legendLimit.isEmpty()) ? Integer.parseInt(legendLimit) : Integer.MAX_VALUE;
-        new Graph(-1, 400, 200) {
+        new CachedGraph(graphKey, 400, 200) {
             @Override
             protected JFreeChart createGraph() {
                 return createRespondingTimeChart(dataSetBuilder.build(), limit);
@@ -274,6 +285,10 @@ public class PerformanceReportMap implements ModelObject {
 
         final DataSetBuilder<String, NumberOnlyBuildLabel> dataSetBuilder = new DataSetBuilder<>();
         List<? extends Run<?, ?>> builds = buildAction.getBuild().getParent().getBuilds();
+        final String graphKey = GraphCache.key(getBuild().getParent(), "build.throughput", request);
+        if (GraphCache.getInstance().serve(graphKey, request, response)) {
+            return;
+        }
 
         for (final Run<?, ?> build : builds) {
                 final PerformanceBuildAction performanceBuildAction = build.getAction(PerformanceBuildAction.class);
@@ -282,7 +297,7 @@ public class PerformanceReportMap implements ModelObject {
                 }
 
                 final PerformanceReport performanceReport = performanceBuildAction
-                        .getPerformanceReportMap().getPerformanceReport(parameter);
+                        .getPerformanceReportSummary(parameter);
                 if (performanceReport == null) {
                     continue;
                 }
@@ -292,7 +307,7 @@ public class PerformanceReportMap implements ModelObject {
                 dataSetBuilder.add(throughputReport.get(), Messages.ProjectAction_RequestsPerSeconds(), label);
         }
 
-        new Graph(-1, 400, 200) {
+        new CachedGraph(graphKey, 400, 200) {
             @Override
             protected JFreeChart createGraph() {
                 return createThroughputChart((dataSetBuilder.build()));
@@ -322,6 +337,11 @@ public class PerformanceReportMap implements ModelObject {
         List<? extends Run<?, ?>> builds = buildAction.getBuild().getParent().getBuilds();
 
         ReportValueSelector valueSelector = ReportValueSelector.get(getPublisher());
+        final String graphKey = GraphCache.key(getBuild().getParent(), "build.respondingTimePerTestCase", request,
+                valueSelector.getGraphType());
+        if (GraphCache.getInstance().serve(graphKey, request, response)) {
+            return;
+        }
 
 
         for (Run<?, ?> build : builds) {
@@ -333,7 +353,7 @@ public class PerformanceReportMap implements ModelObject {
             }
 
             final PerformanceReport performanceReport = performanceBuildAction
-                    .getPerformanceReportMap().getPerformanceReport(performanceReportNameFile);
+                    .getPerformanceReportSummary(performanceReportNameFile);
             if (performanceReport == null) {
                 continue;
             }
@@ -346,7 +366,7 @@ public class PerformanceReportMap implements ModelObject {
 
         String legendLimit = request.getParameter("legendLimit");
         int limit = (legendLimit != null && !legendLimit.isEmpty()) ? Integer.parseInt(legendLimit) : Integer.MAX_VALUE;
-        new Graph(-1, 600, 200) {
+        new CachedGraph(graphKey, 600, 200) {
             @Override
             protected JFreeChart createGraph() {
                 return createRespondingTimeChart(dataSetBuilder.build(), limit);
@@ -368,6 +388,10 @@ public class PerformanceReportMap implements ModelObject {
         }
         DataSetBuilder<String, NumberOnlyBuildLabel> dataSetBuilderErrors = new DataSetBuilder<String, NumberOnlyBuildLabel>();
         List<? extends Run<?, ?>> builds = buildAction.getBuild().getParent().getBuilds();
+        final String graphKey = GraphCache.key(getBuild().getParent(), "build.errors", request);
+        if (GraphCache.getInstance().serve(graphKey, request, response)) {
+            return;
+        }
 
         for (Run<?, ?> currentBuild : builds) {
                 NumberOnlyBuildLabel label = new NumberOnlyBuildLabel(currentBuild);
@@ -378,8 +402,7 @@ public class PerformanceReportMap implements ModelObject {
                     continue;
                 }
                 PerformanceReport performanceReport = performanceBuildAction
-                        .getPerformanceReportMap().getPerformanceReport(
-                                performanceReportNameFile);
+                        .getPerformanceReportSummary(performanceReportNameFile);
                 if (performanceReport == null) {
                     continue;
                 }
@@ -387,7 +410,7 @@ public class PerformanceReportMap implements ModelObject {
                 dataSetBuilderErrors.add(performanceReport.errorPercent(),
                         Messages.ProjectAction_Errors(), label);
         }
-        new Graph(-1, 400, 200) {
+        new CachedGraph(graphKey, 400, 200) {
             @Override
             protected JFreeChart createGraph() {
                 return createErrorsChart(dataSetBuilderErrors.build());
@@ -440,9 +463,14 @@ public class PerformanceReportMap implements ModelObject {
             throws IOException {
         String parameter = request.getParameter("performanceReportPosition");
         Run<?, ?> previousBuild = getBuild();
+        ReportValueSelector valueSelector = ReportValueSelector.get(getBuild().getParent());
+        final String graphKey = GraphCache.key(getBuild().getParent(), "build.summarizer", request,
+                valueSelector.getGraphType());
+        if (GraphCache.getInstance().serve(graphKey, request, response)) {
+            return;
+        }
         Map<Run<?, ?>, Map<String, PerformanceReport>> buildReports = getBuildReports(parameter, previousBuild);
         DataSetBuilder<NumberOnlyBuildLabel, String> dataSetBuilderSummarizer = new DataSetBuilder<NumberOnlyBuildLabel, String>();
-        ReportValueSelector valueSelector = ReportValueSelector.get(getBuild().getParent());
         for (Map.Entry<Run<?, ?>, Map<String, PerformanceReport>> entry : buildReports.entrySet()) {
             NumberOnlyBuildLabel label = new NumberOnlyBuildLabel(entry.getKey());
             PerformanceReport report = entry.getValue().get(parameter);
@@ -454,7 +482,7 @@ public class PerformanceReportMap implements ModelObject {
             }
         }
 
-        new Graph(-1, 400, 200) {
+        new CachedGraph(graphKey, 400, 200) {
             @Override
             protected JFreeChart createGraph() {
                 return createSummarizerChart(dataSetBuilderSummarizer.build());
@@ -477,7 +505,7 @@ public class PerformanceReportMap implements ModelObject {
         File[] files = repo.listFiles(new FileFilter() {
 
             public boolean accept(File f) {
-                return !f.isDirectory() && !f.getName().endsWith(".serialized");
+                return !f.isDirectory() && !ReportSnapshot.isDerivedFile(f.getName());
             }
         });
         // this may fail, if the build itself failed, we need to recover gracefully
@@ -498,21 +526,18 @@ public class PerformanceReportMap implements ModelObject {
                 PerformanceReportParser p = buildAction.getParserByDisplayName(dir
                         .getName());
                 if (p != null) {
-                    File[] listFiles = dir.listFiles(new FilenameFilter() {
-
-                        public boolean accept(File dir, String name) {
-                            if (filename == null && !name.endsWith(".serialized")) {
-                                return true;
+                    List<File> listFiles = new ArrayList<>();
+                    File[] reportFiles = ReportSnapshot.listReportFiles(dir);
+                    if (reportFiles != null) {
+                        for (File reportFile : reportFiles) {
+                            if (filename == null || reportFile.getName().equals(filename)) {
+                                listFiles.add(reportFile);
                             }
-                            if (name.equals(filename)) {
-                                return true;
-                            }
-                            return false;
                         }
-                    });
+                    }
                     if (listener != null && listener.getLogger() != null) {
                         try {
-                            collector.addAll(p.parse(build, Arrays.asList(listFiles), listener));
+                            collector.addAll(p.parse(build, listFiles, listener));
                         } catch (IOException ex) {
                             listener.getLogger().println("Unable to process directory '" + dir + "'.");
                             ex.printStackTrace(listener.getLogger());
@@ -569,6 +594,92 @@ public class PerformanceReportMap implements ModelObject {
         }
         return r;
     }
+    /**
+     * Sends the aggregates of the reports of this build as JSON:
+     * <pre>
+     * {"build": 12, "reports": [{"name": "result.jtl", "average": 120, ...}]}
+     * </pre>
+     * With the parameter <code>report</code>, only that report is sent, with the aggregates of its URIs a page at a
+     * time:
+     * <pre>
+     * {"build": 12, "reports": [{"name": "result.jtl", "average": 120, ..., "uris": [{"uri": "/login",
+     *   "key": "_login", "average": 80, ...}], "next": "_login"}]}
+     * </pre>
+     * Further request parameters, all optional:
+     * <ul>
+     * <li><code>fields</code>: comma separated fields of {@link ReportDataWriter#FIELDS}</li>
+     * <li><code>uri</code>: only this URI, may be repeated</li>
+     * <li><code>after</code>: the <code>next</code> cursor of the previous page</li>
+     * <li><code>limit</code>: number of URIs of a page</li>
+     * </ul>
+     */
+    public void doData(StaplerRequest request, StaplerResponse response) throws IOException {
+        final String reportFileName = request.getParameter("report");
+        final PerformanceReport selectedReport = (reportFileName != null) ? getPerformanceReport(reportFileName)
+                : null;
+        if (reportFileName != null && selectedReport == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "No report " + reportFileName);
+            return;
+        }
+        final ReportDataWriter writer;
+        final int limit;
+        try {
+            final String[] uris = request.getParameterValues("uri");
+            writer = new ReportDataWriter(ReportDataWriter.parseFields(request.getParameter("fields")),
+                    ReportDataWriter.parseUris(uris != null ? uris : new String[]{ReportDataWriter.ALL_URIS}));
+            limit = ReportDataWriter.parseLimit(request.getParameter("limit"), URI_DATA_PAGE_SIZE,
+                    MAX_URI_DATA_PAGE_SIZE);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        final JsonWriter out = ReportDataWriter.open(response);
+        out.beginObject();
+        final Run<?, ?> build = getBuild();
+        if (build != null) {
+            out.name("build").value(build.number);
+        }
+        out.name("reports").beginArray();
+        if (selectedReport == null) {
+            for (PerformanceReport report : ReportDataWriter.orderByName(performanceReportMap.values())) {
+                writer.beginReport(out, report);
+                out.endObject();
+            }
+        } else {
+            writer.beginReport(out, selectedReport);
+            out.name("uris").beginArray();
+            final String after = request.getParameter("after");
+            String last = null;
+            boolean more = false;
+            int count = 0;
+            for (UriReport uriReport : writer.getUris(selectedReport)) {
+                if (after != null && uriReport.getStaplerUri().compareTo(after) <= 0) {
+                    continue;
+                }
+                if (count == limit) {
+                    more = true;
+                    break;
+                }
+                writer.writeUri(out, uriReport);
+                last = uriReport.getStaplerUri();
+                count++;
+            }
+            out.endArray();
+            // the next page starts after the last URI of this page
+            out.name("next");
+            if (more) {
+                out.value(last);
+            } else {
+                out.nullValue();
+            }
+            out.endObject();
+        }
+        out.endArray();
+        out.endObject();
+        out.flush();
+    }
+
 
     protected interface PerformanceReportCollector {
 
@@ -0,0 +1,433 @@
+package hudson.plugins.performance.actions;
+
+import hudson.model.Run;
+import hudson.plugins.performance.Messages;
+import hudson.plugins.performance.parsers.AbstractParser;
+import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.reports.UriReport;
+import hudson.util.ChartUtil;
+import hudson.util.DataSetBuilder;
+import hudson.util.Graph;
+import jenkins.model.RunAction2;
+import org.jfree.chart.JFreeChart;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Results of a load test that are parsed while the test is still running, see
+ * {@link hudson.plugins.performance.build.LivePerformanceReport}.
+ * <p>
+ * The reports are only kept in memory while the build runs; once the test is over, the performance publisher
+ * adopts the reports of files that did not change since, instead of parsing these files again.
+ */
+public class LivePerformanceReportAction implements RunAction2 {
+
+    /**
+     * Maximum number of points of the live trend; older points are dropped.
+     */
+    static final int MAX_TREND_POINTS = 2000;
+
+    private transient Run<?, ?> run;
+
+    private transient List<LiveFile> files;
+
+    private transient List<TrendPoint> trend;
+
+    private transient long startTime;
+
+    private transient volatile int activeIngestions;
+
+    @Override
+    public void onAttached(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    private synchronized void init() {
+        if (files == null) {
+            files = new CopyOnWriteArrayList<>();
+            trend = new ArrayList<>();
+            startTime = System.currentTimeMillis();
+        }
+    }
+
+    public Run<?, ?> getRun() {
+        return run;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.LiveReportAction_DisplayName();
+    }
+
+    /**
+     * @return an icon only while results are ingested or held in memory, as nothing is kept after a restart
+     */
+    @Override
+    public String getIconFileName() {
+        return isLive() || !getFiles().isEmpty() ? "graph.gif" : null;
+    }
+
+    @Override
+    public String getUrlName() {
+        return "performance-live";
+    }
+
+    /**
+     * @return true while results are ingested
+     */
+    public boolean isLive() {
+        return activeIngestions > 0;
+    }
+
+    /**
+     * Marks the start of an ingestion, see {@link #endIngestion()}.
+     */
+    public synchronized void startIngestion() {
+        init();
+        activeIngestions++;
+    }
+
+    public synchronized void endIngestion() {
+        activeIngestions = Math.max(0, activeIngestions - 1);
+        if (activeIngestions == 0 && files != null) {
+            for (LiveFile file : files) {
+                file.complete = true;
+            }
+        }
+    }
+
+    public List<LiveFile> getFiles() {
+        final List<LiveFile> result = files;
+        return result != null ? result : Collections.<LiveFile>emptyList();
+    }
+
+    /**
+     * @return the file with the given path in the workspace, which is added if it is new
+     */
+    public synchronized LiveFile getFile(String remotePath, String name) {
+        init();
+        for (LiveFile file : files) {
+            if (file.remotePath.equals(remotePath)) {
+                return file;
+            }
+        }
+        final LiveFile file = new LiveFile(remotePath, name);
+        files.add(file);
+        return file;
+    }
+
+    /**
+     * Records the samples ingested from all files in one poll.
+     */
+    public synchronized void addTrendPoint(long time, int samples, long averageMillis, double errorPercent,
+                                           double intervalSeconds) {
+        init();
+        trend.add(new TrendPoint(time - startTime, samples, averageMillis, errorPercent,
+                intervalSeconds > 0 ? samples / intervalSeconds : 0));
+        if (trend.size() > MAX_TREND_POINTS) {
+            trend.remove(0);
+        }
+    }
+
+    public synchronized List<TrendPoint> getTrend() {
+        return trend != null ? new ArrayList<>(trend) : Collections.<TrendPoint>emptyList();
+    }
+
+    /**
+     * Hands the report of a file over to the performance publisher, once ingestion is over and provided that the
+     * file has not changed since it was last read. The report is released from memory either way.
+     *
+     * @param remotePath path of the file in the workspace
+     * @param length     current length of the file
+     * @return the file with the report, or <code>null</code> if the file has to be parsed
+     */
+    public synchronized LiveFile takeFile(String remotePath, long length) {
+        if (files == null) {
+            return null;
+        }
+        for (LiveFile file : files) {
+            if (file.remotePath.equals(remotePath)) {
+                files.remove(file);
+                return file.complete && file.unsupportedReason == null && file.report != null
+                        && file.offset == length ? file : null;
+            }
+        }
+        return null;
+    }
+
+    public void doResponseTimeGraph(StaplerRequest request, StaplerResponse response) throws IOException {
+        if (ChartUtil.awtProblemCause != null) {
+            response.sendRedirect2(request.getContextPath() + "/images/headless.png");
+            return;
+        }
+        final DataSetBuilder<String, String> dataSetBuilder = new DataSetBuilder<>();
+        for (TrendPoint point : getTrend()) {
+            dataSetBuilder.add(point.getAverage(), Messages.ProjectAction_Average(), point.getLabel());
+        }
+        new Graph(-1, 600, 250) {
+            @Override
+            protected JFreeChart createGraph() {
+                return PerformanceProjectAction.doCreateRespondingTimeChart(dataSetBuilder.build(), Integer.MAX_VALUE);
+            }
+        }.doPng(request, response);
+    }
+
+    public void doThroughputGraph(StaplerRequest request, StaplerResponse response) throws IOException {
+        if (ChartUtil.awtProblemCause != null) {
+            response.sendRedirect2(request.getContextPath() + "/images/headless.png");
+            return;
+        }
+        final DataSetBuilder<String, String> dataSetBuilder = new DataSetBuilder<>();
+        for (TrendPoint point : getTrend()) {
+            dataSetBuilder.add(point.getThroughput(), Messages.ProjectAction_RequestsPerSeconds(), point.getLabel());
+        }
+        new Graph(-1, 600, 250) {
+            @Override
+            protected JFreeChart createGraph() {
+                return PerformanceProjectAction.createThroughputChart(dataSetBuilder.build());
+            }
+        }.doPng(request, response);
+    }
+
+    public void doErrorsGraph(StaplerRequest request, StaplerResponse response) throws IOException {
+        if (ChartUtil.awtProblemCause != null) {
+            response.sendRedirect2(request.getContextPath() + "/images/headless.png");
+            return;
+        }
+        final DataSetBuilder<String, String> dataSetBuilder = new DataSetBuilder<>();
+        for (TrendPoint point : getTrend()) {
+            dataSetBuilder.add(point.getErrorPercent(), Messages.ProjectAction_Errors(), point.getLabel());
+        }
+        new Graph(-1, 600, 250) {
+            @Override
+            protected JFreeChart createGraph() {
+                return PerformanceProjectAction.createErrorsChart(dataSetBuilder.build());
+            }
+        }.doPng(request, response);
+    }
+
+    /**
+     * A result file that is ingested while it is written.
+     */
+    public static final class LiveFile {
+        private final String remotePath;
+        private final String name;
+
+        /*
+         * Written by the ingestion only, one poll at a time.
+         */
+        private AbstractParser parser;
+        private long offset;
+        private PerformanceReport report;
+        private String unsupportedReason;
+        private volatile boolean complete;
+
+        /*
+         * Counts the increments, so that the summary is only computed again on request after the report changed.
+         */
+        private volatile int increments;
+        private List<UriSummary> summary;
+        private int summaryIncrements;
+
+        LiveFile(String remotePath, String name) {
+            this.remotePath = remotePath;
+            this.name = name;
+        }
+
+        public String getRemotePath() {
+            return remotePath;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public AbstractParser getParser() {
+            return parser;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public PerformanceReport getReport() {
+            return report;
+        }
+
+        /**
+         * @return why the file is not ingested, or <code>null</code>
+         */
+        public String getUnsupportedReason() {
+            return unsupportedReason;
+        }
+
+        public void setUnsupportedReason(String unsupportedReason) {
+            this.unsupportedReason = unsupportedReason;
+        }
+
+        public boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * Computes the aggregates on request rather than on every poll, as the percentiles of reports that keep
+         * their samples are computed by sorting all durations. They are computed once per increment.
+         *
+         * @return the aggregates of the report and its URIs as of the last poll, the report first
+         */
+        public synchronized List<UriSummary> getSummary() {
+            final int current = increments;
+            if (summary == null || summaryIncrements != current) {
+                summary = createSummary();
+                summaryIncrements = current;
+            }
+            return summary;
+        }
+
+        private List<UriSummary> createSummary() {
+            final PerformanceReport current = report;
+            if (current == null) {
+                return Collections.emptyList();
+            }
+            final List<UriSummary> rows = new ArrayList<>();
+            rows.add(new UriSummary(current.getReportFileName(), current.samplesCount(), current.getAverage(),
+                    current.getMedian(), current.get90Line(), current.getMax(), current.errorPercent()));
+            for (UriReport uriReport : current.getUriListOrdered()) {
+                rows.add(new UriSummary(uriReport.getUri(), uriReport.samplesCount(), uriReport.getAverage(),
+                        uriReport.getMedian(), uriReport.get90Line(), uriReport.getMax(), uriReport.errorPercent()));
+            }
+            return Collections.unmodifiableList(rows);
+        }
+
+        /**
+         * Adds the records parsed in one poll.
+         *
+         * @param increment the records as a report, or <code>null</code> if there were none
+         * @param parser    the parser, with the state to parse the next records
+         * @param offset    the offset after the parsed records
+         */
+        public void addIncrement(PerformanceReport increment, AbstractParser parser, long offset) {
+            this.parser = parser;
+            this.offset = offset;
+            if (increment == null || increment.samplesCount() == 0) {
+                return;
+            }
+            if (report == null) {
+                report = increment;
+            } else {
+                report.merge(increment);
+            }
+            increments++;
+        }
+    }
+
+    /**
+     * Aggregates of a report or URI at one point in time.
+     */
+    public static final class UriSummary {
+        private final String name;
+        private final int samples;
+        private final long average;
+        private final long median;
+        private final long line90;
+        private final long max;
+        private final double errorPercent;
+
+        UriSummary(String name, int samples, long average, long median, long line90, long max, double errorPercent) {
+            this.name = name;
+            this.samples = samples;
+            this.average = average;
+            this.median = median;
+            this.line90 = line90;
+            this.max = max;
+            this.errorPercent = errorPercent;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getSamples() {
+            return samples;
+        }
+
+        public long getAverage() {
+            return average;
+        }
+
+        public long getMedian() {
+            return median;
+        }
+
+        public long getLine90() {
+            return line90;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getErrorPercent() {
+            return errorPercent;
+        }
+    }
+
+    /**
+     * The samples ingested in one poll.
+     */
+    public static final class TrendPoint {
+        private final long elapsedMillis;
+        private final int samples;
+        private final long average;
+        private final double errorPercent;
+        private final double throughput;
+
+        TrendPoint(long elapsedMillis, int samples, long average, double errorPercent, double throughput) {
+            this.elapsedMillis = elapsedMillis;
+            this.samples = samples;
+            this.average = average;
+            this.errorPercent = errorPercent;
+            this.throughput = throughput;
+        }
+
+        /**
+         * @return the time since the start of ingestion as <code>+hh:mm:ss</code>, which sorts by time for tests of
+         * less than 100 hours
+         */
+        public String getLabel() {
+            final long seconds = elapsedMillis / 1000;
+            return String.format("+%02d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public int getSamples() {
+            return samples;
+        }
+
+        public long getAverage() {
+            return average;
+        }
+
+        public double getErrorPercent() {
+            return errorPercent;
+        }
+
+        public double getThroughput() {
+            return throughput;
+        }
+    }
+}
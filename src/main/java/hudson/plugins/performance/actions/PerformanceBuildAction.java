@@ -4,14 +4,24 @@ import hudson.model.Action;
 import hudson.model.Run;
 import hudson.plugins.performance.Messages;
 import hudson.plugins.performance.PerformanceReportMap;
+import hudson.plugins.performance.parsers.AbstractParser;
 import hudson.plugins.performance.parsers.PerformanceReportParser;
+import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.reports.ReportSnapshot;
 import hudson.util.StreamTaskListener;
 import org.kohsuke.stapler.StaplerProxy;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,7 +36,22 @@ public class PerformanceBuildAction implements Action, StaplerProxy {
 
     private transient final PrintStream hudsonConsoleWriter;
 
-    private transient WeakReference<PerformanceReportMap> performanceReportMap;
+    /**
+     * Reports read from the summary index of this build. Soft, as trend graphs read the index of every build.
+     */
+    private transient SoftReference<Map<String, PerformanceReport>> summaryIndex;
+
+    /**
+     * Modification time and length of the summary index file when {@link #summaryIndex} was read. Every
+     * <code>perfReport</code> step of a build adds an action, and each of them adds its reports to the same index.
+     */
+    private transient long summaryIndexModified;
+    private transient long summaryIndexLength;
+
+    /**
+     * Serializes the updates of the summary index files, which are shared by all actions of a build
+     */
+    private static final Object SUMMARY_INDEX_LOCK = new Object();
 
     private static final Logger logger = Logger.getLogger(PerformanceBuildAction.class.getName());
 
@@ -70,33 +95,175 @@ public class PerformanceBuildAction implements Action, StaplerProxy {
         return hudsonConsoleWriter;
     }
 
-    public synchronized PerformanceReportMap getPerformanceReportMap() {
+    public PerformanceReportMap getPerformanceReportMap() {
         return getPerformanceReportMap(true);
     }
 
-    public synchronized PerformanceReportMap getPerformanceReportMap(boolean isInitNextLevel) {
-        PerformanceReportMap reportMap = null;
-        synchronized(this) {
-            WeakReference<PerformanceReportMap> wr = this.performanceReportMap;
-            if (wr != null) {
-                reportMap = wr.get();
-                if (reportMap != null) {
-                    return reportMap;
+    /**
+     * Returns the reports of this build, which are kept in memory by the {@link ReportResidencyManager} and loaded
+     * from their snapshots when they are not.
+     */
+    public PerformanceReportMap getPerformanceReportMap(final boolean isInitNextLevel) {
+        final ReportResidencyManager residency = ReportResidencyManager.getInstance();
+        PerformanceReportMap reportMap = residency.getIfPresent(this);
+        if (reportMap != null) {
+            return reportMap;
+        }
+        return residency.get(this, new Callable<PerformanceReportMap>() {
+            @Override
+            public PerformanceReportMap call() throws IOException {
+                return new PerformanceReportMap(PerformanceBuildAction.this, StreamTaskListener.fromStderr(),
+                        isInitNextLevel);
+            }
+        });
+    }
+
+    /**
+     * Returns the report with the given file name for views that only need aggregates, such as trend graphs.
+     * Unless the reports of this build are in memory already, they are read from the summary index of this build
+     * or, for builds without an index, only the aggregates of this one report are read from its snapshot.
+     *
+     * @param reportFileName name of the report file
+     * @return the report, or <code>null</code> if this build has no such report
+     */
+    public PerformanceReport getPerformanceReportSummary(String reportFileName) {
+        PerformanceReportMap reportMap = ReportResidencyManager.getInstance().getIfPresent(this);
+        if (reportMap == null) {
+            Map<String, PerformanceReport> index = getSummaryIndex();
+            PerformanceReport report = (index != null) ? index.get(reportFileName) : null;
+            if (report != null) {
+                return report;
+            }
+            // not in the index, e.g. the report of a build that failed to update it
+            File reportFile = findReportFile(reportFileName);
+            if (reportFile != null) {
+                report = AbstractParser.loadReportSummary(reportFile);
+                if (report != null) {
+                    report.setBuildAction(this);
+                    return report;
+                }
+            }
+            reportMap = getPerformanceReportMap();
+        }
+        return (reportMap != null) ? reportMap.getPerformanceReport(reportFileName) : null;
+    }
+
+    /**
+     * Returns all reports of this build for views that only need aggregates, see
+     * {@link #getPerformanceReportSummary(String)}. Builds without a summary index load their reports.
+     */
+    public Collection<PerformanceReport> getPerformanceReportSummaries() {
+        PerformanceReportMap reportMap = ReportResidencyManager.getInstance().getIfPresent(this);
+        if (reportMap == null) {
+            Map<String, PerformanceReport> index = getSummaryIndex();
+            if (index != null) {
+                return index.values();
+            }
+            reportMap = getPerformanceReportMap();
+        }
+        return (reportMap != null) ? reportMap.getPerformanceReportMap().values()
+                : Collections.<PerformanceReport>emptyList();
+    }
+
+    /**
+     * Adds reports to the summary index of this build, see {@link #getPerformanceReportSummary(String)}. Reports
+     * that are in the index already, e.g. those of an earlier <code>perfReport</code> step of the same build, are
+     * kept unless a given report has the same file name.
+     *
+     * @param reports the reports parsed by this action
+     */
+    public void writeSummaryIndex(Collection<PerformanceReport> reports) throws IOException {
+        final File file = getSummaryIndexFile();
+        synchronized (SUMMARY_INDEX_LOCK) {
+            final Map<String, PerformanceReport> index = new LinkedHashMap<>();
+            if (file.isFile()) {
+                try {
+                    index.putAll(ReportSnapshot.readIndex(file));
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Reading performance summary index from file '" + file
+                            + "' failed, it is written again.", e);
                 }
             }
+            for (PerformanceReport report : reports) {
+                index.put(report.getReportFileName(), report);
+            }
+            ReportSnapshot.writeIndex(file, index.values());
+        }
+        synchronized (this) {
+            summaryIndex = null;
+        }
+    }
+
+    private File getSummaryIndexFile() {
+        return new File(build.getRootDir(), ReportSnapshot.INDEX_FILE_NAME);
+    }
+
+    /**
+     * @return reports of the summary index by report file name, or <code>null</code> if this build has no
+     * (readable) index
+     */
+    private Map<String, PerformanceReport> getSummaryIndex() {
+        File file = getSummaryIndexFile();
+        long modified = file.lastModified();
+        long length = file.length();
+        synchronized (this) {
+            Map<String, PerformanceReport> index = (summaryIndex != null) ? summaryIndex.get() : null;
+            // another action of this build may have updated the index
+            if (index != null && modified == summaryIndexModified && length == summaryIndexLength) {
+                return index;
+            }
+        }
+        if (!file.isFile()) {
+            return null;
         }
+        Map<String, PerformanceReport> index;
         try {
-            reportMap = new PerformanceReportMap(this, StreamTaskListener.fromStderr(), isInitNextLevel);
+            index = Collections.unmodifiableMap(ReportSnapshot.readIndex(file));
         } catch (IOException e) {
-            logger.log(Level.SEVERE, "Error creating new PerformanceReportMap()", e);
+            logger.log(Level.WARNING, "Reading performance summary index from file '" + file + "' failed.", e);
+            return null;
+        }
+        for (PerformanceReport report : index.values()) {
+            report.setBuildAction(this);
+        }
+        synchronized (this) {
+            summaryIndex = new SoftReference<>(index);
+            summaryIndexModified = modified;
+            summaryIndexLength = length;
         }
-        this.performanceReportMap = new WeakReference<>(reportMap);
-        return reportMap;
+        return index;
     }
 
-    public synchronized void setPerformanceReportMap(WeakReference<PerformanceReportMap> performanceReportMap) {
-        synchronized(this) {
-            this.performanceReportMap = performanceReportMap;
+    private File findReportFile(String reportFileName) {
+        if (reportFileName == null) {
+            return null;
+        }
+        File dir = new File(build.getRootDir(), PerformanceReportMap.getPerformanceReportDirRelativePath());
+        File[] candidates = dir.listFiles();
+        if (candidates == null) {
+            return null;
+        }
+        for (File candidate : candidates) {
+            File reportFile = candidate.isDirectory() ? new File(candidate, reportFileName) : candidate;
+            if (reportFile.getName().equals(reportFileName)
+                    && new File(reportFile.getPath() + ReportSnapshot.FILE_SUFFIX).isFile()) {
+                return reportFile;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @deprecated reports are kept by the {@link ReportResidencyManager}, use
+     * {@link ReportResidencyManager#put(PerformanceBuildAction, PerformanceReportMap)}
+     */
+    @Deprecated
+    public void setPerformanceReportMap(WeakReference<PerformanceReportMap> performanceReportMap) {
+        final PerformanceReportMap reportMap = (performanceReportMap != null) ? performanceReportMap.get() : null;
+        if (reportMap != null) {
+            ReportResidencyManager.getInstance().put(this, reportMap);
+        } else {
+            ReportResidencyManager.getInstance().evict(this);
         }
     }
 }
@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.List;
@@ -35,9 +36,13 @@ import org.jfree.data.xy.IntervalXYDataset;
 import org.jfree.data.xy.XYDataset;
 import org.jfree.ui.RectangleEdge;
 import org.jfree.ui.RectangleInsets;
+import javax.servlet.http.HttpServletResponse;
+
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 
+import com.google.gson.stream.JsonWriter;
+
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.FilePath;
 import hudson.model.AbstractBuild;
@@ -45,22 +50,25 @@ import hudson.model.AbstractProject;
 import hudson.model.Action;
 import hudson.model.Job;
 import hudson.model.Run;
+import hudson.plugins.performance.CachedGraph;
+import hudson.plugins.performance.GraphCache;
 import hudson.plugins.performance.Messages;
 import hudson.plugins.performance.PerformancePublisher;
 import hudson.plugins.performance.PerformanceReportMap;
 import hudson.plugins.performance.data.PerformanceReportPosition;
+import hudson.plugins.performance.data.ReportDataWriter;
 import hudson.plugins.performance.data.ReportValueSelector;
 import hudson.plugins.performance.details.GraphConfigurationDetail;
 import hudson.plugins.performance.details.TestSuiteReportDetail;
 import hudson.plugins.performance.details.TrendReportDetail;
 import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.reports.ReportSnapshot;
 import hudson.plugins.performance.reports.ThroughputReport;
 import hudson.plugins.performance.reports.UriReport;
 import hudson.util.ChartUtil;
 import hudson.util.ChartUtil.NumberOnlyBuildLabel;
 import hudson.util.ColorPalette;
 import hudson.util.DataSetBuilder;
-import hudson.util.Graph;
 import hudson.util.ShiftedCategoryAxis;
 
 public class PerformanceProjectAction implements Action {
@@ -71,6 +79,9 @@ public class PerformanceProjectAction implements Action {
 
     private static final String PLUGIN_NAME = "performance";
 
+    private static final int TREND_DATA_PAGE_SIZE = 20;
+    private static final int MAX_TREND_DATA_PAGE_SIZE = 200;
+
     @SuppressWarnings("unused")
     private static final long serialVersionUID = 1L;
 
@@ -394,6 +405,10 @@ public class PerformanceProjectAction implements Action {
         DataSetBuilder<String, NumberOnlyBuildLabel> dataSetBuilderErrors = new DataSetBuilder<>();
         List<? extends Run<?, ?>> builds = getJob().getBuilds();
         Range buildsLimits = getFirstAndLastBuild(request, builds);
+        final String graphKey = GraphCache.key(getJob(), "trend.errors", request, buildsLimits);
+        if (GraphCache.getInstance().serve(graphKey, request, response)) {
+            return;
+        }
 
         int nbBuildsToAnalyze = builds.size();
         for (Run<?, ?> currentBuild : builds) {
@@ -410,8 +425,7 @@ public class PerformanceProjectAction implements Action {
                     continue;
                 }
                 PerformanceReport performanceReport = performanceBuildAction
-                        .getPerformanceReportMap().getPerformanceReport(
-                                performanceReportNameFile);
+                        .getPerformanceReportSummary(performanceReportNameFile);
                 if (performanceReport == null) {
                     nbBuildsToAnalyze--;
                     continue;
@@ -422,7 +436,7 @@ public class PerformanceProjectAction implements Action {
             nbBuildsToAnalyze--;
         }
 
-        new Graph(-1, 400, 200) {
+        new CachedGraph(graphKey, 400, 200) {
             @Override
             protected JFreeChart createGraph() {
                 return createErrorsGraph(dataSetBuilderErrors.build());
@@ -450,6 +464,11 @@ public class PerformanceProjectAction implements Action {
         ReportValueSelector valueSelector = ReportValueSelector.get(getJob());
         List<? extends Run<?, ?>> builds = getJob().getBuilds();
         Range buildsLimits = getFirstAndLastBuild(request, builds);
+        final String graphKey = GraphCache.key(getJob(), "trend.respondingTimePerTestCase", request,
+                buildsLimits, valueSelector.getGraphType());
+        if (GraphCache.getInstance().serve(graphKey, request, response)) {
+            return;
+        }
 
         int nbBuildsToAnalyze = builds.size();
 
@@ -476,7 +495,7 @@ public class PerformanceProjectAction implements Action {
         String legendLimit = request.getParameter("legendLimit");
         int limit = (legendLimit != null && !legendLimit.isEmpty()) ? Integer.parseInt(legendLimit) : Integer.MAX_VALUE;
 
-        new Graph(-1, 600, 200) {
+        new CachedGraph(graphKey, 600, 200) {
             @Override
             protected JFreeChart createGraph() {
                 return createRespondingTimeChart(dataSetBuilder.build(), limit);
@@ -489,9 +508,7 @@ public class PerformanceProjectAction implements Action {
         if (performanceBuildAction == null) {
             return null;
         }
-        return performanceBuildAction
-                .getPerformanceReportMap()
-                .getPerformanceReport(reportFileName);
+        return performanceBuildAction.getPerformanceReportSummary(reportFileName);
     }
 
     protected JFreeChart createRespondingTimeChart(CategoryDataset dataset, int legendLimit) {
@@ -512,6 +529,10 @@ public class PerformanceProjectAction implements Action {
         DataSetBuilder<String, NumberOnlyBuildLabel> dataSetBuilderAverage = new DataSetBuilder<>();
         List<? extends Run<?, ?>> builds = getJob().getBuilds();
         Range buildsLimits = getFirstAndLastBuild(request, builds);
+        final String graphKey = GraphCache.key(getJob(), "trend.respondingTime", request, buildsLimits);
+        if (GraphCache.getInstance().serve(graphKey, request, response)) {
+            return;
+        }
 
         int nbBuildsToAnalyze = builds.size();
         for (Run<?, ?> build : builds) {
@@ -528,8 +549,7 @@ public class PerformanceProjectAction implements Action {
                     continue;
                 }
                 PerformanceReport performanceReport = performanceBuildAction
-                        .getPerformanceReportMap().getPerformanceReport(
-                                performanceReportNameFile);
+                        .getPerformanceReportSummary(performanceReportNameFile);
                 if (performanceReport == null) {
                     nbBuildsToAnalyze--;
                     continue;
@@ -549,7 +569,7 @@ public class PerformanceProjectAction implements Action {
         String legendLimit = request.getParameter("legendLimit");
         int limit = (legendLimit != null && !legendLimit.isEmpty()) ? Integer.parseInt(legendLimit) : Integer.MAX_VALUE;
 
-        new Graph(-1, 400, 200) {
+        new CachedGraph(graphKey, 400, 200) {
             @Override
             protected JFreeChart createGraph() {
                 return createRespondingTimeChart(dataSetBuilderAverage.build(), limit);
@@ -572,6 +592,10 @@ public class PerformanceProjectAction implements Action {
         final DataSetBuilder<String, NumberOnlyBuildLabel> dataSetBuilder = new DataSetBuilder<>();
         final List<? extends Run<?, ?>> builds = getJob().getBuilds();
         final Range buildsLimits = getFirstAndLastBuild(request, builds);
+        final String graphKey = GraphCache.key(getJob(), "trend.throughput", request, buildsLimits);
+        if (GraphCache.getInstance().serve(graphKey, request, response)) {
+            return;
+        }
 
         int nbBuildsToAnalyze = builds.size();
         for (final Run<?, ?> build : builds) {
@@ -587,7 +611,7 @@ public class PerformanceProjectAction implements Action {
                 }
 
                 final PerformanceReport performanceReport = performanceBuildAction
-                        .getPerformanceReportMap().getPerformanceReport(performanceReportNameFile);
+                        .getPerformanceReportSummary(performanceReportNameFile);
                 if (performanceReport == null) {
                     nbBuildsToAnalyze--;
                     continue;
@@ -600,7 +624,7 @@ public class PerformanceProjectAction implements Action {
             nbBuildsToAnalyze--;
         }
 
-        new Graph(-1, 400, 200) {
+        new CachedGraph(graphKey, 400, 200) {
             @Override
             protected JFreeChart createGraph() {
                 return createThroughputGraph(dataSetBuilder.build());
@@ -629,6 +653,11 @@ public class PerformanceProjectAction implements Action {
 
         List<?> builds = getJob().getBuilds();
         Range buildsLimits = getFirstAndLastBuild(request, builds);
+        final String graphKey = GraphCache.key(getJob(), "trend.summarizer", request,
+                buildsLimits, valueSelector.getGraphType());
+        if (GraphCache.getInstance().serve(graphKey, request, response)) {
+            return;
+        }
 
         int nbBuildsToAnalyze = builds.size();
         for (Object build : builds) {
@@ -655,7 +684,7 @@ public class PerformanceProjectAction implements Action {
                 .getSummarizerReportType();
 
         if (summarizerReportType != null) {
-            new Graph(-1, 400, 200) {
+            new CachedGraph(graphKey, 400, 200) {
                 @Override
                 protected JFreeChart createGraph() {
                     return createSummarizerChart(dataSetBuilderSummarizerErrors.build(), "%",
@@ -663,7 +692,7 @@ public class PerformanceProjectAction implements Action {
                 }
             }.doPng(request, response);
         } else {
-            new Graph(-1, 400, 200) {
+            new CachedGraph(graphKey, 400, 200) {
                 @Override
                 protected JFreeChart createGraph() {
                     return createSummarizerChart(dataSetBuilderSummarizer.build(), "ms",
@@ -677,6 +706,103 @@ public class PerformanceProjectAction implements Action {
         return doCreateSummarizerChart(dataset, yAxis, chartTitle);
     }
 
+    /**
+     * Sends the aggregates of the reports of the builds of this job as JSON, newest build first, a page of builds
+     * at a time:
+     * <pre>
+     * {"builds": [{"number": 12, "timestamp": 1500000000000, "reports": [{"name": "result.jtl", "average": 120,
+     *   ..., "uris": [{"uri": "/login", "key": "_login", "average": 80, ...}]}]}], "next": "12"}
+     * </pre>
+     * Request parameters, all optional:
+     * <ul>
+     * <li><code>report</code>: only the report with this file name</li>
+     * <li><code>fields</code>: comma separated fields of {@link ReportDataWriter#FIELDS}</li>
+     * <li><code>uri</code>: a URI whose aggregates are sent with its report, may be repeated, <code>*</code> for
+     * all URIs</li>
+     * <li><code>from</code>, <code>to</code>: number of the oldest and the newest build</li>
+     * <li><code>after</code>: the <code>next</code> cursor of the previous page</li>
+     * <li><code>limit</code>: number of builds of a page</li>
+     * </ul>
+     */
+    public void doTrendData(StaplerRequest request, StaplerResponse response) throws IOException {
+        final ReportDataWriter writer;
+        final String reportFileName = request.getParameter("report");
+        final int from;
+        final int to;
+        final int after;
+        final int limit;
+        try {
+            writer = new ReportDataWriter(ReportDataWriter.parseFields(request.getParameter("fields")),
+                    ReportDataWriter.parseUris(request.getParameterValues("uri")));
+            from = parseBuildNumber(request.getParameter("from"), Integer.MIN_VALUE);
+            to = parseBuildNumber(request.getParameter("to"), Integer.MAX_VALUE);
+            after = parseBuildNumber(request.getParameter("after"), Integer.MAX_VALUE);
+            limit = ReportDataWriter.parseLimit(request.getParameter("limit"), TREND_DATA_PAGE_SIZE,
+                    MAX_TREND_DATA_PAGE_SIZE);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        final JsonWriter out = ReportDataWriter.open(response);
+        out.beginObject();
+        out.name("builds").beginArray();
+        int count = 0;
+        int last = 0;
+        boolean more = false;
+        for (Run<?, ?> build : getJob().getBuilds()) {
+            if (build.number < from) {
+                break;
+            }
+            if (build.number > to || build.number >= after) {
+                continue;
+            }
+            final PerformanceBuildAction performanceBuildAction = build.getAction(PerformanceBuildAction.class);
+            if (performanceBuildAction == null) {
+                continue;
+            }
+            if (count == limit) {
+                more = true;
+                break;
+            }
+            final Collection<PerformanceReport> reports;
+            if (reportFileName != null) {
+                final PerformanceReport report = performanceBuildAction.getPerformanceReportSummary(reportFileName);
+                if (report == null) {
+                    continue;
+                }
+                reports = Collections.singletonList(report);
+            } else {
+                reports = ReportDataWriter.orderByName(performanceBuildAction.getPerformanceReportSummaries());
+            }
+            out.beginObject();
+            out.name("number").value(build.number);
+            out.name("timestamp").value(build.getTimeInMillis());
+            out.name("reports").beginArray();
+            for (PerformanceReport report : reports) {
+                writer.writeReport(out, report);
+            }
+            out.endArray();
+            out.endObject();
+            count++;
+            last = build.number;
+        }
+        out.endArray();
+        // the next page starts below the last build of this page
+        out.name("next");
+        if (more) {
+            out.value(String.valueOf(last));
+        } else {
+            out.nullValue();
+        }
+        out.endObject();
+        out.flush();
+    }
+
+    private static int parseBuildNumber(String value, int defaultNumber) {
+        return (value == null || value.isEmpty()) ? defaultNumber : Integer.parseInt(value);
+    }
+
     /**
      * <p>
      * give a list of two Integer : the smallest build to use and the biggest.
@@ -795,14 +921,14 @@ public class PerformanceProjectAction implements Action {
                     File[] entryFiles = entry.listFiles();
                     if (entryFiles != null) {
                         for (File e : Objects.requireNonNull(entryFiles)) {
-                            if (!e.getName().endsWith(".serialized") && !e.getName().endsWith(".serialized-v2")) {
+                            if (!ReportSnapshot.isDerivedFile(e.getName())) {
                                 this.performanceReportList.add(e.getName());
                             }
                         }
                     }
 
                 } else {
-                    if (!entry.getName().endsWith(".serialized") && !entry.getName().endsWith(".serialized-v2")) {
+                    if (!ReportSnapshot.isDerivedFile(entry.getName())) {
                         this.performanceReportList.add(entry.getName());
                     }
                 }
@@ -905,8 +1031,7 @@ public class PerformanceProjectAction implements Action {
                     continue;
                 }
                 PerformanceReport report = null;
-                report = performanceBuildAction.getPerformanceReportMap()
-                        .getPerformanceReport(performanceReportNameFile);
+                report = performanceBuildAction.getPerformanceReportSummary(performanceReportNameFile);
                 if (report == null) {
                     nbBuildsToAnalyze--;
                     continue;
@@ -937,8 +1062,8 @@ public class PerformanceProjectAction implements Action {
     public boolean ifSummarizerParserUsed(String filename) {
 
         return this.getJob().getBuilds().getLastBuild()
-                .getAction(PerformanceBuildAction.class).getPerformanceReportMap()
-                .getPerformanceReport(filename).ifSummarizerParserUsed(filename);
+                .getAction(PerformanceBuildAction.class).getPerformanceReportSummary(filename)
+                .ifSummarizerParserUsed(filename);
     }
 
     public boolean ifModePerformancePerTestCaseUsed() {
@@ -989,5 +1114,10 @@ public class PerformanceProjectAction implements Action {
         public boolean includedByStep(int buildNumber) {
             return (buildNumber % step == 0);
         }
+
+        @Override
+        public String toString() {
+            return first + ".." + last + "/" + step;
+        }
     }
 }
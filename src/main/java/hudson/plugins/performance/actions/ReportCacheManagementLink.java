@@ -0,0 +1,83 @@
+package hudson.plugins.performance.actions;
+
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import hudson.plugins.performance.GraphCache;
+import hudson.plugins.performance.Messages;
+import hudson.plugins.performance.reports.ReportCache;
+import hudson.security.Permission;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+/**
+ * Shows the statistics of the {@link ReportCache}, the {@link ReportResidencyManager} and the {@link GraphCache} on
+ * the "Manage Jenkins" page.
+ */
+@Extension
+public class ReportCacheManagementLink extends ManagementLink {
+
+    @Override
+    public String getIconFileName() {
+        return "graph.gif";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.ReportCacheManagementLink_DisplayName();
+    }
+
+    @Override
+    public String getDescription() {
+        return Messages.ReportCacheManagementLink_Description();
+    }
+
+    @Override
+    public String getUrlName() {
+        return "performance-report-cache";
+    }
+
+    @Override
+    public Permission getRequiredPermission() {
+        return Jenkins.ADMINISTER;
+    }
+
+    @Override
+    public Category getCategory() {
+        return Category.STATUS;
+    }
+
+    public ReportCache getCache() {
+        return ReportCache.getInstance();
+    }
+
+    public ReportResidencyManager getResidency() {
+        return ReportResidencyManager.getInstance();
+    }
+
+    public GraphCache getGraphCache() {
+        return GraphCache.getInstance();
+    }
+
+    public String getBudgetProperty() {
+        return ReportCache.BUDGET_PROPERTY;
+    }
+
+    public String getResidencyBudgetProperty() {
+        return ReportResidencyManager.BUDGET_PROPERTY;
+    }
+
+    public String getGraphCacheMaxBytesProperty() {
+        return GraphCache.MAX_BYTES_PROPERTY;
+    }
+
+    @RequirePOST
+    public HttpResponse doClear() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        ReportCache.getInstance().invalidateAll();
+        ReportResidencyManager.getInstance().evictAll();
+        GraphCache.getInstance().invalidateAll();
+        return HttpResponses.redirectToDot();
+    }
+}
@@ -0,0 +1,216 @@
+package hudson.plugins.performance.actions;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.performance.PerformanceReportMap;
+import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.reports.ReportCache;
+
+/**
+ * Keeps the {@link PerformanceReportMap}s of builds in memory, across all jobs, within a memory budget.
+ * <p>
+ * When the budget is exceeded, the maps of the least recently used builds are evicted. An evicted map is loaded
+ * again from the snapshots of its reports (see {@link hudson.plugins.performance.reports.ReportSnapshot}), not by
+ * parsing the report files. Loaded maps are read without locking; while a map is loaded, other threads that
+ * request it wait for that load, and requests of other builds are not blocked.
+ * <p>
+ * The budget is taken from the system property {@value #BUDGET_PROPERTY}, in the format of
+ * {@link ReportCache#parseBudget(String, long)}, and defaults to {@value #DEFAULT_BUDGET} of the heap.
+ */
+public final class ReportResidencyManager {
+
+    private static final Logger LOGGER = Logger.getLogger(ReportResidencyManager.class.getName());
+
+    public static final String BUDGET_PROPERTY = ReportResidencyManager.class.getName() + ".budget";
+
+    static final String DEFAULT_BUDGET = "20%";
+
+    private static final long MAP_BYTES = 512;
+
+    private static final ReportResidencyManager INSTANCE = new ReportResidencyManager(ReportCache.parseBudget(
+            System.getProperty(BUDGET_PROPERTY, DEFAULT_BUDGET), Runtime.getRuntime().maxMemory()));
+
+    private final long budget;
+
+    /**
+     * Loaded maps by build action, compared by identity. Each map references its action, so the keys cannot be weak;
+     * maps of deleted builds and jobs are dropped by {@link BuildListener} and {@link JobListener}.
+     */
+    private final Cache<PerformanceBuildAction, PerformanceReportMap> maps;
+
+    ReportResidencyManager(long budget) {
+        this.budget = budget;
+        // one segment, so that the least recently used builds of all jobs are evicted first
+        this.maps = CacheBuilder.newBuilder()
+                .concurrencyLevel(1)
+                .maximumWeight(budget)
+                .weigher(new Weigher<PerformanceBuildAction, PerformanceReportMap>() {
+                    @Override
+                    public int weigh(PerformanceBuildAction action, PerformanceReportMap reportMap) {
+                        return (int) Math.min(Integer.MAX_VALUE, estimateSize(reportMap));
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public static ReportResidencyManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the loaded map of the build, or <code>null</code> if it is not in memory
+     */
+    public PerformanceReportMap getIfPresent(PerformanceBuildAction action) {
+        return maps.getIfPresent(action);
+    }
+
+    /**
+     * Returns the map of the build, loading it if it is not in memory.
+     *
+     * @param loader loads the map, may return <code>null</code> if the reports cannot be loaded
+     * @return the map, or <code>null</code> if the loader returned <code>null</code>
+     */
+    public PerformanceReportMap get(PerformanceBuildAction action, final Callable<PerformanceReportMap> loader) {
+        try {
+            return maps.get(action, new Callable<PerformanceReportMap>() {
+                @Override
+                public PerformanceReportMap call() throws Exception {
+                    final PerformanceReportMap reportMap = loader.call();
+                    if (reportMap == null) {
+                        throw new NoReportMapException();
+                    }
+                    return reportMap;
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (!(e.getCause() instanceof NoReportMapException)) {
+                LOGGER.log(Level.SEVERE, "Error loading the performance reports of " + action.getBuild(), e.getCause());
+            }
+            return null;
+        }
+    }
+
+    public void put(PerformanceBuildAction action, PerformanceReportMap reportMap) {
+        maps.put(action, reportMap);
+    }
+
+    public void evict(PerformanceBuildAction action) {
+        maps.invalidate(action);
+    }
+
+    public void evictAll() {
+        maps.invalidateAll();
+    }
+
+    /**
+     * Drops the maps of all reports of a build, i.e. of all its perfReport steps.
+     */
+    public void invalidate(Run<?, ?> run) {
+        maps.invalidateAll(run.getActions(PerformanceBuildAction.class));
+    }
+
+    /**
+     * Drops the maps of all builds of a job.
+     */
+    public void invalidate(Job<?, ?> job) {
+        final Iterator<PerformanceBuildAction> actions = maps.asMap().keySet().iterator();
+        while (actions.hasNext()) {
+            final Run<?, ?> run = actions.next().getBuild();
+            if (run != null && run.getParent() == job) {
+                actions.remove();
+            }
+        }
+    }
+
+    /**
+     * @return a rough estimate of the heap size of the map in bytes
+     */
+    static long estimateSize(PerformanceReportMap reportMap) {
+        long size = MAP_BYTES;
+        for (PerformanceReport report : reportMap.getPerformanceReportMap().values()) {
+            size += ReportCache.estimateSize(report);
+        }
+        return size;
+    }
+
+    /**
+     * @return the maximum sum of the estimated sizes of the loaded maps in bytes
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return the number of builds whose reports are in memory
+     */
+    public long getSize() {
+        return maps.size();
+    }
+
+    public CacheStats getStats() {
+        return maps.stats();
+    }
+
+    public long getEvictionCount() {
+        return getStats().evictionCount();
+    }
+
+    public long getLoadCount() {
+        return getStats().loadCount();
+    }
+
+    /**
+     * Thrown by a loader to tell that there is no map, as Guava caches do not cache absent values.
+     */
+    private static final class NoReportMapException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        NoReportMapException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Drops the maps of a build when it is deleted.
+     */
+    @Extension
+    public static final class BuildListener extends RunListener<Run<?, ?>> {
+
+        @Override
+        public void onDeleted(Run<?, ?> run) {
+            getInstance().invalidate(run);
+        }
+    }
+
+    /**
+     * Drops the maps of the builds of a job when the job, or a folder containing it, is deleted.
+     */
+    @Extension
+    public static final class JobListener extends ItemListener {
+
+        @Override
+        public void onDeleted(Item item) {
+            // the jobs of a deleted folder are deleted with it
+            for (Job<?, ?> job : item.getAllJobs()) {
+                getInstance().invalidate(job);
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package hudson.plugins.performance.build;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractProject;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.plugins.performance.Messages;
+import hudson.plugins.performance.actions.LivePerformanceReportAction;
+import hudson.plugins.performance.parsers.JMeterCsvParser;
+import hudson.plugins.performance.reports.AbstractReport;
+import hudson.tasks.BuildWrapperDescriptor;
+import jenkins.tasks.SimpleBuildWrapper;
+import jenkins.util.Timer;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shows the results of a load test while it is still running: the JMeter CSV files matching
+ * {@link #getSourceDataFiles()} are read as they grow, and their aggregates are shown on the page of a
+ * {@link LivePerformanceReportAction}. When the performance publisher records the same files with the same settings
+ * once the test is over, it takes over these reports instead of parsing the files again.
+ * <p>
+ * Live reports always keep streaming statistics, i.e. duration histograms rather than all samples, as they are
+ * held on the controller for the whole test, outside the memory budgets of stored reports. They are therefore only
+ * taken over by a publisher that uses streaming statistics as well.
+ */
+public class LivePerformanceReport extends SimpleBuildWrapper {
+
+    public static final int DEFAULT_POLL_INTERVAL = 10;
+
+    private final String sourceDataFiles;
+    private String percentiles = AbstractReport.DEFAULT_PERCENTILES;
+    private String filterRegex;
+    /**
+     * @deprecated live reports always use streaming statistics
+     */
+    @Deprecated
+    private boolean streamingStatistics = true;
+    private boolean excludeResponseTime = false;
+    private int pollInterval = DEFAULT_POLL_INTERVAL;
+
+    @DataBoundConstructor
+    public LivePerformanceReport(String sourceDataFiles) {
+        this.sourceDataFiles = sourceDataFiles;
+    }
+
+    @Override
+    public void setUp(Context context, Run<?, ?> build, FilePath workspace, Launcher launcher, TaskListener listener,
+                      EnvVars initialEnvironment) throws IOException, InterruptedException {
+        LivePerformanceReportAction action = build.getAction(LivePerformanceReportAction.class);
+        if (action == null) {
+            action = new LivePerformanceReportAction();
+            build.addAction(action);
+        }
+        final String glob = initialEnvironment.expand(sourceDataFiles);
+        listener.getLogger().println("Performance: Showing live results of '" + glob + "' every " + pollInterval
+                + " seconds");
+
+        final LiveReportIngestion ingestion = new LiveReportIngestion(action, workspace, glob, this, listener);
+        final ScheduledFuture<?> future = Timer.get().scheduleWithFixedDelay(ingestion, pollInterval, pollInterval,
+                TimeUnit.SECONDS);
+        context.setDisposer(new StopIngestion(ingestion.start(future)));
+    }
+
+    JMeterCsvParser createParser() {
+        final JMeterCsvParser parser = new JMeterCsvParser(sourceDataFiles, percentiles, filterRegex);
+        parser.setStreamingStatistics(true);
+        parser.setExcludeResponseTime(excludeResponseTime);
+        return parser;
+    }
+
+    /**
+     * Stops the ingestion once the wrapped steps are done, after reading what they wrote last.
+     */
+    private static final class StopIngestion extends Disposer {
+        private static final long serialVersionUID = 1L;
+
+        private final String id;
+
+        StopIngestion(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public void tearDown(Run<?, ?> build, FilePath workspace, Launcher launcher, TaskListener listener) {
+            LiveReportIngestion.stop(id, build.getAction(LivePerformanceReportAction.class));
+        }
+    }
+
+    public String getSourceDataFiles() {
+        return sourceDataFiles;
+    }
+
+    public String getPercentiles() {
+        return percentiles;
+    }
+
+    @DataBoundSetter
+    public void setPercentiles(String percentiles) {
+        this.percentiles = percentiles;
+    }
+
+    public String getFilterRegex() {
+        return filterRegex;
+    }
+
+    @DataBoundSetter
+    public void setFilterRegex(String filterRegex) {
+        this.filterRegex = filterRegex;
+    }
+
+    /**
+     * @deprecated live reports always use streaming statistics
+     */
+    @Deprecated
+    public boolean isStreamingStatistics() {
+        return true;
+    }
+
+    /**
+     * @deprecated live reports always use streaming statistics, the value is ignored. Kept so that existing
+     * configurations and pipeline scripts still load.
+     */
+    @Deprecated
+    @DataBoundSetter
+    public void setStreamingStatistics(boolean streamingStatistics) {
+        this.streamingStatistics = streamingStatistics;
+    }
+
+    public boolean isExcludeResponseTime() {
+        return excludeResponseTime;
+    }
+
+    @DataBoundSetter
+    public void setExcludeResponseTime(boolean excludeResponseTime) {
+        this.excludeResponseTime = excludeResponseTime;
+    }
+
+    public int getPollInterval() {
+        return pollInterval;
+    }
+
+    @DataBoundSetter
+    public void setPollInterval(int pollInterval) {
+        this.pollInterval = Math.max(1, pollInterval);
+    }
+
+    @Symbol("livePerformanceReport")
+    @Extension
+    public static class DescriptorImpl extends BuildWrapperDescriptor {
+
+        @Override
+        public boolean isApplicable(AbstractProject<?, ?> item) {
+            return true;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return Messages.LivePerformanceReport_DisplayName();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package hudson.plugins.performance.build;
+
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import hudson.plugins.performance.actions.LivePerformanceReportAction;
+import hudson.plugins.performance.actions.LivePerformanceReportAction.LiveFile;
+import hudson.plugins.performance.parsers.JMeterCsvParser;
+import hudson.plugins.performance.parsers.JMeterParser;
+import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.tools.ReportCompression;
+import hudson.remoting.VirtualChannel;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Follows the result files of a running load test in a workspace: every poll parses the records that were
+ * appended to the files since the previous poll, on the agent that holds them, and adds them to the reports of
+ * a {@link LivePerformanceReportAction}.
+ * <p>
+ * Only JMeter CSV results are ingested this way, as their records can be read as soon as their line is written.
+ * Other files are parsed by the performance publisher when the test is over.
+ * <p>
+ * The shared {@link jenkins.util.Timer} only triggers the polls, see {@link #run()}; they run on a small pool of their
+ * own, so that agents that are slow to read their files do not hold up the periodic tasks of the controller.
+ */
+final class LiveReportIngestion implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(LiveReportIngestion.class.getName());
+
+    /**
+     * Maximum number of polls of all live builds that run at the same time, 2 unless set by this system property.
+     */
+    static final String POLL_THREADS_PROPERTY = LiveReportIngestion.class.getName() + ".pollThreads";
+
+    private static final ExecutorService POLLS = createPollExecutor(Math.max(1, Integer.getInteger(
+            POLL_THREADS_PROPERTY, 2)));
+
+    private static final Map<String, LiveReportIngestion> RUNNING = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    private final String id;
+    private final LivePerformanceReportAction action;
+    private final FilePath workspace;
+    private final String glob;
+    private final LivePerformanceReport wrapper;
+    private final TaskListener listener;
+
+    private final AtomicBoolean pollPending = new AtomicBoolean();
+
+    private ScheduledFuture<?> future;
+    private long lastPoll;
+
+    LiveReportIngestion(LivePerformanceReportAction action, FilePath workspace, String glob,
+                        LivePerformanceReport wrapper, TaskListener listener) {
+        this.id = Integer.toString(IDS.incrementAndGet());
+        this.action = action;
+        this.workspace = workspace;
+        this.glob = glob;
+        this.wrapper = wrapper;
+        this.listener = listener;
+    }
+
+    /**
+     * Registers this ingestion, so that it can be stopped by {@link #stop(String, LivePerformanceReportAction)}.
+     *
+     * @return the id of this ingestion
+     */
+    String start(ScheduledFuture<?> future) {
+        this.future = future;
+        this.lastPoll = System.currentTimeMillis();
+        action.startIngestion();
+        RUNNING.put(id, this);
+        return id;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    private static ExecutorService createPollExecutor(int threads) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), LiveReportIngestion.class.getSimpleName() + ".poll"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Stops the ingestion with the given id after a last poll. Ingestions are not restored after a restart of the
+     * controller, so there may be nothing to stop.
+     */
+    static void stop(String id, LivePerformanceReportAction action) {
+        final LiveReportIngestion ingestion = RUNNING.remove(id);
+        if (ingestion != null) {
+            ingestion.future.cancel(false);
+            ingestion.poll();
+        }
+        if (action != null) {
+            action.endIngestion();
+        }
+    }
+
+    /**
+     * Triggers a poll on the poll pool, unless the previous one is still queued or running: the next poll reads
+     * whatever was appended meanwhile, so polls of a slow agent are skipped rather than queued up.
+     */
+    @Override
+    public void run() {
+        if (!pollPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            POLLS.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        poll();
+                    } finally {
+                        pollPending.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pollPending.set(false);
+            LOGGER.log(Level.WARNING, "Failed to schedule the ingestion of live results of " + action.getRun(), e);
+        }
+    }
+
+    /**
+     * Reads the records appended to the files since the previous poll.
+     */
+    synchronized void poll() {
+        final PrintStream logger = listener.getLogger();
+        try {
+            final long now = System.currentTimeMillis();
+            int samples = 0;
+            long totalDuration = 0;
+            int errors = 0;
+            for (FilePath path : workspace.list(glob)) {
+                final LiveFile file = action.getFile(path.getRemote(), path.getName());
+                if (file.getUnsupportedReason() != null) {
+                    continue;
+                }
+                final JMeterCsvParser parser = (file.getParser() != null) ? (JMeterCsvParser) file.getParser()
+                        : wrapper.createParser();
+                final Increment increment;
+                try {
+                    increment = path.act(new IncrementCallable(parser, file.getOffset()));
+                } catch (IOException e) {
+                    logger.println("Performance: Failed to read live results from '" + path.getRemote() + "': "
+                            + e.getMessage());
+                    continue;
+                }
+                if (increment.unsupportedReason != null) {
+                    file.setUnsupportedReason(increment.unsupportedReason);
+                    logger.println("Performance: Live results of '" + path.getRemote() + "' are not shown: "
+                            + increment.unsupportedReason);
+                    continue;
+                }
+                file.addIncrement(increment.report, increment.parser, increment.offset);
+                if (increment.report != null) {
+                    final int count = increment.report.samplesCount();
+                    samples += count;
+                    totalDuration += increment.report.getAverage() * count;
+                    errors += increment.report.countErrors();
+                }
+            }
+            action.addTrendPoint(now, samples, samples > 0 ? totalDuration / samples : 0,
+                    samples > 0 ? 100.0 * errors / samples : 0, (now - lastPoll) / 1000.0);
+            lastPoll = now;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to ingest live results of " + action.getRun(), e);
+            logger.println("Performance: Failed to ingest live results: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The records of a file that were appended since the previous poll.
+     */
+    private static final class Increment implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final PerformanceReport report;
+        private final JMeterCsvParser parser;
+        private final long offset;
+        private final String unsupportedReason;
+
+        Increment(PerformanceReport report, JMeterCsvParser parser, long offset, String unsupportedReason) {
+            this.report = report;
+            this.parser = parser;
+            this.offset = offset;
+            this.unsupportedReason = unsupportedReason;
+        }
+    }
+
+    /**
+     * Parses the appended records on the agent, so that only a report of them is transferred.
+     */
+    private static final class IncrementCallable extends MasterToSlaveFileCallable<Increment> {
+        private static final long serialVersionUID = 1L;
+
+        private final JMeterCsvParser parser;
+        private final long offset;
+
+        IncrementCallable(JMeterCsvParser parser, long offset) {
+            this.parser = parser;
+            this.offset = offset;
+        }
+
+        @Override
+        public Increment invoke(File file, VirtualChannel channel) throws IOException {
+            if (offset == 0) {
+                if (ReportCompression.isCompressed(file)) {
+                    return new Increment(null, parser, 0, "compressed files are parsed when the test is over");
+                }
+                if (JMeterParser.isXmlFile(file)) {
+                    return new Increment(null, parser, 0, "XML files are parsed when the test is over");
+                }
+            }
+            final PerformanceReport report = parser.createIncrementReport(file);
+            final long end;
+            try {
+                end = parser.parseIncrement(file, offset, report);
+            } catch (IllegalStateException e) {
+                // the header is not the one of a JMeter CSV file
+                return new Increment(null, parser, offset, e.getMessage());
+            }
+            return new Increment(report.samplesCount() > 0 ? report : null, parser, end, null);
+        }
+    }
+}
@@ -6,11 +6,8 @@ import java.util.List;
 import hudson.AbortException;
 import hudson.Extension;
 import hudson.model.Run;
-import hudson.plugins.performance.actions.PerformanceBuildAction;
 import hudson.plugins.performance.constraints.blocks.TestCaseBlock;
 import hudson.plugins.performance.descriptors.ConstraintDescriptor;
-import hudson.plugins.performance.reports.PerformanceReport;
-import hudson.plugins.performance.reports.UriReport;
 import hudson.util.FormValidation;
 
 import org.apache.commons.lang.StringUtils;
@@ -77,24 +74,16 @@ public class AbsoluteConstraint extends AbstractConstraint {
 
     @Override
     public ConstraintEvaluation evaluate(List<? extends Run<?, ?>> builds) throws InvocationTargetException, AbortException {
+        return evaluate(builds, new BuildMetricsSnapshot());
+    }
+
+    @Override
+    public ConstraintEvaluation evaluate(List<? extends Run<?, ?>> builds, BuildMetricsSnapshot snapshot) throws InvocationTargetException, AbortException {
         if (builds.isEmpty()) {
             throw new AbortException("Performance: No builds found to evaluate!");
         }
-        checkForDefectiveParams(builds);
-        PerformanceReport pr = builds.get(0).getAction(PerformanceBuildAction.class).getPerformanceReportMap().getPerformanceReport(getRelatedPerfReport());
-        // calculate the
-        double newValue = 0;
-        if (!isSpecifiedTestCase()) {
-            newValue = checkMetredValueforPerfReport(getMeteredValue(), pr);
-        } else {
-            List<UriReport> uriList = pr.getUriListOrdered();
-            for (UriReport ur : uriList) {
-                if (getTestCaseBlock().getTestCase().equals(ur.getUri())) {
-                    newValue = checkMetredValueforUriReport(getMeteredValue(), ur);
-                    break;
-                }
-            }
-        }
+        checkForDefectiveParams(builds, snapshot);
+        double newValue = getMeasuredValue(snapshot.get(builds.get(0)));
         return check(newValue);
     }
 
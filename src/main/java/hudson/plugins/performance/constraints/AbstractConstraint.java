@@ -5,7 +5,6 @@ import hudson.ExtensionList;
 import hudson.ExtensionPoint;
 import hudson.model.Describable;
 import hudson.model.Run;
-import hudson.plugins.performance.actions.PerformanceBuildAction;
 import hudson.plugins.performance.constraints.blocks.TestCaseBlock;
 import hudson.plugins.performance.data.ConstraintSettings;
 import hudson.plugins.performance.descriptors.ConstraintDescriptor;
@@ -108,6 +107,39 @@ public abstract class AbstractConstraint implements Describable<AbstractConstrai
     public abstract ConstraintEvaluation evaluate(List<? extends Run<?, ?>> builds) throws IllegalArgumentException, IllegalAccessException, InvocationTargetException, AbortException,
             ParseException;
 
+    /**
+     * Evaluates whether the constraint is fulfilled or violated, taking the reports of the builds from a snapshot that
+     * is shared with the other constraints. Constraints that do not override it are evaluated by
+     * {@link #evaluate(List)}.
+     *
+     * @param builds   all builds that are saved in Jenkins
+     * @param snapshot the reports of the builds, shared with the other constraints that are evaluated
+     * @return
+     * @throws IllegalArgumentException
+     * @throws IllegalAccessException
+     * @throws InvocationTargetException
+     * @throws AbortException
+     * @throws ParseException
+     */
+    public ConstraintEvaluation evaluate(List<? extends Run<?, ?>> builds, BuildMetricsSnapshot snapshot) throws IllegalArgumentException, IllegalAccessException,
+            InvocationTargetException, AbortException, ParseException {
+        return evaluate(builds);
+    }
+
+    /**
+     * Grabs the metric of this constraint in the related report or test case of a build
+     *
+     * @param metrics the reports of the build
+     * @return the value of the metric, 0 if the build has no such test case
+     */
+    protected double getMeasuredValue(BuildMetricsSnapshot.BuildMetrics metrics) {
+        if (!isSpecifiedTestCase()) {
+            return checkMetredValueforPerfReport(getMeteredValue(), metrics.getReport(getRelatedPerfReport()));
+        }
+        UriReport ur = metrics.getUriReport(getRelatedPerfReport(), getTestCaseBlock().getTestCase());
+        return (ur != null) ? checkMetredValueforUriReport(getMeteredValue(), ur) : 0;
+    }
+
     /**
      * Grabs a specified Metric in a specified UriReport
      *
@@ -116,6 +148,21 @@ public abstract class AbstractConstraint implements Describable<AbstractConstrai
      * @return the value of the specified metric in the specified UriReport
      */
     protected double checkMetredValueforUriReport(Metric meteredValue, UriReport ur) {
+        return valueOf(meteredValue, ur);
+    }
+
+    /**
+     * Grabs a specified Metric in a specified PerformanceReport
+     *
+     * @param meteredValue the metric that should be evaluated
+     * @param pr           the PerformanceReport where the metric should be measured
+     * @return the value of the specified metric in the specified PerformanceReport
+     */
+    protected double checkMetredValueforPerfReport(Metric meteredValue, PerformanceReport pr) {
+        return valueOf(meteredValue, pr);
+    }
+
+    static double valueOf(Metric meteredValue, UriReport ur) {
         switch (meteredValue) {
             case ERRORPRC:
                 return ur.errorPercent();
@@ -136,14 +183,7 @@ public abstract class AbstractConstraint implements Describable<AbstractConstrai
         }
     }
 
-    /**
-     * Grabs a specified Metric in a specified PerformanceReport
-     *
-     * @param meteredValue the metric that should be evaluated
-     * @param pr           the PerformanceReport where the metric should be measured
-     * @return the value of the specified metric in the specified PerformanceReport
-     */
-    protected double checkMetredValueforPerfReport(Metric meteredValue, PerformanceReport pr) {
+    static double valueOf(Metric meteredValue, PerformanceReport pr) {
         switch (meteredValue) {
             case ERRORPRC:
                 return pr.errorPercent();
@@ -167,27 +207,17 @@ public abstract class AbstractConstraint implements Describable<AbstractConstrai
     /**
      * Checks whether all parameters given in the UI are processable.
      *
-     * @param builds all stored jenkins builds
+     * @param builds   all stored jenkins builds
+     * @param snapshot the reports of the builds
      * @throws AbortException if a parameter in the UI is not processable
      */
-    protected void checkForDefectiveParams(List<? extends Run<?, ?>> builds) throws AbortException {
-        boolean found = false;
-
-        if (builds.get(0).getAction(PerformanceBuildAction.class).getPerformanceReportMap().getPerformanceReport(getRelatedPerfReport()) == null) {
+    protected void checkForDefectiveParams(List<? extends Run<?, ?>> builds, BuildMetricsSnapshot snapshot) throws AbortException {
+        BuildMetricsSnapshot.BuildMetrics metrics = snapshot.get(builds.get(0));
+        if (metrics == null || metrics.getReport(getRelatedPerfReport()) == null) {
             throw new AbortException("Performance Plugin: Could't find a report specified in the performance constraints! Report: \"" + getRelatedPerfReport() + "\"");
-        } else {
-            PerformanceReport pr = builds.get(0).getAction(PerformanceBuildAction.class).getPerformanceReportMap().getPerformanceReport(getRelatedPerfReport());
-            if (isSpecifiedTestCase()) {
-                for (UriReport ur : pr.getUriListOrdered()) {
-                    if (ur.getUri().equals(getTestCaseBlock().getTestCase())) {
-                        found = true;
-                    }
-                }
-                if (!found) {
-                    throw new AbortException("Performance Plugin: Could't find a test case specified in the performance constraints! TestCase: \"" + getTestCaseBlock().getTestCase() + "\" Report: \""
-                            + getRelatedPerfReport() + "\"");
-                }
-            }
+        } else if (isSpecifiedTestCase() && metrics.getUriReport(getRelatedPerfReport(), getTestCaseBlock().getTestCase()) == null) {
+            throw new AbortException("Performance Plugin: Could't find a test case specified in the performance constraints! TestCase: \"" + getTestCaseBlock().getTestCase() + "\" Report: \""
+                    + getRelatedPerfReport() + "\"");
         }
         if (this instanceof AbsoluteConstraint) {
             AbsoluteConstraint ac = (AbsoluteConstraint) this;
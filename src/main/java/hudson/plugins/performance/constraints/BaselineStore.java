@@ -0,0 +1,798 @@
+package hudson.plugins.performance.constraints;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.performance.actions.PerformanceBuildAction;
+import hudson.plugins.performance.constraints.AbstractConstraint.Metric;
+import hudson.plugins.performance.data.ConstraintSettings;
+import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.reports.UriReport;
+
+/**
+ * Baselines of the jobs for {@link RelativeConstraint}s, so that the average of a metric over previous builds is not
+ * computed again from the reports of all these builds on every build.
+ * <p>
+ * For every series of values that relative constraints compare with, i.e. a metric of a report or of one of its test
+ * cases, the store keeps prefix sums over the completed builds of a job: the sum of the values, the sum of their
+ * squares and the number of builds that have a value. A series is read from the summaries of the builds when a
+ * constraint first asks for it, back only as far as the constraint compares, and is extended when a build of the job
+ * completes or a constraint compares with older builds, so that the baseline of any number of previous builds, or of
+ * the builds of a time frame, is the difference of two prefix sums.
+ * <p>
+ * The baselines of up to {@value #DEFAULT_MAX_JOBS} jobs are kept, or of the number of jobs given by the system
+ * property {@value #MAX_JOBS_PROPERTY}.
+ */
+public final class BaselineStore {
+
+    public static final String MAX_JOBS_PROPERTY = BaselineStore.class.getName() + ".maxJobs";
+
+    static final int DEFAULT_MAX_JOBS = 100;
+
+    /**
+     * Includes unstable builds, see {@link #getFilter(ConstraintSettings)}.
+     */
+    static final int UNSTABLE = 1;
+
+    /**
+     * Includes failed builds, see {@link #getFilter(ConstraintSettings)}.
+     */
+    static final int FAILED = 2;
+
+    private static final BaselineStore INSTANCE = new BaselineStore(Integer.getInteger(MAX_JOBS_PROPERTY,
+            DEFAULT_MAX_JOBS));
+
+    private final Cache<String, JobBaselines> jobs;
+
+    BaselineStore(int maxJobs) {
+        this.jobs = CacheBuilder.newBuilder().maximumSize(maxJobs).build();
+    }
+
+    public static BaselineStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the baselines of the job
+     */
+    public JobBaselines get(final Job<?, ?> job) {
+        try {
+            return jobs.get(job.getFullName(), new Callable<JobBaselines>() {
+                @Override
+                public JobBaselines call() {
+                    return new JobBaselines(job);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Adds a completed build to the baselines of its job, if they are kept.
+     */
+    void add(Run<?, ?> build) {
+        final JobBaselines baselines = jobs.getIfPresent(build.getParent().getFullName());
+        if (baselines != null) {
+            baselines.add(build);
+        }
+    }
+
+    void invalidate(Job<?, ?> job) {
+        jobs.invalidate(job.getFullName());
+    }
+
+    /**
+     * @return the builds that relative constraints with the given settings include besides successful builds
+     */
+    static int getFilter(ConstraintSettings settings) {
+        return (settings.isIgnoreUnstableBuilds() ? 0 : UNSTABLE) | (settings.isIgnoreFailedBuilds() ? 0 : FAILED);
+    }
+
+    static boolean isIncluded(Result result, int filter) {
+        return Result.SUCCESS.equals(result)
+                || (Result.UNSTABLE.equals(result) && (filter & UNSTABLE) != 0)
+                || (Result.FAILURE.equals(result) && (filter & FAILED) != 0);
+    }
+
+    /**
+     * The value of a series in a build, as {@link AbstractConstraint#getMeasuredValue} takes it from the reports of
+     * the build, but read from the summary of the report.
+     *
+     * @return the value, or {@link Double#NaN} if the build has no such report
+     */
+    static double measure(Run<?, ?> build, Key key) {
+        final PerformanceBuildAction action = (build != null) ? build.getAction(PerformanceBuildAction.class) : null;
+        final PerformanceReport report = (action != null) ? action.getPerformanceReportSummary(key.report) : null;
+        if (report == null) {
+            return Double.NaN;
+        }
+        if (key.testCase == null) {
+            return AbstractConstraint.valueOf(key.metric, report);
+        }
+        for (UriReport uriReport : report.getUriListOrdered()) {
+            if (key.testCase.equals(uriReport.getUri())) {
+                return AbstractConstraint.valueOf(key.metric, uriReport);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * A series of values: a metric of a report, or of a test case of a report.
+     */
+    public static final class Key {
+        private final String report;
+        private final String testCase;
+        private final Metric metric;
+
+        /**
+         * @param testCase the URI of the test case, or <code>null</code> for the whole report
+         */
+        public Key(String report, String testCase, Metric metric) {
+            this.report = report;
+            this.testCase = testCase;
+            this.metric = metric;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return Objects.equals(report, other.report) && Objects.equals(testCase, other.testCase)
+                    && metric == other.metric;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(report, testCase, metric);
+        }
+    }
+
+    /**
+     * The aggregates of a series over a range of builds.
+     */
+    public static final class Baseline {
+        private final int builds;
+        private final int measuredBuilds;
+        private final double sum;
+        private final double sumOfSquares;
+        private final List<Integer> missingBuilds;
+
+        Baseline(int builds, int measuredBuilds, double sum, double sumOfSquares, List<Integer> missingBuilds) {
+            this.builds = builds;
+            this.measuredBuilds = measuredBuilds;
+            this.sum = sum;
+            this.sumOfSquares = sumOfSquares;
+            this.missingBuilds = missingBuilds;
+        }
+
+        /**
+         * @return the number of builds in the range
+         */
+        public int getBuilds() {
+            return builds;
+        }
+
+        /**
+         * @return the number of builds in the range that have the report
+         */
+        public int getMeasuredBuilds() {
+            return measuredBuilds;
+        }
+
+        /**
+         * @return the sum of the values, each of them truncated to a whole number
+         */
+        public double getSum() {
+            return sum;
+        }
+
+        public double getMean() {
+            return (measuredBuilds > 0) ? sum / measuredBuilds : Double.NaN;
+        }
+
+        public double getVariance() {
+            if (measuredBuilds == 0) {
+                return Double.NaN;
+            }
+            final double mean = getMean();
+            return Math.max(0, sumOfSquares / measuredBuilds - mean * mean);
+        }
+
+        /**
+         * @return the numbers of the builds in the range that do not have the report
+         */
+        public List<Integer> getMissingBuilds() {
+            return missingBuilds;
+        }
+    }
+
+    /**
+     * The baselines of one job.
+     * <p>
+     * The builds of the job are read backwards from the last completed build, only as far as the constraints ask for,
+     * and the values of a series only for the builds read so far. Reading build records and summaries is done
+     * without holding the lock of the baselines: a read is planned and its result applied under the lock, and it is
+     * planned again if the baselines changed meanwhile.
+     */
+    public static final class JobBaselines {
+
+        private final Job<?, ?> job;
+
+        /**
+         * The number of the last completed build when the builds were first read, or of the last build added since.
+         */
+        private int lastNumber;
+
+        /**
+         * The builds that relative constraints include, by {@link BaselineStore#getFilter(ConstraintSettings)}.
+         */
+        private final Map<Integer, Window> windows = new HashMap<>();
+
+        JobBaselines(Job<?, ?> job) {
+            this.job = job;
+        }
+
+        /**
+         * @param filter       see {@link BaselineStore#getFilter(ConstraintSettings)}
+         * @param beforeNumber only builds with a lower number are included
+         * @param count        the number of included builds, or -1 for all of them
+         */
+        public Baseline getPrevious(Key key, int filter, int beforeNumber, int count) {
+            while (true) {
+                final Load load;
+                synchronized (this) {
+                    final Window window = getWindow(filter);
+                    if (!window.hasPrevious(beforeNumber, count)) {
+                        final int needed = (count < 0) ? Integer.MAX_VALUE : count - window.indexOf(beforeNumber);
+                        load = new OlderBuildsLoad(window, beforeNumber, needed, Long.MIN_VALUE);
+                    } else if (window.series.containsKey(key)) {
+                        final int end = window.indexOf(beforeNumber);
+                        final int start = (count < 0) ? 0 : Math.max(0, end - count);
+                        return window.series.get(key).get(start, end);
+                    } else {
+                        load = new SeriesLoad(window, key);
+                    }
+                }
+                load.run();
+                synchronized (this) {
+                    load.apply(this);
+                }
+            }
+        }
+
+        /**
+         * @param filter       see {@link BaselineStore#getFilter(ConstraintSettings)}
+         * @param beforeNumber only builds with a lower number are included
+         * @param start        only builds that started at or after this time are included
+         * @param end          only builds that started at or before this time are included
+         */
+        public Baseline getTimeframe(Key key, int filter, int beforeNumber, long start, long end) {
+            while (true) {
+                final Load load;
+                synchronized (this) {
+                    final Window window = getWindow(filter);
+                    if (!window.hasTimeframe(start)) {
+                        load = new OlderBuildsLoad(window, beforeNumber, Integer.MAX_VALUE, start);
+                    } else if (window.series.containsKey(key)) {
+                        final int last = window.indexOf(beforeNumber);
+                        // builds start in the order of their numbers
+                        final int from = Math.min(last, window.indexOfTime(start, false));
+                        final int to = Math.max(from, Math.min(last, window.indexOfTime(end, true)));
+                        return window.series.get(key).get(from, to);
+                    } else {
+                        load = new SeriesLoad(window, key);
+                    }
+                }
+                load.run();
+                synchronized (this) {
+                    load.apply(this);
+                }
+            }
+        }
+
+        void add(Run<?, ?> build) {
+            final List<Window> targets = new ArrayList<>();
+            final List<Key[]> keys = new ArrayList<>();
+            final int[] versions;
+            final int number;
+            synchronized (this) {
+                if (windows.isEmpty() || build.getNumber() == lastNumber) {
+                    // not read yet, or the build was read with the other builds already
+                    return;
+                }
+                if (build.getNumber() < lastNumber) {
+                    // an older build completed after a newer one, the builds are read again when needed
+                    clear();
+                    return;
+                }
+                for (Window window : windows.values()) {
+                    if (isIncluded(build.getResult(), window.filter)) {
+                        targets.add(window);
+                        keys.add(window.series.keySet().toArray(new Key[0]));
+                    }
+                }
+                number = lastNumber;
+                versions = new int[targets.size()];
+                for (int i = 0; i < versions.length; i++) {
+                    versions[i] = targets.get(i).version;
+                }
+            }
+            final List<double[]> values = new ArrayList<>();
+            for (Key[] windowKeys : keys) {
+                values.add(measureAll(build, windowKeys));
+            }
+            synchronized (this) {
+                if (lastNumber != number) {
+                    clear();
+                    return;
+                }
+                for (int i = 0; i < targets.size(); i++) {
+                    if (windows.get(targets.get(i).filter) != targets.get(i) || targets.get(i).version != versions[i]) {
+                        // the baselines changed meanwhile, they are read again when needed
+                        clear();
+                        return;
+                    }
+                }
+                for (int i = 0; i < targets.size(); i++) {
+                    targets.get(i).append(build.getNumber(), build.getTimeInMillis(), keys.get(i), values.get(i));
+                }
+                lastNumber = build.getNumber();
+            }
+        }
+
+        private void clear() {
+            windows.clear();
+        }
+
+        private Window getWindow(int filter) {
+            final Run<?, ?> lastCompleted = job.getLastCompletedBuild();
+            final int last = (lastCompleted != null) ? lastCompleted.getNumber() : 0;
+            if (!windows.isEmpty() && last != lastNumber) {
+                // a completed build was missed
+                clear();
+            }
+            Window window = windows.get(filter);
+            if (window == null) {
+                window = new Window(job, filter, lastCompleted);
+                windows.put(filter, window);
+                lastNumber = last;
+            }
+            return window;
+        }
+    }
+
+    private static double[] measureAll(Run<?, ?> build, Key[] keys) {
+        final double[] values = new double[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = measure(build, keys[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Reads builds or values for the baselines of a job without holding their lock, see {@link JobBaselines}.
+     */
+    private abstract static class Load {
+        final Window window;
+        final int version;
+
+        /**
+         * Created while holding the lock of the baselines.
+         */
+        Load(Window window) {
+            this.window = window;
+            this.version = window.version;
+        }
+
+        /**
+         * Reads the builds or values, without holding the lock of the baselines.
+         */
+        abstract void run();
+
+        /**
+         * Adds what was read to the window, while holding the lock of the baselines, unless the window changed since
+         * the load was created.
+         */
+        void apply(JobBaselines baselines) {
+            if (baselines.windows.get(window.filter) == window && window.version == version) {
+                applyUnchanged();
+            }
+        }
+
+        abstract void applyUnchanged();
+    }
+
+    /**
+     * Reads older builds of a window, and their values of the series of the window.
+     */
+    private static final class OlderBuildsLoad extends Load {
+        private final int beforeNumber;
+        private final int needed;
+        private final long startTime;
+        private final Key[] keys;
+        private Run<?, ?> older;
+        private final List<Run<?, ?>> builds = new ArrayList<>();
+        private final List<double[]> values = new ArrayList<>();
+
+        /**
+         * Reads builds until <code>needed</code> included builds with a lower number than <code>beforeNumber</code>
+         * are read or until a build started before <code>startTime</code>, whichever is first.
+         */
+        OlderBuildsLoad(Window window, int beforeNumber, int needed, long startTime) {
+            super(window);
+            this.beforeNumber = beforeNumber;
+            this.needed = needed;
+            this.startTime = startTime;
+            this.keys = window.series.keySet().toArray(new Key[0]);
+            this.older = window.older;
+        }
+
+        @Override
+        void run() {
+            int found = 0;
+            while (older != null && found < needed && older.getTimeInMillis() >= startTime) {
+                if (isIncluded(older.getResult(), window.filter)) {
+                    builds.add(older);
+                    values.add(measureAll(older, keys));
+                    if (older.getNumber() < beforeNumber) {
+                        found++;
+                    }
+                }
+                older = older.getPreviousCompletedBuild();
+            }
+        }
+
+        @Override
+        void applyUnchanged() {
+            for (int i = 0; i < builds.size(); i++) {
+                window.prepend(builds.get(i).getNumber(), builds.get(i).getTimeInMillis(), keys, values.get(i));
+            }
+            window.setOlder(older);
+        }
+    }
+
+    /**
+     * Reads the values of a new series for the builds of a window.
+     */
+    private static final class SeriesLoad extends Load {
+        private final Key key;
+        private final int[] numbers;
+        private final double[] values;
+
+        SeriesLoad(Window window, Key key) {
+            super(window);
+            this.key = key;
+            this.numbers = new int[window.size()];
+            for (int i = 0; i < numbers.length; i++) {
+                numbers[i] = (int) window.numbers.get(i);
+            }
+            this.values = new double[numbers.length];
+        }
+
+        @Override
+        void run() {
+            for (int i = 0; i < numbers.length; i++) {
+                values[i] = measure(window.job.getBuildByNumber(numbers[i]), key);
+            }
+        }
+
+        @Override
+        void applyUnchanged() {
+            final Series series = new Series(window);
+            for (double value : values) {
+                series.append(value);
+            }
+            window.series.put(key, series);
+            window.version++;
+        }
+    }
+
+    /**
+     * The builds of a job that a filter includes, read so far, oldest first, and the series over these builds.
+     */
+    private static final class Window {
+        private final Job<?, ?> job;
+        private final int filter;
+        private final LongColumn numbers = new LongColumn();
+        private final LongColumn timestamps = new LongColumn();
+        private final Map<Key, Series> series = new HashMap<>();
+
+        /**
+         * The next older completed build to read, or <code>null</code> if all builds are read.
+         */
+        private Run<?, ?> older;
+        private long olderTimestamp;
+
+        /**
+         * Changed with every change of the builds or series, see {@link Load}.
+         */
+        private int version;
+
+        Window(Job<?, ?> job, int filter, Run<?, ?> lastCompleted) {
+            this.job = job;
+            this.filter = filter;
+            setOlder(lastCompleted);
+        }
+
+        int size() {
+            return numbers.size();
+        }
+
+        void setOlder(Run<?, ?> build) {
+            older = build;
+            olderTimestamp = (build != null) ? build.getTimeInMillis() : Long.MIN_VALUE;
+            version++;
+        }
+
+        /**
+         * @return true if the builds that <code>count</code> builds before the given number include are read
+         */
+        boolean hasPrevious(int beforeNumber, int count) {
+            return older == null || (count >= 0 && indexOf(beforeNumber) >= count);
+        }
+
+        /**
+         * @return true if all builds that started at or after the given time are read
+         */
+        boolean hasTimeframe(long start) {
+            return older == null || olderTimestamp < start;
+        }
+
+        void append(int number, long timestamp, Key[] keys, double[] values) {
+            numbers.append(number);
+            timestamps.append(timestamp);
+            for (int i = 0; i < keys.length; i++) {
+                series.get(keys[i]).append(values[i]);
+            }
+            version++;
+        }
+
+        void prepend(int number, long timestamp, Key[] keys, double[] values) {
+            numbers.prepend(number);
+            timestamps.prepend(timestamp);
+            for (int i = 0; i < keys.length; i++) {
+                series.get(keys[i]).prepend(values[i]);
+            }
+            version++;
+        }
+
+        /**
+         * @return the index of the first build with the given or a higher number
+         */
+        int indexOf(int number) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (numbers.get(mid) < number) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return the index of the first build that started at (or, if <code>after</code>, after) the given time
+         */
+        int indexOfTime(long time, boolean after) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                final long timestamp = timestamps.get(mid);
+                if (timestamp < time || (after && timestamp == time)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Prefix sums of the values of a series over the builds of a {@link Window}. The sums are relative to an
+     * arbitrary origin, so that they can be extended to older builds as well as to newer ones.
+     */
+    private static final class Series {
+        private final Window window;
+        private final DoubleColumn sums = new DoubleColumn();
+        private final DoubleColumn squares = new DoubleColumn();
+        private final LongColumn measured = new LongColumn();
+
+        Series(Window window) {
+            this.window = window;
+            sums.append(0);
+            squares.append(0);
+            measured.append(0);
+        }
+
+        /**
+         * @param value the value of the next newer build, or {@link Double#NaN} if it has no value
+         */
+        void append(double value) {
+            final double truncated = truncate(value);
+            sums.append(sums.get(sums.size() - 1) + truncated);
+            squares.append(squares.get(squares.size() - 1) + truncated * truncated);
+            measured.append(measured.get(measured.size() - 1) + (Double.isNaN(value) ? 0 : 1));
+        }
+
+        /**
+         * @param value the value of the next older build, or {@link Double#NaN} if it has no value
+         */
+        void prepend(double value) {
+            final double truncated = truncate(value);
+            sums.prepend(sums.get(0) - truncated);
+            squares.prepend(squares.get(0) - truncated * truncated);
+            measured.prepend(measured.get(0) - (Double.isNaN(value) ? 0 : 1));
+        }
+
+        private static double truncate(double value) {
+            // relative constraints sum up whole numbers
+            return Double.isNaN(value) ? 0 : (long) value;
+        }
+
+        /**
+         * @return the aggregates of the builds from the index <code>start</code> up to, excluding, <code>end</code>
+         */
+        Baseline get(int start, int end) {
+            final int count = (int) (measured.get(end) - measured.get(start));
+            List<Integer> missing = Collections.emptyList();
+            if (count < end - start) {
+                missing = new ArrayList<>();
+                for (int i = start; i < end; i++) {
+                    if (measured.get(i + 1) == measured.get(i)) {
+                        missing.add((int) window.numbers.get(i));
+                    }
+                }
+            }
+            return new Baseline(end - start, count, sums.get(end) - sums.get(start),
+                    squares.get(end) - squares.get(start), missing);
+        }
+    }
+
+    /**
+     * A list of numbers that grows at both ends.
+     */
+    private static final class LongColumn {
+        private long[] values = new long[16];
+        private int head = 8;
+        private int tail = 8;
+
+        int size() {
+            return tail - head;
+        }
+
+        long get(int index) {
+            return values[head + index];
+        }
+
+        void append(long value) {
+            if (tail == values.length) {
+                grow();
+            }
+            values[tail++] = value;
+        }
+
+        void prepend(long value) {
+            if (head == 0) {
+                grow();
+            }
+            values[--head] = value;
+        }
+
+        private void grow() {
+            final int size = size();
+            final long[] grown = new long[values.length * 2];
+            final int newHead = (grown.length - size) / 2;
+            System.arraycopy(values, head, grown, newHead, size);
+            values = grown;
+            head = newHead;
+            tail = newHead + size;
+        }
+    }
+
+    /**
+     * A list of sums that grows at both ends.
+     */
+    private static final class DoubleColumn {
+        private double[] values = new double[16];
+        private int head = 8;
+        private int tail = 8;
+
+        int size() {
+            return tail - head;
+        }
+
+        double get(int index) {
+            return values[head + index];
+        }
+
+        void append(double value) {
+            if (tail == values.length) {
+                grow();
+            }
+            values[tail++] = value;
+        }
+
+        void prepend(double value) {
+            if (head == 0) {
+                grow();
+            }
+            values[--head] = value;
+        }
+
+        private void grow() {
+            final int size = size();
+            final double[] grown = new double[values.length * 2];
+            final int newHead = (grown.length - size) / 2;
+            System.arraycopy(values, head, grown, newHead, size);
+            values = grown;
+            head = newHead;
+            tail = newHead + size;
+        }
+    }
+
+    /**
+     * Extends the baselines of a job when one of its builds completes, and drops them when one is deleted.
+     */
+    @Extension
+    public static final class BuildListener extends RunListener<Run<?, ?>> {
+
+        @Override
+        public void onCompleted(Run<?, ?> run, @NonNull TaskListener listener) {
+            getInstance().add(run);
+        }
+
+        @Override
+        public void onDeleted(Run<?, ?> run) {
+            getInstance().invalidate(run.getParent());
+        }
+    }
+
+    /**
+     * Drops the baselines of a job when it is renamed or deleted.
+     */
+    @Extension
+    public static final class JobListener extends ItemListener {
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            getInstance().jobs.invalidate(oldFullName);
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            if (item instanceof Job) {
+                getInstance().invalidate((Job<?, ?>) item);
+            }
+        }
+    }
+}
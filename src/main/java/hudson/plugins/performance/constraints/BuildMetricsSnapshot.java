@@ -0,0 +1,148 @@
+package hudson.plugins.performance.constraints;
+
+import hudson.model.Run;
+import hudson.plugins.performance.actions.PerformanceBuildAction;
+import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.reports.UriReport;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The report summaries of the builds that constraints are evaluated against, shared by all constraints of an
+ * evaluation.
+ * <p>
+ * The reports of a build are loaded once, when the first constraint needs them, and are not changed afterwards, so
+ * that constraints can be evaluated concurrently. Without it every constraint loaded the reports of every build it
+ * compares against on its own.
+ */
+public class BuildMetricsSnapshot {
+
+    private static final BuildMetrics NONE = new BuildMetrics(Collections.<String, PerformanceReport>emptyMap());
+
+    private final ConcurrentMap<Run<?, ?>, FutureTask<BuildMetrics>> builds = new ConcurrentHashMap<>();
+
+    private final BaselineStore.JobBaselines baselines;
+
+    public BuildMetricsSnapshot() {
+        this(null);
+    }
+
+    /**
+     * @param baselines the baselines of the job, if the constraints are evaluated against all builds of the job
+     */
+    public BuildMetricsSnapshot(BaselineStore.JobBaselines baselines) {
+        this.baselines = baselines;
+    }
+
+    /**
+     * @return the baselines of the job, or <code>null</code> if the constraints are evaluated against other builds
+     */
+    public BaselineStore.JobBaselines getBaselines() {
+        return baselines;
+    }
+
+    /**
+     * @return the reports of the build, or <code>null</code> if the build has no performance reports
+     */
+    public BuildMetrics get(final Run<?, ?> build) {
+        FutureTask<BuildMetrics> task = builds.get(build);
+        if (task == null) {
+            final FutureTask<BuildMetrics> newTask = new FutureTask<>(new Callable<BuildMetrics>() {
+                @Override
+                public BuildMetrics call() {
+                    return load(build);
+                }
+            });
+            task = builds.putIfAbsent(build, newTask);
+            if (task == null) {
+                // this thread loads the build, others that need it meanwhile wait for it
+                task = newTask;
+                task.run();
+            }
+        }
+        final BuildMetrics metrics;
+        try {
+            metrics = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Performance: Loading the reports of build #" + build.getNumber()
+                    + " was interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Performance: Failed to load the reports of build #" + build.getNumber()
+                    + ".", e.getCause());
+        }
+        return (metrics != NONE) ? metrics : null;
+    }
+
+    private static BuildMetrics load(Run<?, ?> build) {
+        final PerformanceBuildAction action = build.getAction(PerformanceBuildAction.class);
+        if (action == null) {
+            return NONE;
+        }
+        // constraints only compare aggregates, which the summaries hold without the samples of the reports
+        final Map<String, PerformanceReport> reportsByName = new HashMap<>();
+        for (PerformanceReport report : action.getPerformanceReportSummaries()) {
+            if (!reportsByName.containsKey(report.getReportFileName())) {
+                reportsByName.put(report.getReportFileName(), report);
+            }
+        }
+        return new BuildMetrics(reportsByName);
+    }
+
+    /**
+     * The reports of one build.
+     */
+    public static final class BuildMetrics {
+
+        private final Map<String, PerformanceReport> reports;
+
+        /**
+         * URI reports by report file name and {@link UriReport#getUri()}, indexed when first asked for
+         */
+        private final ConcurrentMap<String, Map<String, UriReport>> uriReports = new ConcurrentHashMap<>();
+
+        BuildMetrics(Map<String, PerformanceReport> reports) {
+            this.reports = Collections.unmodifiableMap(reports);
+        }
+
+        /**
+         * @return the report of the given file, or <code>null</code>
+         */
+        public PerformanceReport getReport(String reportFileName) {
+            return reports.get(reportFileName);
+        }
+
+        /**
+         * @return the URI report of a test case of the given report, or <code>null</code>
+         */
+        public UriReport getUriReport(String reportFileName, String testCase) {
+            final PerformanceReport report = getReport(reportFileName);
+            if (report == null || testCase == null) {
+                return null;
+            }
+            Map<String, UriReport> index = uriReports.get(reportFileName);
+            if (index == null) {
+                final Map<String, UriReport> newIndex = new HashMap<>();
+                for (UriReport uriReport : report.getUriListOrdered()) {
+                    if (!newIndex.containsKey(uriReport.getUri())) {
+                        newIndex.put(uriReport.getUri(), uriReport);
+                    }
+                }
+                // indexing the same report twice is harmless, both indexes are the same
+                uriReports.putIfAbsent(reportFileName, Collections.unmodifiableMap(newIndex));
+                index = uriReports.get(reportFileName);
+            }
+            return index.get(testCase);
+        }
+    }
+}
@@ -3,11 +3,22 @@ package hudson.plugins.performance.constraints;
 import hudson.AbortException;
 import hudson.model.Run;
 import hudson.plugins.performance.data.ConstraintSettings;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import hudson.util.StreamTaskListener;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Checks whether a list of constraints is fulfilled or violated
@@ -16,6 +27,12 @@ import java.util.List;
  */
 public class ConstraintChecker {
 
+    /**
+     * Maximum number of constraints that are evaluated concurrently
+     */
+    static final int WORKERS = Integer.getInteger(ConstraintChecker.class.getName() + ".workers",
+            Runtime.getRuntime().availableProcessors());
+
     /**
      * All builds that are saved in Jenkins
      */
@@ -24,10 +41,24 @@ public class ConstraintChecker {
      * Global constraint settings
      */
     private ConstraintSettings settings;
+    /**
+     * Baselines of the job of the builds, if all builds of the job are checked against
+     */
+    private BaselineStore.JobBaselines baselines;
 
     public ConstraintChecker(ConstraintSettings settings, List<? extends Run<?, ?>> builds) {
+        this(settings, builds, null);
+    }
+
+    /**
+     * @param builds    all builds of a job
+     * @param baselines the baselines of the job, so that relative constraints take their averages from them
+     */
+    public ConstraintChecker(ConstraintSettings settings, List<? extends Run<?, ?>> builds,
+            BaselineStore.JobBaselines baselines) {
         this.settings = settings;
         this.builds = builds;
+        this.baselines = baselines;
     }
 
     /**
@@ -45,19 +76,95 @@ public class ConstraintChecker {
      */
     public ArrayList<ConstraintEvaluation> checkAllConstraints(List<? extends AbstractConstraint> constraints) throws AbortException, SecurityException, NoSuchMethodException,
             IllegalArgumentException, IllegalAccessException, InvocationTargetException, ParseException {
+        final BuildMetricsSnapshot snapshot = new BuildMetricsSnapshot(baselines);
+        final int workers = Math.min(WORKERS, constraints.size());
+        if (workers > 1) {
+            return checkConcurrently(constraints, snapshot, workers);
+        }
+
         ArrayList<ConstraintEvaluation> result = new ArrayList<ConstraintEvaluation>();
         for (AbstractConstraint c : constraints) {
             c.setSettings(settings);
-            try {
-                result.add(c.evaluate(builds));
-            } catch (Exception e) {
-                settings.getListener().getLogger().println(e.getMessage());
+            ConstraintEvaluation evaluation = evaluate(c, snapshot, settings.getListener().getLogger());
+            if (evaluation != null) {
+                result.add(evaluation);
             }
-
         }
         return result;
     }
 
+    /**
+     * Evaluates the constraints concurrently. The evaluations are returned in the order of the constraints, and the
+     * console output of each constraint is printed in one piece, in the same order.
+     */
+    private ArrayList<ConstraintEvaluation> checkConcurrently(List<? extends AbstractConstraint> constraints, final BuildMetricsSnapshot snapshot, int workers)
+            throws AbortException {
+        final ExecutorService executor = Executors.newFixedThreadPool(workers,
+                new NamingThreadFactory(new DaemonThreadFactory(), getClass().getSimpleName() + ".evaluate"));
+        try {
+            final List<Future<EvaluatedConstraint>> futures = new ArrayList<>();
+            for (final AbstractConstraint c : constraints) {
+                futures.add(executor.submit(new Callable<EvaluatedConstraint>() {
+                    @Override
+                    public EvaluatedConstraint call() {
+                        // the console output is buffered, so that the output of the constraints is not interleaved
+                        final ByteArrayOutputStream log = new ByteArrayOutputStream();
+                        final StreamTaskListener listener = new StreamTaskListener(log, StandardCharsets.UTF_8);
+                        c.setSettings(settings.withListener(listener));
+                        final ConstraintEvaluation evaluation = evaluate(c, snapshot, listener.getLogger());
+                        listener.getLogger().flush();
+                        // later output, such as the constraint report, goes to the console directly
+                        c.setSettings(settings);
+                        return new EvaluatedConstraint(evaluation, log.toByteArray());
+                    }
+                }));
+            }
+
+            final PrintStream logger = settings.getListener().getLogger();
+            final ArrayList<ConstraintEvaluation> result = new ArrayList<ConstraintEvaluation>();
+            for (Future<EvaluatedConstraint> future : futures) {
+                final EvaluatedConstraint evaluated;
+                try {
+                    evaluated = future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AbortException("Performance: Evaluating the constraints was interrupted.");
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Performance: Failed to evaluate the constraints.", e.getCause());
+                }
+                logger.write(evaluated.log, 0, evaluated.log.length);
+                if (evaluated.evaluation != null) {
+                    result.add(evaluated.evaluation);
+                }
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the evaluated constraint, or <code>null</code> if the constraint could not be evaluated
+     */
+    private ConstraintEvaluation evaluate(AbstractConstraint c, BuildMetricsSnapshot snapshot, PrintStream logger) {
+        try {
+            return c.evaluate(builds, snapshot);
+        } catch (Exception e) {
+            logger.println(e.getMessage());
+            return null;
+        }
+    }
+
+    private static final class EvaluatedConstraint {
+        private final ConstraintEvaluation evaluation;
+        private final byte[] log;
+
+        EvaluatedConstraint(ConstraintEvaluation evaluation, byte[] log) {
+            this.evaluation = evaluation;
+            this.log = log;
+        }
+    }
+
     public ConstraintSettings getSettings() {
         return settings;
     }
@@ -72,6 +179,7 @@ public class ConstraintChecker {
 
     public void setBuilds(List<? extends Run<?, ?>> builds) {
         this.builds = builds;
+        this.baselines = null;
     }
 
 }
@@ -17,12 +17,9 @@ import hudson.model.FreeStyleBuild;
 import hudson.model.Result;
 import hudson.model.Run;
 import hudson.plugins.performance.PerformancePublisher;
-import hudson.plugins.performance.actions.PerformanceBuildAction;
 import hudson.plugins.performance.constraints.blocks.PreviousResultsBlock;
 import hudson.plugins.performance.constraints.blocks.TestCaseBlock;
 import hudson.plugins.performance.descriptors.ConstraintDescriptor;
-import hudson.plugins.performance.reports.PerformanceReport;
-import hudson.plugins.performance.reports.UriReport;
 import hudson.plugins.performance.tools.SafeMaths;
 import hudson.tasks.Publisher;
 import hudson.util.FormValidation;
@@ -269,35 +266,29 @@ public class RelativeConstraint extends AbstractConstraint {
 
     @Override
     public ConstraintEvaluation evaluate(List<? extends Run<?, ?>> builds) throws AbortException, ParseException {
+        return evaluate(builds, new BuildMetricsSnapshot());
+    }
+
+    @Override
+    public ConstraintEvaluation evaluate(List<? extends Run<?, ?>> builds, BuildMetricsSnapshot snapshot) throws AbortException, ParseException {
         if (builds.isEmpty()) {
             throw new AbortException("Performance: No builds found to evaluate!");
         }
-        checkForDefectiveParams(builds);
-        PerformanceReport pr = builds.get(0).getAction(PerformanceBuildAction.class).getPerformanceReportMap().getPerformanceReport(getRelatedPerfReport());
-        double calValue = 0;
-        if (!isSpecifiedTestCase()) {
-            calValue = checkMetredValueforPerfReport(getMeteredValue(), pr);
-        } else {
-            List<UriReport> uriList = pr.getUriListOrdered();
-            for (UriReport ur : uriList) {
-                if (getTestCaseBlock().getTestCase().equals(ur.getUri())) {
-                    calValue = checkMetredValueforUriReport(getMeteredValue(), ur);
-                    break;
-                }
-            }
-        }
-        return check(builds, calValue);
+        checkForDefectiveParams(builds, snapshot);
+        double calValue = getMeasuredValue(snapshot.get(builds.get(0)));
+        return check(builds, snapshot, calValue);
     }
 
     /**
      * Compares the values and sets the success and a result message of a constraint.
      *
      * @param builds   all builds that are saved in Jenkins
+     * @param snapshot the reports of the builds
      * @param newValue value of the measured metric of the new build
      * @return evaluated constraint
      */
-    private ConstraintEvaluation check(List<? extends Run<?, ?>> builds, double newValue) {
-        double calculatedValue = calcAveOfReports(builds);
+    private ConstraintEvaluation check(List<? extends Run<?, ?>> builds, BuildMetricsSnapshot snapshot, double newValue) {
+        double calculatedValue = calcAveOfReports(builds, snapshot);
 		/*
 		 * If calculatedValue == Long.MIN_VALUE there was no build found to evaluate this constraint
 		 * The process should not get aborted, but this constraint should be marked as failed, unless it is the very first or only build.
@@ -361,15 +352,20 @@ public class RelativeConstraint extends AbstractConstraint {
      * Calculates the average of an meteredValue from UriReports/PerfomanceReports over several
      * builds.
      *
-     * @param builds all builds that are saved in Jenkins
+     * @param builds   all builds that are saved in Jenkins
+     * @param snapshot the reports of the builds
      * @return average of measured metric over included builds
      */
-    private long calcAveOfReports(List<? extends Run<?, ?>> builds) {
+    private long calcAveOfReports(List<? extends Run<?, ?>> builds, BuildMetricsSnapshot snapshot) {
         List<Run<?, ?>> buildsToAnalyze = new ArrayList<>();
         long tmpResult = 0;
         int counter = 0;
         long result = 0;
         Run<?, ?> newBuild = builds.get(0);
+        BaselineStore.JobBaselines baselines = snapshot.getBaselines();
+        if (baselines != null && !getPreviousResultsBlock().isChoiceBaselineBuild()) {
+            return calcAveOfBaseline(baselines, newBuild);
+        }
         if (getPreviousResultsBlock().isChoiceTimeframe()) {
             buildsToAnalyze.addAll(evaluateDate(builds));
         }
@@ -382,17 +378,11 @@ public class RelativeConstraint extends AbstractConstraint {
         setPreviousResults(buildsToAnalyze.size());
         if (!buildsToAnalyze.isEmpty()) {
             for (Run<?, ?> actBuild : buildsToAnalyze) {
-                if (actBuild.getAction(PerformanceBuildAction.class) != null && !actBuild.equals(newBuild)) {
-                    List<PerformanceReport> tmpList = actBuild.getAction(PerformanceBuildAction.class).getPerformanceReportMap().getPerformanceListOrdered();
-                    for (PerformanceReport pr : tmpList) {
-                        if (getRelatedPerfReport().equals(pr.getReportFileName())) {
-                            if (!isSpecifiedTestCase()) {
-                                tmpResult += checkMetredValueforPerfReport(getMeteredValue(), pr);
-                            } else {
-                                tmpResult += getUriValue(pr);
-                            }
-                            counter++;
-                        }
+                BuildMetricsSnapshot.BuildMetrics metrics = snapshot.get(actBuild);
+                if (metrics != null && !actBuild.equals(newBuild)) {
+                    if (metrics.getReport(getRelatedPerfReport()) != null) {
+                        tmpResult += getMeasuredValue(metrics);
+                        counter++;
                     }
                 } else {
                     PrintStream logger = getSettings().getListener().getLogger();
@@ -413,6 +403,40 @@ public class RelativeConstraint extends AbstractConstraint {
         return result;
     }
 
+    /**
+     * Calculates the same average as {@link #calcAveOfReports(List, BuildMetricsSnapshot)} from the baselines of the
+     * job, without reading the reports of the included builds.
+     *
+     * @param baselines the baselines of the job of the new build
+     * @param newBuild  the build that is evaluated
+     * @return average of measured metric over included builds
+     */
+    private long calcAveOfBaseline(BaselineStore.JobBaselines baselines, Run<?, ?> newBuild) {
+        BaselineStore.Key key = new BaselineStore.Key(getRelatedPerfReport(),
+                isSpecifiedTestCase() ? getTestCaseBlock().getTestCase() : null, getMeteredValue());
+        int filter = BaselineStore.getFilter(getSettings());
+        BaselineStore.Baseline baseline;
+        if (getPreviousResultsBlock().isChoiceTimeframe()) {
+            long timeframeEnd = NOW.equals(getTimeframeEndString()) ? System.currentTimeMillis() : getTimeframeEnd().getTime();
+            baseline = baselines.getTimeframe(key, filter, newBuild.getNumber(), getTimeframeStart().getTime(), timeframeEnd);
+        } else if (getPreviousResultsBlock().isChoicePreviousResults()) {
+            baseline = baselines.getPrevious(key, filter, newBuild.getNumber(), getPreviousResults());
+        } else {
+            baseline = new BaselineStore.Baseline(0, 0, 0, 0, Collections.<Integer>emptyList());
+        }
+        PrintStream logger = getSettings().getListener().getLogger();
+        setPreviousResults(baseline.getBuilds());
+        if (baseline.getBuilds() == 0) {
+            logger.println("Performance: There were no builds found to evaluate for a relative constraint!");
+            return Long.MIN_VALUE;
+        }
+        for (Integer number : baseline.getMissingBuilds()) {
+            logger.println("Performance: There are no comaparable data available for build #" + number + ". Skipping this build!");
+            setPreviousResults(getPreviousResults() - 1);
+        }
+        return (long) SafeMaths.safeDivide(baseline.getSum(), baseline.getMeasuredBuilds());
+    }
+
     /**
      * Is executed when the RadioButton "Compare with builds in a timeframe" is choosen. Determines
      * the builds that are included in the evaluation based on the constraint settings and the given
@@ -477,22 +501,6 @@ public class RelativeConstraint extends AbstractConstraint {
         return result;
     }
 
-    /**
-     * Searches a value in a URIReport. Metric and PerformanceReport are defined in the constraint.
-     *
-     * @param pr performance report where to search for the URI report
-     * @return value of the specified metric
-     */
-    private double getUriValue(PerformanceReport pr) {
-        double result = 0;
-        for (UriReport ur : pr.getUriListOrdered()) {
-            if (getTestCaseBlock().getTestCase().equals(ur.getUri())) {
-                result = checkMetredValueforUriReport(getMeteredValue(), ur);
-            }
-        }
-        return result;
-    }
-
     public int getPreviousResults() {
         return previousResults;
     }
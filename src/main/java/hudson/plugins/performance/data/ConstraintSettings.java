@@ -43,6 +43,13 @@ public class ConstraintSettings {
         this.setBaselineBuild(baselineBuild);
     }
 
+    /**
+     * @return a copy of these settings that prints to the given listener
+     */
+    public ConstraintSettings withListener(TaskListener listener) {
+        return new ConstraintSettings(listener, ignoreFailedBuilds, ignoreUnstableBuilds, persistConstraintLog, baselineBuild);
+    }
+
     public TaskListener getListener() {
         return listener;
     }
@@ -0,0 +1,209 @@
+package hudson.plugins.performance.data;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Mergeable log-linear histogram of durations (in milliseconds) with running count, sum, min and max.
+ * <p>
+ * Values below {@link #SUB_BUCKET_COUNT} are counted exactly; above that every power of two is split into
+ * {@code SUB_BUCKET_COUNT / 2} equal sub-buckets, which keeps the relative error of any percentile below 1%
+ * while the memory needed only depends on the magnitude of the largest duration recorded.
+ * <p>
+ * Percentiles are resolved with the same rank rule as the sorted-list implementation in
+ * {@link hudson.plugins.performance.reports.UriReport}, so exact results are returned for durations below
+ * {@link #SUB_BUCKET_COUNT} milliseconds.
+ */
+public class DurationHistogram implements Serializable {
+
+    private static final long serialVersionUID = 4131620187418295412L;
+
+    private static final int SUB_BUCKET_BITS = 8;
+
+    /**
+     * Number of buckets that hold exact values, and twice the number of sub-buckets per power of two above that.
+     */
+    public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+
+    private static final int INITIAL_BUCKETS = SUB_BUCKET_COUNT + 4 * SUB_BUCKET_HALF_COUNT;
+
+    private long[] counts = new long[INITIAL_BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public DurationHistogram() {
+    }
+
+    /**
+     * Recreates a histogram from its bucket counts (see {@link #getCountAt(int)}) and running statistics.
+     */
+    public DurationHistogram(long[] counts, long sum, long min, long max) {
+        this.counts = Arrays.copyOf(counts, Math.max(counts.length, INITIAL_BUCKETS));
+        for (long bucketCount : counts) {
+            this.count += bucketCount;
+        }
+        this.sum = sum;
+        this.min = (count == 0) ? Long.MAX_VALUE : min;
+        this.max = (count == 0) ? Long.MIN_VALUE : max;
+    }
+
+    public void record(long duration) {
+        record(duration, 1);
+    }
+
+    /**
+     * Adds all given durations, e.g. those of a report that retained its samples.
+     */
+    public void recordAll(long[] durations) {
+        for (long duration : durations) {
+            record(duration, 1);
+        }
+    }
+
+    /**
+     * Adds {@code times} occurrences of the given duration. Negative durations are recorded as zero.
+     */
+    public void record(long duration, long times) {
+        if (times <= 0) {
+            return;
+        }
+        long value = Math.max(0, duration);
+        int index = indexOf(value);
+        ensureCapacity(index + 1);
+        counts[index] += times;
+        count += times;
+        sum += value * times;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds all values recorded in {@code other} to this histogram.
+     */
+    public void merge(DurationHistogram other) {
+        if (other == null || other.count == 0) {
+            return;
+        }
+        ensureCapacity(other.counts.length);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * 0 percent will give the smallest recorded value, 100 percent the largest one.
+     *
+     * @param percentage must be a value between 0 and 100 (inclusive)
+     * @return value at the percentage specified, or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentage) {
+        if (percentage < 0 || percentage > 100) {
+            throw new IllegalArgumentException("Argument 'percentage' must be a value between 0 and 100 (inclusive)");
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long index = ((long) (count * (percentage / 100))) - 1;
+        if (index < 0) {
+            index = 0;
+        } else if (index >= count) {
+            index = count - 1;
+        }
+        if (index == 0) {
+            return min;
+        }
+        if (index == count - 1) {
+            return max;
+        }
+
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative > index) {
+                return Math.max(min, Math.min(max, highestEquivalentValue(i)));
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    public long getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * @return number of buckets that can be inspected with {@link #getCountAt(int)} and {@link #getValueAt(int)}.
+     */
+    public int getBucketCount() {
+        return counts.length;
+    }
+
+    public long getCountAt(int bucket) {
+        return counts[bucket];
+    }
+
+    /**
+     * @return representative (highest equivalent) value of the given bucket, clamped to the recorded range.
+     */
+    public long getValueAt(int bucket) {
+        return Math.max(getMin(), Math.min(getMax(), highestEquivalentValue(bucket)));
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (magnitude - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT + (subBucket - SUB_BUCKET_HALF_COUNT);
+    }
+
+    static long lowestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int offset = index - SUB_BUCKET_COUNT;
+        int shift = offset / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = SUB_BUCKET_HALF_COUNT + (offset % SUB_BUCKET_HALF_COUNT);
+        return subBucket << shift;
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        return lowestEquivalentValue(index) + (1L << shift) - 1;
+    }
+
+    private void ensureCapacity(int length) {
+        if (counts.length < length) {
+            counts = Arrays.copyOf(counts, Math.max(length, counts.length + SUB_BUCKET_HALF_COUNT));
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package hudson.plugins.performance.data;
+
+import com.google.gson.stream.JsonWriter;
+import hudson.plugins.performance.reports.AbstractReport;
+import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.reports.ThroughputReport;
+import hudson.plugins.performance.reports.UriReport;
+import org.kohsuke.stapler.StaplerResponse;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Writes the aggregates of reports and their URIs as JSON, for clients that draw their own charts.
+ * <p>
+ * Only the requested fields are written, see {@link #FIELDS}, and the aggregates of URIs only for the requested
+ * URIs. Reports are written as they are read, so that a response never holds the whole data in memory.
+ */
+public class ReportDataWriter {
+
+    public static final String SAMPLES = "samples";
+    public static final String AVERAGE = "average";
+    public static final String MEDIAN = "median";
+    public static final String MIN = "min";
+    public static final String MAX = "max";
+    public static final String LINE90 = "line90";
+    public static final String LINE95 = "line95";
+    public static final String PERCENTILES = "percentiles";
+    public static final String ERRORS = "errors";
+    public static final String ERROR_PERCENT = "errorPercent";
+    public static final String THROUGHPUT = "throughput";
+    public static final String AVERAGE_SIZE_KB = "averageSizeKb";
+    public static final String TOTAL_TRAFFIC_KB = "totalTrafficKb";
+
+    /**
+     * All fields, in the order in which they are written. Durations are in milliseconds and throughput in requests
+     * per second.
+     */
+    public static final List<String> FIELDS = Collections.unmodifiableList(Arrays.asList(SAMPLES, AVERAGE, MEDIAN,
+            MIN, MAX, LINE90, LINE95, PERCENTILES, ERRORS, ERROR_PERCENT, THROUGHPUT, AVERAGE_SIZE_KB,
+            TOTAL_TRAFFIC_KB));
+
+    /**
+     * Selects all URIs in {@link #parseUris(String[])}.
+     */
+    public static final String ALL_URIS = "*";
+
+    private static final long MILLISECONDS_IN_SECOND = 1000;
+
+    private final Set<String> fields;
+    private final Set<String> uris;
+
+    /**
+     * @param fields the fields to write, see {@link #parseFields(String)}
+     * @param uris   the URIs whose aggregates are written with their report, see {@link #parseUris(String[])}
+     */
+    public ReportDataWriter(Set<String> fields, Set<String> uris) {
+        this.fields = fields;
+        this.uris = uris;
+    }
+
+    /**
+     * @param value comma separated fields, or <code>null</code> for all fields
+     * @throws IllegalArgumentException if a field is unknown
+     */
+    public static Set<String> parseFields(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return new LinkedHashSet<>(FIELDS);
+        }
+        final Set<String> fields = new LinkedHashSet<>();
+        for (String field : value.split(",")) {
+            field = field.trim();
+            if (field.isEmpty()) {
+                continue;
+            }
+            if (!FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown field '" + field + "', expected one of " + FIELDS);
+            }
+            fields.add(field);
+        }
+        return fields;
+    }
+
+    /**
+     * @param values URIs as in {@link UriReport#getStaplerUri()}, {@link #ALL_URIS} for all URIs, or
+     *               <code>null</code> for none
+     */
+    public static Set<String> parseUris(String[] values) {
+        if (values == null) {
+            return Collections.emptySet();
+        }
+        final Set<String> uris = new LinkedHashSet<>();
+        for (String value : values) {
+            if (value != null && !value.isEmpty()) {
+                uris.add(value);
+            }
+        }
+        return uris;
+    }
+
+    /**
+     * @param value        the requested number of entries of a page, or <code>null</code>
+     * @param defaultLimit number of entries if none was requested
+     * @param maxLimit     upper bound of the number of entries
+     * @throws IllegalArgumentException if the value is not a positive number
+     */
+    public static int parseLimit(String value, int defaultLimit, int maxLimit) {
+        if (value == null || value.isEmpty()) {
+            return defaultLimit;
+        }
+        final int limit = Integer.parseInt(value);
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The limit must be positive: " + value);
+        }
+        return Math.min(limit, maxLimit);
+    }
+
+    /**
+     * Prepares the response for JSON.
+     */
+    public static JsonWriter open(StaplerResponse response) throws IOException {
+        response.setContentType("application/json;charset=UTF-8");
+        // the data changes with every build
+        response.setHeader("Cache-Control", "no-cache");
+        return new JsonWriter(response.getWriter());
+    }
+
+    /**
+     * @return true if URIs are written with their report
+     */
+    public boolean hasUris() {
+        return !uris.isEmpty();
+    }
+
+    /**
+     * Writes the aggregates of a report and of the requested URIs of the report.
+     */
+    public void writeReport(JsonWriter out, PerformanceReport report) throws IOException {
+        beginReport(out, report);
+        if (hasUris()) {
+            out.name("uris").beginArray();
+            for (UriReport uriReport : getUris(report)) {
+                writeUri(out, uriReport);
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    /**
+     * Begins the object of a report with its aggregates, so that the caller can add further members before it
+     * ends the object.
+     */
+    public void beginReport(JsonWriter out, PerformanceReport report) throws IOException {
+        out.beginObject();
+        out.name("name").value(report.getReportFileName());
+        writeFields(out, report, new ThroughputReport(report).get());
+        if (fields.contains(TOTAL_TRAFFIC_KB)) {
+            writeNumber(out.name(TOTAL_TRAFFIC_KB), report.getTotalTrafficInKb());
+        }
+    }
+
+    public void writeUri(JsonWriter out, UriReport uriReport) throws IOException {
+        out.beginObject();
+        out.name("uri").value(uriReport.getUri());
+        out.name("key").value(uriReport.getStaplerUri());
+        writeFields(out, uriReport, getThroughput(uriReport));
+        out.endObject();
+    }
+
+    /**
+     * @return the requested URIs of the report, ordered by {@link UriReport#getStaplerUri()}
+     */
+    public List<UriReport> getUris(PerformanceReport report) {
+        final Map<String, UriReport> uriReports = report.getUriReportMap();
+        if (uris.contains(ALL_URIS)) {
+            return new ArrayList<>(new TreeMap<>(uriReports).values());
+        }
+        final Map<String, UriReport> selected = new TreeMap<>();
+        for (String uri : uris) {
+            final UriReport uriReport = uriReports.get(uri);
+            if (uriReport != null) {
+                selected.put(uri, uriReport);
+            }
+        }
+        return new ArrayList<>(selected.values());
+    }
+
+    private void writeFields(JsonWriter out, AbstractReport report, double throughput) throws IOException {
+        for (String field : fields) {
+            switch (field) {
+                case SAMPLES:
+                    out.name(field).value(report.samplesCount());
+                    break;
+                case AVERAGE:
+                    out.name(field).value(report.getAverage());
+                    break;
+                case MEDIAN:
+                    out.name(field).value(report.getMedian());
+                    break;
+                case MIN:
+                    out.name(field).value(report.getMin());
+                    break;
+                case MAX:
+                    out.name(field).value(report.getMax());
+                    break;
+                case LINE90:
+                    out.name(field).value(report.get90Line());
+                    break;
+                case LINE95:
+                    out.name(field).value(report.get95Line());
+                    break;
+                case PERCENTILES:
+                    writePercentiles(out.name(field), report.getPercentilesValues());
+                    break;
+                case ERRORS:
+                    out.name(field).value(report.countErrors());
+                    break;
+                case ERROR_PERCENT:
+                    writeNumber(out.name(field), report.errorPercent());
+                    break;
+                case THROUGHPUT:
+                    writeNumber(out.name(field), throughput);
+                    break;
+                case AVERAGE_SIZE_KB:
+                    writeNumber(out.name(field), getAverageSizeInKb(report));
+                    break;
+                default:
+                    // fields that only some reports have
+                    break;
+            }
+        }
+    }
+
+    private static void writePercentiles(JsonWriter out, Map<Double, Long> percentiles) throws IOException {
+        out.beginObject();
+        if (percentiles != null) {
+            for (Map.Entry<Double, Long> entry : percentiles.entrySet()) {
+                out.name(BigDecimal.valueOf(entry.getKey()).stripTrailingZeros().toPlainString());
+                out.value(entry.getValue());
+            }
+        }
+        out.endObject();
+    }
+
+    private static void writeNumber(JsonWriter out, double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.nullValue();
+        } else {
+            out.value(value);
+        }
+    }
+
+    private static double getAverageSizeInKb(AbstractReport report) {
+        if (report instanceof PerformanceReport) {
+            return ((PerformanceReport) report).getAverageSizeInKb();
+        }
+        return ((UriReport) report).getAverageSizeInKb();
+    }
+
+    /**
+     * @return requests per second of the URI, as the number of samples over the time between its first and its
+     * last sample if the report has no throughput
+     */
+    static double getThroughput(UriReport uriReport) {
+        if (uriReport.getThroughput() != null) {
+            return uriReport.getThroughput();
+        }
+        if (uriReport.getStart() == null || uriReport.getEnd() == null) {
+            return 0;
+        }
+        final long duration = uriReport.getEnd().getTime() - uriReport.getStart().getTime();
+        if (duration <= 0) {
+            return uriReport.samplesCount();
+        }
+        return uriReport.samplesCount() / ((double) duration / MILLISECONDS_IN_SECOND);
+    }
+
+    /**
+     * @return the reports, ordered by file name
+     */
+    public static List<PerformanceReport> orderByName(Collection<PerformanceReport> reports) {
+        final Map<String, PerformanceReport> ordered = new TreeMap<>();
+        for (PerformanceReport report : reports) {
+            ordered.put(report.getReportFileName(), report);
+        }
+        return new ArrayList<>(ordered.values());
+    }
+}
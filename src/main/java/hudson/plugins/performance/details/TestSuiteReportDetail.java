@@ -90,7 +90,7 @@ public class TestSuiteReportDetail implements ModelObject {
                     continue;
                 }
                 PerformanceReport performanceReport = performanceBuildAction
-                        .getPerformanceReportMap().getPerformanceReport(this.filename);
+                        .getPerformanceReportSummary(this.filename);
                 if (performanceReport == null) {
                     nbBuildsToAnalyze--;
                     continue;
@@ -171,8 +171,7 @@ public class TestSuiteReportDetail implements ModelObject {
             }
 
             PerformanceReport performanceReport = performanceBuildAction
-                    .getPerformanceReportMap().getPerformanceReport(
-                            performanceReportNameFile);
+                    .getPerformanceReportSummary(performanceReportNameFile);
             if (performanceReport == null) {
                 continue;
             }
@@ -1,61 +1,78 @@
 package hudson.plugins.performance.parsers;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-
+import hudson.FilePath;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.reports.ReportCache;
+import hudson.plugins.performance.reports.ReportSnapshot;
 import hudson.plugins.performance.reports.UriReport;
+import hudson.plugins.performance.tools.TimestampDecoder;
+import hudson.remoting.VirtualChannel;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.MasterToSlaveFileCallable;
 
 /**
  * An abstraction for parsing data to PerformanceReport instances. This class
  * provides functionality that optimizes the parsing process, such as caching as
- * well as saving/loaded parsed data in serialized form to/from disc.
+ * well as saving/loaded parsed data as {@link ReportSnapshot}s to/from disc.
  *
  * @author Guus der Kinderen, guus.der.kinderen@gmail.com
  */
-public abstract class AbstractParser extends PerformanceReportParser {
+public abstract class AbstractParser extends PerformanceReportParser implements Cloneable {
+    private static final long serialVersionUID = 1L;
+
     private static final Logger LOGGER = Logger.getLogger(JMeterParser.class.getName());
 
     /**
-     * A suffix to be used for files in which a serialized PerformanceReport instance is stored.
+     * A suffix of files in which older versions stored a serialized PerformanceReport instance.
      */
     private static final String SERIALIZED_DATA_FILE_SUFFIX = ".serialized";
 
     /**
-     * A cache that contains serialized PerformanceReport instances. This cache intends to limit disc IO.
+     * A suffix of cache keys of reports that were loaded without raw samples.
      */
-    private static final Cache<String, PerformanceReport> CACHE = CacheBuilder.newBuilder().maximumSize(1000).softValues().build();
+    private static final String SUMMARY_CACHE_KEY_SUFFIX = "#summary";
 
+    /**
+     * Not used anymore, see {@link #timestampDecoder}. Kept so that parsers saved by older versions load without
+     * warnings.
+     */
+    @Deprecated
     protected boolean isNumberDateFormat = false;
-    protected transient SimpleDateFormat format;
 
-    static final String[] DATE_FORMATS = new String[]{
-            "yyyy/MM/dd HH:mm:ss.SSS", "yyyy-MM-dd HH:mm:ss.SSS", "yyyy-MM-dd HH:mm:ss,SSS", "yyyy/mm/dd HH:mm:ss"
-    };
+    /**
+     * Decoder of the timestamps of the file being parsed, detected from its first timestamp.
+     */
+    protected transient TimestampDecoder timestampDecoder;
 
     protected String percentiles;
 
@@ -67,31 +84,237 @@ public abstract class AbstractParser extends PerformanceReportParser {
         this.filterRegex = filterRegex;
     }
 
+    /**
+     * Parses the report files one after another or, when more than one parse worker is configured, concurrently.
+     * Either way the reports are returned in the order of the report files, and the console output of each file
+     * is printed in one piece.
+     */
     @Override
     public Collection<PerformanceReport> parse(Run<?, ?> build, Collection<File> reports, TaskListener listener) throws IOException {
-        final List<PerformanceReport> result = new ArrayList<>();
+        final int workers = Math.min(parseWorkers, reports.size());
+        if (workers > 1) {
+            return parseConcurrently(reports, listener, workers);
+        }
 
+        final List<PerformanceReport> result = new ArrayList<>();
         for (File reportFile : reports) {
-            // Attempt to load previously serialized instances from file or cache.
-            final PerformanceReport deserializedReport = loadSerializedReport(reportFile);
-            if (deserializedReport != null) {
-                result.add(deserializedReport);
-                continue;
+            final PerformanceReport report = parseReportFile(reportFile, listener.getLogger());
+            if (report != null) {
+                result.add(report);
             }
+        }
+        return result;
+    }
 
-            // When serialized data cannot be used, the original JMeter files are to be processed.
+    private List<PerformanceReport> parseConcurrently(Collection<File> reports, TaskListener listener, int workers) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(workers,
+                new NamingThreadFactory(new DaemonThreadFactory(), getClass().getSimpleName() + ".parse"));
+        try {
+            final List<Future<ParsedReportFile>> futures = new ArrayList<>();
+            for (final File reportFile : reports) {
+                futures.add(executor.submit(new Callable<ParsedReportFile>() {
+                    @Override
+                    public ParsedReportFile call() {
+                        // the console output is buffered, so that the output of files parsed concurrently is not interleaved
+                        final ByteArrayOutputStream log = new ByteArrayOutputStream();
+                        final PrintStream logger = new PrintStream(log, true, StandardCharsets.UTF_8);
+                        final PerformanceReport report = createWorkerCopy().parseReportFile(reportFile, logger);
+                        logger.flush();
+                        return new ParsedReportFile(report, log.toByteArray());
+                    }
+                }));
+            }
+
+            final List<PerformanceReport> result = new ArrayList<>();
+            for (Future<ParsedReportFile> future : futures) {
+                final ParsedReportFile parsed;
+                try {
+                    parsed = future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Performance: Parsing report files was interrupted.");
+                } catch (ExecutionException e) {
+                    throw new IOException("Performance: Failed to parse report files.", e.getCause());
+                }
+                listener.getLogger().write(parsed.log);
+                if (parsed.report != null) {
+                    result.add(parsed.report);
+                }
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads the report of a single file from its snapshot or parses it.
+     *
+     * @return the report, or <code>null</code> if the file cannot be parsed.
+     */
+    private PerformanceReport parseReportFile(File reportFile, PrintStream logger) {
+        // Attempt to load previously serialized instances from file or cache.
+        final PerformanceReport deserializedReport = loadSerializedReport(reportFile);
+        if (deserializedReport != null) {
+            return deserializedReport;
+        }
+
+        // When serialized data cannot be used, the original JMeter files are to be processed.
+        try {
+            logger.println("Performance: Parsing report file '" + reportFile + "' with filterRegex '"+filterRegex+"'.");
+            final PerformanceReport report = parse(reportFile);
+            passBaselineBuild(report);
+            saveSerializedReport(reportFile, report);
+            return report;
+        } catch (Throwable e) {
+            logger.println("Performance: Failed to parse file '" + reportFile + "': " + e.getMessage());
+            e.printStackTrace(logger);
+            return null;
+        }
+    }
+
+    /**
+     * Creates a copy of this parser for a parse worker, as parsers keep state (e.g. the detected date format)
+     * while parsing a file.
+     */
+    protected AbstractParser createWorkerCopy() {
+        try {
+            final AbstractParser copy = (AbstractParser) clone();
+            copy.clearDateFormat();
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * @return true if a report created by the given parser is the report this parser would create from the same
+     * file, i.e. the parsers are of the same type and have the same settings
+     */
+    public boolean canAdopt(AbstractParser source) {
+        return source.getClass() == getClass() && hasSameSettings(source);
+    }
+
+    protected boolean hasSameSettings(AbstractParser other) {
+        return Objects.equals(percentiles, other.percentiles) && Objects.equals(filterRegex, other.filterRegex)
+                && streamingStatistics == other.streamingStatistics && excludeResponseTime == other.excludeResponseTime;
+    }
+
+    /**
+     * Takes a report that was created from the given report file by another parser, e.g. while the file was
+     * still being written, as the report of this parser. The report is saved like a parsed report, so that
+     * {@link #parse(Run, Collection, TaskListener)} loads it instead of parsing the file, which itself need not
+     * exist.
+     *
+     * @return false if the report cannot be adopted, see {@link #canAdopt(AbstractParser)}
+     */
+    public boolean adoptReport(File reportFile, PerformanceReport report, AbstractParser source) {
+        if (!canAdopt(source)) {
+            return false;
+        }
+        final File directory = reportFile.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return false;
+        }
+        report.setReportFileName(reportFile.getName());
+        report.setShowTrendGraphs(showTrendGraphs);
+        passBaselineBuild(report);
+        saveSerializedReport(reportFile, report);
+        return true;
+    }
+
+    /**
+     * Parses a report file on the agent that holds it, so that the raw file need not be copied to the controller.
+     * Only a snapshot of the parsed report is transferred and saved next to the given local report file, which
+     * itself need not exist. The report is then loaded from that snapshot like any previously parsed report.
+     *
+     * @param src         the report file on the agent
+     * @param localReport the file in the build directory the report belongs to
+     * @return the report, or <code>null</code> if the file cannot be parsed.
+     */
+    public PerformanceReport parseOnAgent(FilePath src, File localReport, TaskListener listener)
+            throws IOException, InterruptedException {
+        final AgentParseResult result = src.act(new AgentParseCallable(createWorkerCopy(), localReport.getName()));
+        listener.getLogger().write(result.log);
+        if (result.snapshot == null) {
+            return null;
+        }
+
+        final String snapshot = localReport.getPath() + ReportSnapshot.FILE_SUFFIX;
+        final FilePath remoteSnapshot = new FilePath(src.getChannel(), result.snapshot);
+        try {
+            remoteSnapshot.copyTo(new FilePath(new File(snapshot)));
+        } finally {
+            remoteSnapshot.delete();
+        }
+        ReportCache.getInstance().invalidate(snapshot);
+        ReportCache.getInstance().invalidate(snapshot + SUMMARY_CACHE_KEY_SUFFIX);
+        return loadSerializedReport(localReport);
+    }
+
+    /**
+     * Parses a report file on an agent and writes the report to a temporary snapshot file there.
+     */
+    private static final class AgentParseCallable extends MasterToSlaveFileCallable<AgentParseResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final AbstractParser parser;
+        private final String reportFileName;
+
+        AgentParseCallable(AbstractParser parser, String reportFileName) {
+            this.parser = parser;
+            this.reportFileName = reportFileName;
+        }
+
+        @Override
+        public AgentParseResult invoke(File reportFile, VirtualChannel channel) {
+            final ByteArrayOutputStream log = new ByteArrayOutputStream();
+            final PrintStream logger = new PrintStream(log, true, StandardCharsets.UTF_8);
+            String snapshot = null;
             try {
-                listener.getLogger().println("Performance: Parsing report file '" + reportFile + "' with filterRegex '"+filterRegex+"'.");
-                final PerformanceReport report = parse(reportFile);
-                result.add(report);
-                passBaselineBuild(report);
-                saveSerializedReport(reportFile, report);
+                logger.println("Performance: Parsing report file '" + reportFile + "' on agent with filterRegex '"
+                        + parser.filterRegex + "'.");
+                final PerformanceReport report = parser.parse(reportFile);
+                parser.passBaselineBuild(report);
+                report.setReportFileName(reportFileName);
+                final File file = File.createTempFile("performance-report", ReportSnapshot.FILE_SUFFIX);
+                try {
+                    ReportSnapshot.write(file, report);
+                    snapshot = file.getPath();
+                } finally {
+                    if (snapshot == null && !file.delete()) {
+                        file.deleteOnExit();
+                    }
+                }
             } catch (Throwable e) {
-                listener.getLogger().println("Performance: Failed to parse file '" + reportFile + "': " + e.getMessage());
-                e.printStackTrace(listener.getLogger());
+                logger.println("Performance: Failed to parse file '" + reportFile + "': " + e.getMessage());
+                e.printStackTrace(logger);
             }
+            logger.flush();
+            return new AgentParseResult(snapshot, log.toByteArray());
+        }
+    }
+
+    private static final class AgentParseResult implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String snapshot;
+        private final byte[] log;
+
+        AgentParseResult(String snapshot, byte[] log) {
+            this.snapshot = snapshot;
+            this.log = log;
+        }
+    }
+
+    private static class ParsedReportFile {
+        private final PerformanceReport report;
+        private final byte[] log;
+
+        ParsedReportFile(PerformanceReport report, byte[] log) {
+            this.report = report;
+            this.log = log;
         }
-        return result;
     }
 
     private void passBaselineBuild(PerformanceReport report) {
@@ -111,12 +334,13 @@ public abstract class AbstractParser extends PerformanceReportParser {
 
     /**
      * Returns a PerformanceReport instance for the provided report file, based on
-     * previously serialized data.
+     * a previously saved snapshot or, for reports of older versions, previously
+     * serialized data.
      * <p>
      * This method first attempts to load data from an internal cache. If the data
      * is not in cache, data is obtained from a file on disc.
      * <p>
-     * When no PerformanceReport instance has previously been serialized (or when
+     * When no PerformanceReport instance has previously been saved (or when
      * such data cannot be read, for instance because of class file changes), this
      * method returns null.
      *
@@ -127,34 +351,87 @@ public abstract class AbstractParser extends PerformanceReportParser {
         if (reportFile == null) {
             throw new IllegalArgumentException("Argument 'reportFile' cannot be null.");
         }
+        final PerformanceReport snapshot = loadReportSnapshot(reportFile, true);
+        if (snapshot != null) {
+            return snapshot;
+        }
+
         final String serialized = reportFile.getPath() + SERIALIZED_DATA_FILE_SUFFIX;
-        File file = new File(serialized);
-        synchronized (CACHE) {
-            PerformanceReport report = CACHE.getIfPresent(serialized);
-            if (report == null && file.exists() && file.canRead()) {
-                try (FileInputStream fis = new FileInputStream(serialized);
-                        BufferedInputStream bis = new BufferedInputStream(fis);
-                        ObjectInputStream in = new ObjectInputStreamWithClassMapping(bis)) {
-                    report = (PerformanceReport) in.readObject();
-                    CACHE.put(serialized, report);
-                    return report;
-                } catch (FileNotFoundException ex) {
-                    // That's OK
-                } catch (Exception ex) {
-                    LOGGER.log(Level.WARNING, "Reading serialized PerformanceReport instance from file '" + serialized + "' failed.", ex);
-                }
+        final File file = new File(serialized);
+        final ReportCache cache = ReportCache.getInstance();
+        PerformanceReport report = cache.getIfPresent(serialized);
+        if (report == null && file.exists() && file.canRead()) {
+            try {
+                report = cache.get(serialized, new Callable<PerformanceReport>() {
+                    @Override
+                    public PerformanceReport call() throws Exception {
+                        try (FileInputStream fis = new FileInputStream(file);
+                                BufferedInputStream bis = new BufferedInputStream(fis);
+                                ObjectInputStream in = new ObjectInputStreamWithClassMapping(bis)) {
+                            return (PerformanceReport) in.readObject();
+                        } catch (FileNotFoundException ex) {
+                            // That's OK
+                            return null;
+                        }
+                    }
+                });
+            } catch (Exception ex) {
+                LOGGER.log(Level.WARNING, "Reading serialized PerformanceReport instance from file '" + serialized + "' failed.", ex);
             }
-            return report;
         }
+        return report;
+    }
+
+    /**
+     * Returns the aggregates of the report for the provided report file, without
+     * its raw samples when they are not in cache already. This is intended for
+     * views that only need report and URI level values, such as trend graphs.
+     * <p>
+     * Falls back to {@link #loadSerializedReport(File)} for reports of older
+     * versions, which have no snapshot.
+     *
+     * @param reportFile Report for which to return data. Cannot be null.
+     * @return report aggregates, possibly null.
+     */
+    public static PerformanceReport loadReportSummary(File reportFile) {
+        if (reportFile == null) {
+            throw new IllegalArgumentException("Argument 'reportFile' cannot be null.");
+        }
+        final PerformanceReport snapshot = loadReportSnapshot(reportFile, false);
+        return snapshot != null ? snapshot : loadSerializedReport(reportFile);
+    }
+
+    private static PerformanceReport loadReportSnapshot(File reportFile, final boolean withSamples) {
+        final String snapshot = reportFile.getPath() + ReportSnapshot.FILE_SUFFIX;
+        final String summaryKey = snapshot + SUMMARY_CACHE_KEY_SUFFIX;
+        final File file = new File(snapshot);
+        final ReportCache cache = ReportCache.getInstance();
+        PerformanceReport report = cache.getIfPresent(snapshot);
+        if (report == null && !withSamples) {
+            report = cache.getIfPresent(summaryKey);
+        }
+        if (report == null && file.exists() && file.canRead()) {
+            try {
+                report = cache.get(withSamples ? snapshot : summaryKey, new Callable<PerformanceReport>() {
+                    @Override
+                    public PerformanceReport call() throws IOException {
+                        return ReportSnapshot.read(file, withSamples);
+                    }
+                });
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Reading PerformanceReport snapshot from file '" + snapshot + "' failed.", ex);
+            }
+        }
+        return report;
     }
 
     /**
-     * Saves a PerformanceReport instance as serialized data into a file on disc.
+     * Saves a snapshot of a PerformanceReport instance into a file on disc.
      *
      * @param reportFile The file from which the original data is obtained (<em>not</em>
-     *                   the file into which serialized data is to be saved!) Cannot be
+     *                   the file into which the snapshot is to be saved!) Cannot be
      *                   null.
-     * @param report     The instance to serialize. Cannot be null.
+     * @param report     The instance to save. Cannot be null.
      */
     protected static void saveSerializedReport(File reportFile, PerformanceReport report) {
         if (reportFile == null) {
@@ -163,17 +440,14 @@ public abstract class AbstractParser extends PerformanceReportParser {
         if (report == null) {
             throw new IllegalArgumentException("Argument 'report' cannot be null.");
         }
-        final String serialized = reportFile.getPath() + SERIALIZED_DATA_FILE_SUFFIX;
+        final String snapshot = reportFile.getPath() + ReportSnapshot.FILE_SUFFIX;
 
-        synchronized (CACHE) {
-            CACHE.put(serialized, report);
-        }
-        try (FileOutputStream fos = new FileOutputStream(serialized);
-                BufferedOutputStream bos = new BufferedOutputStream(fos);
-                ObjectOutputStream out = new ObjectOutputStream(bos)) {
-            out.writeObject(report);
+        ReportCache.getInstance().put(snapshot, report);
+        ReportCache.getInstance().invalidate(snapshot + SUMMARY_CACHE_KEY_SUFFIX);
+        try {
+            ReportSnapshot.write(new File(snapshot), report);
         } catch (Exception ex) {
-            LOGGER.log(Level.WARNING, "Saving serialized PerformanceReport instance to file '" + serialized + "' failed.", ex);
+            LOGGER.log(Level.WARNING, "Saving PerformanceReport snapshot to file '" + snapshot + "' failed.", ex);
         }
     }
 
@@ -198,53 +472,31 @@ public abstract class AbstractParser extends PerformanceReportParser {
 
 
     public void clearDateFormat() {
-        this.format = null;
-        this.isNumberDateFormat = false;
+        this.timestampDecoder = null;
     }
 
-    public Date parseTimestamp(String timestamp) {
-        if (this.format == null) {
-            initDateFormat(timestamp);
-        }
-
-        try {
-            return isNumberDateFormat ?
-                    new Date(Long.parseLong(timestamp)) :
-                    format.parse(timestamp);
-        } catch (ParseException e) {
-            throw new IllegalArgumentException("Cannot parse timestamp: " + timestamp +
-                    ". Please, use one of supported formats: " + Arrays.toString(DATE_FORMATS), e);
+    /**
+     * @return the epoch milliseconds of the timestamp. The format is detected from the first timestamp after
+     * {@link #clearDateFormat()}, see {@link TimestampDecoder#detect(String)}.
+     * @throws IllegalArgumentException if the timestamp is in none of the supported formats, or not in the format
+     *                                  of the first timestamp
+     */
+    public long parseTimestampMillis(String timestamp) {
+        TimestampDecoder decoder = timestampDecoder;
+        if (decoder == null) {
+            decoder = TimestampDecoder.detect(timestamp);
+            timestampDecoder = decoder;
         }
+        return decoder.decode(timestamp);
     }
 
-    private void initDateFormat(String timestamp) {
-        Date result = null;
-        for (String format : DATE_FORMATS) {
-            try {
-                this.format = new SimpleDateFormat(format);
-                result = this.format.parse(timestamp);
-            } catch (ParseException ex) {
-                // ok
-                this.format = null;
-            }
-
-            if (result != null) {
-                break;
-            }
-        }
-
-        if (result == null) {
-            try {
-                Long.valueOf(timestamp);
-                isNumberDateFormat = true;
-            } catch (NumberFormatException ex) {
-                throw new IllegalArgumentException("Cannot parse timestamp: " + timestamp +
-                        ". Please, use one of supported formats: " + Arrays.toString(DATE_FORMATS), ex);
-            }
-        }
+    public Date parseTimestamp(String timestamp) {
+        return new Date(parseTimestampMillis(timestamp));
     }
 
     protected PerformanceReport createPerformanceReport() {
-        return new PerformanceReport(percentiles, filterRegex);
+        final PerformanceReport report = new PerformanceReport(percentiles, filterRegex);
+        report.setStreamingStatistics(streamingStatistics);
+        return report;
     }
 }
@@ -1,7 +1,17 @@
 package hudson.plugins.performance.parsers;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVRecord;
@@ -11,9 +21,24 @@ import hudson.Extension;
 import hudson.plugins.performance.data.HttpSample;
 import hudson.plugins.performance.descriptors.PerformanceReportParserDescriptor;
 import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.tools.ReportCompression;
 
 public class JMeterCsvParser extends AbstractParser {
 
+    /**
+     * Files smaller than this are parsed on one thread, even if chunk workers are configured.
+     */
+    static final long MIN_CHUNK_SIZE = 32L * 1024 * 1024;
+
+    private static final long MAX_CHUNK_SIZE = 512L * 1024 * 1024;
+
+    /**
+     * More chunks than workers, so that workers that got chunks with cheaper rows do not sit idle.
+     */
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
     public char delimiter;
     public int timestampIdx = -1;
     public int elapsedIdx = -1;
@@ -49,32 +74,262 @@ public class JMeterCsvParser extends AbstractParser {
     PerformanceReport parse(File reportFile) throws Exception {
         clearDateFormat();
 
-        final PerformanceReport report = createPerformanceReport();
-        report.setExcludeResponseTime(excludeResponseTime);
-        report.setShowTrendGraphs(showTrendGraphs);
-        report.setReportFileName(reportFile.getName());
-
         String[] header = null;
-        try (FileReader fr = new FileReader(reportFile, StandardCharsets.UTF_8);
-                BufferedReader reader = new BufferedReader(fr)) {
+        try (BufferedReader reader = ReportCompression.openReader(reportFile)) {
             String line = reader.readLine();
             if (line != null) {
                 header = readCSVHeader(line);
             }
         }
-        try (Reader fileReader = new InputStreamReader(new FileInputStream(reportFile), StandardCharsets.UTF_8)) {
+        // compressed files cannot be split, they are read as one stream
+        if (header != null && csvChunkWorkers > 1 && reportFile.length() >= 2 * MIN_CHUNK_SIZE
+                && !ReportCompression.isCompressed(reportFile)) {
+            return parseChunked(reportFile, header, csvChunkWorkers, MIN_CHUNK_SIZE);
+        }
+
+        final PerformanceReport report = createReport(reportFile);
+        try (Reader fileReader = ReportCompression.openReader(reportFile)) {
             parseCSV(fileReader, header, report);
         }
 
         return report;
     }
 
+    private PerformanceReport createReport(File reportFile) {
+        final PerformanceReport report = createPerformanceReport();
+        report.setExcludeResponseTime(excludeResponseTime);
+        report.setShowTrendGraphs(showTrendGraphs);
+        report.setReportFileName(reportFile.getName());
+        return report;
+    }
+
+    /**
+     * Splits the records after the header line into chunks, parses the chunks into partial reports on a fork-join
+     * pool and merges these in the order of the chunks. The result is the same as when the file is parsed on one
+     * thread.
+     *
+     * @param header       header read by {@link #readCSVHeader(String)}
+     * @param workers      number of threads
+     * @param minChunkSize lower bound of the size of a chunk in bytes
+     */
+    PerformanceReport parseChunked(final File reportFile, final String[] header, int workers, long minChunkSize) throws Exception {
+        try (FileChannel channel = FileChannel.open(reportFile.toPath(), StandardOpenOption.READ)) {
+            final ForkJoinPool pool = new ForkJoinPool(workers);
+            try {
+                final long[] bounds = splitAtRecords(channel, pool, workers, minChunkSize);
+                final List<Callable<PerformanceReport>> tasks = new ArrayList<>();
+                for (int i = 0; i + 1 < bounds.length; i++) {
+                    final long start = bounds[i];
+                    final long end = bounds[i + 1];
+                    // every chunk gets its own parser: the date format is detected again for each of them
+                    final JMeterCsvParser parser = (JMeterCsvParser) createWorkerCopy();
+                    tasks.add(new Callable<PerformanceReport>() {
+                        @Override
+                        public PerformanceReport call() throws Exception {
+                            final PerformanceReport partial = parser.createReport(reportFile);
+                            try (Reader reader = new InputStreamReader(new FileRangeInputStream(channel, start, end), StandardCharsets.UTF_8)) {
+                                parser.parseCSV(reader, header, partial, false);
+                            }
+                            return partial;
+                        }
+                    });
+                }
+
+                PerformanceReport report = null;
+                for (Future<PerformanceReport> partial : pool.invokeAll(tasks)) {
+                    if (report == null) {
+                        report = getChunkResult(partial);
+                    } else {
+                        report.merge(getChunkResult(partial));
+                    }
+                }
+                return (report != null) ? report : createReport(reportFile);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Parses the records of a file that is still being written, from <code>offset</code> up to the last complete
+     * record, into the given report. A record is complete once its line break is written, so a record that is
+     * being written is left for the next call. The header is read when <code>offset</code> is 0; the columns it
+     * defines are kept in this parser for the following calls.
+     *
+     * @return the offset after the last parsed record, to be passed to the next call
+     * @throws IOException if the file is shorter than <code>offset</code>, e.g. because it was replaced
+     */
+    public long parseIncrement(File reportFile, long offset, PerformanceReport report) throws IOException {
+        try (FileChannel channel = FileChannel.open(reportFile.toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < offset) {
+                throw new IOException("File '" + reportFile + "' was truncated to " + size + " bytes, "
+                        + offset + " bytes were parsed already");
+            }
+            final long end = findLastRecordEnd(channel, offset, size);
+            if (end == offset) {
+                return offset;
+            }
+            if (offset == 0) {
+                clearDateFormat();
+                offset = findRecordEnd(channel, 0, end, false);
+                final ByteBuffer line = ByteBuffer.allocate((int) Math.min(offset, Integer.MAX_VALUE));
+                channel.read(line, 0);
+                readCSVHeader(new String(line.array(), 0, line.position(), StandardCharsets.UTF_8).trim());
+            }
+            if (offset < end) {
+                try (Reader reader = new InputStreamReader(new FileRangeInputStream(channel, offset, end), StandardCharsets.UTF_8)) {
+                    parseCSV(reader, null, report, false);
+                }
+            }
+            return end;
+        }
+    }
+
+    /**
+     * Creates an empty report of a file, with the settings of this parser, into which
+     * {@link #parseIncrement(File, long, PerformanceReport)} parses records.
+     */
+    public PerformanceReport createIncrementReport(File reportFile) {
+        return createReport(reportFile);
+    }
+
+    private static <T> T getChunkResult(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * Determines chunk boundaries that are at the start of a record. Chunks are first cut at fixed offsets; the
+     * quotes in each of them are counted in parallel, so that the quote state at each offset is known and a cut
+     * can be moved to the next line break that is not within a quoted value.
+     *
+     * @return ascending offsets, starting with the first record after the header and ending with the file size
+     */
+    private long[] splitAtRecords(final FileChannel channel, ForkJoinPool pool, int workers, long minChunkSize) throws Exception {
+        final long size = channel.size();
+        final long dataStart = findRecordEnd(channel, 0, size, false);
+        final long chunkSize = Math.min(MAX_CHUNK_SIZE,
+                Math.max(minChunkSize, (size - dataStart) / ((long) workers * CHUNKS_PER_WORKER) + 1));
+        final int chunks = (int) Math.max(1, (size - dataStart + chunkSize - 1) / chunkSize);
+
+        final List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            final long start = dataStart + i * chunkSize;
+            final long end = Math.min(size, start + chunkSize);
+            tasks.add(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws IOException {
+                    return hasOddQuoteCount(channel, start, end);
+                }
+            });
+        }
+        final List<Future<Boolean>> oddQuoteCounts = pool.invokeAll(tasks);
+
+        final long[] bounds = new long[chunks + 1];
+        bounds[0] = dataStart;
+        bounds[chunks] = size;
+        boolean inQuotes = false;
+        for (int i = 1; i < chunks; i++) {
+            inQuotes ^= getChunkResult(oddQuoteCounts.get(i - 1));
+            bounds[i] = Math.max(bounds[i - 1], findRecordEnd(channel, dataStart + i * chunkSize, size, inQuotes));
+        }
+        return bounds;
+    }
+
+    /**
+     * @return the offset after the last line break in the range that is not within a quoted value, or
+     * <code>start</code> if there is none. <code>start</code> must be the start of a record.
+     */
+    private static long findLastRecordEnd(FileChannel channel, long start, long end) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        boolean inQuotes = false;
+        long recordEnd = start;
+        long position = start;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                final byte b = buffer.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    recordEnd = position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return recordEnd;
+    }
+
+    private static boolean hasOddQuoteCount(FileChannel channel, long start, long end) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        boolean odd = false;
+        long position = start;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '"') {
+                    odd = !odd;
+                }
+            }
+            position += read;
+        }
+        return odd;
+    }
+
+    /**
+     * @return the offset after the first line break at or after <code>position</code> that is not within a quoted
+     * value, or <code>end</code> if there is none. Quotes and line breaks are single bytes in UTF-8, so this can
+     * be done on raw bytes.
+     */
+    private static long findRecordEnd(FileChannel channel, long position, long end, boolean inQuotes) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while (position < end) {
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                final byte b = buffer.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    return Math.min(end, position + i + 1);
+                }
+            }
+            position += read;
+        }
+        return end;
+    }
+
     protected void parseCSV(Reader in, String[] header, PerformanceReport report) throws IOException {
+        parseCSV(in, header, report, true);
+    }
+
+    private void parseCSV(Reader in, String[] header, PerformanceReport report, boolean skipHeaderRecord) throws IOException {
         CSVFormat csvFormat = CSVFormat.Builder.create().setDelimiter(delimiter).setHeader(header).setQuote('"')
-                .setSkipHeaderRecord(true).build();
+                .setSkipHeaderRecord(skipHeaderRecord).build();
         Iterable<CSVRecord> records = csvFormat.parse(in);
+        // reports only keep the values of a sample, so one sample and one date are reused for all records
+        final HttpSample sample = new HttpSample();
+        sample.setDate(new Date(0));
         for (CSVRecord record : records) {
-            final HttpSample sample = getSample(record);
+            readSample(record, sample);
             report.addSample(sample);
         }
     }
@@ -123,14 +378,13 @@ public class JMeterCsvParser extends AbstractParser {
     }
 
     /**
-     * Parses a single HttpSample instance from a single CSV Record.
+     * Reads the values of a single CSV Record into a sample.
      *
      * @param record csv record from report file (cannot be null).
-     * @return An sample instance (never null).
+     * @param sample sample to set the values of, with a date (cannot be null).
      */
-    private HttpSample getSample(CSVRecord record) {
-        final HttpSample sample = new HttpSample();
-        sample.setDate(parseTimestamp(record.get(timestampIdx)));
+    private void readSample(CSVRecord record, HttpSample sample) {
+        sample.getDate().setTime(parseTimestampMillis(record.get(timestampIdx)));
         sample.setDuration(Long.parseLong(record.get(elapsedIdx)));
         sample.setHttpCode(record.get(responseCodeIdx));
         sample.setSuccessful(Boolean.parseBoolean(record.get(successIdx)));
@@ -140,6 +394,58 @@ public class JMeterCsvParser extends AbstractParser {
         }
         sample.setSizeInKb((double) bytes / 1024d);
         sample.setUri(record.get(urlIdx));
-        return sample;
+    }
+
+    /**
+     * Reads a range of a file with positional reads, so that several streams can share one channel.
+     */
+    private static final class FileRangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        private long position;
+        private final long end;
+
+        FileRangeInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+            buffer.flip();
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            final int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        private boolean fill() throws IOException {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+            if (position >= end) {
+                return false;
+            }
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            final int read = channel.read(buffer, position);
+            buffer.flip();
+            if (read <= 0) {
+                return false;
+            }
+            position += read;
+            return true;
+        }
     }
 }
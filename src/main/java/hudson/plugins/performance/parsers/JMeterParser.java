@@ -2,22 +2,23 @@ package hudson.plugins.performance.parsers;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Date;
 
-import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.kohsuke.stapler.DataBoundConstructor;
-import org.xml.sax.Attributes;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
 
 import hudson.Extension;
 import hudson.plugins.performance.data.HttpSample;
 import hudson.plugins.performance.descriptors.PerformanceReportParserDescriptor;
 import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.tools.ReportCompression;
 
 /**
  * Parser for JMeter.
@@ -26,6 +27,11 @@ import hudson.plugins.performance.reports.PerformanceReport;
  */
 public class JMeterParser extends AbstractParser {
 
+    /**
+     * Shared by all parsers, as looking up the StAX implementation is costly compared to parsing small files.
+     */
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
     @Extension
     public static class DescriptorImpl extends PerformanceReportParserDescriptor {
         @Override
@@ -60,6 +66,14 @@ public class JMeterParser extends AbstractParser {
         }
     }
 
+    /**
+     * CSV files are parsed by a {@link JMeterCsvParser}, so its reports are adopted as well.
+     */
+    @Override
+    public boolean canAdopt(AbstractParser source) {
+        return (source instanceof JMeterParser || source instanceof JMeterCsvParser) && hasSameSettings(source);
+    }
+
     /**
      * Utility method that checks if the provided file has XML content.
      * <p>
@@ -69,8 +83,7 @@ public class JMeterParser extends AbstractParser {
      * @return <code>true</code> if the file content has been determined to be XML, otherwise <code>false</code>.
      */
     public static boolean isXmlFile(File file) throws IOException {
-        try (FileReader fr = new FileReader(file, StandardCharsets.UTF_8);
-                BufferedReader reader = new BufferedReader(fr)) {
+        try (BufferedReader reader = ReportCompression.openReader(file)) {
             String line;
             boolean isXml = false;
             while ((line = reader.readLine()) != null) {
@@ -88,107 +101,179 @@ public class JMeterParser extends AbstractParser {
 
     /**
      * A delegate for {@link #parse(File)} that can process XML data.
+     * <p>
+     * Performance XML log format is in http://jakarta.apache.org/jmeter/usermanual/listeners.html
+     * <p>
+     * There are two different tags which delimit jmeter samples:
+     * - httpSample for http samples
+     * - sample for non http samples
+     * <p>
+     * Samples can contain sub samples, e.g. for redirects or transaction controllers. Only top level samples are
+     * added to the report, their content is skipped.
      */
     PerformanceReport parseXml(File reportFile) throws Exception {
-        final SAXParserFactory factory = SAXParserFactory.newInstance();
-        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-        factory.setValidating(false);
-        factory.setNamespaceAware(false);
-
         final PerformanceReport report = createPerformanceReport();
         report.setExcludeResponseTime(excludeResponseTime);
         report.setShowTrendGraphs(showTrendGraphs);
         report.setReportFileName(reportFile.getName());
 
-        factory.newSAXParser().parse(reportFile, new DefaultHandler() {
-            HttpSample currentSample;
-            int counter = 0;
-
-            /**
-             * Performance XML log format is in http://jakarta.apache.org/jmeter/usermanual/listeners.html
-             *
-             * There are two different tags which delimit jmeter samples:
-             * - httpSample for http samples
-             * - sample for non http samples
-             *
-             * There are also two different XML formats which we have to handle:
-             * v2.0 = "label", "timeStamp", "time", "success"
-             * v2.1 = "lb", "ts", "t", "s"
-             */
-            @Override
-            public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
-                if (!"httpSample".equalsIgnoreCase(qName) && !"sample".equalsIgnoreCase(qName)) {
-                    return;
+        // reports only keep the values of a sample, so one sample and one date are reused for the whole file
+        final HttpSample sample = new HttpSample();
+        sample.setDate(new Date(0));
+        final SampleAttributes attributes = new SampleAttributes();
+
+        try (InputStream in = ReportCompression.open(reportFile)) {
+            final XMLStreamReader reader = createXmlReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && isSampleElement(reader.getLocalName())) {
+                        attributes.read(reader, sample);
+                        report.addSample(sample);
+                        skipElement(reader);
+                    }
                 }
+            } finally {
+                reader.close();
+            }
+        }
+        return report;
+    }
 
-                final HttpSample sample = new HttpSample();
+    private static XMLInputFactory createXmlInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        return factory;
+    }
 
-                final String dateValue;
-                if (attributes.getValue("ts") != null) {
-                    dateValue = attributes.getValue("ts");
-                } else {
-                    dateValue = attributes.getValue("timeStamp");
-                }
-                sample.setDate(new Date(Long.parseLong(dateValue)));
+    private static XMLStreamReader createXmlReader(InputStream in) throws XMLStreamException {
+        // factories are not guaranteed to be thread safe, reports can be parsed concurrently
+        synchronized (XML_INPUT_FACTORY) {
+            return XML_INPUT_FACTORY.createXMLStreamReader(in);
+        }
+    }
 
-                final String durationValue;
-                if (attributes.getValue("t") != null) {
-                    durationValue = attributes.getValue("t");
-                } else {
-                    durationValue = attributes.getValue("time");
-                }
-                sample.setDuration(Long.parseLong(durationValue));
+    private static boolean isSampleElement(String name) {
+        return "httpSample".equalsIgnoreCase(name) || "sample".equalsIgnoreCase(name);
+    }
 
-                final String successfulValue;
-                if (attributes.getValue("s") != null) {
-                    successfulValue = attributes.getValue("s");
-                } else {
-                    successfulValue = attributes.getValue("success");
-                }
-                sample.setSuccessful(Boolean.parseBoolean(successfulValue));
+    /**
+     * Skips the content of the current element, including sub samples, up to and including its end tag.
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
 
-                final String uriValue;
-                if (attributes.getValue("lb") != null) {
-                    uriValue = attributes.getValue("lb");
-                } else {
-                    uriValue = attributes.getValue("label");
-                }
-                sample.setUri(uriValue);
+    /**
+     * Reads the attributes of sample elements. There are two different XML formats which we have to handle:
+     * v2.0 = "label", "timeStamp", "time", "success"
+     * v2.1 = "lb", "ts", "t", "s"
+     * <p>
+     * Rather than looking up every possible name on every sample, the attribute names of a sample are resolved once.
+     * JMeter writes the attributes of all samples in the same order, so the resolution is reused as long as the names
+     * of the next sample match.
+     */
+    private static final class SampleAttributes {
+        private static final int IGNORED = -1;
+        private static final int TS = 0;
+        private static final int TIME_STAMP = 1;
+        private static final int T = 2;
+        private static final int TIME = 3;
+        private static final int S = 4;
+        private static final int SUCCESS = 5;
+        private static final int LB = 6;
+        private static final int LABEL = 7;
+        private static final int RC = 8;
+        private static final int BY = 9;
 
-                final String httpCodeValue;
-                if (attributes.getValue("rc") != null && attributes.getValue("rc").length() <= 3) {
-                    httpCodeValue = attributes.getValue("rc");
-                } else {
-                    httpCodeValue = "0";
-                }
-                sample.setHttpCode(httpCodeValue);
+        private final String[] values = new String[10];
+        private String[] names = new String[0];
+        private int[] indexes = new int[0];
 
-                final String sizeInKbValue;
-                if (attributes.getValue("by") != null) {
-                    sizeInKbValue = attributes.getValue("by");
-                } else {
-                    sizeInKbValue = "0";
+        void read(XMLStreamReader reader, HttpSample sample) {
+            final int count = reader.getAttributeCount();
+            if (!matches(reader, count)) {
+                resolve(reader, count);
+            }
+            Arrays.fill(values, null);
+            for (int i = 0; i < count; i++) {
+                if (indexes[i] != IGNORED) {
+                    values[indexes[i]] = reader.getAttributeValue(i);
                 }
-                sample.setSizeInKb(Double.parseDouble(sizeInKbValue) / 1024d);
+            }
 
-                if (counter == 0) {
-                    currentSample = sample;
+            sample.getDate().setTime(Long.parseLong(either(TS, TIME_STAMP)));
+            sample.setDuration(Long.parseLong(either(T, TIME)));
+            sample.setSuccessful(Boolean.parseBoolean(either(S, SUCCESS)));
+            sample.setUri(either(LB, LABEL));
+            final String httpCode = values[RC];
+            sample.setHttpCode((httpCode != null && httpCode.length() <= 3) ? httpCode : "0");
+            final String size = values[BY];
+            sample.setSizeInKb((size != null) ? Double.parseDouble(size) / 1024d : 0d);
+        }
+
+        private String either(int index, int fallbackIndex) {
+            return (values[index] != null) ? values[index] : values[fallbackIndex];
+        }
+
+        private boolean matches(XMLStreamReader reader, int count) {
+            if (count != names.length) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                final String name = reader.getAttributeLocalName(i);
+                // parsers usually intern names, so the identity check is the common case
+                if (name != names[i] && !name.equals(names[i])) {
+                    return false;
                 }
-                counter++;
             }
+            return true;
+        }
 
-            @Override
-            public void endElement(String uri, String localName, String qName) {
-                if ("httpSample".equalsIgnoreCase(qName) || "sample".equalsIgnoreCase(qName)) {
-                    if (counter == 1) {
-                        report.addSample(currentSample);
-                    }
-                    counter--;
-                }
+        private void resolve(XMLStreamReader reader, int count) {
+            names = new String[count];
+            indexes = new int[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = reader.getAttributeLocalName(i);
+                indexes[i] = indexOf(names[i]);
             }
-        });
+        }
 
-        return report;
+        private static int indexOf(String name) {
+            switch (name) {
+                case "ts":
+                    return TS;
+                case "timeStamp":
+                    return TIME_STAMP;
+                case "t":
+                    return T;
+                case "time":
+                    return TIME;
+                case "s":
+                    return S;
+                case "success":
+                    return SUCCESS;
+                case "lb":
+                    return LB;
+                case "label":
+                    return LABEL;
+                case "rc":
+                    return RC;
+                case "by":
+                    return BY;
+                default:
+                    return IGNORED;
+            }
+        }
     }
 
     /**
@@ -196,6 +281,8 @@ public class JMeterParser extends AbstractParser {
      */
     PerformanceReport parseCsv(File reportFile) throws Exception {
         final JMeterCsvParser delegate = new JMeterCsvParser(this.glob, this.percentiles, this.filterRegex);
+        delegate.setStreamingStatistics(this.streamingStatistics);
+        delegate.setCsvChunkWorkers(this.csvChunkWorkers);
         return delegate.parse(reportFile);
     }
 
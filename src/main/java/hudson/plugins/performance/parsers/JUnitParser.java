@@ -4,6 +4,7 @@ import hudson.Extension;
 import hudson.plugins.performance.data.HttpSample;
 import hudson.plugins.performance.descriptors.PerformanceReportParserDescriptor;
 import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.tools.ReportCompression;
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.xml.sax.Attributes;
@@ -13,6 +14,7 @@ import org.xml.sax.helpers.DefaultHandler;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import java.io.File;
+import java.io.InputStream;
 import java.util.Date;
 import java.text.SimpleDateFormat;
 
@@ -60,7 +62,7 @@ public class JUnitParser extends AbstractParser {
         report.setExcludeResponseTime(excludeResponseTime);
         report.setShowTrendGraphs(showTrendGraphs);
         report.setReportFileName(reportFile.getName());
-        parser.parse(reportFile, new DefaultHandler() {
+        final DefaultHandler handler = new DefaultHandler() {
             private HttpSample currentSample;
             private int status;
 
@@ -108,7 +110,10 @@ public class JUnitParser extends AbstractParser {
                     status = 0;
                 }
             }
-        });
+        };
+        try (InputStream in = ReportCompression.open(reportFile)) {
+            parser.parse(in, handler);
+        }
         return report;
     }
 
@@ -1,7 +1,6 @@
 package hudson.plugins.performance.parsers;
 
 import java.io.File;
-import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
 import java.util.regex.Pattern;
 
@@ -11,6 +10,7 @@ import hudson.Extension;
 import hudson.plugins.performance.data.HttpSample;
 import hudson.plugins.performance.descriptors.PerformanceReportParserDescriptor;
 import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.tools.ReportCompression;
 
 /**
  * Parses JMeter Summarized results
@@ -50,7 +50,7 @@ public class JmeterSummarizerParser extends AbstractParser {
         report.setExcludeResponseTime(excludeResponseTime);
         report.setShowTrendGraphs(showTrendGraphs);
         report.setReportFileName(reportFile.getName());
-        try (Scanner fileScanner = new Scanner(reportFile, StandardCharsets.UTF_8)){
+        try (Scanner fileScanner = new Scanner(ReportCompression.openReader(reportFile))){
             String line;
             String lastEqualsLine = null;
             while (fileScanner.hasNextLine()) {
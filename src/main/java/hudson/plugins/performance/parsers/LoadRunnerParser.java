@@ -1,5 +1,9 @@
 package hudson.plugins.performance.parsers;
 
+import com.healthmarketscience.jackcess.Database;
+import com.healthmarketscience.jackcess.DatabaseBuilder;
+import com.healthmarketscience.jackcess.Row;
+import com.healthmarketscience.jackcess.Table;
 import hudson.Extension;
 import hudson.plugins.performance.data.HttpSample;
 import hudson.plugins.performance.descriptors.PerformanceReportParserDescriptor;
@@ -7,21 +11,36 @@ import hudson.plugins.performance.reports.PerformanceReport;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 
 /** Parser for LoadRunner Analysis results stored in an MS Access database (*.mdb file).
+ * <p>
+ * The transactions are read table by table from the database file, only the rows of the event meter are streamed
+ * and only the needed columns are decoded. A custom {@link #getResultQuery() result query}, or the system property
+ * {@link #USE_JDBC_PROPERTY}, queries the database through UCanAccess instead, which mirrors the whole database in a
+ * temporary HSQLDB database first.
  * 
  * Reference https://community.saas.hpe.com/t5/Performance-Center-Practitioners/Regarding-Event-meter-table-in-LoadRunner-session-MS-ACCESS/td-p/566738
  */
 public class LoadRunnerParser extends AbstractParser {
 
-    private String resultQuery = 
+    public static final String USE_JDBC_PROPERTY = LoadRunnerParser.class.getName() + ".useJdbc";
+
+    private static final List<String> EVENT_METER_COLUMNS = Arrays.asList("Event ID", "Result ID", "Status1",
+            "End Time", "Value");
+
+    private static final String DEFAULT_RESULT_QUERY =
         "select "+
         "    cast(([Start Time] + e.[End Time] - e.Value)*1000 as decimal) as timeStamp, "+
         "    cast(e.Value*1000 as decimal) as elapsed, "+
@@ -33,6 +52,8 @@ public class LoadRunnerParser extends AbstractParser {
         "join Result on Result.[Result ID] = e.[Result ID]"+
         "where [Event Type] = 'Transaction'";
 
+    private String resultQuery = DEFAULT_RESULT_QUERY;
+
     public LoadRunnerParser(String glob, String percentiles) {
         super(glob, percentiles, PerformanceReport.INCLUDE_ALL);
     }
@@ -62,18 +83,22 @@ public class LoadRunnerParser extends AbstractParser {
 
     protected HttpSample getSample(ResultSet res) throws SQLException {
         HttpSample sample = new HttpSample();
-        Date sampleTime = new Date(res.getLong(1));
-        // Fix LoadRunner times that are off by 1 hour when in DST:
-        if (TimeZone.getTimeZone(System.getProperty("user.timezone")).inDaylightTime(sampleTime)) {
-            sampleTime = new Date(res.getLong(1)-3600000L);
-        }
-        sample.setDate(sampleTime);
+        sample.setDate(getSampleTime(res.getLong(1)));
         sample.setDuration(res.getLong(2));
         sample.setUri(res.getString(3));
         sample.setSuccessful(Boolean.parseBoolean(res.getString(4)));
         return sample;
     }
 
+    private static Date getSampleTime(long timeStamp) {
+        Date sampleTime = new Date(timeStamp);
+        // Fix LoadRunner times that are off by 1 hour when in DST:
+        if (TimeZone.getTimeZone(System.getProperty("user.timezone")).inDaylightTime(sampleTime)) {
+            sampleTime = new Date(timeStamp-3600000L);
+        }
+        return sampleTime;
+    }
+
     @Override
     PerformanceReport parse(File reportFile) throws Exception {
         final PerformanceReport report = createPerformanceReport();
@@ -81,17 +106,106 @@ public class LoadRunnerParser extends AbstractParser {
         report.setShowTrendGraphs(showTrendGraphs);
         report.setReportFileName(reportFile.getName());
 
-        try (Connection con = DriverManager.getConnection(jdbcUrlForFile(reportFile));
-            Statement stmt = con.createStatement(); 
-            ResultSet res = stmt.executeQuery(getResultQuery())) {
+        if (!isStreamed()) {
+            try (Connection con = DriverManager.getConnection(jdbcUrlForFile(reportFile));
+                Statement stmt = con.createStatement(); 
+                ResultSet res = stmt.executeQuery(getResultQuery())) {
 
-            while (res.next()) {
-                report.addSample(getSample(res));
+                while (res.next()) {
+                    report.addSample(getSample(res));
+                }
             }
+            return report;
+        }
+
+        try (Database db = new DatabaseBuilder(reportFile).setReadOnly(true).open()) {
+            readTransactions(db, report);
         }
         return report;
     }
 
+    /**
+     * @return true if the transactions are read from the database file, false if they are queried through UCanAccess
+     */
+    boolean isStreamed() {
+        return DEFAULT_RESULT_QUERY.equals(getResultQuery()) && !Boolean.getBoolean(USE_JDBC_PROPERTY);
+    }
+
+    /**
+     * Reads the samples of the default result query. The small tables it joins are read into maps, the rows of the
+     * event meter are streamed.
+     */
+    private static void readTransactions(Database db, PerformanceReport report) throws IOException {
+        final Map<Long, String> transactionNames = new HashMap<>();
+        for (Row row : getTable(db, "Event_map").newIterable().setColumnNames(Arrays.asList("Event ID", "Event Name", "Event Type"))) {
+            if ("Transaction".equals(row.get("Event Type")) && row.get("Event ID") != null) {
+                transactionNames.put(toKey(row.get("Event ID")), (String) row.get("Event Name"));
+            }
+        }
+        final Map<Long, Boolean> endStatuses = new HashMap<>();
+        for (Row row : getTable(db, "TransactionEndStatus").newIterable().setColumnNames(Arrays.asList("Status1", "Transaction End Status"))) {
+            if (row.get("Status1") != null) {
+                endStatuses.put(toKey(row.get("Status1")), "Pass".equals(row.get("Transaction End Status")));
+            }
+        }
+        final Map<Long, Double> startTimes = new HashMap<>();
+        for (Row row : getTable(db, "Result").newIterable().setColumnNames(Arrays.asList("Result ID", "Start Time"))) {
+            if (row.get("Result ID") != null && row.get("Start Time") != null) {
+                startTimes.put(toKey(row.get("Result ID")), ((Number) row.get("Start Time")).doubleValue());
+            }
+        }
+
+        for (Row row : getTable(db, "Event_meter").newIterable().setColumnNames(EVENT_METER_COLUMNS)) {
+            final Object eventId = row.get("Event ID");
+            final Object resultId = row.get("Result ID");
+            final Object status = row.get("Status1");
+            final Number endTime = (Number) row.get("End Time");
+            final Number value = (Number) row.get("Value");
+            if (eventId == null || resultId == null || status == null || endTime == null || value == null) {
+                continue;
+            }
+            final String name = transactionNames.get(toKey(eventId));
+            final Boolean successful = endStatuses.get(toKey(status));
+            final Double startTime = startTimes.get(toKey(resultId));
+            if (name == null || successful == null || startTime == null) {
+                // not a transaction, or not joined by the result query
+                continue;
+            }
+
+            final HttpSample sample = new HttpSample();
+            sample.setDate(getSampleTime(toMillis(startTime + endTime.doubleValue() - value.doubleValue())));
+            sample.setDuration(toMillis(value.doubleValue()));
+            sample.setUri(name);
+            sample.setSuccessful(successful);
+            report.addSample(sample);
+        }
+    }
+
+    private static Table getTable(Database db, String name) throws IOException {
+        final Table table = db.getTable(name);
+        if (table == null) {
+            throw new IOException("Not a LoadRunner analysis database, table " + name + " is missing");
+        }
+        return table;
+    }
+
+    private static Long toKey(Object id) {
+        return ((Number) id).longValue();
+    }
+
+    /**
+     * Converts seconds to milliseconds like <code>cast(seconds*1000 as decimal)</code> of the result query, which
+     * rounds half down.
+     */
+    static long toMillis(double seconds) {
+        final double millis = seconds * 1000;
+        long rounded = Math.round(millis);
+        if (rounded - millis == 0.5) {
+            rounded--;
+        }
+        return rounded;
+    }
+
     protected String getResultQuery() {
         return resultQuery;
     }
@@ -4,17 +4,25 @@ import hudson.Extension;
 import hudson.plugins.performance.data.HttpSample;
 import hudson.plugins.performance.descriptors.PerformanceReportParserDescriptor;
 import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.tools.ReportCompression;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.util.Date;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 import org.kohsuke.stapler.DataBoundConstructor;
 
+/**
+ * Parses the request statistics of Locust, either the totals of <code>*_stats.csv</code> or the intervals of
+ * <code>*_stats_history.csv</code>. Both files are read record by record.
+ */
 public class LocustParser extends AbstractParser {
+    private static final String AGGREGATED = "Aggregated";
+
     enum ReportColumns {
         Type(0), Name(1), Requests(2), Failures(3), Median(4),
         Average(5), Min(6), Max(7), AvgContentSize(8), Rps(9);
@@ -30,6 +38,26 @@ public class LocustParser extends AbstractParser {
         }
     }
 
+    /**
+     * Columns of the stats history, which are read by name as their order changed between Locust versions
+     */
+    enum HistoryColumns {
+        Timestamp("Timestamp"), Name("Name"), Median("50%"), Max("100%"), TotalRequests("Total Request Count"),
+        TotalFailures("Total Failure Count"), TotalAverage("Total Average Response Time"),
+        TotalMin("Total Min Response Time"), TotalMax("Total Max Response Time"),
+        TotalAvgContentSize("Total Average Content Size");
+
+        final String header;
+
+        HistoryColumns(final String header) {
+            this.header = header;
+        }
+
+        String get(final CSVRecord record) {
+            return record.get(header);
+        }
+    }
+
     public LocustParser(String glob, String percentiles) {
         super(glob, percentiles, PerformanceReport.INCLUDE_ALL);
     }
@@ -53,10 +81,28 @@ public class LocustParser extends AbstractParser {
         report.setReportFileName(reportFile.getName());
         report.setExcludeResponseTime(excludeResponseTime);
         report.setShowTrendGraphs(showTrendGraphs);
-        List<CSVRecord> reportData = getCsvData(reportFile);
+
+        try (Reader reader = ReportCompression.openReader(reportFile);
+             CSVParser csvParser = new CSVParser(reader, CSVFormat.Builder.create(CSVFormat.DEFAULT).setHeader().build())) {
+            if (isStatsHistory(csvParser.getHeaderMap().keySet())) {
+                parseStatsHistory(csvParser, report);
+            } else {
+                parseStats(csvParser, report);
+            }
+        }
+
+        return report;
+    }
+
+    static boolean isStatsHistory(final Set<String> header) {
+        return header.contains(HistoryColumns.Timestamp.header) && header.contains(HistoryColumns.TotalRequests.header);
+    }
+
+    private static void parseStats(final CSVParser csvParser, final PerformanceReport report) {
         final Date now = new Date();
+        long uris = 0;
 
-        for (CSVRecord record : reportData) {
+        for (CSVRecord record : csvParser) {
             String name = record.get(ReportColumns.Name.getColumn());
             long average = Double.valueOf(record.get(ReportColumns.Average.getColumn())).longValue();
             long min = Double.valueOf(record.get(ReportColumns.Min.getColumn())).longValue();
@@ -66,13 +112,14 @@ public class LocustParser extends AbstractParser {
             long errors = (long) ((double) failures / success);
             long avgContentSize = Double.valueOf(record.get(ReportColumns.AvgContentSize.getColumn())).longValue();
 
-            if (name.equals("Aggregated")) {
-                report.setSummarizerSize(reportData.size() - 1);
+            if (name.equals(AGGREGATED)) {
+                report.setSummarizerSize(uris);
                 report.setSummarizerAvg(average);
                 report.setSummarizerMin(min);
                 report.setSummarizerMax(max);
                 report.setSummarizerErrors(Float.toString(errors));
             } else {
+                uris++;
                 HttpSample sample = new HttpSample();
                 sample.setSuccessful(failures == 0);
                 sample.setSummarizer(true);
@@ -87,20 +134,76 @@ public class LocustParser extends AbstractParser {
                 report.addSample(sample);
             }
         }
-
-        return report;
     }
 
-    List<CSVRecord> getCsvData(final File reportFile) {
-        List<CSVRecord> records = null;
-        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(reportFile), StandardCharsets.UTF_8));
-             CSVParser csvParser = new CSVParser(reader, CSVFormat.Builder.create(CSVFormat.DEFAULT).setHeader().build())) {
-            records = csvParser.getRecords();
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Adds a summarizer sample per URI and interval, dated with the end of the interval. The requests and failures
+     * of an interval are the difference of the totals to the previous interval, its response time is the median of
+     * the interval. The rows of all URIs are only added as URI "Aggregated" if Locust did not write the history of
+     * the single URIs.
+     */
+    private static void parseStatsHistory(final CSVParser csvParser, final PerformanceReport report) {
+        // the totals of the previous interval by URI: requests, failures
+        final Map<String, long[]> previousTotals = new HashMap<>();
+        boolean hasUris = false;
+
+        for (CSVRecord record : csvParser) {
+            final String name = HistoryColumns.Name.get(record);
+            final long requests = parseLong(HistoryColumns.TotalRequests.get(record), 0);
+            final long failures = parseLong(HistoryColumns.TotalFailures.get(record), 0);
+            final long average = parseLong(HistoryColumns.TotalAverage.get(record), 0);
+
+            if (name.equals(AGGREGATED)) {
+                report.setSummarizerSize(previousTotals.size() - (previousTotals.containsKey(AGGREGATED) ? 1 : 0));
+                report.setSummarizerAvg(average);
+                report.setSummarizerMin(parseLong(HistoryColumns.TotalMin.get(record), 0));
+                report.setSummarizerMax(parseLong(HistoryColumns.TotalMax.get(record), 0));
+                report.setSummarizerErrors(Float.toString((long) ((double) failures / requests)));
+                if (hasUris) {
+                    continue;
+                }
+            } else {
+                hasUris = true;
+            }
+
+            long[] previous = previousTotals.get(name);
+            if (previous == null) {
+                previous = new long[2];
+                previousTotals.put(name, previous);
+            }
+            // the totals start again if the statistics were reset
+            final boolean reset = requests < previous[0];
+            final long intervalRequests = reset ? requests : requests - previous[0];
+            final long intervalFailures = reset ? failures : Math.max(0, failures - previous[1]);
+            previous[0] = requests;
+            previous[1] = failures;
+            if (intervalRequests <= 0) {
+                continue;
+            }
+
+            final HttpSample sample = new HttpSample();
+            sample.setSuccessful(intervalFailures == 0);
+            sample.setSummarizer(true);
+            sample.setUri(name);
+            sample.setDate(new Date(parseLong(HistoryColumns.Timestamp.get(record), 0) * 1000));
+            sample.setDuration(parseLong(HistoryColumns.Median.get(record), average));
+            sample.setSummarizerMax(parseLong(HistoryColumns.Max.get(record), sample.getDuration()));
+            sample.setSummarizerMin(parseLong(HistoryColumns.TotalMin.get(record), sample.getDuration()));
+            sample.setSummarizerSamples(intervalRequests);
+            sample.setSummarizerErrors(intervalFailures);
+            sample.setSizeInKb(parseLong(HistoryColumns.TotalAvgContentSize.get(record), 0) * intervalRequests);
+            report.addSample(sample);
         }
+    }
 
-        return records;
+    /**
+     * @return the value, or the default value for values that Locust writes as "N/A" while nothing was measured
+     */
+    private static long parseLong(final String value, final long defaultValue) {
+        if (value == null || value.isEmpty() || value.equals("N/A")) {
+            return defaultValue;
+        }
+        return Double.valueOf(value).longValue();
     }
 
     @Override
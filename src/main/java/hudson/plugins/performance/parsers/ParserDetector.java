@@ -1,9 +1,9 @@
 package hudson.plugins.performance.parsers;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.regex.Matcher;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.regex.Pattern;
 
 import javax.xml.stream.XMLEventReader;
@@ -13,72 +13,172 @@ import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import hudson.plugins.performance.tools.ReportCompression;
 
 /**
- * Auto-detect parser for file
+ * Auto-detect parser for file.
+ * <p>
+ * The type of a report is detected from at most {@link #PREFIX_BYTES} bytes at the beginning of the file, which are
+ * checked against the registered {@link ReportSignature}s in order. Detected types are remembered by path, size and
+ * modification time of the file, so that the same report is not read again by later builds.
  */
 public class ParserDetector {
 
+    public static final String PREFIX_BYTES_PROPERTY = ParserDetector.class.getName() + ".prefixBytes";
+
+    /**
+     * The number of bytes that are read to detect the type of a report
+     */
+    public static final int PREFIX_BYTES = Math.max(1024, Integer.getInteger(PREFIX_BYTES_PROPERTY, 64 * 1024));
+
+    private static final int MAX_DETECTED_FILES = 1000;
+
+    private static final Pattern IAGO_PATTERN = Pattern.compile("INF \\[.*\\] stats:.*");
+    private static final Pattern WRK_PATTERN = Pattern.compile("Running .*s test @.*");
+    private static final String JMETER_SUMMARIZER_PATTERN = "Summariser: Generate Summary Results";
+    private static final String LOADRUNNER_PATTERN = new String(new char[]{0x00, 0x01, 0x00, 0x00}) + "Standard Jet DB";
+    private static final List<String> LOCUST_HEADER_FIELDS = Arrays.asList("Type", "Name", "Request Count",
+            "Failure Count", "Median Response Time", "Average Response Time", "Min Response Time", "Max Response Time",
+            "Average Content Size", "Requests/s");
+    private static final List<String> LOCUST_HISTORY_HEADER_FIELDS = Arrays.asList("Timestamp", "User Count", "Name",
+            "Requests/s", "Failures/s", "Total Request Count", "Total Failure Count");
+
+    private static final List<ReportSignature> SIGNATURES = new CopyOnWriteArrayList<>(Arrays.asList(
+            new ReportSignature(IagoParser.class.getSimpleName()) {
+                @Override
+                public boolean matches(Prefix prefix) {
+                    return isIagoFileType(prefix.getFirstLine());
+                }
+            },
+            new ReportSignature(WrkSummarizerParser.class.getSimpleName()) {
+                @Override
+                public boolean matches(Prefix prefix) {
+                    return isWRKFileType(prefix.getFirstLine());
+                }
+            },
+            new ReportSignature(JMeterCsvParser.class.getSimpleName()) {
+                @Override
+                public boolean matches(Prefix prefix) {
+                    return isJMeterCSVFileType(prefix.getFirstLine());
+                }
+            },
+            new ReportSignature(JmeterSummarizerParser.class.getSimpleName()) {
+                @Override
+                public boolean matches(Prefix prefix) {
+                    return isJMeterSummarizerFileType(prefix);
+                }
+            },
+            new ReportSignature(LoadRunnerParser.class.getSimpleName()) {
+                @Override
+                public boolean matches(Prefix prefix) {
+                    return isLoadRunnerFileType(prefix.getFirstLine());
+                }
+            },
+            new ReportSignature(LocustParser.class.getSimpleName()) {
+                @Override
+                public boolean matches(Prefix prefix) {
+                    return isLocustFileType(prefix.getFirstLine());
+                }
+            }));
+
+    /**
+     * Detected parser names by path, size and modification time of the report file
+     */
+    private static final Cache<String, String> DETECTED = CacheBuilder.newBuilder()
+            .maximumSize(MAX_DETECTED_FILES)
+            .build();
+
     private ParserDetector() {
         super();
     }
+
+    /**
+     * Registers the signature of a parser of another plugin. It is checked after the signatures of the parsers of
+     * this plugin, and before the report is checked for the XML formats. Signatures are registered in the JVM that
+     * detects the report, which is the agent that holds it if the reports are detected on agents.
+     */
+    public static void register(ReportSignature signature) {
+        SIGNATURES.add(signature);
+    }
+
+    /**
+     * Removes a signature registered by {@link #register(ReportSignature)}, e.g. one registered by a test.
+     */
+    static void unregister(ReportSignature signature) {
+        SIGNATURES.remove(signature);
+    }
+
+    /**
+     * @return the registered signature of the parser, or <code>null</code>
+     */
+    public static ReportSignature getSignature(String parserName) {
+        for (ReportSignature signature : SIGNATURES) {
+            if (signature.getParserName().equals(parserName)) {
+                return signature;
+            }
+        }
+        return null;
+    }
+
     /**
      * Detect report file type using file content.
      * @return report file type.
      */
     public static String detect(String reportPath) throws IOException {
-        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(new File(reportPath)), StandardCharsets.UTF_8))) {
-            String line = reader.readLine();
-            if (line == null) {
-                throw new IllegalArgumentException("File " + reportPath + " is empty");
-            }
+        final File file = new File(reportPath);
+        final String key = file.getAbsolutePath() + '\n' + file.length() + '\n' + file.lastModified();
+        String parserName = DETECTED.getIfPresent(key);
+        if (parserName == null) {
+            parserName = detect(reportPath, readPrefix(file, PREFIX_BYTES));
+            DETECTED.put(key, parserName);
+        }
+        return parserName;
+    }
 
-            if (line.startsWith("<?xml")) {
-                return detectXMLFileType(reportPath);
-            } else if (isIagoFileType(line)) {
-                return IagoParser.class.getSimpleName();
-            } else if (isWRKFileType(line)) {
-                return WrkSummarizerParser.class.getSimpleName();
-            } else if (isJMeterCSVFileType(line)) {
-                return JMeterCsvParser.class.getSimpleName();
-            } else if (isJMeterSummarizerFileType(line, reader)) {
-                return JmeterSummarizerParser.class.getSimpleName();
-            } else if (isLoadRunnerFileType(line)) {
-                return LoadRunnerParser.class.getSimpleName();
-            } else if (isLocustFileType(line)) {
-                return LocustParser.class.getSimpleName();
-            } else {
-                try {
-                    return detectXMLFileType(reportPath);
-                } catch (IllegalArgumentException | IllegalStateException ex) {
-                    throw new IllegalArgumentException("Can not detect file type: " + reportPath, ex);
-                }
+    private static String detect(String reportPath, ReportSignature.Prefix prefix) {
+        if (prefix.getLength() == 0) {
+            throw new IllegalArgumentException("File " + reportPath + " is empty");
+        }
+
+        if (prefix.getFirstLine().startsWith("<?xml")) {
+            return detectXMLFileType(prefix);
+        }
+        for (ReportSignature signature : SIGNATURES) {
+            if (signature.matches(prefix)) {
+                return signature.getParserName();
             }
         }
+        try {
+            return detectXMLFileType(prefix);
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            throw new IllegalArgumentException("Can not detect file type: " + reportPath, ex);
+        }
+    }
+
+    @VisibleForTesting
+    static ReportSignature.Prefix readPrefix(File file, int maxBytes) throws IOException {
+        try (InputStream in = ReportCompression.open(file)) {
+            final byte[] bytes = new byte[maxBytes];
+            final int length = in.readNBytes(bytes, 0, maxBytes);
+            return new ReportSignature.Prefix(bytes, length, length == maxBytes && in.read() != -1);
+        }
     }
 
     /**
      * Detect Iago report type using pattern "INF \[.*\] stats:.*
      */
     private static boolean isIagoFileType(String line) {
-        String patternString = "INF \\[.*\\] stats:.*";
-
-        Pattern pattern = Pattern.compile(patternString);
-
-        Matcher matcher = pattern.matcher(line);
-        return matcher.matches();
+        return IAGO_PATTERN.matcher(line).matches();
     }
 
     /**
      * Detect WRK report type using pattern "Running .*s test @.*"
      */
     private static boolean isWRKFileType(String line) {
-        String patternString = "Running .*s test @.*";
-
-        Pattern pattern = Pattern.compile(patternString);
-
-        Matcher matcher = pattern.matcher(line);
-        return matcher.matches();
+        return WRK_PATTERN.matcher(line).matches();
     }
 
     /**
@@ -93,23 +193,10 @@ public class ParserDetector {
 
     /**
      * Detect JMeterSummarizer report type.
-     * Read file, until It find a string "jmeter.reporters.Summariser: Generate Summary Results"
+     * Search the prefix for a string "jmeter.reporters.Summariser: Generate Summary Results"
      */
-    private static boolean isJMeterSummarizerFileType(String firstLine, final BufferedReader reader) throws IOException {
-        String pattern = "Summariser: Generate Summary Results";
-        String line = firstLine;
-        if (line.contains(pattern)) {
-            return true;
-        }
-
-        line = reader.readLine();
-        while (line != null) {
-            if (line.contains(pattern)) {
-                return true;
-            }
-            line = reader.readLine();
-        }
-        return false;
+    private static boolean isJMeterSummarizerFileType(ReportSignature.Prefix prefix) {
+        return prefix.getText().contains(JMETER_SUMMARIZER_PATTERN);
     }
 
     /**
@@ -117,10 +204,7 @@ public class ParserDetector {
      * http://www.garykessler.net/library/file_sigs.html
      */
     private static boolean isLoadRunnerFileType(String line) {
-        String pattern = new String(new char[]{0x00, 0x01, 0x00, 0x00})+"Standard Jet DB";
-
-        return line.length() > pattern.length() &&
-            pattern.equals(line.substring(0, pattern.length()));
+        return line.length() > LOADRUNNER_PATTERN.length() && line.startsWith(LOADRUNNER_PATTERN);
     }
 
     /**
@@ -129,8 +213,8 @@ public class ParserDetector {
      *  <testsuite> - JUNIT;
      *  <FinalStatus> - TAURUS.
      */
-    private static String detectXMLFileType(String reportPath) throws IOException {
-        try (InputStream in = new FileInputStream(reportPath)) {
+    private static String detectXMLFileType(ReportSignature.Prefix prefix) {
+        try (InputStream in = prefix.openStream()) {
             return detectXMLFileType(in);
         } catch (Exception ex) {
             throw new IllegalStateException("XML parsing error: ", ex);
@@ -166,15 +250,13 @@ public class ParserDetector {
     }
 
     /**
-     * Detect Locust report type using verification of csv header. Header names and order is asserted.
+     * Detect Locust report type using verification of csv header of the stats or of the stats history.
+     * Header names and order is asserted.
      * @param line - single report file line
      * @return true if Locust expected header found
      */
     private static boolean isLocustFileType(String line) {
-        String[] fileLineHeader = line.replaceAll("\"", "").split(",");
-        String[] expectedHeaderFields = new String[]{"Type", "Name", "Request Count", "Failure Count",
-                "Median Response Time", "Average Response Time", "Min Response Time", "Max Response Time",
-                "Average Content Size", "Requests/s"};
-        return (Arrays.asList(fileLineHeader).containsAll(Arrays.asList(expectedHeaderFields)));
+        List<String> fileLineHeader = Arrays.asList(line.replace("\"", "").split(","));
+        return fileLineHeader.containsAll(LOCUST_HEADER_FIELDS) || fileLineHeader.containsAll(LOCUST_HISTORY_HEADER_FIELDS);
     }
 }
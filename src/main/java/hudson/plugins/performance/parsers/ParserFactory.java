@@ -14,6 +14,8 @@ import java.util.logging.Logger;
 import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.model.Run;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
 
 public class ParserFactory {
     private static final Logger LOGGER = Logger.getLogger(ParserFactory.class.getName());
@@ -34,18 +36,27 @@ public class ParserFactory {
 
     public static List<PerformanceReportParser> getParser(Run<?, ?> build, FilePath workspace, PrintStream logger, String glob, 
             EnvVars env, String percentiles, String filterRegex) throws IOException, InterruptedException {
+        return getParser(build, workspace, logger, glob, env, percentiles, filterRegex, false);
+    }
+
+    /**
+     * @param detectOnAgent <code>true</code> to detect the type of report files on the agent that holds them,
+     *                      instead of copying them to the controller first
+     */
+    public static List<PerformanceReportParser> getParser(Run<?, ?> build, FilePath workspace, PrintStream logger, String glob,
+            EnvVars env, String percentiles, String filterRegex, boolean detectOnAgent) throws IOException, InterruptedException {
         String expandGlob = env.expand(glob);
         if (defaultGlobPatterns.containsKey(expandGlob)) {
             return Collections.singletonList(getParser(defaultGlobPatterns.get(expandGlob), expandGlob, percentiles, filterRegex));
         }
 
         File path = new File(expandGlob);
-        return path.isAbsolute() ? getParserWithAbsolutePath(build, workspace, logger, path, percentiles, filterRegex) : 
-            getParserWithRelativePath(build, workspace, logger, expandGlob, percentiles, filterRegex);
+        return path.isAbsolute() ? getParserWithAbsolutePath(build, workspace, logger, path, percentiles, filterRegex, detectOnAgent) :
+            getParserWithRelativePath(build, workspace, logger, expandGlob, percentiles, filterRegex, detectOnAgent);
     }
 
-    private static List<PerformanceReportParser> getParserWithRelativePath(Run<?, ?> build, FilePath workspace, PrintStream logger, String glob, String percentiles, String filterRegex) throws IOException, InterruptedException {
-        List<PerformanceReportParser> result = getParserUsingAntPatternRelativePath(build, workspace, logger, glob, percentiles, filterRegex);
+    private static List<PerformanceReportParser> getParserWithRelativePath(Run<?, ?> build, FilePath workspace, PrintStream logger, String glob, String percentiles, String filterRegex, boolean detectOnAgent) throws IOException, InterruptedException {
+        List<PerformanceReportParser> result = getParserUsingAntPatternRelativePath(build, workspace, logger, glob, percentiles, filterRegex, detectOnAgent);
         if (result != null && !result.isEmpty()) {
             return result;
         }
@@ -53,16 +64,15 @@ public class ParserFactory {
         File report = new File(workspace.getRemote() + '/' + glob);
         if (!report.exists()) {
             // if report on remote slave
-            FilePath localReport = new FilePath(new File(build.getRootDir(), TEMP_FOLDER + glob));
-            localReport.copyFrom(new FilePath(workspace, glob));
-            return Collections.singletonList(getParser(ParserDetector.detect(localReport.getRemote()), glob, percentiles, filterRegex));
+            String parserName = detect(new FilePath(workspace, glob), new File(build.getRootDir(), TEMP_FOLDER + glob), detectOnAgent);
+            return Collections.singletonList(getParser(parserName, glob, percentiles, filterRegex));
         }
 
         return Collections.singletonList(getParser(ParserDetector.detect(workspace.getRemote() + '/' + glob), workspace.getRemote() + '/' + glob, percentiles, filterRegex));
     }
 
     private static List<PerformanceReportParser> getParserUsingAntPatternRelativePath(Run<?, ?> build, FilePath workspace, PrintStream logger, 
-            String glob, String percentiles, String filterRegex) throws InterruptedException {
+            String glob, String percentiles, String filterRegex, boolean detectOnAgent) throws InterruptedException {
         try {
             FilePath[] pathList = workspace.list(glob);
             List<PerformanceReportParser> result = new ArrayList<>();
@@ -73,8 +83,7 @@ public class ParserFactory {
                     logger.println("Performance: File '" + src.getName() + "' is a directory, not a Performance Report");
                     continue;
                 }
-                src.copyTo(new FilePath(localReport));
-                result.add(getParser(ParserDetector.detect(localReport.getPath()), glob, percentiles, filterRegex));
+                result.add(getParser(detect(src, localReport, detectOnAgent), glob, percentiles, filterRegex));
             }
             return result;
         } catch (IOException ignored) {
@@ -84,24 +93,24 @@ public class ParserFactory {
     }
 
 
-    private static List<PerformanceReportParser> getParserWithAbsolutePath(Run<?, ?> build, FilePath workspace, PrintStream logger, File path, String percentiles, String filterRegex) throws IOException, InterruptedException {
-        List<PerformanceReportParser> result = getParserUsingAntPatternAbsolutePath(build, workspace, logger, path, percentiles, filterRegex);
+    private static List<PerformanceReportParser> getParserWithAbsolutePath(Run<?, ?> build, FilePath workspace, PrintStream logger, File path, String percentiles, String filterRegex, boolean detectOnAgent) throws IOException, InterruptedException {
+        List<PerformanceReportParser> result = getParserUsingAntPatternAbsolutePath(build, workspace, logger, path, percentiles, filterRegex, detectOnAgent);
         if (result != null && !result.isEmpty()) {
             return result;
         }
 
         if (!path.exists()) {
             // if report on remote slave
-            FilePath localReport = new FilePath(new File(build.getRootDir(), TEMP_FOLDER + path.getName()));
-            localReport.copyFrom(new FilePath(workspace.getChannel(), path.getAbsolutePath()));
-            return Collections.singletonList(getParser(ParserDetector.detect(localReport.getRemote()), path.getName(), percentiles, filterRegex));
+            FilePath src = new FilePath(workspace.getChannel(), path.getAbsolutePath());
+            String parserName = detect(src, new File(build.getRootDir(), TEMP_FOLDER + path.getName()), detectOnAgent);
+            return Collections.singletonList(getParser(parserName, detectOnAgent ? src.getRemote() : path.getName(), percentiles, filterRegex));
         }
 
 
         return Collections.singletonList(getParser(ParserDetector.detect(path.getAbsolutePath()), path.getAbsolutePath(), percentiles, filterRegex));
     }
 
-    private static List<PerformanceReportParser> getParserUsingAntPatternAbsolutePath(Run<?, ?> build, FilePath wsp, PrintStream logger, File path, String percentiles, String filterRegex) throws InterruptedException {
+    private static List<PerformanceReportParser> getParserUsingAntPatternAbsolutePath(Run<?, ?> build, FilePath wsp, PrintStream logger, File path, String percentiles, String filterRegex, boolean detectOnAgent) throws InterruptedException {
         try {
             File parent = path.getParentFile();
             FilePath workspace = new FilePath(wsp.getChannel(), parent.getAbsolutePath());
@@ -124,9 +133,10 @@ public class ParserFactory {
                     logger.println("Performance: File '" + src.getName() + "' is a directory, not a Performance Report");
                     continue;
                 }
-                src.copyTo(new FilePath(localReport));
+                String parserName = detect(src, localReport, detectOnAgent);
 
-                parsers.add(getParser(ParserDetector.detect(localReport.getPath()), localReport.getPath(), percentiles, filterRegex));
+                // a report parsed on the agent is located there again, not in the controller's copy
+                parsers.add(getParser(parserName, detectOnAgent ? src.getRemote() : localReport.getPath(), percentiles, filterRegex));
             }
             return parsers;
         } catch (IOException ignored) {
@@ -136,6 +146,27 @@ public class ParserFactory {
     }
 
 
+    /**
+     * Detects the type of a report file, either on the agent that holds it or on a copy on the controller.
+     */
+    private static String detect(FilePath src, File localCopy, boolean detectOnAgent) throws IOException, InterruptedException {
+        if (detectOnAgent) {
+            return src.act(new DetectParserCallable());
+        }
+        FilePath localReport = new FilePath(localCopy);
+        src.copyTo(localReport);
+        return ParserDetector.detect(localReport.getRemote());
+    }
+
+    private static final class DetectParserCallable extends MasterToSlaveFileCallable<String> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String invoke(File f, VirtualChannel channel) throws IOException {
+            return ParserDetector.detect(f.getPath());
+        }
+    }
+
     private static PerformanceReportParser getParser(String parserName, String glob, String percentiles, String filterRegex) {
         if (parserName.equals(JMeterParser.class.getSimpleName())) {
             return new JMeterParser(glob, percentiles, filterRegex);
@@ -155,9 +186,15 @@ public class ParserFactory {
             return new LoadRunnerParser(glob, percentiles, filterRegex);
         } else if (parserName.equals(LocustParser.class.getSimpleName())) {
             return new LocustParser(glob, percentiles, filterRegex);
-        } else {
+        }
+
+        // a parser of another plugin, see ParserDetector#register
+        final ReportSignature signature = ParserDetector.getSignature(parserName);
+        final PerformanceReportParser parser = (signature != null) ? signature.createParser(glob, percentiles, filterRegex) : null;
+        if (parser == null) {
             throw new IllegalArgumentException("Unknown parser type: " + parserName);
         }
+        return parser;
     }
 
 }
@@ -12,6 +12,7 @@ import jenkins.model.Jenkins;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.Collection;
 
 /**
@@ -20,11 +21,14 @@ import java.util.Collection;
  * configuration.
  * <p>
  * Subtypes can define additional parser-specific parameters as instance fields.
+ * Parsers are serializable, so that they can parse report files on agents.
  *
  * @author Kohsuke Kawaguchi
  */
 public abstract class PerformanceReportParser implements
-        Describable<PerformanceReportParser>, ExtensionPoint {
+        Describable<PerformanceReportParser>, ExtensionPoint, Serializable {
+    private static final long serialVersionUID = 1L;
+
     /**
      * GLOB patterns that specify the performance report.
      */
@@ -35,6 +39,18 @@ public abstract class PerformanceReportParser implements
      */
     protected boolean excludeResponseTime;
     protected boolean showTrendGraphs;
+    /**
+     * Keep only aggregated duration statistics instead of every sample
+     */
+    protected boolean streamingStatistics;
+    /**
+     * Maximum number of report files parsed concurrently
+     */
+    protected int parseWorkers = 1;
+    /**
+     * Number of threads that parse chunks of a single large CSV report file
+     */
+    protected int csvChunkWorkers = 1;
     protected int baselineBuild;
 
     protected PerformanceReportParser(String glob) {
@@ -83,6 +99,30 @@ public abstract class PerformanceReportParser implements
         this.showTrendGraphs = showTrendGraphs;
     }
 
+    public boolean isStreamingStatistics() {
+        return streamingStatistics;
+    }
+
+    public void setStreamingStatistics(boolean streamingStatistics) {
+        this.streamingStatistics = streamingStatistics;
+    }
+
+    public int getParseWorkers() {
+        return parseWorkers;
+    }
+
+    public void setParseWorkers(int parseWorkers) {
+        this.parseWorkers = parseWorkers;
+    }
+
+    public int getCsvChunkWorkers() {
+        return csvChunkWorkers;
+    }
+
+    public void setCsvChunkWorkers(int csvChunkWorkers) {
+        this.csvChunkWorkers = csvChunkWorkers;
+    }
+
     public void setBaselineBuild(int baselineBuild) {
         this.baselineBuild = baselineBuild;
     }
@@ -0,0 +1,101 @@
+package hudson.plugins.performance.parsers;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Recognizes the report files of one parser by the beginning of their content, see
+ * {@link ParserDetector#register(ReportSignature)}.
+ */
+public abstract class ReportSignature {
+
+    private final String parserName;
+
+    /**
+     * @param parserName the name {@link ParserDetector#detect(String)} returns for matching files
+     */
+    protected ReportSignature(String parserName) {
+        this.parserName = parserName;
+    }
+
+    public String getParserName() {
+        return parserName;
+    }
+
+    /**
+     * @return true if the report file of the prefix is read by the parser of this signature
+     */
+    public abstract boolean matches(Prefix prefix);
+
+    /**
+     * Creates the parser of the detected report files. The parsers of this plugin are created by
+     * {@link ParserFactory}, signatures of other parsers have to override it.
+     *
+     * @return the parser, or <code>null</code> if the signature does not create parsers
+     */
+    public PerformanceReportParser createParser(String glob, String percentiles, String filterRegex) {
+        return null;
+    }
+
+    /**
+     * The beginning of a report file, at most {@link ParserDetector#PREFIX_BYTES} bytes of its (decompressed) content.
+     */
+    public static final class Prefix {
+
+        private final byte[] bytes;
+        private final int length;
+        private final boolean truncated;
+        private String text;
+        private String firstLine;
+
+        Prefix(byte[] bytes, int length, boolean truncated) {
+            this.bytes = bytes;
+            this.length = length;
+            this.truncated = truncated;
+        }
+
+        /**
+         * @return the prefix as stream of bytes
+         */
+        public InputStream openStream() {
+            return new ByteArrayInputStream(bytes, 0, length);
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * @return true if the file is longer than the prefix
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        /**
+         * @return the prefix decoded as UTF-8
+         */
+        public String getText() {
+            if (text == null) {
+                text = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+            return text;
+        }
+
+        /**
+         * @return the first line of the prefix, without line terminator
+         */
+        public String getFirstLine() {
+            if (firstLine == null) {
+                final String prefixText = getText();
+                int end = 0;
+                while (end < prefixText.length() && prefixText.charAt(end) != '\n' && prefixText.charAt(end) != '\r') {
+                    end++;
+                }
+                firstLine = prefixText.substring(0, end);
+            }
+            return firstLine;
+        }
+    }
+}
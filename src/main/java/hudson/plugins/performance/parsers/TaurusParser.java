@@ -4,6 +4,7 @@ import hudson.Extension;
 import hudson.plugins.performance.data.TaurusFinalStats;
 import hudson.plugins.performance.descriptors.PerformanceReportParserDescriptor;
 import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.tools.ReportCompression;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -13,6 +14,7 @@ import org.w3c.dom.NodeList;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.File;
+import java.io.InputStream;
 
 /**
  * Parser for Taurus
@@ -56,7 +58,10 @@ public class TaurusParser extends AbstractParser {
                 = DocumentBuilderFactory.newInstance();
         dbFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
         DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-        Document doc = dBuilder.parse(reportFile);
+        Document doc;
+        try (InputStream in = ReportCompression.open(reportFile)) {
+            doc = dBuilder.parse(in);
+        }
         doc.getDocumentElement().normalize();
 
         Node urlNode = doc.getElementsByTagName("ReportURL").item(0);
@@ -1,35 +1,44 @@
 package hudson.plugins.performance.parsers;
 
 import hudson.Extension;
+import hudson.plugins.performance.data.DurationHistogram;
 import hudson.plugins.performance.data.HttpSample;
 import hudson.plugins.performance.descriptors.PerformanceReportParserDescriptor;
 import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.tools.ReportCompression;
 import hudson.plugins.performance.tools.SafeMaths;
 
 import org.kohsuke.stapler.DataBoundConstructor;
 
+import java.io.BufferedReader;
 import java.io.File;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.Scanner;
+import java.util.List;
 
 /**
- * Parser for wrk (https://github.com/wg/wrk)
+ * Parser for wrk (https://github.com/wg/wrk) and wrk2 (https://github.com/giltene/wrk2)
  * <p>
  * Note that Wrk does not produce request-level data, and can only be processed
  * in it's summarized form (unless extended to do otherwise).
+ * <p>
+ * The percentiles of the report are resolved from the latency distribution if wrk was run with
+ * <code>--latency</code>, and from the detailed percentile spectrum of wrk2. Only the first distribution and
+ * spectrum are read, which are the recorded (corrected) latencies of wrk2.
  *
  * @author John Murray me@johnmurray.io
  */
 public class WrkSummarizerParser extends AbstractParser {
 
-    private enum LineType {
+    enum LineType {
         RUNNING,
         THREAD_CONN_COUNT,
         OUTPUT_HEADER,
         LATENCY_DIST,
         LATENCY_DIST_BUCKET_HEADER,
         LATENCY_DIST_BUCKET,
+        SPECTRUM_HEADER,
+        SPECTRUM,
         REQ_SEC_DIST,
         SUMMARY,
         REQ_SEC,
@@ -84,96 +93,113 @@ public class WrkSummarizerParser extends AbstractParser {
         r.setShowTrendGraphs(showTrendGraphs);
         r.setReportFileName(reportFile.getName());
 
-        Scanner s = null;
-        try {
-            s = new Scanner(reportFile, StandardCharsets.UTF_8);
-            HttpSample sample = new HttpSample();
-
-            while (s.hasNextLine()) {
-                Scanner scanner = null;
-                try {
-                    String line = s.nextLine();
-                    scanner = new Scanner(line.toLowerCase().replaceAll(
-                            "(\\d)s|ms|%|mb|kb(\\b)", "$1$2"));
-
-                    String firstToken = scanner.next();
-                    String secondToken = scanner.next();
-
-                    switch (determineLineType(firstToken, secondToken)) {
-                        case RUNNING:
-                            // extract URI
-                            scanner.next();
-                            scanner.next();
-                            String uri = scanner.next();
-
-                            sample.setUri(uri);
-                            break;
-                        case LATENCY_DIST:
-                            Scanner latencyScanner = new Scanner(line.toLowerCase());
-                            latencyScanner.next(); // header (skip)
-                            long latencyAvg = getTime(latencyScanner.next(),
-                                    TimeUnit.MILLISECOND);
-                            latencyScanner.next(); // stdDev (skipping)
-                            long latencyMax = getTime(latencyScanner.next(),
-                                    TimeUnit.MILLISECOND);
-
-                            sample.setDuration(latencyAvg);
-                            sample.setSummarizerMax(latencyMax);
-                            break;
-                        case REQ_SEC_DIST:
-                            // float reqSecAvg = Float.parseFloat(secondToken);
-                            // float reqSecStdDev = scanner.nextFloat();
-                            // float reqSecMax = scanner.nextFloat();
-                            // float reqSecPercentInOneStdDev = scanner.nextFloat();
-                            break;
-                        case SUMMARY:
-                            long totalReq = Long.parseLong(firstToken);
-                            Scanner summaryScanner = new Scanner(line.toLowerCase());
-                            summaryScanner.next();
-                            summaryScanner.next();
-                            summaryScanner.next();
-                            // long totalTime = getTime(summaryScanner.next(), logger,
-                            // TimeUnit.SECOND);
-                            sample.setSummarizer(true);
-                            sample.setSummarizerSamples(totalReq);
-                            summaryScanner.close();
-                            break;
-                        case ERROR_COUNT:
-                            scanner.next();
-                            scanner.next();
-                            int numErrors = scanner.nextInt();
-
-                            sample.setSummarizerErrors(numErrors);
-                            break;
-                        case REQ_SEC:
-                        case TRANSFER_SEC:
-                            // not currently used by performance-plugin
-                            break;
-                        case THREAD_CONN_COUNT:
-                        case OUTPUT_HEADER:
-                        case LATENCY_DIST_BUCKET_HEADER:
-                        case LATENCY_DIST_BUCKET:
-                        case UNKNOWN:
-                            // do nothing, don't need output
-                            break;
-                    }
-                } finally {
-                    if (scanner != null)
-                        scanner.close();
+        final HttpSample sample = new HttpSample();
+        final List<String> tokens = new ArrayList<>();
+        final LatencyDistribution distribution = new LatencyDistribution();
+        int distributions = 0;
+        int spectra = 0;
+
+        try (BufferedReader reader = ReportCompression.openReader(reportFile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (tokenize(line, tokens) < 2) {
+                    continue;
+                }
+                final String firstToken = tokens.get(0);
+
+                switch (determineLineType(firstToken, tokens.get(1))) {
+                    case RUNNING:
+                        // extract URI
+                        if (tokens.size() > 4) {
+                            sample.setUri(tokens.get(4));
+                        }
+                        break;
+                    case LATENCY_DIST:
+                        if (tokens.size() > 3) {
+                            // stdDev (skipping)
+                            sample.setDuration(getTime(tokens.get(1), TimeUnit.MILLISECOND));
+                            sample.setSummarizerMax(getTime(tokens.get(3), TimeUnit.MILLISECOND));
+                        }
+                        break;
+                    case LATENCY_DIST_BUCKET_HEADER:
+                        distributions++;
+                        break;
+                    case LATENCY_DIST_BUCKET:
+                        if (distributions == 1) {
+                            distribution.addPercentile(
+                                    Double.parseDouble(firstToken.substring(0, firstToken.length() - 1)),
+                                    toMilliseconds(tokens.get(1)));
+                        }
+                        break;
+                    case SPECTRUM_HEADER:
+                        spectra++;
+                        break;
+                    case SPECTRUM:
+                        if (spectra == 1 && tokens.size() > 2) {
+                            distribution.addSpectrumValue(Double.parseDouble(firstToken),
+                                    Long.parseLong(tokens.get(2)));
+                        }
+                        break;
+                    case SUMMARY:
+                        // long totalTime = getTime(tokens.get(3), TimeUnit.SECOND);
+                        sample.setSummarizer(true);
+                        sample.setSummarizerSamples(Long.parseLong(firstToken));
+                        break;
+                    case ERROR_COUNT:
+                        if (tokens.size() > 4) {
+                            sample.setSummarizerErrors(Integer.parseInt(tokens.get(4)));
+                        }
+                        break;
+                    case REQ_SEC_DIST:
+                        // float reqSecAvg, reqSecStdDev, reqSecMax, reqSecPercentInOneStdDev
+                    case REQ_SEC:
+                    case TRANSFER_SEC:
+                        // not currently used by performance-plugin
+                        break;
+                    case THREAD_CONN_COUNT:
+                    case OUTPUT_HEADER:
+                    case UNKNOWN:
+                        // do nothing, don't need output
+                        break;
                 }
             }
+        }
+
+        sample.setSuccessful(true);
+        sample.setDate(new Date());
+        r.addSample(sample);
 
-            sample.setSuccessful(true);
-            sample.setDate(new Date());
-            r.addSample(sample);
-        } finally {
-            if (s != null)
-                s.close();
+        final DurationHistogram durations = distribution.toHistogram(sample.getSummarizerSamples(),
+                sample.getSummarizerMax());
+        if (durations != null && sample.getUri() != null) {
+            r.setDurationDistribution(sample.getUri(), durations);
         }
 
         return r;
     }
 
+    /**
+     * Splits the lower case line at whitespace into the given list.
+     *
+     * @return the number of tokens
+     */
+    static int tokenize(String line, List<String> tokens) {
+        tokens.clear();
+        final int length = line.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || Character.isWhitespace(line.charAt(i))) {
+                if (start >= 0) {
+                    tokens.add(line.substring(start, i).toLowerCase());
+                    start = -1;
+                }
+            } else if (start < 0) {
+                start = i;
+            }
+        }
+        return tokens.size();
+    }
+
     /**
      * Given a time string (eg: 0ms, 1m, 2s, 3h, etc.) parse and yield the time in
      * a specified time unit (millisecond, second, minute, hour)
@@ -186,31 +212,47 @@ public class WrkSummarizerParser extends AbstractParser {
      * @return Time in seconds, as parsed from input
      */
     public long getTime(String timeString, TimeUnit tu) {
-        double factor = 0;
+        double timeInReturnFormat = SafeMaths.safeDivide(toMilliseconds(timeString), tu.getFactor());
 
-        timeString = timeString.trim().replaceAll("[^\\d\\.smh]", "");
-        String timeUnitString = timeString.replaceAll("[\\d\\.]", "");
-        String timeValueString = timeString.replaceAll("[smh]", "");
+        return (int) Math.floor(timeInReturnFormat);
+    }
 
-    /*
-     * Calculate 'factor' so that we can get the input time in ms (eg: 5m =
-     * 300000, 3s = 3000)
+    /**
+     * @return the time of a time string (eg: 55.33us, 1.5ms, 2s) in milliseconds, 0 for an unknown time unit
      */
-        if ("ms".equals(timeUnitString)) {
-            factor = 1;
-        } else if ("s".equals(timeUnitString)) {
-            factor = 1000;
-        } else if ("m".equals(timeUnitString)) {
-            factor = 1000 * 60d;
-        } else if ("h".equals(timeUnitString)) {
-            factor = 1000 * 60 * 60d;
+    static double toMilliseconds(String timeString) {
+        final String time = timeString.trim();
+        int end = 0;
+        while (end < time.length() && (Character.isDigit(time.charAt(end)) || time.charAt(end) == '.')) {
+            end++;
         }
 
-        double timeValue = Double.parseDouble(timeValueString);
-        double timeInMilliSeconds = timeValue * factor;
-        double timeInReturnFormat = SafeMaths.safeDivide(timeInMilliSeconds, tu.getFactor());
+        /*
+         * Calculate 'factor' so that we can get the input time in ms (eg: 5m =
+         * 300000, 3s = 3000)
+         */
+        final double factor;
+        switch (time.substring(end).toLowerCase()) {
+            case "us":
+                factor = 0.001;
+                break;
+            case "ms":
+                factor = 1;
+                break;
+            case "s":
+                factor = 1000;
+                break;
+            case "m":
+                factor = 1000 * 60d;
+                break;
+            case "h":
+                factor = 1000 * 60 * 60d;
+                break;
+            default:
+                factor = 0;
+        }
 
-        return (int) Math.floor(timeInReturnFormat);
+        return Double.parseDouble(time.substring(0, end)) * factor;
     }
 
     /**
@@ -231,6 +273,8 @@ public class WrkSummarizerParser extends AbstractParser {
                 return LineType.LATENCY_DIST_BUCKET_HEADER;
             else
                 return LineType.LATENCY_DIST;
+        } else if ("detailed".equals(t1) && "percentile".equals(t2)) {
+            return LineType.SPECTRUM_HEADER;
         } else if ("req/sec".equals(t1)) {
             return LineType.REQ_SEC_DIST;
         } else if ("requests/sec:".equals(t1)) {
@@ -239,24 +283,106 @@ public class WrkSummarizerParser extends AbstractParser {
             return LineType.TRANSFER_SEC;
         } else if ("non-2xx".equals(t1)) {
             return LineType.ERROR_COUNT;
-        } else {
-            try {
-                Long.parseLong(t1);
-                if ("threads".equals(t2)) {
-                    return LineType.THREAD_CONN_COUNT;
-                } else if ("requests".equals(t2)) {
-                    return LineType.SUMMARY;
-                } else {
-                    try {
-                        Float.parseFloat(t2);
-                        return LineType.LATENCY_DIST_BUCKET;
-                    } catch (NumberFormatException e) {
-                        return LineType.UNKNOWN;
-                    }
+        } else if (t1.endsWith("%")) {
+            // e.g. "50%   40.25ms" of wrk or "99.900%   18.35s" of wrk2
+            return isNumber(t1.substring(0, t1.length() - 1)) && isTime(t2)
+                    ? LineType.LATENCY_DIST_BUCKET : LineType.UNKNOWN;
+        } else if (isNumber(t1)) {
+            if ("threads".equals(t2)) {
+                return LineType.THREAD_CONN_COUNT;
+            } else if ("requests".equals(t2)) {
+                return LineType.SUMMARY;
+            } else if (isNumber(t2)) {
+                // value and percentile of the detailed percentile spectrum of wrk2
+                return LineType.SPECTRUM;
+            }
+        }
+        return LineType.UNKNOWN;
+    }
+
+    /**
+     * @return true if the token is a non-negative decimal number
+     */
+    private static boolean isNumber(String token) {
+        boolean digits = false;
+        boolean point = false;
+        for (int i = 0; i < token.length(); i++) {
+            final char c = token.charAt(i);
+            if (c == '.' && !point) {
+                point = true;
+            } else if (Character.isDigit(c)) {
+                digits = true;
+            } else {
+                return false;
+            }
+        }
+        return digits;
+    }
+
+    /**
+     * @return true if the token is a number followed by a time unit
+     */
+    private static boolean isTime(String token) {
+        int end = token.length();
+        while (end > 0 && Character.isLetter(token.charAt(end - 1))) {
+            end--;
+        }
+        return end < token.length() && isNumber(token.substring(0, end));
+    }
+
+    /**
+     * The latency percentiles of wrk or the percentile spectrum of wrk2, see {@link #toHistogram(long, long)}.
+     */
+    static final class LatencyDistribution {
+
+        private final List<double[]> percentiles = new ArrayList<>();
+        private final DurationHistogram spectrum = new DurationHistogram();
+        private long spectrumCount;
+
+        /**
+         * Adds a percentile of the latency distribution of wrk.
+         */
+        void addPercentile(double percentile, double latency) {
+            percentiles.add(new double[]{percentile, latency});
+        }
+
+        /**
+         * Adds a row of the detailed percentile spectrum of wrk2.
+         *
+         * @param latency    in milliseconds
+         * @param totalCount the number of requests with at most this latency
+         */
+        void addSpectrumValue(double latency, long totalCount) {
+            spectrum.record((long) Math.floor(latency), totalCount - spectrumCount);
+            spectrumCount = Math.max(spectrumCount, totalCount);
+        }
+
+        /**
+         * Creates the histogram of the latencies. The spectrum of wrk2 holds the counts of the latencies. The
+         * percentiles of wrk are spread over the requests, so that each percentile of the histogram is the reported
+         * one: the requests between two reported percentiles are counted at the higher one, those above the highest
+         * at the maximum latency.
+         *
+         * @return the histogram, or <code>null</code> if no distribution was reported
+         */
+        DurationHistogram toHistogram(long requests, long maxLatency) {
+            if (spectrum.getCount() > 0) {
+                return spectrum;
+            }
+            if (percentiles.isEmpty() || requests <= 0) {
+                return null;
+            }
+            final DurationHistogram histogram = new DurationHistogram();
+            long counted = 0;
+            for (double[] percentile : percentiles) {
+                final long count = Math.min(requests, (long) (requests * (percentile[0] / 100)));
+                if (count > counted) {
+                    histogram.record((long) Math.floor(percentile[1]), count - counted);
+                    counted = count;
                 }
-            } catch (NumberFormatException e) {
-                return LineType.UNKNOWN;
             }
+            histogram.record(Math.max(maxLatency, histogram.getMax()), requests - counted);
+            return histogram;
         }
     }
-}
\ No newline at end of file
+}
@@ -40,6 +40,11 @@ public abstract class AbstractReport {
 
     protected boolean showTrendGraphs;
 
+    /**
+     * Keep aggregated duration statistics only, instead of every sample
+     */
+    protected boolean streamingStatistics;
+
     public abstract int countErrors();
 
     public abstract double errorPercent();
@@ -80,6 +85,73 @@ public abstract class AbstractReport {
         }
     }
 
+    /**
+     * Drops calculated percentiles, so that they are calculated again on next access.
+     */
+    protected void resetPercentiles() {
+        percentilesValues.clear();
+        isCalculatedPercentilesValues = false;
+    }
+
+    /**
+     * Replaces the percentile values by ones combined by {@link #mergePercentilesValues(AbstractReport, AbstractReport)}.
+     */
+    protected void setMergedPercentilesValues(Map<Double, Long> values) {
+        percentilesValues.clear();
+        percentilesValues.putAll(values);
+        isCalculatedPercentilesValues = true;
+        calculateDiffPercentiles();
+    }
+
+    /**
+     * Combines the percentile values of two reports when at least one of them kept aggregates only, so that the
+     * exact values cannot be calculated again. See {@link #mergePercentile(double, long, long, long, long)}.
+     */
+    protected static Map<Double, Long> mergePercentilesValues(AbstractReport report, AbstractReport other) {
+        Map<Double, Long> values = report.getPercentilesValues();
+        Map<Double, Long> otherValues = other.getPercentilesValues();
+        Map<Double, Long> merged = new TreeMap<>();
+        for (Map.Entry<Double, Long> entry : values.entrySet()) {
+            Long otherValue = otherValues.get(entry.getKey());
+            merged.put(entry.getKey(), (otherValue == null) ? entry.getValue() :
+                    mergePercentile(entry.getKey(), entry.getValue(), report.samplesCount(),
+                            otherValue, other.samplesCount()));
+        }
+        for (Map.Entry<Double, Long> entry : otherValues.entrySet()) {
+            if (!merged.containsKey(entry.getKey())) {
+                merged.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Combines a percentile of two reports. The minimum and maximum are exact; any other percentile is approximated by
+     * the mean of both values weighted by the sample counts. Values of empty reports are ignored.
+     */
+    protected static long mergePercentile(double percentage, long value, long count, long otherValue, long otherCount) {
+        if (count == 0 || otherCount == 0) {
+            return (count == 0) ? otherValue : value;
+        }
+        if (percentage <= ZERO_PERCENT) {
+            return Math.min(value, otherValue);
+        }
+        if (percentage >= ONE_HUNDRED_PERCENT) {
+            return Math.max(value, otherValue);
+        }
+        return weightedMean(value, count, otherValue, otherCount);
+    }
+
+    /**
+     * @return the mean of both values weighted by the given counts, e.g. the average of two merged reports.
+     */
+    protected static long weightedMean(long value, long count, long otherValue, long otherCount) {
+        if (count == 0 || otherCount == 0) {
+            return (count == 0) ? otherValue : value;
+        }
+        return Math.round(((double) value * count + (double) otherValue * otherCount) / ((double) count + otherCount));
+    }
+
     protected List<Double> parsePercentiles(String percentiles) {
         final List<Double> res = new ArrayList<>();
         if (!StringUtils.isBlank(percentiles)) {
@@ -161,6 +233,14 @@ public abstract class AbstractReport {
         this.showTrendGraphs = showTrendGraphs;
     }
 
+    public boolean isStreamingStatistics() {
+        return streamingStatistics;
+    }
+
+    public void setStreamingStatistics(boolean streamingStatistics) {
+        this.streamingStatistics = streamingStatistics;
+    }
+
     protected boolean isIncludeResponseTime(HttpSample sample) {
         return !(sample.isFailed() && excludeResponseTime && !sample.isSummarizer());
     }
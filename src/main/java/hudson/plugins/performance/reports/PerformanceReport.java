@@ -4,6 +4,7 @@ import hudson.model.Run;
 import hudson.plugins.performance.Messages;
 import hudson.plugins.performance.PerformanceReportMap;
 import hudson.plugins.performance.actions.PerformanceBuildAction;
+import hudson.plugins.performance.data.DurationHistogram;
 import hudson.plugins.performance.data.HttpSample;
 import hudson.plugins.performance.data.TaurusFinalStats;
 import hudson.plugins.performance.parsers.PerformanceReportParser;
@@ -13,6 +14,7 @@ import org.apache.commons.lang.StringUtils;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -30,6 +32,12 @@ public class PerformanceReport extends AbstractReport implements Serializable,
         Comparable<PerformanceReport> {
     private static final long serialVersionUID = 675698410989941826L;
 
+    /**
+     * Orders the locks of {@link #merge(PerformanceReport)} for the rare reports whose locks have the same identity
+     * hash.
+     */
+    private static final Object MERGE_TIE_LOCK = new Object();
+
 
     public static final String INCLUDE_ALL = null;
 
@@ -49,7 +57,12 @@ public class PerformanceReport extends AbstractReport implements Serializable,
     /**
      * A lazy cache of all duration values of all HTTP samples in all UriReports, ordered by duration.
      */
-    private transient List<Long> durationsSortedBySize = null;
+    private transient long[] durationsSortedBySize = null;
+
+    /**
+     * Duration statistics of all HTTP samples in all UriReports, kept in streaming statistics mode.
+     */
+    private DurationHistogram durationHistogram;
 
     /**
      * A lazy cache of all UriReports, reverse-ordered.
@@ -165,10 +178,20 @@ public class PerformanceReport extends AbstractReport implements Serializable,
                 uriReport = new UriReport(this, staplerUri, uri);
                 uriReport.setExcludeResponseTime(excludeResponseTime);
                 uriReport.setShowTrendGraphs(showTrendGraphs);
+                uriReport.setStreamingStatistics(streamingStatistics);
                 uriReportMap.put(staplerUri, uriReport);
             }
             uriReport.addHttpSample(pHttpSample);
 
+            if (streamingStatistics) {
+                if (durationHistogram == null) {
+                    durationHistogram = new DurationHistogram();
+                }
+                if (isIncludeResponseTime(pHttpSample)) {
+                    durationHistogram.record(pHttpSample.getDuration());
+                }
+            }
+
             // reset the lazy loaded caches.
             durationsSortedBySize = null;
             uriReportsOrdered = null;
@@ -254,6 +277,267 @@ public class PerformanceReport extends AbstractReport implements Serializable,
         }
     }
 
+    /**
+     * Resolves the percentiles of a URI and of this report from a distribution of the durations of the URI that a
+     * load generator reported, e.g. the latency percentiles of wrk, instead of from the durations of its samples.
+     * Nothing is changed if this report has no samples of the URI. Later samples are recorded into the distributions
+     * of the URI and of this report, as in streaming statistics mode.
+     */
+    public void setDurationDistribution(String uri, DurationHistogram durations) {
+        synchronized (uriReportMap) {
+            final UriReport uriReport = uriReportMap.get(PerformanceReport.asStaplerURI(uri));
+            if (uriReport == null) {
+                return;
+            }
+            uriReport.setDurationDistribution(durations);
+
+            streamingStatistics = true;
+            durationHistogram = new DurationHistogram();
+            for (UriReport currentReport : uriReportMap.values()) {
+                if (currentReport.getDurationHistogram() != null) {
+                    durationHistogram.merge(currentReport.getDurationHistogram());
+                } else {
+                    durationHistogram.recordAll(currentReport.getDurationArray());
+                }
+            }
+
+            // reset the lazy calculated values.
+            durationsSortedBySize = null;
+            perc0 = null;
+            perc50 = null;
+            perc90 = null;
+            perc95 = null;
+            perc100 = null;
+            resetPercentiles();
+        }
+    }
+
+    /**
+     * Adds the samples and aggregates of another report to this report, e.g. one parsed from another part of the
+     * same file, one of another load generator or one pre-aggregated on an agent. URIs that are new to this report
+     * are added after the existing ones. See {@link UriReport#merge(UriReport)} for how durations and percentiles
+     * are combined; the same applies to the overall values of the reports.
+     */
+    public void merge(PerformanceReport other) {
+        if (other == this) {
+            throw new IllegalArgumentException("A report cannot be merged with itself");
+        }
+        // both reports are locked in the same order whichever is merged into which, so that concurrent merges of
+        // two reports into each other cannot deadlock
+        final int hash = System.identityHashCode(uriReportMap);
+        final int otherHash = System.identityHashCode(other.uriReportMap);
+        final Object first = (hash < otherHash) ? uriReportMap : other.uriReportMap;
+        final Object second = (hash < otherHash) ? other.uriReportMap : uriReportMap;
+        synchronized ((hash == otherHash) ? MERGE_TIE_LOCK : first) {
+            synchronized (first) {
+                synchronized (second) {
+                    mergeLocked(other);
+                }
+            }
+        }
+    }
+
+    private void mergeLocked(PerformanceReport other) {
+        final boolean aggregatesOnly = isAggregatesOnly() || other.isAggregatesOnly();
+        final int count = samplesCount;
+        final int otherCount = other.samplesCount;
+        Long mergedAverage = null;
+        Map<Double, Long> mergedPercentiles = null;
+        long[] mergedLines = null;
+        if (aggregatesOnly) {
+            mergedAverage = weightedMean(getAverage(), count, other.getAverage(), otherCount);
+            mergedPercentiles = mergePercentilesValues(this, other);
+            mergedLines = new long[]{
+                    mergePercentile(ZERO_PERCENT, getMin(), count, other.getMin(), otherCount),
+                    mergePercentile(FIFTY_PERCENT, getMedian(), count, other.getMedian(), otherCount),
+                    mergePercentile(NINETY_PERCENT, get90Line(), count, other.get90Line(), otherCount),
+                    mergePercentile(NINETY_FIVE_PERCENT, get95Line(), count, other.get95Line(), otherCount),
+                    mergePercentile(ONE_HUNDRED_PERCENT, getMax(), count, other.getMax(), otherCount)};
+            durationHistogram = null;
+        } else if (durationHistogram != null || other.durationHistogram != null) {
+            if (durationHistogram == null) {
+                durationHistogram = new DurationHistogram();
+                for (UriReport uriReport : uriReportMap.values()) {
+                    durationHistogram.recordAll(uriReport.getDurationArray());
+                }
+                streamingStatistics = true;
+            }
+            if (other.durationHistogram != null) {
+                durationHistogram.merge(other.durationHistogram);
+            } else {
+                for (UriReport otherUriReport : other.uriReportMap.values()) {
+                    durationHistogram.recordAll(otherUriReport.getDurationArray());
+                }
+            }
+        }
+
+        for (UriReport otherUriReport : other.uriReportMap.values()) {
+            UriReport uriReport = uriReportMap.get(otherUriReport.getStaplerUri());
+            if (uriReport == null) {
+                uriReport = new UriReport(this, otherUriReport.getStaplerUri(), otherUriReport.getUri());
+                uriReport.setExcludeResponseTime(excludeResponseTime);
+                uriReport.setShowTrendGraphs(showTrendGraphs);
+                uriReport.setStreamingStatistics(streamingStatistics);
+                uriReportMap.put(otherUriReport.getStaplerUri(), uriReport);
+            }
+            uriReport.merge(otherUriReport);
+        }
+
+        // reset the lazy loaded caches.
+        durationsSortedBySize = null;
+        uriReportsOrdered = null;
+
+        mergeSummarizer(other);
+        nbError += other.nbError;
+        summarizerErrors += other.summarizerErrors;
+        samplesCount += other.samplesCount;
+        totalDuration += other.totalDuration;
+        totalSizeInKB += other.totalSizeInKB;
+        if (other.throughput != null) {
+            throughput = (throughput == null) ? other.throughput : (throughput + other.throughput);
+        }
+
+        if (aggregatesOnly) {
+            average = mergedAverage;
+            perc0 = mergedLines[0];
+            perc50 = mergedLines[1];
+            perc90 = mergedLines[2];
+            perc95 = mergedLines[3];
+            perc100 = mergedLines[4];
+            setMergedPercentilesValues(mergedPercentiles);
+        } else {
+            // reset the lazy calculated values.
+            average = null;
+            perc0 = null;
+            perc50 = null;
+            perc90 = null;
+            perc95 = null;
+            perc100 = null;
+            resetPercentiles();
+        }
+    }
+
+    /**
+     * Combines the values reported by a summarizer, weighted by the number of summarized samples.
+     */
+    private void mergeSummarizer(PerformanceReport other) {
+        final long size = summarizerSize;
+        final long otherSize = other.summarizerSize;
+        if (otherSize == 0 && other.summarizerErrorPercent == null) {
+            return;
+        }
+        summarizerMin = mergePercentile(ZERO_PERCENT, summarizerMin, size, other.summarizerMin, otherSize);
+        summarizerMax = mergePercentile(ONE_HUNDRED_PERCENT, summarizerMax, size, other.summarizerMax, otherSize);
+        summarizerAvg = weightedMean(summarizerAvg, size, other.summarizerAvg, otherSize);
+        if (summarizerErrorPercent == null || size == 0) {
+            summarizerErrorPercent = other.summarizerErrorPercent;
+        } else if (other.summarizerErrorPercent != null && otherSize != 0) {
+            try {
+                float errors = Float.parseFloat(summarizerErrorPercent);
+                float otherErrors = Float.parseFloat(other.summarizerErrorPercent);
+                summarizerErrorPercent = Float.toString((float) ((errors * (double) size + otherErrors * (double) otherSize)
+                        / ((double) size + otherSize)));
+            } catch (NumberFormatException e) {
+                LOGGER.log(Level.FINE, "Cannot merge summarizer error percentages", e);
+            }
+        }
+        summarizerSize = size + otherSize;
+    }
+
+    /**
+     * @return <code>true</code> if this report has samples but none of the durations of them, see
+     * {@link UriReport#merge(UriReport)}
+     */
+    private boolean isAggregatesOnly() {
+        synchronized (uriReportMap) {
+            if (samplesCount == 0 || durationHistogram != null) {
+                return false;
+            }
+            for (UriReport uriReport : uriReportMap.values()) {
+                if (uriReport.hasSamples() || uriReport.getDurationHistogram() != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Writes the aggregates of this report and of its URIs to a snapshot, see {@link ReportSnapshot}.
+     */
+    void writeSnapshot(ReportSnapshot.Output out) throws IOException {
+        synchronized (uriReportMap) {
+            out.writeString(reportFileName);
+            out.writeString(percentiles);
+            out.writeString(filterRegex);
+            out.writeInt(baselineBuild);
+            out.writeBoolean(excludeResponseTime);
+            out.writeBoolean(showTrendGraphs);
+            out.writeBoolean(streamingStatistics);
+            out.writeInt(nbError);
+            out.writeFloat(summarizerErrors);
+            out.writeInt(samplesCount);
+            out.writeLong(totalDuration);
+            out.writeDouble(totalSizeInKB);
+            out.writeLong(summarizerMin);
+            out.writeLong(summarizerMax);
+            out.writeLong(summarizerAvg);
+            out.writeLong(summarizerSize);
+            out.writeString(summarizerErrorPercent);
+            out.writeLong(getAverage());
+            out.writeLong(getMin());
+            out.writeLong(getMedian());
+            out.writeLong(get90Line());
+            out.writeLong(get95Line());
+            out.writeLong(getMax());
+            out.writeNullableLong(throughput);
+            out.writePercentiles(getPercentilesValues());
+            out.writeHistogram(durationHistogram);
+            out.writeInt(uriReportMap.size());
+            for (UriReport uriReport : uriReportMap.values()) {
+                uriReport.writeSnapshot(out);
+            }
+        }
+    }
+
+    static PerformanceReport readSnapshot(ReportSnapshot.Input in) throws IOException {
+        final String reportFileName = in.readString();
+        final String percentiles = in.readString();
+        final PerformanceReport report = new PerformanceReport(percentiles, in.readString());
+        report.reportFileName = reportFileName;
+        report.baselineBuild = in.readInt();
+        report.excludeResponseTime = in.readBoolean();
+        report.showTrendGraphs = in.readBoolean();
+        report.streamingStatistics = in.readBoolean();
+        report.nbError = in.readInt();
+        report.summarizerErrors = in.readFloat();
+        report.samplesCount = in.readInt();
+        report.totalDuration = in.readLong();
+        report.totalSizeInKB = in.readDouble();
+        report.summarizerMin = in.readLong();
+        report.summarizerMax = in.readLong();
+        report.summarizerAvg = in.readLong();
+        report.summarizerSize = in.readLong();
+        report.summarizerErrorPercent = in.readString();
+        report.average = in.readLong();
+        report.perc0 = in.readLong();
+        report.perc50 = in.readLong();
+        report.perc90 = in.readLong();
+        report.perc95 = in.readLong();
+        report.perc100 = in.readLong();
+        report.throughput = in.readNullableLong();
+        report.percentilesValues.putAll(in.readPercentiles());
+        report.isCalculatedPercentilesValues = true;
+        report.calculateDiffPercentiles();
+        report.durationHistogram = in.readHistogram();
+        final int uriReportsCount = in.readInt();
+        for (int i = 0; i < uriReportsCount; i++) {
+            UriReport uriReport = UriReport.readSnapshot(report, in);
+            report.uriReportMap.put(uriReport.getStaplerUri(), uriReport);
+        }
+        return report;
+    }
+
     public int compareTo(PerformanceReport jmReport) {
         if (this == jmReport) {
             return 0;
@@ -318,28 +602,39 @@ public class PerformanceReport extends AbstractReport implements Serializable,
         }
 
         synchronized (uriReportMap) {
+            if (durationHistogram != null) {
+                return durationHistogram.getValueAtPercentile(percentage);
+            }
+
             if (durationsSortedBySize == null) {
-                durationsSortedBySize = new ArrayList<>();
+                int total = 0;
+                for (UriReport currentReport : uriReportMap.values()) {
+                    total += currentReport.getDurationArray().length;
+                }
+                durationsSortedBySize = new long[total];
+                int position = 0;
                 for (UriReport currentReport : uriReportMap.values()) {
-                    durationsSortedBySize.addAll(currentReport.getDurations());
+                    long[] durations = currentReport.getDurationArray();
+                    System.arraycopy(durations, 0, durationsSortedBySize, position, durations.length);
+                    position += durations.length;
                 }
-                Collections.sort(durationsSortedBySize);
+                Arrays.sort(durationsSortedBySize);
             }
 
-            if (durationsSortedBySize.isEmpty()) {
+            if (durationsSortedBySize.length == 0) {
                 return 0;
             }
 
             final double percentInDecimals = percentage / 100;
-            int indexToReturn = ((int) (durationsSortedBySize.size() * percentInDecimals)) - 1;
+            int indexToReturn = ((int) (durationsSortedBySize.length * percentInDecimals)) - 1;
 
             // Make sure a valid index is used.
             if (indexToReturn < 0) {
                 indexToReturn = 0;
-            } else if (indexToReturn >= durationsSortedBySize.size()) {
-                indexToReturn = durationsSortedBySize.size() - 1;
+            } else if (indexToReturn >= durationsSortedBySize.length) {
+                indexToReturn = durationsSortedBySize.length - 1;
             }
-            return durationsSortedBySize.get(indexToReturn);
+            return durationsSortedBySize[indexToReturn];
         }
     }
 
@@ -427,6 +722,13 @@ public class PerformanceReport extends AbstractReport implements Serializable,
         return perc0;
     }
 
+    /**
+     * @return duration statistics in streaming statistics mode, <code>null</code> if all samples are retained.
+     */
+    public DurationHistogram getDurationHistogram() {
+        return durationHistogram;
+    }
+
     public String getReportFileName() {
         return reportFileName;
     }
@@ -0,0 +1,283 @@
+package hudson.plugins.performance.reports;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import hudson.plugins.performance.data.DurationHistogram;
+
+/**
+ * A cache of loaded {@link PerformanceReport}s, bounded by the estimated heap size of the reports rather than by
+ * their number.
+ * <p>
+ * Reports are loaded outside of any lock shared between keys: concurrent requests of the same report wait for a
+ * single load, requests of other reports are not blocked by it. The budget is taken from the system property
+ * {@value #BUDGET_PROPERTY}, either in bytes with an optional <code>k</code>, <code>m</code> or <code>g</code>
+ * suffix or as a percentage of the maximum heap, and defaults to {@value #DEFAULT_BUDGET} of the heap.
+ */
+public final class ReportCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ReportCache.class.getName());
+
+    public static final String BUDGET_PROPERTY = ReportCache.class.getName() + ".budget";
+
+    static final String DEFAULT_BUDGET = "10%";
+
+    /*
+     * Rough heap sizes of the parts of a report, see SampleStore for the sample layout.
+     */
+    private static final long REPORT_BYTES = 1024;
+    private static final long URI_REPORT_BYTES = 2048;
+    private static final long SAMPLE_BYTES = 19;
+    private static final long SORTED_DURATION_BYTES = 16;
+    private static final long HISTOGRAM_BUCKET_BYTES = 8;
+
+    private static final ReportCache INSTANCE = new ReportCache(parseBudget(System.getProperty(BUDGET_PROPERTY),
+            Runtime.getRuntime().maxMemory()));
+
+    private final long budget;
+
+    private final Cache<String, Entry> cache;
+
+    /**
+     * The sum of the weights of all cached reports.
+     */
+    private final AtomicLong weight = new AtomicLong();
+
+    ReportCache(long budget) {
+        this.budget = budget;
+        // one segment, so that the budget applies to all reports rather than a fraction of it to each segment;
+        // the segment is only locked to update the cache, never while a report is loaded
+        this.cache = CacheBuilder.newBuilder()
+                .concurrencyLevel(1)
+                .maximumWeight(budget)
+                .weigher(new Weigher<String, Entry>() {
+                    @Override
+                    public int weigh(String key, Entry entry) {
+                        return entry.weight;
+                    }
+                })
+                .removalListener(new RemovalListener<String, Entry>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<String, Entry> notification) {
+                        if (notification.getValue() != null) {
+                            weight.addAndGet(-notification.getValue().weight);
+                        }
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public static ReportCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the cached report, or <code>null</code>
+     */
+    public PerformanceReport getIfPresent(String key) {
+        final Entry entry = cache.getIfPresent(key);
+        return entry != null ? entry.report : null;
+    }
+
+    /**
+     * Returns the cached report, loading it if it is not cached. Only one thread loads a report, other threads
+     * that request it in the meantime wait for that load.
+     *
+     * @param loader loads the report, may return <code>null</code> if there is no report
+     * @return the report, or <code>null</code> if the loader returned <code>null</code>
+     */
+    public PerformanceReport get(String key, final Callable<PerformanceReport> loader) throws IOException {
+        try {
+            return cache.get(key, new Callable<Entry>() {
+                @Override
+                public Entry call() throws Exception {
+                    final PerformanceReport report = loader.call();
+                    if (report == null) {
+                        throw NoReportException.INSTANCE;
+                    }
+                    return newEntry(report);
+                }
+            }).report;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause == NoReportException.INSTANCE) {
+                return null;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    public void put(String key, PerformanceReport report) {
+        cache.put(key, newEntry(report));
+    }
+
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        LOGGER.log(Level.FINE, "Performance report cache cleared");
+    }
+
+    private Entry newEntry(PerformanceReport report) {
+        final Entry entry = new Entry(report, (int) Math.min(Integer.MAX_VALUE, estimateSize(report)));
+        weight.addAndGet(entry.weight);
+        return entry;
+    }
+
+    /**
+     * @return a rough estimate of the heap size of the report in bytes
+     */
+    public static long estimateSize(PerformanceReport report) {
+        long size = REPORT_BYTES;
+        for (UriReport uriReport : report.getUriReportMap().values()) {
+            size += URI_REPORT_BYTES;
+            // durations are copied and sorted once percentiles are calculated
+            size += (SAMPLE_BYTES + SORTED_DURATION_BYTES) * uriReport.getHttpSampleList().size();
+            final DurationHistogram histogram = uriReport.getDurationHistogram();
+            if (histogram != null) {
+                size += HISTOGRAM_BUCKET_BYTES * histogram.getBucketCount();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Parses a memory budget, either in bytes with an optional <code>k</code>, <code>m</code> or <code>g</code>
+     * suffix or as a percentage of the maximum heap. Invalid values are logged and replaced by
+     * {@value #DEFAULT_BUDGET}.
+     *
+     * @return the budget in bytes
+     */
+    public static long parseBudget(String value, long maxHeap) {
+        final String budget = value == null || value.trim().isEmpty() ? DEFAULT_BUDGET : value.trim().toLowerCase();
+        try {
+            if (budget.endsWith("%")) {
+                final double percent = Double.parseDouble(budget.substring(0, budget.length() - 1));
+                if (percent >= 0 && percent <= 100) {
+                    return (long) (maxHeap * percent / 100);
+                }
+            } else {
+                long unit = 1;
+                String number = budget;
+                final int suffix = "kmg".indexOf(budget.charAt(budget.length() - 1));
+                if (suffix >= 0) {
+                    unit = 1L << (10 * (suffix + 1));
+                    number = budget.substring(0, budget.length() - 1);
+                }
+                final long bytes = Long.parseLong(number.trim());
+                if (bytes >= 0 && bytes <= Long.MAX_VALUE / unit) {
+                    return bytes * unit;
+                }
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        LOGGER.log(Level.WARNING, "Invalid performance report memory budget ''{0}'', using {1} of the heap",
+                new Object[]{value, DEFAULT_BUDGET});
+        return parseBudget(DEFAULT_BUDGET, maxHeap);
+    }
+
+    /**
+     * @return the maximum sum of the estimated sizes of the cached reports in bytes
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return the sum of the estimated sizes of the cached reports in bytes
+     */
+    public long getWeight() {
+        return weight.get();
+    }
+
+    public long getSize() {
+        return cache.size();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long getHitCount() {
+        return getStats().hitCount();
+    }
+
+    public long getMissCount() {
+        return getStats().missCount();
+    }
+
+    /**
+     * @return the percentage of requests that found the report cached, rounded to one decimal
+     */
+    public double getHitPercent() {
+        return Math.round(getStats().hitRate() * 1000) / 10.0;
+    }
+
+    public long getEvictionCount() {
+        return getStats().evictionCount();
+    }
+
+    public long getLoadCount() {
+        return getStats().loadCount();
+    }
+
+    public long getLoadFailureCount() {
+        return getStats().loadExceptionCount();
+    }
+
+    /**
+     * @return the average time of loading a report in milliseconds
+     */
+    public long getAverageLoadMillis() {
+        return TimeUnit.NANOSECONDS.toMillis((long) getStats().averageLoadPenalty());
+    }
+
+    private static final class Entry {
+        final PerformanceReport report;
+        final int weight;
+
+        Entry(PerformanceReport report, int weight) {
+            this.report = report;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Thrown by a loader to tell that there is no report, as Guava caches do not cache absent values.
+     */
+    private static final class NoReportException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        static final NoReportException INSTANCE = new NoReportException();
+
+        private NoReportException() {
+            super(null, null, false, false);
+        }
+    }
+}
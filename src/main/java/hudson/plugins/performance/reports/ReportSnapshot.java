@@ -0,0 +1,470 @@
+package hudson.plugins.performance.reports;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import hudson.plugins.performance.data.DurationHistogram;
+
+/**
+ * Versioned binary snapshot of a parsed {@link PerformanceReport}, stored next to the report file.
+ * <p>
+ * A snapshot starts with a fixed preamble (magic, format version, flags), followed by the aggregates of the
+ * report and a section with the aggregates of each {@link UriReport}. When raw samples were stored, they follow
+ * in one block at the end of the file, so callers that only need aggregates (e.g. trend graphs) can stop
+ * reading before it.
+ * <p>
+ * A build may also have a summary index ({@link #INDEX_FILE_NAME}) with the aggregates of all its reports in
+ * one file, which is all that project level trend graphs need to read per build.
+ */
+public final class ReportSnapshot {
+
+    /**
+     * A suffix to be used for files in which a snapshot of a PerformanceReport is stored.
+     */
+    public static final String FILE_SUFFIX = ".snapshot";
+
+    /**
+     * Suffix of the temporary files snapshots are written to before they replace the target file. Such a file is
+     * left behind only if the process dies while writing, and it is neither a report nor the snapshot of one.
+     */
+    private static final String TEMP_FILE_SUFFIX = FILE_SUFFIX + ".tmp";
+
+    /**
+     * Suffixes of files stored by older versions that contain a serialized PerformanceReport.
+     */
+    private static final String[] LEGACY_FILE_SUFFIXES = new String[]{".serialized", ".serialized-v2"};
+
+    /**
+     * Name of the file in the root directory of a build in which the summary index of its reports is stored.
+     */
+    public static final String INDEX_FILE_NAME = "performance-summary.index";
+
+    private static final int MAGIC = 0x50524653; // "PRFS"
+    private static final int INDEX_MAGIC = 0x50524649; // "PRFI"
+    private static final short VERSION = 1;
+    private static final short FLAG_SAMPLES = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ReportSnapshot() {
+    }
+
+    /**
+     * @return true if the file with the given name is derived from a report file by this plugin (a snapshot or a
+     * serialized report, or a temporary file of either) rather than a report file itself.
+     */
+    public static boolean isDerivedFile(String fileName) {
+        if (fileName.endsWith(FILE_SUFFIX) || fileName.endsWith(TEMP_FILE_SUFFIX)) {
+            return true;
+        }
+        for (String suffix : LEGACY_FILE_SUFFIXES) {
+            if (fileName.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lists the report files in a directory of archived reports. A report whose raw file was not archived, as it was
+     * parsed on an agent, is listed by its snapshot file name without the suffix; the returned file does not exist
+     * then, but the report is loaded from its snapshot all the same.
+     *
+     * @return the report files, or <code>null</code> if the directory cannot be listed
+     */
+    public static File[] listReportFiles(File dir) {
+        final File[] files = dir.listFiles();
+        if (files == null) {
+            return null;
+        }
+        final List<File> reports = new ArrayList<>();
+        for (File file : files) {
+            final String name = file.getName();
+            if (file.isDirectory()) {
+                continue;
+            }
+            if (!isDerivedFile(name)) {
+                reports.add(file);
+            } else if (name.endsWith(FILE_SUFFIX) && name.length() > FILE_SUFFIX.length()) {
+                final File report = new File(dir, name.substring(0, name.length() - FILE_SUFFIX.length()));
+                if (!report.exists()) {
+                    reports.add(report);
+                }
+            }
+        }
+        return reports.toArray(new File[0]);
+    }
+
+    /**
+     * Writes a snapshot of the report, including its raw samples. The file is replaced atomically, so concurrent
+     * readers never see a partially written snapshot.
+     */
+    public static void write(File file, final PerformanceReport report) throws IOException {
+        writeAtomically(file, true, new Writer() {
+            @Override
+            public void write(Output out) throws IOException {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeShort(FLAG_SAMPLES);
+                report.writeSnapshot(out);
+                for (UriReport uriReport : report.getUriReportMap().values()) {
+                    uriReport.writeSamples(out);
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes the summary index of a build: the aggregates of the given reports and their URIs, without samples
+     * and duration histograms. The file is replaced atomically.
+     */
+    public static void writeIndex(File file, final Collection<PerformanceReport> reports) throws IOException {
+        writeAtomically(file, false, new Writer() {
+            @Override
+            public void write(Output out) throws IOException {
+                out.writeInt(INDEX_MAGIC);
+                out.writeShort(VERSION);
+                out.writeInt(reports.size());
+                for (PerformanceReport report : reports) {
+                    report.writeSnapshot(out);
+                }
+            }
+        });
+    }
+
+    private static void writeAtomically(File file, boolean histograms, Writer writer) throws IOException {
+        final Path target = file.toPath();
+        // unlike Files.createTempFile, the file gets the same permissions as the other files of the build
+        final Path temp = File.createTempFile(file.getName() + ".", TEMP_FILE_SUFFIX,
+                file.getAbsoluteFile().getParentFile()).toPath();
+        try {
+            try (Output out = new Output(FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), histograms)) {
+                writer.write(out);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads a snapshot.
+     *
+     * @param file        snapshot file
+     * @param withSamples <code>false</code> to read aggregates only. URIs of the returned report then have no
+     *                    samples, percentiles other than the stored ones cannot be calculated.
+     * @throws IOException if the file cannot be read or is not a snapshot of a supported version
+     */
+    public static PerformanceReport read(File file, boolean withSamples) throws IOException {
+        try (Input in = new Input(FileChannel.open(file.toPath(), StandardOpenOption.READ))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a performance report snapshot: " + file);
+            }
+            final short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported performance report snapshot version " + version + ": " + file);
+            }
+            final short flags = in.readShort();
+
+            final PerformanceReport report = PerformanceReport.readSnapshot(in);
+            if (withSamples && (flags & FLAG_SAMPLES) != 0) {
+                for (UriReport uriReport : report.getUriReportMap().values()) {
+                    uriReport.readSamples(in);
+                }
+            }
+            return report;
+        }
+    }
+
+    /**
+     * Reads a summary index written by {@link #writeIndex(File, Collection)}.
+     *
+     * @return the reports of the index by report file name, in the order they were written
+     * @throws IOException if the file cannot be read or is not an index of a supported version
+     */
+    public static Map<String, PerformanceReport> readIndex(File file) throws IOException {
+        try (Input in = new Input(FileChannel.open(file.toPath(), StandardOpenOption.READ))) {
+            if (in.readInt() != INDEX_MAGIC) {
+                throw new IOException("Not a performance report summary index: " + file);
+            }
+            final short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported performance report summary index version " + version + ": " + file);
+            }
+            final int count = in.readInt();
+            final Map<String, PerformanceReport> reports = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                PerformanceReport report = PerformanceReport.readSnapshot(in);
+                reports.put(report.getReportFileName(), report);
+            }
+            return reports;
+        }
+    }
+
+    private interface Writer {
+        void write(Output out) throws IOException;
+    }
+
+    /**
+     * Buffered big-endian encoder on top of a channel.
+     */
+    static final class Output implements Closeable {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final boolean histograms;
+
+        /**
+         * @param histograms <code>false</code> to write every histogram as absent
+         */
+        Output(WritableByteChannel channel, boolean histograms) {
+            this.channel = channel;
+            this.histograms = histograms;
+        }
+
+        void writeBoolean(boolean value) throws IOException {
+            ensure(1);
+            buffer.put((byte) (value ? 1 : 0));
+        }
+
+        void writeByte(int value) throws IOException {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+
+        void writeShort(int value) throws IOException {
+            ensure(2);
+            buffer.putShort((short) value);
+        }
+
+        void writeInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void writeLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void writeFloat(float value) throws IOException {
+            ensure(4);
+            buffer.putFloat(value);
+        }
+
+        void writeDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        void writeString(String value) throws IOException {
+            if (value == null) {
+                writeInt(-1);
+                return;
+            }
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void writeNullableLong(Long value) throws IOException {
+            writeBoolean(value != null);
+            if (value != null) {
+                writeLong(value);
+            }
+        }
+
+        void writeDate(Date value) throws IOException {
+            writeLong(value == null ? Long.MIN_VALUE : value.getTime());
+        }
+
+        void writePercentiles(Map<Double, Long> values) throws IOException {
+            writeInt(values.size());
+            for (Map.Entry<Double, Long> entry : values.entrySet()) {
+                writeDouble(entry.getKey());
+                writeLong(entry.getValue());
+            }
+        }
+
+        void writeHistogram(DurationHistogram histogram) throws IOException {
+            writeBoolean(histograms && histogram != null);
+            if (!histograms || histogram == null) {
+                return;
+            }
+            int buckets = histogram.getBucketCount();
+            while (buckets > 0 && histogram.getCountAt(buckets - 1) == 0) {
+                buckets--;
+            }
+            writeInt(buckets);
+            for (int i = 0; i < buckets; i++) {
+                writeLong(histogram.getCountAt(i));
+            }
+            writeLong(histogram.getSum());
+            writeLong(histogram.getMin());
+            writeLong(histogram.getMax());
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Buffered big-endian decoder on top of a channel, counterpart of {@link Output}.
+     */
+    static final class Input implements Closeable {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Input(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer.flip();
+        }
+
+        boolean readBoolean() throws IOException {
+            ensure(1);
+            return buffer.get() != 0;
+        }
+
+        byte readByte() throws IOException {
+            ensure(1);
+            return buffer.get();
+        }
+
+        short readShort() throws IOException {
+            ensure(2);
+            return buffer.getShort();
+        }
+
+        int readInt() throws IOException {
+            ensure(4);
+            return buffer.getInt();
+        }
+
+        long readLong() throws IOException {
+            ensure(8);
+            return buffer.getLong();
+        }
+
+        float readFloat() throws IOException {
+            ensure(4);
+            return buffer.getFloat();
+        }
+
+        double readDouble() throws IOException {
+            ensure(8);
+            return buffer.getDouble();
+        }
+
+        String readString() throws IOException {
+            final int length = readInt();
+            if (length < 0) {
+                return null;
+            }
+            final byte[] bytes = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                ensure(1);
+                int chunk = Math.min(buffer.remaining(), length - offset);
+                buffer.get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        Long readNullableLong() throws IOException {
+            return readBoolean() ? readLong() : null;
+        }
+
+        Date readDate() throws IOException {
+            final long time = readLong();
+            return time == Long.MIN_VALUE ? null : new Date(time);
+        }
+
+        Map<Double, Long> readPercentiles() throws IOException {
+            final Map<Double, Long> values = new TreeMap<>();
+            final int size = readInt();
+            for (int i = 0; i < size; i++) {
+                values.put(readDouble(), readLong());
+            }
+            return values;
+        }
+
+        DurationHistogram readHistogram() throws IOException {
+            if (!readBoolean()) {
+                return null;
+            }
+            final long[] counts = new long[readInt()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = readLong();
+            }
+            return new DurationHistogram(counts, readLong(), readLong(), readLong());
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    buffer.flip();
+                    throw new EOFException("Unexpected end of performance report snapshot");
+                }
+            }
+            buffer.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
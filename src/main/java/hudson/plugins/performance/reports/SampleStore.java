@@ -0,0 +1,319 @@
+package hudson.plugins.performance.reports;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import hudson.plugins.performance.data.HttpSample;
+import hudson.plugins.performance.reports.UriReport.Sample;
+
+/**
+ * Columnar storage of {@link Sample}s.
+ * <p>
+ * Timestamps and durations are kept in primitive <code>long</code> chunks, HTTP codes as ids into a table of
+ * distinct codes and the success/summarizer flags as two bits per sample. {@link Sample} objects are only
+ * created on demand by {@link #get(int)}, so the list can still be handed to views that iterate samples.
+ */
+public class SampleStore extends AbstractList<Sample> implements RandomAccess, Serializable {
+
+    private static final long serialVersionUID = -2046498717387211754L;
+
+    private static final int CHUNK_BITS = 13;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Initial size of the first chunk, which doubles until it reaches {@link #CHUNK_SIZE}, so that the many reports
+     * with few samples do not allocate a full chunk each. A multiple of {@link #FLAGS_PER_WORD}.
+     */
+    private static final int FIRST_CHUNK_SIZE = 32;
+
+    /**
+     * Timestamp stored for samples without a date.
+     */
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final int FLAG_SUCCESSFUL = 1;
+    private static final int FLAG_SUMMARIZER = 2;
+    private static final int FLAGS_PER_WORD = Long.SIZE / 2;
+
+    private static final int MAX_HTTP_CODES = 0xFFFF;
+
+    private transient long[][] timestamps;
+    private transient long[][] durations;
+    private transient short[][] httpCodeIds;
+    private transient long[][] flags;
+    private transient int size;
+
+    private transient List<String> httpCodes;
+    private transient Map<String, Integer> httpCodeIndex;
+
+    public SampleStore() {
+        init();
+    }
+
+    public SampleStore(Collection<? extends Sample> samples) {
+        this();
+        addAll(samples);
+    }
+
+    private void init() {
+        timestamps = new long[0][];
+        durations = new long[0][];
+        httpCodeIds = new short[0][];
+        flags = new long[0][];
+        size = 0;
+        httpCodes = new ArrayList<>();
+        httpCodeIndex = new HashMap<>();
+    }
+
+    @Override
+    public boolean add(Sample sample) {
+        add(sample.date == null ? NO_DATE : sample.date.getTime(), sample.duration, sample.httpCode,
+                sample.isSuccessful, sample.isSummarizer);
+        return true;
+    }
+
+    public void add(HttpSample sample) {
+        add(sample.getDate() == null ? NO_DATE : sample.getDate().getTime(), sample.getDuration(), sample.getHttpCode(),
+                sample.isSuccessful(), sample.isSummarizer());
+    }
+
+    public void add(long timestamp, long duration, String httpCode, boolean successful, boolean summarizer) {
+        final int chunk = size >>> CHUNK_BITS;
+        final int offset = size & CHUNK_MASK;
+        ensureCapacity(chunk, offset);
+        timestamps[chunk][offset] = timestamp;
+        durations[chunk][offset] = duration;
+        httpCodeIds[chunk][offset] = (short) httpCodeId(httpCode);
+        setFlags(size, (successful ? FLAG_SUCCESSFUL : 0) | (summarizer ? FLAG_SUMMARIZER : 0));
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Appends all samples of another store, without creating {@link Sample} objects.
+     */
+    public void addAll(SampleStore other) {
+        final int count = other.size;
+        for (int i = 0; i < count; i++) {
+            add(other.getTimestamp(i), other.getDuration(i), other.getHttpCode(i), other.isSuccessful(i),
+                    other.isSummarizer(i));
+        }
+    }
+
+    @Override
+    public Sample get(int index) {
+        checkIndex(index);
+        final long timestamp = getTimestamp(index);
+        return new Sample(timestamp == NO_DATE ? null : new Date(timestamp), getDuration(index), getHttpCode(index),
+                isSuccessful(index), isSummarizer(index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        init();
+        modCount++;
+    }
+
+    /**
+     * @return the start time of the sample in milliseconds since epoch, {@link Long#MIN_VALUE} if it has no date.
+     */
+    public long getTimestamp(int index) {
+        return timestamps[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    public long getDuration(int index) {
+        return durations[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    public String getHttpCode(int index) {
+        return httpCodes.get(httpCodeIds[index >>> CHUNK_BITS][index & CHUNK_MASK] & MAX_HTTP_CODES);
+    }
+
+    public boolean isSuccessful(int index) {
+        return (getFlags(index) & FLAG_SUCCESSFUL) != 0;
+    }
+
+    public boolean isSummarizer(int index) {
+        return (getFlags(index) & FLAG_SUMMARIZER) != 0;
+    }
+
+    public boolean hasDate(int index) {
+        return getTimestamp(index) != NO_DATE;
+    }
+
+    /**
+     * Copies durations into a new array, in insertion order.
+     *
+     * @param excludeFailed skip durations of failed samples that are not summarizer samples
+     */
+    public long[] getDurations(boolean excludeFailed) {
+        long[] result = new long[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (!excludeFailed || isSuccessful(i) || isSummarizer(i)) {
+                result[count++] = getDuration(i);
+            }
+        }
+        return count == size ? result : Arrays.copyOf(result, count);
+    }
+
+    private int getFlags(int index) {
+        final int offset = index & CHUNK_MASK;
+        return (int) (flags[index >>> CHUNK_BITS][offset / FLAGS_PER_WORD] >>> ((offset % FLAGS_PER_WORD) * 2)) & 3;
+    }
+
+    private void setFlags(int index, int bits) {
+        final int offset = index & CHUNK_MASK;
+        flags[index >>> CHUNK_BITS][offset / FLAGS_PER_WORD] |= ((long) bits) << ((offset % FLAGS_PER_WORD) * 2);
+    }
+
+    private int httpCodeId(String httpCode) {
+        Integer id = httpCodeIndex.get(httpCode);
+        if (id == null) {
+            if (httpCodes.size() > MAX_HTTP_CODES) {
+                throw new IllegalStateException("Too many distinct HTTP codes: " + httpCodes.size());
+            }
+            id = httpCodes.size();
+            httpCodes.add(httpCode);
+            httpCodeIndex.put(httpCode, id);
+        }
+        return id;
+    }
+
+    private void ensureCapacity(int chunk, int offset) {
+        if (offset == 0) {
+            grow(chunk);
+        } else if (offset == timestamps[chunk].length) {
+            // only the first chunk is allocated smaller than a full chunk
+            resize(chunk, Math.min(offset * 2, CHUNK_SIZE));
+        }
+    }
+
+    private void grow(int chunk) {
+        if (chunk >= timestamps.length) {
+            int length = Math.max(4, timestamps.length * 2);
+            timestamps = Arrays.copyOf(timestamps, length);
+            durations = Arrays.copyOf(durations, length);
+            httpCodeIds = Arrays.copyOf(httpCodeIds, length);
+            flags = Arrays.copyOf(flags, length);
+        }
+        final int length = (chunk == 0) ? FIRST_CHUNK_SIZE : CHUNK_SIZE;
+        timestamps[chunk] = new long[length];
+        durations[chunk] = new long[length];
+        httpCodeIds[chunk] = new short[length];
+        flags[chunk] = new long[length / FLAGS_PER_WORD];
+    }
+
+    private void resize(int chunk, int length) {
+        timestamps[chunk] = Arrays.copyOf(timestamps[chunk], length);
+        durations[chunk] = Arrays.copyOf(durations[chunk], length);
+        httpCodeIds[chunk] = Arrays.copyOf(httpCodeIds[chunk], length);
+        flags[chunk] = Arrays.copyOf(flags[chunk], length / FLAGS_PER_WORD);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Writes all samples column by column to a snapshot, see {@link ReportSnapshot}.
+     */
+    void writeColumns(ReportSnapshot.Output out) throws IOException {
+        out.writeInt(httpCodes.size());
+        for (String httpCode : httpCodes) {
+            out.writeString(httpCode);
+        }
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(getTimestamp(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeLong(getDuration(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeShort(httpCodeIds[i >>> CHUNK_BITS][i & CHUNK_MASK]);
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeByte(getFlags(i));
+        }
+    }
+
+    /**
+     * Appends samples written by {@link #writeColumns(ReportSnapshot.Output)}.
+     */
+    void readColumns(ReportSnapshot.Input in) throws IOException {
+        final String[] codeTable = new String[in.readInt()];
+        for (int i = 0; i < codeTable.length; i++) {
+            codeTable[i] = in.readString();
+        }
+        final int first = size;
+        final int last = size + in.readInt();
+        for (int i = first; i < last; i++) {
+            ensureCapacity(i >>> CHUNK_BITS, i & CHUNK_MASK);
+            timestamps[i >>> CHUNK_BITS][i & CHUNK_MASK] = in.readLong();
+        }
+        for (int i = first; i < last; i++) {
+            durations[i >>> CHUNK_BITS][i & CHUNK_MASK] = in.readLong();
+        }
+        for (int i = first; i < last; i++) {
+            httpCodeIds[i >>> CHUNK_BITS][i & CHUNK_MASK] = (short) httpCodeId(codeTable[in.readShort() & MAX_HTTP_CODES]);
+        }
+        for (int i = first; i < last; i++) {
+            setFlags(i, in.readByte());
+        }
+        size = last;
+        modCount++;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(httpCodes.size());
+        for (String httpCode : httpCodes) {
+            out.writeObject(httpCode);
+        }
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(getTimestamp(i));
+            out.writeLong(getDuration(i));
+            out.writeShort(httpCodeIds[i >>> CHUNK_BITS][i & CHUNK_MASK]);
+            out.writeByte(getFlags(i));
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        init();
+        final int codes = in.readInt();
+        final String[] codeTable = new String[codes];
+        for (int i = 0; i < codes; i++) {
+            codeTable[i] = (String) in.readObject();
+        }
+        final int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long timestamp = in.readLong();
+            long duration = in.readLong();
+            String httpCode = codeTable[in.readShort() & MAX_HTTP_CODES];
+            int bits = in.readByte();
+            add(timestamp, duration, httpCode, (bits & FLAG_SUCCESSFUL) != 0, (bits & FLAG_SUMMARIZER) != 0);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package hudson.plugins.performance.reports;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+/**
+ * Reduces the points of a scatter chart to the points that can be told apart in the rendered image.
+ * <p>
+ * The range of the points is divided into a grid of cells, one per pixel of the chart or finer, and only the first
+ * point that falls into a cell is kept. Every cell that would show a dot still shows one, so the extremes of every
+ * pixel column are kept as well, while the number of points is bounded by the number of cells whatever the number
+ * of samples.
+ * <p>
+ * Points are given in two passes: {@link #expand(long, long)} for all points to find their range, then
+ * {@link #add(long, long)} for the same points.
+ */
+final class ScatterDownsampler {
+
+    private final int columns;
+    private final int rows;
+
+    private long minX = Long.MAX_VALUE;
+    private long maxX = Long.MIN_VALUE;
+    private long minY = Long.MAX_VALUE;
+    private long maxY = Long.MIN_VALUE;
+
+    private BitSet occupied;
+    private long[] xs = new long[16];
+    private long[] ys = new long[16];
+    private int size;
+    private boolean sorted = true;
+
+    /**
+     * @param columns number of columns of the grid, e.g. the width of the chart in pixels
+     * @param rows    number of rows of the grid, e.g. the height of the chart in pixels
+     */
+    ScatterDownsampler(int columns, int rows) {
+        this.columns = Math.max(1, columns);
+        this.rows = Math.max(1, rows);
+    }
+
+    /**
+     * First pass: includes a point in the range of the grid.
+     */
+    void expand(long x, long y) {
+        minX = Math.min(minX, x);
+        maxX = Math.max(maxX, x);
+        minY = Math.min(minY, y);
+        maxY = Math.max(maxY, y);
+    }
+
+    /**
+     * Second pass: keeps the point if its cell has no point yet. The point must have been passed to
+     * {@link #expand(long, long)}.
+     */
+    void add(long x, long y) {
+        if (occupied == null) {
+            occupied = new BitSet(columns * rows);
+        }
+        final int cell = cell(x, minX, maxX, columns) * rows + cell(y, minY, maxY, rows);
+        if (occupied.get(cell)) {
+            return;
+        }
+        occupied.set(cell);
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+        if (size > 0 && x < xs[size - 1]) {
+            sorted = false;
+        }
+        xs[size] = x;
+        ys[size] = y;
+        size++;
+    }
+
+    private static int cell(long value, long min, long max, int cells) {
+        if (max <= min) {
+            return 0;
+        }
+        // in floating point, as the range times the number of cells may not fit into a long
+        return (int) Math.min(cells - 1, (double) (value - min) / ((double) (max - min) + 1) * cells);
+    }
+
+    /**
+     * @return number of kept points
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return x of the kept point with the given index, the points being ordered by x
+     */
+    long getX(int index) {
+        sort();
+        return xs[index];
+    }
+
+    /**
+     * @return y of the kept point with the given index, the points being ordered by x
+     */
+    long getY(int index) {
+        sort();
+        return ys[index];
+    }
+
+    private void sort() {
+        if (sorted) {
+            return;
+        }
+        final Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        final long[] unsortedXs = xs;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Long.compare(unsortedXs[a], unsortedXs[b]);
+            }
+        });
+        final long[] sortedXs = new long[size];
+        final long[] sortedYs = new long[size];
+        for (int i = 0; i < size; i++) {
+            sortedXs[i] = xs[order[i]];
+            sortedYs[i] = ys[order[i]];
+        }
+        xs = sortedXs;
+        ys = sortedYs;
+        sorted = true;
+    }
+}
@@ -6,6 +6,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -13,8 +14,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListMap;
 
+import com.google.common.primitives.Longs;
 import org.apache.commons.lang.StringUtils;
 import org.jfree.chart.JFreeChart;
 import org.jfree.data.time.FixedMillisecond;
@@ -27,15 +28,18 @@ import org.jfree.data.xy.XYSeriesCollection;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 
+import hudson.model.Job;
 import hudson.model.ModelObject;
 import hudson.model.Run;
+import hudson.plugins.performance.CachedGraph;
+import hudson.plugins.performance.GraphCache;
 import hudson.plugins.performance.Messages;
 import hudson.plugins.performance.actions.PerformanceProjectAction;
+import hudson.plugins.performance.data.DurationHistogram;
 import hudson.plugins.performance.data.HttpSample;
 import hudson.plugins.performance.data.TaurusFinalStats;
 import hudson.plugins.performance.details.GraphConfigurationDetail;
 import hudson.plugins.performance.tools.SafeMaths;
-import hudson.util.Graph;
 
 /**
  * A report about a particular tested URI.
@@ -49,6 +53,17 @@ public class UriReport extends AbstractReport implements Serializable, ModelObje
 
     public final static String END_PERFORMANCE_PARAMETER = ".endperformanceparameter";
 
+    /**
+     * Default size of the graphs of a URI, in pixels.
+     */
+    private static final int GRAPH_WIDTH = 400;
+    private static final int GRAPH_HEIGHT = 200;
+
+    /**
+     * Orders the locks of {@link #merge(UriReport)} for the rare reports whose locks have the same identity hash.
+     */
+    private static final Object MERGE_TIE_LOCK = new Object();
+
     /**
      * Escaped {@link #uri} that doesn't contain any letters that cannot be used
      * as a token in URL.
@@ -71,23 +86,24 @@ public class UriReport extends AbstractReport implements Serializable, ModelObje
 
     /**
      * A list that contains the date and duration (in milliseconds) of all individual samples.
+     * Always a {@link SampleStore}, older serialized reports are converted in {@link #readResolve()}.
      */
-    private final List<Sample> samples = new ArrayList<>(); // retain insertion order.
+    private List<Sample> samples = new SampleStore(); // retain insertion order.
 
     /**
-     * A lazy cache of all duration values in {@link #samples}, insertion order (same as {@link #samples}
+     * Duration statistics of all samples, kept instead of {@link #samples} in streaming statistics mode.
      */
-    private transient List<Long> durationsIO = new ArrayList<>();
+    private DurationHistogram durationHistogram;
 
     /**
-     * A lazy cache of all duration values in {@link #samples}, ordered by duration.
+     * A lazy cache of all duration values in {@link #samples}, insertion order (same as {@link #samples}
      */
-    private transient List<Long> durationsSortedBySize = new ArrayList<>();
+    private transient long[] durationsIO;
 
     /**
-     * Indicates if the collection {@link #durationsSortedBySize} is in a sorted state.
+     * A lazy cache of all duration values in {@link #samples}, ordered by duration.
      */
-    private transient boolean isSorted = false;
+    private transient long[] durationsSortedBySize;
 
     /**
      * The duration of all samples combined, in milliseconds.
@@ -135,6 +151,9 @@ public class UriReport extends AbstractReport implements Serializable, ModelObje
     private double sizeInKb;
 
     public Object readResolve() {
+        if (!(samples instanceof SampleStore)) {
+            samples = new SampleStore(samples);
+        }
         checkPercentileAndSet(0.0, perc0);
         checkPercentileAndSet(50.0, perc50);
         checkPercentileAndSet(90.0, perc90);
@@ -158,8 +177,18 @@ public class UriReport extends AbstractReport implements Serializable, ModelObje
             nbError++;
         }
         synchronized (samples) {
-            if (samples.add(Sample.convertFromHttpSample(sample))) {
-                isSorted = false;
+            if (streamingStatistics) {
+                if (durationHistogram == null) {
+                    durationHistogram = new DurationHistogram();
+                }
+                if (isIncludeResponseTime(sample)) {
+                    durationHistogram.record(sample.getDuration());
+                }
+                samplesCount++;
+            } else {
+                getSampleStore().add(sample);
+                durationsIO = null;
+                durationsSortedBySize = null;
                 samplesCount++;
             }
         }
@@ -171,16 +200,241 @@ public class UriReport extends AbstractReport implements Serializable, ModelObje
         summarizerErrors += sample.getSummarizerErrors();
         sizeInKb += sample.getSizeInKb();
 
-        if (start == null || sample.getDate().before(start)) {
-            start = sample.getDate();
+        // samples may be reused by parsers, so neither their date is kept nor a date is allocated per sample
+        final long time = sample.getDate().getTime();
+        if (start == null || time < start.getTime()) {
+            start = new Date(time);
         }
-        Date finish = new Date(sample.getDate().getTime() + sample.getDuration());
-        if (end == null || finish.after(end)) {
-            end = finish;
+        final long finish = time + sample.getDuration();
+        if (end == null || finish > end.getTime()) {
+            end = new Date(finish);
         }
     }
 
 
+    /**
+     * Adds the samples and aggregates of another report about the same URI to this report, e.g. one parsed from
+     * another part of the same file, one of another load generator or one pre-aggregated on an agent. Samples are
+     * not replayed: counts, sums and duration histograms are combined directly. Once a histogram is merged in,
+     * this report switches to streaming statistics mode.
+     * <p>
+     * Percentiles stay exact as long as both reports kept their durations, as samples or as a histogram. If either
+     * report kept aggregates only, e.g. one read from a summary or one of Taurus final stats, the minimum and maximum
+     * stay exact while the other percentiles and the average are approximated by weighted means, and the merged
+     * report keeps aggregates only as well.
+     */
+    public void merge(UriReport other) {
+        if (other == this) {
+            throw new IllegalArgumentException("A report cannot be merged with itself");
+        }
+        // both reports are locked in the same order whichever is merged into which, so that concurrent merges of
+        // two reports into each other cannot deadlock
+        final int hash = System.identityHashCode(samples);
+        final int otherHash = System.identityHashCode(other.samples);
+        final Object first = (hash < otherHash) ? samples : other.samples;
+        final Object second = (hash < otherHash) ? other.samples : samples;
+        synchronized ((hash == otherHash) ? MERGE_TIE_LOCK : first) {
+            synchronized (first) {
+                synchronized (second) {
+                    mergeLocked(other);
+                }
+            }
+        }
+    }
+
+    private void mergeLocked(UriReport other) {
+        final boolean aggregatesOnly = isAggregatesOnly() || other.isAggregatesOnly();
+        final int count = samplesCount;
+        final int otherCount = other.samplesCount;
+        Long mergedAverage = null;
+        Map<Double, Long> mergedPercentiles = null;
+        long[] mergedLines = null;
+        if (aggregatesOnly) {
+            mergedAverage = weightedMean(getAverage(), count, other.getAverage(), otherCount);
+            mergedPercentiles = mergePercentilesValues(this, other);
+            mergedLines = new long[]{
+                    mergePercentile(ZERO_PERCENT, getMin(), count, other.getMin(), otherCount),
+                    mergePercentile(FIFTY_PERCENT, getMedian(), count, other.getMedian(), otherCount),
+                    mergePercentile(NINETY_PERCENT, get90Line(), count, other.get90Line(), otherCount),
+                    mergePercentile(NINETY_FIVE_PERCENT, get95Line(), count, other.get95Line(), otherCount),
+                    mergePercentile(ONE_HUNDRED_PERCENT, getMax(), count, other.getMax(), otherCount)};
+        } else if (durationHistogram != null || other.durationHistogram != null) {
+            if (durationHistogram == null) {
+                durationHistogram = new DurationHistogram();
+                durationHistogram.recordAll(getDurationArray());
+                streamingStatistics = true;
+            }
+            if (other.durationHistogram != null) {
+                durationHistogram.merge(other.durationHistogram);
+            } else {
+                durationHistogram.recordAll(other.getDurationArray());
+            }
+        }
+        if (aggregatesOnly) {
+            getSampleStore().clear();
+            durationHistogram = null;
+        } else if (streamingStatistics || other.streamingStatistics) {
+            // the durations are in the histogram, the samples are not kept in streaming statistics mode
+            streamingStatistics = true;
+            getSampleStore().clear();
+        } else {
+            getSampleStore().addAll(other.getSampleStore());
+        }
+        samplesCount += other.samplesCount;
+        durationsIO = null;
+        durationsSortedBySize = null;
+
+        nbError += other.nbError;
+        totalDuration += other.totalDuration;
+        httpCodes.addAll(other.httpCodes);
+        summarizerSize += other.summarizerSize;
+        summarizerErrors += other.summarizerErrors;
+        sizeInKb += other.sizeInKb;
+        if (other.start != null && (start == null || other.start.before(start))) {
+            start = other.start;
+        }
+        if (other.end != null && (end == null || other.end.after(end))) {
+            end = other.end;
+        }
+        if (other.throughput != null) {
+            throughput = (throughput == null) ? other.throughput : (throughput + other.throughput);
+        }
+
+        if (aggregatesOnly) {
+            average = mergedAverage;
+            perc0 = mergedLines[0];
+            perc50 = mergedLines[1];
+            perc90 = mergedLines[2];
+            perc95 = mergedLines[3];
+            perc100 = mergedLines[4];
+            setMergedPercentilesValues(mergedPercentiles);
+        } else {
+            // reset the lazy calculated values.
+            average = null;
+            perc0 = null;
+            perc50 = null;
+            perc90 = null;
+            perc95 = null;
+            perc100 = null;
+            resetPercentiles();
+        }
+    }
+
+    /**
+     * Resolves the percentiles of this URI from a distribution of its durations that a load generator reported, e.g.
+     * the latency percentiles of wrk, instead of from the durations of its samples. Later samples are recorded into
+     * the distribution, as in streaming statistics mode.
+     */
+    void setDurationDistribution(DurationHistogram durations) {
+        synchronized (samples) {
+            durationHistogram = durations;
+            // the durations are in the histogram, the samples are not kept in streaming statistics mode
+            streamingStatistics = true;
+            getSampleStore().clear();
+            durationsIO = null;
+            durationsSortedBySize = null;
+            perc0 = null;
+            perc50 = null;
+            perc90 = null;
+            perc95 = null;
+            perc100 = null;
+            resetPercentiles();
+        }
+    }
+
+    /**
+     * @return <code>true</code> if this report has samples but kept neither their durations nor a histogram of them
+     */
+    boolean isAggregatesOnly() {
+        synchronized (samples) {
+            return samplesCount > 0 && samples.isEmpty() && durationHistogram == null;
+        }
+    }
+
+    /**
+     * Writes the aggregates of this report to a snapshot, see {@link ReportSnapshot}.
+     */
+    void writeSnapshot(ReportSnapshot.Output out) throws IOException {
+        synchronized (samples) {
+            out.writeString(staplerUri);
+            out.writeString(uri);
+            out.writeBoolean(excludeResponseTime);
+            out.writeBoolean(showTrendGraphs);
+            out.writeBoolean(streamingStatistics);
+            out.writeInt(nbError);
+            out.writeLong(totalDuration);
+            out.writeInt(httpCodes.size());
+            for (String httpCode : httpCodes) {
+                out.writeString(httpCode);
+            }
+            out.writeLong(summarizerSize);
+            out.writeFloat(summarizerErrors);
+            out.writeDate(start);
+            out.writeDate(end);
+            out.writeLong(getAverage());
+            out.writeLong(getMin());
+            out.writeLong(getMedian());
+            out.writeLong(get90Line());
+            out.writeLong(get95Line());
+            out.writeLong(getMax());
+            out.writeNullableLong(throughput);
+            out.writeInt(samplesCount);
+            out.writeString(percentiles);
+            out.writeDouble(sizeInKb);
+            out.writePercentiles(getPercentilesValues());
+            out.writeHistogram(durationHistogram);
+        }
+    }
+
+    static UriReport readSnapshot(PerformanceReport performanceReport, ReportSnapshot.Input in) throws IOException {
+        final UriReport report = new UriReport(performanceReport, in.readString(), in.readString());
+        report.excludeResponseTime = in.readBoolean();
+        report.showTrendGraphs = in.readBoolean();
+        report.streamingStatistics = in.readBoolean();
+        report.nbError = in.readInt();
+        report.totalDuration = in.readLong();
+        final int httpCodesCount = in.readInt();
+        for (int i = 0; i < httpCodesCount; i++) {
+            report.httpCodes.add(in.readString());
+        }
+        report.summarizerSize = in.readLong();
+        report.summarizerErrors = in.readFloat();
+        report.start = in.readDate();
+        report.end = in.readDate();
+        report.average = in.readLong();
+        report.perc0 = in.readLong();
+        report.perc50 = in.readLong();
+        report.perc90 = in.readLong();
+        report.perc95 = in.readLong();
+        report.perc100 = in.readLong();
+        report.throughput = in.readNullableLong();
+        report.samplesCount = in.readInt();
+        report.percentiles = in.readString();
+        report.sizeInKb = in.readDouble();
+        report.percentilesValues.putAll(in.readPercentiles());
+        report.isCalculatedPercentilesValues = true;
+        report.calculateDiffPercentiles();
+        report.durationHistogram = in.readHistogram();
+        return report;
+    }
+
+    /**
+     * Writes the raw samples of this report to a snapshot, see {@link ReportSnapshot}.
+     */
+    void writeSamples(ReportSnapshot.Output out) throws IOException {
+        synchronized (samples) {
+            getSampleStore().writeColumns(out);
+        }
+    }
+
+    void readSamples(ReportSnapshot.Input in) throws IOException {
+        synchronized (samples) {
+            getSampleStore().readColumns(in);
+            durationsIO = null;
+            durationsSortedBySize = null;
+        }
+    }
+
     public void setFromTaurusFinalStats(TaurusFinalStats report) {
         average = (long) report.getAverageResponseTime();
         perc0 = (long) report.getPerc0();
@@ -247,23 +501,27 @@ public class UriReport extends AbstractReport implements Serializable, ModelObje
         }
 
         synchronized (samples) {
-            final List<Long> durations = getSortedDuration();
+            if (durationHistogram != null) {
+                return durationHistogram.getValueAtPercentile(percentage);
+            }
 
-            if (durations.isEmpty()) {
+            final long[] durations = getSortedDurationArray();
+
+            if (durations.length == 0) {
                 return 0;
             }
 
             final double percentInDecimals = percentage / 100;
-            int indexToReturn = ((int) (durationsSortedBySize.size() * percentInDecimals)) - 1;
+            int indexToReturn = ((int) (durations.length * percentInDecimals)) - 1;
 
             // Make sure a valid index is used.
             if (indexToReturn < 0) {
                 indexToReturn = 0;
-            } else if (indexToReturn >= durationsSortedBySize.size()) {
-                indexToReturn = durationsSortedBySize.size() - 1;
+            } else if (indexToReturn >= durations.length) {
+                indexToReturn = durations.length - 1;
             }
 
-            return durations.get(indexToReturn);
+            return durations[indexToReturn];
         }
     }
 
@@ -329,42 +587,53 @@ public class UriReport extends AbstractReport implements Serializable, ModelObje
         return samples;
     }
 
+    /**
+     * @return duration statistics in streaming statistics mode or the distribution reported by a load generator,
+     * <code>null</code> if all samples are retained.
+     */
+    public DurationHistogram getDurationHistogram() {
+        return durationHistogram;
+    }
+
     public PerformanceReport getPerformanceReport() {
         return performanceReport;
     }
 
     protected List<Long> getSortedDuration() {
-        synchronized (samples) {
-            if (!isSorted || durationsSortedBySize == null || durationsSortedBySize.size() != samples.size()) {
+        return Collections.unmodifiableList(Longs.asList(getSortedDurationArray()));
+    }
 
-                durationsSortedBySize = new ArrayList<>(samplesCount());
-                for (Sample sample : samples) {
-                    if (isIncludeResponseTime(sample)) {
-                        durationsSortedBySize.add(sample.duration);
-                    }
-                }
-                Collections.sort(durationsSortedBySize);
-                isSorted = true;
+    private long[] getSortedDurationArray() {
+        synchronized (samples) {
+            if (durationsSortedBySize == null) {
+                long[] durations = getDurationArray().clone();
+                Arrays.sort(durations);
+                durationsSortedBySize = durations;
             }
-
             return durationsSortedBySize;
         }
     }
 
     public List<Long> getDurations() {
+        return Collections.unmodifiableList(Longs.asList(getDurationArray()));
+    }
+
+    /**
+     * @return all included duration values in insertion order. The returned array is shared and must not be modified.
+     */
+    long[] getDurationArray() {
         synchronized (samples) {
-            if (durationsIO == null || durationsIO.size() != samples.size()) {
-                durationsIO = new ArrayList<>(samples.size());
-                for (Sample sample : samples) {
-                    if (isIncludeResponseTime(sample)) {
-                        durationsIO.add(sample.duration);
-                    }
-                }
+            if (durationsIO == null) {
+                durationsIO = getSampleStore().getDurations(excludeResponseTime);
             }
             return durationsIO;
         }
     }
 
+    private SampleStore getSampleStore() {
+        return (SampleStore) samples;
+    }
+
     public long getMax() {
         if (perc100 == null) {
             perc100 = getDurationAt(ONE_HUNDRED_PERCENT);
@@ -476,14 +745,11 @@ public class UriReport extends AbstractReport implements Serializable, ModelObje
     }
 
     public void doSummarizerTrendGraph(StaplerRequest request, StaplerResponse response) throws IOException {
-        TimeSeries responseTimes = new TimeSeries(Messages.ProjectAction_RespondingTime());
-        synchronized (samples) {
-            for (Sample sample : samples) {
-                if (isIncludeResponseTime(sample)) {
-                    responseTimes.addOrUpdate(new FixedMillisecond(sample.date), sample.duration);
-                }
-            }
+        final String graphKey = GraphCache.key(getGraphJob(), "uri.responseTimes", request);
+        if (GraphCache.getInstance().serve(graphKey, request, response)) {
+            return;
         }
+        TimeSeries responseTimes = createDurationSeries(Messages.ProjectAction_RespondingTime(), false, request);
 
         TimeSeriesCollection resp = new TimeSeriesCollection();
         resp.addSeries(responseTimes);
@@ -491,7 +757,7 @@ public class UriReport extends AbstractReport implements Serializable, ModelObje
         ArrayList<XYDataset> dataset = new ArrayList<>();
         dataset.add(resp);
 
-        new Graph(-1, 400, 200) {
+        new CachedGraph(graphKey, GRAPH_WIDTH, GRAPH_HEIGHT) {
             @Override
             protected JFreeChart createGraph() {
                 return PerformanceProjectAction.createSummarizerTrend(dataset, uri);
@@ -500,19 +766,16 @@ public class UriReport extends AbstractReport implements Serializable, ModelObje
     }
 
     public void doErrorGraph(StaplerRequest request, StaplerResponse response) throws IOException {
-        TimeSeries errors = new TimeSeries(Messages.ProjectAction_Errors());
-        synchronized (samples) {
-            for (Sample sample : samples) {
-                if (sample.isFailed() && !sample.isSummarizer()) {
-                    errors.addOrUpdate(new FixedMillisecond(sample.date), sample.duration);
-                }
-            }
+        final String graphKey = GraphCache.key(getGraphJob(), "uri.errors", request);
+        if (GraphCache.getInstance().serve(graphKey, request, response)) {
+            return;
         }
+        TimeSeries errors = createDurationSeries(Messages.ProjectAction_Errors(), true, request);
         ArrayList<XYDataset> dataset = new ArrayList<>();
         dataset.add(new TimeSeriesCollection(errors));
 
         // Re-use the same scatter plotter for error response times:
-        new Graph(-1, 400, 200) {
+        new CachedGraph(graphKey, GRAPH_WIDTH, GRAPH_HEIGHT) {
             @Override
             protected JFreeChart createGraph() {
                 return PerformanceProjectAction.createSummarizerTrend(dataset, uri);
@@ -520,29 +783,73 @@ public class UriReport extends AbstractReport implements Serializable, ModelObje
         }.doPng(request, response);
     }
 
-    public void doPercentileGraph(StaplerRequest request, StaplerResponse response) throws IOException {
-        final ConcurrentSkipListMap<Long, Long> responseTimesHistogram = new ConcurrentSkipListMap<>(); // we want keys in sorted order
-        long totalNoOfSamples = 0L;
+    /**
+     * Creates the series of a scatter chart of sample durations over time. Only the samples that can be told apart
+     * in an image of the requested size are added, see {@link ScatterDownsampler}, so that the chart is rendered
+     * in the same time whatever the number of samples.
+     *
+     * @param errors true for the failed samples, false for the samples whose response time is included
+     */
+    private TimeSeries createDurationSeries(String name, boolean errors, StaplerRequest request) {
+        final ScatterDownsampler downsampler = new ScatterDownsampler(
+                GraphCache.getRequestedSize(request, "width", GRAPH_WIDTH),
+                GraphCache.getRequestedSize(request, "height", GRAPH_HEIGHT));
         synchronized (samples) {
-            for (Sample sample : samples) {
-                if (isIncludeResponseTime(sample)) {
-                    totalNoOfSamples++;
-                    // count number of sample occurrences with the same response time value:
-                    responseTimesHistogram.put(sample.duration,
-                            responseTimesHistogram.containsKey(sample.duration) ? responseTimesHistogram.get(sample.duration) + 1 : 1);
+            final SampleStore store = getSampleStore();
+            for (int i = 0; i < store.size(); i++) {
+                if (isIncludedInDurationSeries(store, i, errors)) {
+                    downsampler.expand(store.getTimestamp(i), store.getDuration(i));
                 }
             }
+            for (int i = 0; i < store.size(); i++) {
+                if (isIncludedInDurationSeries(store, i, errors)) {
+                    downsampler.add(store.getTimestamp(i), store.getDuration(i));
+                }
+            }
+        }
+        final TimeSeries series = new TimeSeries(name);
+        for (int i = 0; i < downsampler.size(); i++) {
+            series.addOrUpdate(new FixedMillisecond(downsampler.getX(i)), downsampler.getY(i));
+        }
+        return series;
+    }
+
+    private boolean isIncludedInDurationSeries(SampleStore store, int index, boolean errors) {
+        if (!store.hasDate(index)) {
+            return false;
+        }
+        return errors ? !store.isSuccessful(index) && !store.isSummarizer(index)
+                : isIncludeResponseTime(store.isSuccessful(index), store.isSummarizer(index));
+    }
+
+    /**
+     * @return the job whose graphs include this URI, or <code>null</code>
+     */
+    private Job<?, ?> getGraphJob() {
+        final Run<?, ?> build = getBuild();
+        return build != null ? build.getParent() : null;
+    }
+
+    public void doPercentileGraph(StaplerRequest request, StaplerResponse response) throws IOException {
+        final String graphKey = GraphCache.key(getGraphJob(), "uri.percentiles", request);
+        if (GraphCache.getInstance().serve(graphKey, request, response)) {
+            return;
         }
+        final long[] durations = getSortedDurationArray(); // we want durations in sorted order
+        final int totalNoOfSamples = durations.length;
         XYSeries percentiles = new XYSeries(Messages.TrendReportDetail_ResponseTimePercentiles());
-        long cumulativeTotal = 0; // adds up the running total number of samples for percentile calculation
-        percentiles.add(0, responseTimesHistogram.firstKey()); // add 0th percentile (minimum response time)
+        if (totalNoOfSamples > 0) {
+            percentiles.add(0, durations[0]); // add 0th percentile (minimum response time)
+        }
 
-        for (Map.Entry<Long, Long> responseTimeOccurrence : responseTimesHistogram.entrySet()) {
-            cumulativeTotal += responseTimeOccurrence.getValue();
-            percentiles.addOrUpdate((double) 100.0 * cumulativeTotal / totalNoOfSamples, (double) responseTimeOccurrence.getKey()); // float value will result in smoother curve
+        for (int i = 0; i < totalNoOfSamples; i++) {
+            // only the last occurrence of the same response time value is plotted
+            if (i + 1 == totalNoOfSamples || durations[i + 1] != durations[i]) {
+                percentiles.addOrUpdate((double) 100.0 * (i + 1) / totalNoOfSamples, (double) durations[i]); // float value will result in smoother curve
+            }
         }
 
-        new Graph(-1, 400, 200) {
+        new CachedGraph(graphKey, GRAPH_WIDTH, GRAPH_HEIGHT) {
             @Override
             protected JFreeChart createGraph() {
                 return PerformanceProjectAction.createUriPercentileChart(new XYSeriesCollection(percentiles), uri);
@@ -551,11 +858,16 @@ public class UriReport extends AbstractReport implements Serializable, ModelObje
     }
 
     public void doThroughputGraph(StaplerRequest request, StaplerResponse response) throws IOException {
+        final String graphKey = GraphCache.key(getGraphJob(), "uri.throughput", request);
+        if (GraphCache.getInstance().serve(graphKey, request, response)) {
+            return;
+        }
         final Map<Minute, Long> throughputIntervals = new HashMap<>();
         synchronized (samples) {
-            for (Sample sample : samples) {
-                if (isIncludeResponseTime(sample)) {
-                    Minute timeBucket = new Minute(sample.date);
+            final SampleStore store = getSampleStore();
+            for (int i = 0; i < store.size(); i++) {
+                if (isIncludeResponseTime(store.isSuccessful(i), store.isSummarizer(i))) {
+                    Minute timeBucket = new Minute(new Date(store.getTimestamp(i)));
                     // count number of samples in the same time bucket
                     throughputIntervals.put(timeBucket,
                             throughputIntervals.containsKey(timeBucket) ? throughputIntervals.get(timeBucket) + 1 : 1);
@@ -567,7 +879,7 @@ public class UriReport extends AbstractReport implements Serializable, ModelObje
             throughput.add(timeBucket.getKey(), timeBucket.getValue());
         }
 
-        new Graph(-1, 400, 200) {
+        new CachedGraph(graphKey, GRAPH_WIDTH, GRAPH_HEIGHT) {
             @Override
             protected JFreeChart createGraph() {
                 return PerformanceProjectAction.createUriThroughputChart(new TimeSeriesCollection(throughput), uri);
@@ -585,7 +897,11 @@ public class UriReport extends AbstractReport implements Serializable, ModelObje
 
 
     protected boolean isIncludeResponseTime(Sample sample) {
-        return !(sample.isFailed() && excludeResponseTime && !sample.isSummarizer());
+        return isIncludeResponseTime(sample.isSuccessful(), sample.isSummarizer());
+    }
+
+    private boolean isIncludeResponseTime(boolean successful, boolean summarizer) {
+        return successful || !excludeResponseTime || summarizer;
     }
 
     public static class Sample implements Serializable, Comparable<Sample> {
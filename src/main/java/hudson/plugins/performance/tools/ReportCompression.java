@@ -0,0 +1,126 @@
+package hudson.plugins.performance.tools;
+
+import hudson.FilePath;
+import hudson.remoting.Channel;
+import hudson.remoting.RemoteOutputStream;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Transparent gzip compression of report files. Compressed files are recognized by their content rather than by
+ * their name, so a report file that is archived compressed keeps the name of the original file, and parsers read
+ * compressed and plain files alike. Compressed files in the workspace, e.g. <code>results.jtl.gz</code>, are
+ * archived without the suffix.
+ */
+public final class ReportCompression {
+
+    public static final String GZIP_SUFFIX = ".gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ReportCompression() {
+    }
+
+    /**
+     * @return true if the file starts with the gzip magic bytes
+     */
+    public static boolean isCompressed(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return isGzipHeader(in);
+        }
+    }
+
+    private static boolean isGzipHeader(InputStream in) throws IOException {
+        return in.read() == 0x1f && in.read() == 0x8b;
+    }
+
+    /**
+     * Opens a buffered stream of the report file, which decompresses the file if it is compressed.
+     */
+    public static InputStream open(File file) throws IOException {
+        final InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        try {
+            in.mark(2);
+            final boolean compressed = isGzipHeader(in);
+            in.reset();
+            return compressed ? new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE) : in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a UTF-8 reader of the report file, see {@link #open(File)}.
+     */
+    public static BufferedReader openReader(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(open(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the name under which a report file is archived, i.e. the file name without {@link #GZIP_SUFFIX}
+     */
+    public static String getArchiveName(String fileName) {
+        if (fileName.endsWith(GZIP_SUFFIX) && fileName.length() > GZIP_SUFFIX.length()) {
+            return fileName.substring(0, fileName.length() - GZIP_SUFFIX.length());
+        }
+        return fileName;
+    }
+
+    /**
+     * Copies a report file to the given file, compressing it on the agent that holds it, so that only compressed
+     * data is transferred. Files that are compressed already are copied as they are.
+     */
+    public static void copyCompressed(FilePath src, File target) throws IOException, InterruptedException {
+        try (OutputStream out = new FilePath(target).write()) {
+            src.act(new CompressCallable(new RemoteOutputStream(out)));
+            // the writes to the remote stream are asynchronous, wait until all of them are delivered to the
+            // file before it is closed, as FilePath.copyTo(OutputStream) does
+            final VirtualChannel channel = src.getChannel();
+            if (channel instanceof Channel) {
+                ((Channel) channel).syncLocalIO();
+            }
+        }
+    }
+
+    private static final class CompressCallable extends MasterToSlaveFileCallable<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final OutputStream out;
+
+        CompressCallable(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public Void invoke(File file, VirtualChannel channel) throws IOException {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)) {
+                in.mark(2);
+                final boolean compressed = isGzipHeader(in);
+                in.reset();
+                if (compressed) {
+                    try (OutputStream target = out) {
+                        in.transferTo(target);
+                    }
+                } else {
+                    try (GZIPOutputStream target = new GZIPOutputStream(out, BUFFER_SIZE)) {
+                        in.transferTo(target);
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
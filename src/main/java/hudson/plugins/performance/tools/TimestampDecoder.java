@@ -0,0 +1,412 @@
+package hudson.plugins.performance.tools;
+
+import java.text.ParsePosition;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Decodes timestamps of report files into epoch milliseconds. The format of a file is detected once, from its first
+ * timestamp, with {@link #detect(String)}; the returned decoder then decodes all other timestamps of the file.
+ * <p>
+ * Decoders are thread safe and can be shared by parser threads. Like {@link java.text.SimpleDateFormat} in lenient
+ * mode, which parsers used before, pattern decoders accept fields out of their range (e.g. month 13 is January of
+ * the next year) and ignore text after the timestamp, and they decode date and time in the default time zone.
+ */
+public abstract class TimestampDecoder {
+
+    /**
+     * Patterns of the date and time formats that {@link #detect(String)} recognizes, in the order they are tried.
+     * Timestamps that match none of them are decoded as epoch milliseconds. The last pattern replaces
+     * <code>yyyy/mm/dd HH:mm:ss</code> of older versions, which read the minutes into the month field.
+     */
+    public static final List<String> PATTERNS = Collections.unmodifiableList(Arrays.asList(
+            "yyyy/MM/dd HH:mm:ss.SSS", "yyyy-MM-dd HH:mm:ss.SSS", "yyyy-MM-dd HH:mm:ss,SSS", "yyyy/MM/dd HH:mm:ss"));
+
+    public static final TimestampDecoder EPOCH_MILLIS = new EpochMillisDecoder();
+
+    /**
+     * Returned by {@link #tryDecode(String)} for timestamps the decoder cannot decode.
+     */
+    protected static final long NO_MATCH = Long.MIN_VALUE;
+
+    private static volatile List<TimestampDecoder> defaultDecoders;
+
+    /**
+     * @return the epoch milliseconds of the timestamp, or {@link #NO_MATCH} if the timestamp is not in the format
+     * of this decoder. Must not throw for timestamps in other formats, as detection tries every decoder.
+     */
+    protected abstract long tryDecode(String timestamp);
+
+    /**
+     * @return the epoch milliseconds of the timestamp
+     * @throws IllegalArgumentException if the timestamp is not in the format of this decoder
+     */
+    public long decode(String timestamp) {
+        final long millis = (timestamp != null) ? tryDecode(timestamp) : NO_MATCH;
+        if (millis == NO_MATCH) {
+            throw unsupported(timestamp);
+        }
+        return millis;
+    }
+
+    /**
+     * Detects the format of the timestamp among {@link #PATTERNS} and epoch milliseconds.
+     *
+     * @return a decoder of timestamps in the format of the given one
+     * @throws IllegalArgumentException if the timestamp is in none of these formats
+     */
+    public static TimestampDecoder detect(String timestamp) {
+        return detect(timestamp, getDefaultDecoders());
+    }
+
+    /**
+     * @param candidates decoders to try, in order
+     * @return the first of the candidates that can decode the timestamp
+     * @throws IllegalArgumentException if none of them can
+     */
+    public static TimestampDecoder detect(String timestamp, List<? extends TimestampDecoder> candidates) {
+        if (timestamp != null) {
+            for (TimestampDecoder candidate : candidates) {
+                if (candidate.tryDecode(timestamp) != NO_MATCH) {
+                    return candidate;
+                }
+            }
+        }
+        throw unsupported(timestamp);
+    }
+
+    /**
+     * Creates a decoder of timestamps of the given pattern in the default time zone, see
+     * {@link #ofPattern(String, ZoneId)}.
+     */
+    public static TimestampDecoder ofPattern(String pattern) {
+        return ofPattern(pattern, ZoneId.systemDefault());
+    }
+
+    /**
+     * Creates a decoder of timestamps of the given pattern. Patterns consist of the numeric fields <code>y</code>
+     * (year), <code>M</code> (month), <code>d</code> (day of month), <code>H</code> (hour of day), <code>m</code>
+     * (minute), <code>s</code> (second) and <code>S</code> (millisecond), separated by other characters, which are
+     * matched literally.
+     *
+     * @throws IllegalArgumentException if the pattern contains other letters
+     */
+    public static TimestampDecoder ofPattern(String pattern, ZoneId zone) {
+        return new PatternDecoder(pattern, zone);
+    }
+
+    private static List<TimestampDecoder> getDefaultDecoders() {
+        final ZoneId zone = ZoneId.systemDefault();
+        List<TimestampDecoder> decoders = defaultDecoders;
+        if (decoders == null || !((PatternDecoder) decoders.get(0)).zone.equals(zone)) {
+            decoders = new ArrayList<>();
+            for (String pattern : PATTERNS) {
+                decoders.add(new PatternDecoder(pattern, zone));
+            }
+            decoders.add(EPOCH_MILLIS);
+            defaultDecoders = decoders;
+        }
+        return decoders;
+    }
+
+    private static IllegalArgumentException unsupported(String timestamp) {
+        return new IllegalArgumentException("Cannot parse timestamp: " + timestamp
+                + ". Please, use one of supported formats: " + PATTERNS + " or epoch milliseconds");
+    }
+
+    private static final class EpochMillisDecoder extends TimestampDecoder {
+        @Override
+        protected long tryDecode(String timestamp) {
+            final int length = timestamp.length();
+            final boolean negative = length > 0 && timestamp.charAt(0) == '-';
+            int i = (negative || (length > 0 && timestamp.charAt(0) == '+')) ? 1 : 0;
+            if (i == length) {
+                return NO_MATCH;
+            }
+            long value = 0;
+            for (; i < length; i++) {
+                final int digit = timestamp.charAt(i) - '0';
+                if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                    return NO_MATCH;
+                }
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+
+        @Override
+        public String toString() {
+            return "epoch milliseconds";
+        }
+    }
+
+    /**
+     * Decodes timestamps with fields of the width given by the pattern directly from the characters. Other
+     * timestamps, e.g. with single digit months, are tokenized by a lenient {@link DateTimeFormatter}.
+     */
+    private static final class PatternDecoder extends TimestampDecoder {
+        private static final int SECONDS_PER_DAY = 86400;
+
+        private static final long DAYS_0000_TO_1970 = 146097L * 5 - (30L * 365 + 7);
+
+        private final String pattern;
+
+        private final ZoneId zone;
+
+        private final ZoneRules rules;
+
+        private final DateTimeFormatter formatter;
+
+        /**
+         * The offset of the last decoded timestamp and the range of local times it applies to. Replaced, never
+         * modified, so that threads sharing the decoder see consistent windows.
+         */
+        private volatile OffsetWindow window;
+
+        PatternDecoder(String pattern, ZoneId zone) {
+            this.pattern = pattern;
+            this.zone = zone;
+            this.rules = zone.getRules();
+            final DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder();
+            int i = 0;
+            while (i < pattern.length()) {
+                final char c = pattern.charAt(i);
+                int end = i + 1;
+                if (Character.isLetter(c)) {
+                    while (end < pattern.length() && pattern.charAt(end) == c) {
+                        end++;
+                    }
+                    if (end < pattern.length() && Character.isLetter(pattern.charAt(end))) {
+                        // adjacent fields can only be told apart by their width
+                        builder.appendValue(getField(c), end - i);
+                    } else {
+                        builder.appendValue(getField(c), 1, 10, SignStyle.NOT_NEGATIVE);
+                    }
+                } else {
+                    builder.appendLiteral(c);
+                }
+                i = end;
+            }
+            this.formatter = builder.toFormatter(Locale.ROOT);
+        }
+
+        private ChronoField getField(char letter) {
+            switch (letter) {
+                case 'y':
+                    return ChronoField.YEAR;
+                case 'M':
+                    return ChronoField.MONTH_OF_YEAR;
+                case 'd':
+                    return ChronoField.DAY_OF_MONTH;
+                case 'H':
+                    return ChronoField.HOUR_OF_DAY;
+                case 'm':
+                    return ChronoField.MINUTE_OF_HOUR;
+                case 's':
+                    return ChronoField.SECOND_OF_MINUTE;
+                case 'S':
+                    return ChronoField.MILLI_OF_SECOND;
+                default:
+                    throw new IllegalArgumentException("Unsupported letter '" + letter + "' in timestamp pattern "
+                            + pattern);
+            }
+        }
+
+        @Override
+        protected long tryDecode(String timestamp) {
+            final long millis = decodeFixedWidth(timestamp);
+            return (millis != NO_MATCH) ? millis : decodeLenient(timestamp);
+        }
+
+        private long decodeFixedWidth(String timestamp) {
+            final int length = pattern.length();
+            if (timestamp.length() < length || (timestamp.length() > length && isDigit(timestamp.charAt(length)))) {
+                return NO_MATCH;
+            }
+            long year = 1970;
+            long month = 1;
+            long day = 1;
+            long hour = 0;
+            long minute = 0;
+            long second = 0;
+            long milli = 0;
+            int i = 0;
+            while (i < length) {
+                final char p = pattern.charAt(i);
+                if (!Character.isLetter(p)) {
+                    if (timestamp.charAt(i) != p) {
+                        return NO_MATCH;
+                    }
+                    i++;
+                    continue;
+                }
+                long value = 0;
+                for (; i < length && pattern.charAt(i) == p; i++) {
+                    final char c = timestamp.charAt(i);
+                    if (!isDigit(c)) {
+                        return NO_MATCH;
+                    }
+                    value = value * 10 + (c - '0');
+                }
+                switch (p) {
+                    case 'y':
+                        year = value;
+                        break;
+                    case 'M':
+                        month = value;
+                        break;
+                    case 'd':
+                        day = value;
+                        break;
+                    case 'H':
+                        hour = value;
+                        break;
+                    case 'm':
+                        minute = value;
+                        break;
+                    case 's':
+                        second = value;
+                        break;
+                    default:
+                        milli = value;
+                        break;
+                }
+            }
+            return toEpochMillis(year, month, day, hour, minute, second, milli);
+        }
+
+        private long decodeLenient(String timestamp) {
+            final ParsePosition position = new ParsePosition(0);
+            final TemporalAccessor parsed = formatter.parseUnresolved(timestamp, position);
+            if (parsed == null || position.getErrorIndex() >= 0) {
+                return NO_MATCH;
+            }
+            return toEpochMillis(get(parsed, ChronoField.YEAR, 1970), get(parsed, ChronoField.MONTH_OF_YEAR, 1),
+                    get(parsed, ChronoField.DAY_OF_MONTH, 1), get(parsed, ChronoField.HOUR_OF_DAY, 0),
+                    get(parsed, ChronoField.MINUTE_OF_HOUR, 0), get(parsed, ChronoField.SECOND_OF_MINUTE, 0),
+                    get(parsed, ChronoField.MILLI_OF_SECOND, 0));
+        }
+
+        private static long get(TemporalAccessor parsed, ChronoField field, long defaultValue) {
+            return parsed.isSupported(field) ? parsed.getLong(field) : defaultValue;
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+
+        /**
+         * Fields out of their range carry over to the next larger field, as in a lenient calendar.
+         */
+        private long toEpochMillis(long year, long month, long day, long hour, long minute, long second, long milli) {
+            if (year > 999999) {
+                return NO_MATCH;
+            }
+            final long months = year * 12 + month - 1;
+            final long epochDay = firstDayOfMonth(Math.floorDiv(months, 12), (int) Math.floorMod(months, 12) + 1)
+                    + day - 1;
+            final long localSeconds = epochDay * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+            return (localSeconds - getOffsetSeconds(localSeconds)) * 1000 + milli;
+        }
+
+        /**
+         * Same as {@link java.time.LocalDate#toEpochDay()} of the first day of the month.
+         */
+        private static long firstDayOfMonth(long year, int month) {
+            long days = 365 * year;
+            if (year >= 0) {
+                days += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+            } else {
+                days -= year / -4 - year / -100 + year / -400;
+            }
+            days += (367 * month - 362) / 12;
+            if (month > 2) {
+                days--;
+                if (!isLeapYear(year)) {
+                    days--;
+                }
+            }
+            return days - DAYS_0000_TO_1970;
+        }
+
+        private static boolean isLeapYear(long year) {
+            return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+        }
+
+        private int getOffsetSeconds(long localSeconds) {
+            OffsetWindow current = window;
+            if (current == null || localSeconds < current.from || localSeconds >= current.to) {
+                current = OffsetWindow.of(rules, localSeconds);
+                if (current == null) {
+                    // in a gap or an overlap at a transition, which is too rare to be cached
+                    final LocalDateTime local = LocalDateTime.ofEpochSecond(localSeconds, 0, ZoneOffset.UTC);
+                    return (int) (localSeconds - local.atZone(zone).toEpochSecond());
+                }
+                window = current;
+            }
+            return current.offset;
+        }
+
+        @Override
+        public String toString() {
+            return pattern;
+        }
+    }
+
+    /**
+     * A range of local times, in seconds since the local epoch, that have one and the same offset.
+     */
+    private static final class OffsetWindow {
+        final long from;
+
+        final long to;
+
+        final int offset;
+
+        private OffsetWindow(long from, long to, int offset) {
+            this.from = from;
+            this.to = to;
+            this.offset = offset;
+        }
+
+        /**
+         * @return the window of the given local time, or <code>null</code> if the local time is in a gap or an
+         * overlap, i.e. has no or two offsets
+         */
+        static OffsetWindow of(ZoneRules rules, long localSeconds) {
+            if (rules.isFixedOffset()) {
+                return new OffsetWindow(Long.MIN_VALUE, Long.MAX_VALUE,
+                        rules.getOffset(Instant.EPOCH).getTotalSeconds());
+            }
+            final List<ZoneOffset> offsets = rules.getValidOffsets(
+                    LocalDateTime.ofEpochSecond(localSeconds, 0, ZoneOffset.UTC));
+            if (offsets.size() != 1) {
+                return null;
+            }
+            final int offset = offsets.get(0).getTotalSeconds();
+            final Instant instant = Instant.ofEpochSecond(localSeconds - offset);
+            // local times right after a transition are ambiguous or do not exist, up to the larger of both offsets
+            final ZoneOffsetTransition previous = rules.previousTransition(instant.plusSeconds(1));
+            final long from = (previous == null) ? Long.MIN_VALUE : previous.toEpochSecond()
+                    + Math.max(previous.getOffsetBefore().getTotalSeconds(), previous.getOffsetAfter().getTotalSeconds());
+            final ZoneOffsetTransition next = rules.nextTransition(instant);
+            final long to = (next == null) ? Long.MAX_VALUE : next.toEpochSecond()
+                    + Math.min(next.getOffsetBefore().getTotalSeconds(), next.getOffsetAfter().getTotalSeconds());
+            return new OffsetWindow(from, to, offset);
+        }
+    }
+}
@@ -42,6 +42,8 @@ public abstract class AbstractGraphGenerationTest {
 
     @BeforeEach
     public void baseSetup() throws Exception {
+        // the mocked requests of all tests have the same URL
+        GraphCache.getInstance().invalidateAll();
         report = JMeterTestHelper.parse("/JMeterResults.jtl");
         report.setBuildAction(performanceBuildAction);
         when(build.getDisplayName()).thenReturn("mock");
@@ -52,6 +54,7 @@ public abstract class AbstractGraphGenerationTest {
         when(performanceBuildAction.getParserByDisplayName("JmeterSummarizer")).thenReturn(null);
         when(performanceBuildAction.getParserByDisplayName("Iago")).thenReturn(null);
         when(reportMap.getPerformanceReport("JMeterResults.jtl")).thenReturn(report);
+        when(performanceBuildAction.getPerformanceReportSummary("JMeterResults.jtl")).thenReturn(report);
     }
 
     protected void setGraphType(String graphType) {
@@ -0,0 +1,68 @@
+package hudson.plugins.performance;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GraphCacheTest {
+
+    @Test
+    void testKeys() {
+        final String key = GraphCache.key("folder/job", "trend.errors", "/job/folder/job/job/performance/errorsGraph",
+                "width=300", "1..10/1");
+        assertEquals(key, GraphCache.key("folder/job", "trend.errors", "/job/folder/job/job/performance/errorsGraph",
+                "width=300", "1..10/1"));
+        assertNotEquals(key, GraphCache.key("folder/job", "trend.errors", "/job/folder/job/job/performance/errorsGraph",
+                "width=900", "1..10/1"));
+        assertNotEquals(key, GraphCache.key("folder/job", "trend.errors", "/job/folder/job/job/performance/errorsGraph",
+                "width=300", "5..10/1"));
+    }
+
+    @Test
+    void testInvalidatesImagesOfJob() {
+        final GraphCache cache = new GraphCache(1 << 20);
+        final String a = GraphCache.key("a", "trend.errors", "/job/a/performance/errorsGraph", null);
+        final String ab = GraphCache.key("ab", "trend.errors", "/job/ab/performance/errorsGraph", null);
+        cache.put(a, new byte[]{1, 2, 3});
+        cache.put(ab, new byte[]{4, 5});
+        assertEquals(5, cache.getBytes());
+
+        cache.invalidate("a");
+        assertNull(cache.getIfPresent(a));
+        assertNotNull(cache.getIfPresent(ab));
+        assertEquals(2, cache.getBytes());
+    }
+
+    @Test
+    void testEvictsBySize() {
+        final GraphCache cache = new GraphCache(1000);
+        for (int i = 0; i < 10; i++) {
+            cache.put("job\ngraph" + i, new byte[300]);
+        }
+        assertTrue(cache.getBytes() <= 1000);
+        assertTrue(cache.getSize() < 10);
+    }
+
+    @Test
+    void testNotModified() {
+        final GraphCache.Image image = new GraphCache.Image(new byte[]{1, 2, 3}, 1500000000500L);
+        // the same image rendered again has the same tag
+        assertEquals(image.etag, new GraphCache.Image(new byte[]{1, 2, 3}, 1600000000000L).etag);
+        assertNotEquals(image.etag, new GraphCache.Image(new byte[]{1, 2, 4}, 1500000000500L).etag);
+
+        assertTrue(image.isNotModified(image.etag, -1));
+        assertTrue(image.isNotModified("\"other\", " + image.etag, -1));
+        assertTrue(image.isNotModified("*", -1));
+        assertFalse(image.isNotModified("\"other\"", 1600000000000L));
+
+        assertTrue(image.isNotModified(null, 1500000000000L));
+        assertTrue(image.isNotModified(null, 1600000000000L));
+        assertFalse(image.isNotModified(null, 1499999999000L));
+        assertFalse(image.isNotModified(null, -1));
+    }
+}
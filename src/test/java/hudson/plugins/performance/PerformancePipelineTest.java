@@ -1,6 +1,9 @@
 package hudson.plugins.performance;
 
 import hudson.model.Result;
+import hudson.plugins.performance.actions.PerformanceBuildAction;
+import hudson.plugins.performance.actions.ReportResidencyManager;
+import hudson.plugins.performance.reports.PerformanceReport;
 import hudson.slaves.DumbSlave;
 import org.apache.commons.io.IOUtils;
 import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
@@ -12,6 +15,12 @@ import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
 
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @WithJenkins
 class PerformancePipelineTest {
@@ -63,4 +72,29 @@ class PerformancePipelineTest {
         rule.assertLogContains("File test.xml reported 1.625% of errors [FAILURE]. Build status is: FAILURE", r);
     }
 
+    @Test
+    void perfReportStepsShareSummaryIndex(JenkinsRule rule) throws Exception {
+        final String report = IOUtils.toString(getClass().getResource("/TaurusXMLReport.xml"), StandardCharsets.UTF_8);
+
+        WorkflowJob p = rule.createProject(WorkflowJob.class, "steps");
+        p.setDefinition(new CpsFlowDefinition(
+                "node{ writeFile file: 'a.xml', text:  + report + ; perfReport sourceDataFiles: 'a.xml'; "
+                        + "writeFile file: 'b.xml', text:  + report + ; perfReport sourceDataFiles: 'b.xml' }",
+                true));
+        WorkflowRun r = rule.buildAndAssertSuccess(p);
+
+        PerformanceBuildAction action = r.getAction(PerformanceBuildAction.class);
+        assertNotNull(action);
+        // read the aggregates from the summary index instead of the reports in memory
+        ReportResidencyManager.getInstance().evictAll();
+
+        Set<String> names = new HashSet<>();
+        for (PerformanceReport performanceReport : action.getPerformanceReportSummaries()) {
+            names.add(performanceReport.getReportFileName());
+        }
+        assertEquals(new HashSet<>(Arrays.asList("a.xml", "b.xml")), names);
+        assertNotNull(action.getPerformanceReportSummary("a.xml"));
+        assertNotNull(action.getPerformanceReportSummary("b.xml"));
+    }
+
 }
@@ -0,0 +1,183 @@
+package hudson.plugins.performance.actions;
+
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.plugins.performance.PerformanceReportMap;
+import hudson.plugins.performance.data.HttpSample;
+import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.reports.PerformanceReportTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReportResidencyManagerTest {
+
+    private static PerformanceReportMap createReportMap(int samples) {
+        final PerformanceReport report = new PerformanceReport(PerformanceReportTest.DEFAULT_PERCENTILES);
+        final HttpSample sample = new HttpSample();
+        sample.setUri("/home");
+        sample.setSuccessful(true);
+        sample.setHttpCode("200");
+        for (int i = 0; i < samples; i++) {
+            sample.setDate(new Date(i));
+            sample.setDuration(i);
+            report.addSample(sample);
+        }
+        final PerformanceReportMap reportMap = mock(PerformanceReportMap.class);
+        when(reportMap.getPerformanceReportMap()).thenReturn(Collections.singletonMap("results.jtl", report));
+        return reportMap;
+    }
+
+    private static Callable<PerformanceReportMap> loader(final PerformanceReportMap reportMap,
+                                                         final AtomicInteger loads) {
+        return new Callable<PerformanceReportMap>() {
+            @Override
+            public PerformanceReportMap call() {
+                loads.incrementAndGet();
+                return reportMap;
+            }
+        };
+    }
+
+    @Test
+    void testGetLoadsOnce() {
+        final ReportResidencyManager residency = new ReportResidencyManager(1 << 20);
+        final PerformanceBuildAction action = mock(PerformanceBuildAction.class);
+        final PerformanceReportMap reportMap = createReportMap(10);
+        final AtomicInteger loads = new AtomicInteger();
+
+        assertNull(residency.getIfPresent(action));
+        assertSame(reportMap, residency.get(action, loader(reportMap, loads)));
+        assertSame(reportMap, residency.get(action, loader(reportMap, loads)));
+        assertSame(reportMap, residency.getIfPresent(action));
+        assertEquals(1, loads.get());
+
+        final PerformanceBuildAction other = mock(PerformanceBuildAction.class);
+        assertNull(residency.get(other, loader(null, loads)));
+        assertNull(residency.getIfPresent(other));
+
+        residency.evict(action);
+        assertNull(residency.getIfPresent(action));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedBuilds() {
+        final PerformanceReportMap reportMap = createReportMap(1000);
+        final long size = ReportResidencyManager.estimateSize(reportMap);
+        final ReportResidencyManager residency = new ReportResidencyManager(3 * size);
+        final AtomicInteger loads = new AtomicInteger();
+
+        final PerformanceBuildAction[] actions = new PerformanceBuildAction[4];
+        for (int i = 0; i < actions.length; i++) {
+            actions[i] = mock(PerformanceBuildAction.class);
+        }
+        residency.get(actions[0], loader(reportMap, loads));
+        residency.get(actions[1], loader(reportMap, loads));
+        residency.get(actions[2], loader(reportMap, loads));
+        residency.getIfPresent(actions[0]);
+        residency.get(actions[3], loader(reportMap, loads));
+
+        assertEquals(3, residency.getSize());
+        assertEquals(1, residency.getEvictionCount());
+        assertSame(reportMap, residency.getIfPresent(actions[0]));
+        assertNull(residency.getIfPresent(actions[1]));
+
+        // an evicted build is loaded again
+        assertSame(reportMap, residency.get(actions[1], loader(reportMap, loads)));
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    void testConcurrentReadsOfOneBuild() throws Exception {
+        final ReportResidencyManager residency = new ReportResidencyManager(1 << 20);
+        final PerformanceBuildAction action = mock(PerformanceBuildAction.class);
+        final PerformanceReportMap reportMap = createReportMap(10);
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Callable<PerformanceReportMap> slowLoad = new Callable<PerformanceReportMap>() {
+                @Override
+                public PerformanceReportMap call() throws Exception {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    assertTrue(release.await(10, TimeUnit.SECONDS));
+                    return reportMap;
+                }
+            };
+            final Callable<PerformanceReportMap> get = new Callable<PerformanceReportMap>() {
+                @Override
+                public PerformanceReportMap call() {
+                    return residency.get(action, slowLoad);
+                }
+            };
+            final Future<PerformanceReportMap> first = executor.submit(get);
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            final Future<PerformanceReportMap> second = executor.submit(get);
+
+            // other builds load while the first one is still loading
+            final PerformanceBuildAction other = mock(PerformanceBuildAction.class);
+            assertSame(reportMap, executor.submit(new Callable<PerformanceReportMap>() {
+                @Override
+                public PerformanceReportMap call() {
+                    return residency.get(other, loader(reportMap, new AtomicInteger()));
+                }
+            }).get(10, TimeUnit.SECONDS));
+
+            release.countDown();
+            assertSame(reportMap, first.get(10, TimeUnit.SECONDS));
+            assertSame(reportMap, second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testInvalidateDeletedBuildsAndJobs() {
+        final ReportResidencyManager residency = new ReportResidencyManager(1 << 20);
+        final PerformanceReportMap reportMap = createReportMap(10);
+        final AtomicInteger loads = new AtomicInteger();
+        final Job job = mock(Job.class);
+        final Run run = mock(Run.class);
+        when(run.getParent()).thenReturn(job);
+
+        // two perfReport steps of one build
+        final PerformanceBuildAction first = mock(PerformanceBuildAction.class);
+        final PerformanceBuildAction second = mock(PerformanceBuildAction.class);
+        when(first.getBuild()).thenReturn(run);
+        when(second.getBuild()).thenReturn(run);
+        when(run.getActions(PerformanceBuildAction.class)).thenReturn(Arrays.asList(first, second));
+        final PerformanceBuildAction other = mock(PerformanceBuildAction.class);
+
+        residency.get(first, loader(reportMap, loads));
+        residency.get(second, loader(reportMap, loads));
+        residency.get(other, loader(reportMap, loads));
+        residency.invalidate(run);
+        assertNull(residency.getIfPresent(first));
+        assertNull(residency.getIfPresent(second));
+        assertSame(reportMap, residency.getIfPresent(other));
+
+        residency.get(first, loader(reportMap, loads));
+        residency.invalidate(job);
+        assertNull(residency.getIfPresent(first));
+        assertSame(reportMap, residency.getIfPresent(other));
+    }
+}
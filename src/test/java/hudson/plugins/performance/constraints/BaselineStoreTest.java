@@ -0,0 +1,120 @@
+package hudson.plugins.performance.constraints;
+
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.plugins.performance.actions.PerformanceBuildAction;
+import hudson.plugins.performance.constraints.AbstractConstraint.Metric;
+import hudson.plugins.performance.reports.PerformanceReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BaselineStoreTest {
+
+    private static final BaselineStore.Key KEY = new BaselineStore.Key("result.jtl", null, Metric.AVERAGE);
+
+    private static final int ALL = BaselineStore.UNSTABLE | BaselineStore.FAILED;
+
+    private Job<?, ?> job;
+    private Run<?, ?>[] builds;
+    private PerformanceBuildAction[] actions;
+    private BaselineStore.JobBaselines baselines;
+
+    @BeforeEach
+    void setUp() {
+        job = mock(Job.class);
+        builds = new Run<?, ?>[7];
+        actions = new PerformanceBuildAction[7];
+        final Result[] results = {null, Result.SUCCESS, Result.FAILURE, Result.SUCCESS, Result.UNSTABLE,
+                Result.SUCCESS, Result.SUCCESS};
+        for (int i = 1; i <= 6; i++) {
+            builds[i] = mock(Run.class);
+            when(builds[i].getNumber()).thenReturn(i);
+            when(builds[i].getTimeInMillis()).thenReturn(1000L * i);
+            when(builds[i].getResult()).thenReturn(results[i]);
+            doReturn(builds[i - 1]).when(builds[i]).getPreviousCompletedBuild();
+            doReturn(builds[i]).when(job).getBuildByNumber(i);
+            if (i != 3) {
+                // build 3 has no performance reports
+                final PerformanceReport report = mock(PerformanceReport.class);
+                when(report.getAverage()).thenReturn(10L * i);
+                actions[i] = mock(PerformanceBuildAction.class);
+                when(actions[i].getPerformanceReportSummary("result.jtl")).thenReturn(report);
+                when(builds[i].getAction(PerformanceBuildAction.class)).thenReturn(actions[i]);
+            }
+        }
+        doReturn(builds[5]).when(job).getLastCompletedBuild();
+        baselines = new BaselineStore.JobBaselines(job);
+    }
+
+    @Test
+    void testPreviousBuilds() {
+        final BaselineStore.Baseline baseline = baselines.getPrevious(KEY, ALL, 6, 3);
+        assertEquals(3, baseline.getBuilds());
+        assertEquals(2, baseline.getMeasuredBuilds());
+        assertEquals(90, baseline.getSum(), 0);
+        assertEquals(45, baseline.getMean(), 0);
+        assertEquals(25, baseline.getVariance(), 0.000001);
+        assertEquals(Collections.singletonList(3), baseline.getMissingBuilds());
+
+        final BaselineStore.Baseline successful = baselines.getPrevious(KEY, 0, 6, -1);
+        assertEquals(3, successful.getBuilds());
+        assertEquals(60, successful.getSum(), 0);
+
+        final BaselineStore.Baseline older = baselines.getPrevious(KEY, ALL, 3, 5);
+        assertEquals(2, older.getBuilds());
+        assertEquals(30, older.getSum(), 0);
+    }
+
+    @Test
+    void testReadsOnlyComparedBuilds() {
+        assertEquals(50, baselines.getPrevious(KEY, ALL, 6, 1).getSum(), 0);
+        verify(builds[4], never()).getPreviousCompletedBuild();
+        verify(actions[4], never()).getPerformanceReportSummary("result.jtl");
+
+        assertEquals(90, baselines.getPrevious(KEY, ALL, 6, 3).getSum(), 0);
+        verify(builds[2], never()).getPreviousCompletedBuild();
+        verify(actions[2], never()).getPerformanceReportSummary("result.jtl");
+        verify(actions[5], times(1)).getPerformanceReportSummary("result.jtl");
+
+        assertEquals(20, baselines.getTimeframe(KEY, ALL, 6, 2000, 2000).getSum(), 0);
+        verify(actions[1], never()).getPerformanceReportSummary("result.jtl");
+    }
+
+    @Test
+    void testTimeframe() {
+        final BaselineStore.Baseline baseline = baselines.getTimeframe(KEY, ALL, 6, 2000, 4000);
+        assertEquals(3, baseline.getBuilds());
+        assertEquals(60, baseline.getSum(), 0);
+        assertEquals(Arrays.asList(3), baseline.getMissingBuilds());
+
+        assertEquals(0, baselines.getTimeframe(KEY, ALL, 6, 7000, 9000).getBuilds());
+        assertEquals(2, baselines.getTimeframe(KEY, BaselineStore.FAILED, 6, 0, 2500).getMeasuredBuilds());
+    }
+
+    @Test
+    void testAddsCompletedBuilds() {
+        assertEquals(120, baselines.getPrevious(KEY, ALL, 7, -1).getSum(), 0);
+        assertEquals(60, baselines.getPrevious(KEY, 0, 7, -1).getSum(), 0);
+
+        doReturn(builds[6]).when(job).getLastCompletedBuild();
+        baselines.add(builds[6]);
+        assertEquals(110, baselines.getPrevious(KEY, ALL, 7, 2).getSum(), 0);
+        assertEquals(120, baselines.getPrevious(KEY, 0, 7, -1).getSum(), 0);
+
+        // the series are extended, not read again
+        verify(actions[1], times(2)).getPerformanceReportSummary("result.jtl");
+        verify(actions[6], times(2)).getPerformanceReportSummary("result.jtl");
+    }
+}
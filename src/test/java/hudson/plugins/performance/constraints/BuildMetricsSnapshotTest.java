@@ -0,0 +1,63 @@
+package hudson.plugins.performance.constraints;
+
+import hudson.model.AbstractBuild;
+import hudson.plugins.performance.actions.PerformanceBuildAction;
+import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.reports.UriReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BuildMetricsSnapshotTest {
+
+    @Mock
+    AbstractBuild<?, ?> build;
+    @Mock
+    AbstractBuild<?, ?> buildWithoutReports;
+    @Mock
+    PerformanceBuildAction action;
+    @Mock
+    PerformanceReport report;
+    @Mock
+    UriReport uriReport;
+
+    @Test
+    void testLoadsReportsOncePerBuild() {
+        when(build.getAction(PerformanceBuildAction.class)).thenReturn(action);
+        when(action.getPerformanceReportSummaries()).thenReturn(Collections.singletonList(report));
+        when(report.getReportFileName()).thenReturn("result.jtl");
+        when(report.getUriListOrdered()).thenReturn(Arrays.asList(uriReport));
+        when(uriReport.getUri()).thenReturn("/login");
+
+        final BuildMetricsSnapshot snapshot = new BuildMetricsSnapshot();
+        final BuildMetricsSnapshot.BuildMetrics metrics = snapshot.get(build);
+        assertSame(metrics, snapshot.get(build));
+        assertSame(report, metrics.getReport("result.jtl"));
+        assertNull(metrics.getReport("other.jtl"));
+        assertSame(uriReport, metrics.getUriReport("result.jtl", "/login"));
+        assertSame(uriReport, metrics.getUriReport("result.jtl", "/login"));
+        assertNull(metrics.getUriReport("result.jtl", "/logout"));
+
+        verify(action, times(1)).getPerformanceReportSummaries();
+        verify(report, times(1)).getUriListOrdered();
+    }
+
+    @Test
+    void testBuildWithoutReports() {
+        final BuildMetricsSnapshot snapshot = new BuildMetricsSnapshot();
+        assertNull(snapshot.get(buildWithoutReports));
+        assertNull(snapshot.get(buildWithoutReports));
+        verify(buildWithoutReports, times(1)).getAction(PerformanceBuildAction.class);
+    }
+}
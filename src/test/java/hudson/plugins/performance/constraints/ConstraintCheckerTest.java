@@ -397,6 +397,11 @@ class ConstraintCheckerTest {
         when(this.performanceReportMap2.getPerformanceListOrdered()).thenReturn(performanceReportList2);
         when(this.performanceReportMap3.getPerformanceListOrdered()).thenReturn(performanceReportList3);
 
+        when(this.performanceBuildAction0.getPerformanceReportSummaries()).thenReturn(performanceReportList0);
+        when(this.performanceBuildAction1.getPerformanceReportSummaries()).thenReturn(performanceReportList1);
+        when(this.performanceBuildAction2.getPerformanceReportSummaries()).thenReturn(performanceReportList2);
+        when(this.performanceBuildAction3.getPerformanceReportSummaries()).thenReturn(performanceReportList3);
+
         when(this.performanceReportMap0.getPerformanceReport("testResult0.xml")).thenReturn(performanceReport0_0);
         when(this.performanceReportMap0.getPerformanceReport("testResult1.xml")).thenReturn(performanceReport0_1);
 
@@ -0,0 +1,84 @@
+package hudson.plugins.performance.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DurationHistogramTest {
+
+    @Test
+    void testEmpty() {
+        DurationHistogram histogram = new DurationHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(90));
+    }
+
+    @Test
+    void testSmallValuesAreExact() {
+        DurationHistogram histogram = new DurationHistogram();
+        for (long i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(1, histogram.getValueAtPercentile(0));
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(90, histogram.getValueAtPercentile(90));
+        assertEquals(95, histogram.getValueAtPercentile(95));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void testLargeValuesWithinOnePercent() {
+        Random random = new Random(42);
+        DurationHistogram histogram = new DurationHistogram();
+        List<Long> durations = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            long duration = (long) Math.abs(random.nextGaussian() * 50000);
+            durations.add(duration);
+            histogram.record(duration);
+        }
+        Collections.sort(durations);
+
+        for (double percentage : new double[]{1, 50, 90, 95, 99.9}) {
+            long expected = durations.get((int) (durations.size() * percentage / 100) - 1);
+            long actual = histogram.getValueAtPercentile(percentage);
+            assertTrue(Math.abs(expected - actual) <= expected / 100, percentage + "%: " + expected + " vs " + actual);
+        }
+        assertEquals(durations.get(0).longValue(), histogram.getValueAtPercentile(0));
+        assertEquals(durations.get(durations.size() - 1).longValue(), histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void testMerge() {
+        DurationHistogram first = new DurationHistogram();
+        DurationHistogram second = new DurationHistogram();
+        first.record(10);
+        first.record(20);
+        second.record(30);
+        second.record(1000000);
+
+        first.merge(second);
+
+        assertEquals(4, first.getCount());
+        assertEquals(1000060, first.getSum());
+        assertEquals(10, first.getMin());
+        assertEquals(1000000, first.getMax());
+        assertEquals(20, first.getValueAtPercentile(50));
+    }
+
+    @Test
+    void testInvalidPercentage() {
+        DurationHistogram histogram = new DurationHistogram();
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+    }
+}
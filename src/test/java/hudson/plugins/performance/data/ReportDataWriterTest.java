@@ -0,0 +1,110 @@
+package hudson.plugins.performance.data;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import hudson.plugins.performance.actions.PerformanceBuildAction;
+import hudson.plugins.performance.parsers.PerformanceReportParser;
+import hudson.plugins.performance.reports.PerformanceReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportDataWriterTest {
+
+    private PerformanceReport report;
+
+    @BeforeEach
+    void setUp() {
+        report = new PerformanceReport("0,50,90,99.9,100");
+        report.setReportFileName("result.jtl");
+        report.setBuildAction(new PerformanceBuildAction(null, null, Collections.<PerformanceReportParser>emptyList()));
+        final long start = 1500000000000L;
+        for (int i = 0; i < 10; i++) {
+            report.addSample(sample("/login", start + i * 100, 10 * (i + 1), i != 9));
+            report.addSample(sample("/search", start + i * 100, 100, true));
+        }
+    }
+
+    private static HttpSample sample(String uri, long date, long duration, boolean successful) {
+        final HttpSample sample = new HttpSample();
+        sample.setUri(uri);
+        sample.setDate(new Date(date));
+        sample.setDuration(duration);
+        sample.setSuccessful(successful);
+        sample.setHttpCode(successful ? "200" : "500");
+        return sample;
+    }
+
+    private static JsonObject write(ReportDataWriter writer, PerformanceReport report) throws IOException {
+        final StringWriter json = new StringWriter();
+        final JsonWriter out = new JsonWriter(json);
+        writer.writeReport(out, report);
+        out.flush();
+        return JsonParser.parseString(json.toString()).getAsJsonObject();
+    }
+
+    @Test
+    void testWritesAllFields() throws IOException {
+        final JsonObject json = write(new ReportDataWriter(ReportDataWriter.parseFields(null),
+                Collections.<String>emptySet()), report);
+
+        assertEquals("result.jtl", json.get("name").getAsString());
+        assertEquals(20, json.get("samples").getAsInt());
+        assertEquals(1, json.get("errors").getAsInt());
+        assertEquals(5.0, json.get("errorPercent").getAsDouble());
+        assertEquals(100, json.getAsJsonObject("percentiles").get("50").getAsLong());
+        assertTrue(json.getAsJsonObject("percentiles").has("99.9"));
+        assertTrue(json.has("throughput"));
+        assertTrue(json.has("totalTrafficKb"));
+        assertFalse(json.has("uris"));
+    }
+
+    @Test
+    void testWritesRequestedFieldsAndUris() throws IOException {
+        final JsonObject json = write(new ReportDataWriter(ReportDataWriter.parseFields("average, samples"),
+                ReportDataWriter.parseUris(new String[]{"_search", "_unknown"})), report);
+
+        assertEquals(4, json.size());
+        assertTrue(json.has("average"));
+        final JsonArray uris = json.getAsJsonArray("uris");
+        assertEquals(1, uris.size());
+        final JsonObject uri = uris.get(0).getAsJsonObject();
+        assertEquals("/search", uri.get("uri").getAsString());
+        assertEquals("_search", uri.get("key").getAsString());
+        assertEquals(100, uri.get("average").getAsLong());
+        assertEquals(10, uri.get("samples").getAsInt());
+        assertEquals(4, uri.size());
+    }
+
+    @Test
+    void testWritesAllUrisOrderedByKey() throws IOException {
+        final JsonObject json = write(new ReportDataWriter(ReportDataWriter.parseFields("errors"),
+                ReportDataWriter.parseUris(new String[]{ReportDataWriter.ALL_URIS})), report);
+
+        final JsonArray uris = json.getAsJsonArray("uris");
+        assertEquals(2, uris.size());
+        assertEquals("_login", uris.get(0).getAsJsonObject().get("key").getAsString());
+        assertEquals(1, uris.get(0).getAsJsonObject().get("errors").getAsInt());
+        assertEquals("_search", uris.get(1).getAsJsonObject().get("key").getAsString());
+    }
+
+    @Test
+    void testRejectsUnknownFieldsAndLimits() {
+        assertThrows(IllegalArgumentException.class, () -> ReportDataWriter.parseFields("average,mean"));
+        assertThrows(IllegalArgumentException.class, () -> ReportDataWriter.parseLimit("0", 20, 200));
+        assertThrows(IllegalArgumentException.class, () -> ReportDataWriter.parseLimit("many", 20, 200));
+        assertEquals(20, ReportDataWriter.parseLimit(null, 20, 200));
+        assertEquals(200, ReportDataWriter.parseLimit("5000", 20, 200));
+    }
+}
@@ -6,7 +6,6 @@ import hudson.model.FreeStyleProject;
 import hudson.model.Project;
 import hudson.model.Run;
 import hudson.plugins.performance.PerformancePublisher;
-import hudson.plugins.performance.PerformanceReportMap;
 import hudson.plugins.performance.actions.PerformanceBuildAction;
 import hudson.plugins.performance.actions.PerformanceProjectAction;
 import hudson.plugins.performance.data.HttpSample;
@@ -52,8 +51,6 @@ public class TestSuiteReportDetailTest {
     @Mock
     PerformancePublisher publisher;
     @Mock
-    PerformanceReportMap reportMap;
-    @Mock
     PerformanceBuildAction buildAction;
     @Mock
     PerformanceReport report;
@@ -98,8 +95,7 @@ public class TestSuiteReportDetailTest {
         run.number = 1;
         when(run.getAction(PerformanceBuildAction.class)).thenReturn(buildAction);
         when(project.getPublishersList()).thenReturn(publishers);
-        when(buildAction.getPerformanceReportMap()).thenReturn(reportMap);
-        when(reportMap.getPerformanceReport(FILENAME)).thenReturn(report);
+        when(buildAction.getPerformanceReportSummary(FILENAME)).thenReturn(report);
         when(report.getUriReportMap()).thenReturn(uriReportMap);
 
         final TestSuiteReportDetail reportDetail = new TestSuiteReportDetail(project, FILENAME, alwaysInRangeMock());
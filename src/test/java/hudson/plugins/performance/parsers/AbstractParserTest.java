@@ -1,16 +1,33 @@
 package hudson.plugins.performance.parsers;
 
+import hudson.FilePath;
 import hudson.plugins.performance.reports.PerformanceReport;
+import hudson.plugins.performance.reports.PerformanceReportTest;
+import hudson.plugins.performance.reports.ReportSnapshot;
+import hudson.util.StreamTaskListener;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class AbstractParserTest {
 
+    @TempDir
+    File tempDir;
+
     @Test
     void testDeserialized() throws Exception {
         File serializedFile = new File(getClass().getResource("/results.v.2.0.jtl.serialized").toURI());
@@ -45,4 +62,69 @@ class AbstractParserTest {
         assertEquals(100, report.getMin());
         assertEquals(468, report.getMax());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testParseConcurrently() throws Exception {
+        List<File> files = new ArrayList<>();
+        for (String name : new String[]{"JMeterCsvResults.csv", "JMeterCsvResults2.csv", "JMeterCsvResults3.csv"}) {
+            File file = new File(tempDir, name);
+            Files.copy(new File(getClass().getResource("/" + name).toURI()).toPath(), file.toPath());
+            files.add(file);
+        }
+        File invalidFile = new File(tempDir, "invalid.csv");
+        Files.write(invalidFile.toPath(), "no,samples\nin,here\n".getBytes(StandardCharsets.UTF_8));
+        files.add(1, invalidFile);
+
+        JMeterCsvParser parser = new JMeterCsvParser(null, PerformanceReportTest.DEFAULT_PERCENTILES);
+        parser.setParseWorkers(4);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        Collection<PerformanceReport> reports = parser.parse(null, files, new StreamTaskListener(log, StandardCharsets.UTF_8));
+
+        List<String> names = new ArrayList<>();
+        for (PerformanceReport report : reports) {
+            names.add(report.getReportFileName());
+            // every file uses another date format
+            assertEquals(3, report.samplesCount());
+        }
+        assertEquals(Arrays.asList("JMeterCsvResults.csv", "JMeterCsvResults2.csv", "JMeterCsvResults3.csv"), names);
+
+        // the output of each file is printed in the order of the files
+        String output = log.toString(StandardCharsets.UTF_8);
+        int previous = -1;
+        for (File file : files) {
+            int index = output.indexOf("Parsing report file '" + file + "'");
+            assertTrue(index > previous, output);
+            previous = index;
+        }
+        assertTrue(output.indexOf("Failed to parse file '" + invalidFile + "'") < output.indexOf("Parsing report file '" + files.get(2) + "'"), output);
+    }
+
+    @Test
+    void testParseOnAgent() throws Exception {
+        File workspace = new File(tempDir, "workspace");
+        File src = new File(workspace, "JMeterCsvResults.csv");
+        assertTrue(workspace.mkdirs());
+        Files.copy(new File(getClass().getResource("/JMeterCsvResults.csv").toURI()).toPath(), src.toPath());
+        File reportDir = new File(tempDir, "performance-reports/JMeterCSV");
+        File localReport = new File(reportDir, "JMeterCsvResults.csv");
+
+        JMeterCsvParser parser = new JMeterCsvParser(null, PerformanceReportTest.DEFAULT_PERCENTILES);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        PerformanceReport report = parser.parseOnAgent(new FilePath(src), localReport,
+                new StreamTaskListener(log, StandardCharsets.UTF_8));
+
+        assertNotNull(report, log.toString(StandardCharsets.UTF_8));
+        assertEquals("JMeterCsvResults.csv", report.getReportFileName());
+        assertEquals(3, report.samplesCount());
+        // only the parsed report is stored, nothing is left next to the source file
+        assertFalse(localReport.exists());
+        assertTrue(new File(localReport.getPath() + ReportSnapshot.FILE_SUFFIX).isFile());
+        assertEquals(Arrays.asList(src), Arrays.asList(workspace.listFiles()));
+        assertEquals(Arrays.asList(localReport), Arrays.asList(ReportSnapshot.listReportFiles(reportDir)));
+
+        Collection<PerformanceReport> reports = parser.parse(null, Arrays.asList(localReport),
+                new StreamTaskListener(log, StandardCharsets.UTF_8));
+        assertEquals(1, reports.size());
+        assertEquals(3, reports.iterator().next().samplesCount());
+    }
+}
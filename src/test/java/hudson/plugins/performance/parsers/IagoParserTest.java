@@ -21,6 +21,7 @@ import java.util.Collection;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @WithJenkins
@@ -178,4 +179,37 @@ class IagoParserTest {
         assertEquals(key, sample.getUri());
     }
 
+    @Test
+    void testSkipsOtherStats() throws Exception {
+        IagoParser parser = new IagoParser(null, PerformanceReportTest.DEFAULT_PERCENTILES);
+
+        // Stats of all kinds that the parser does not need, and the needed ones in other notations
+        String line = "INF [20140611-21:34:01.224] stats: { \"nested\" : {\"a\":[1,{\"b\":\"}\\\"\"}],\"c\":true},"
+                + "\"service\":\"parrot_web\\\\\", \"client\\/request_latency_ms_average\": 3.0,"
+                + "\"client\\/request_latency_ms_maximum\":\"105\",\"client\\/request_latency_ms_minimum\":1,"
+                + "\"client\\/requests\":85,\"client\\/sent_bytes\":1.1919e4,\"client\\/success\":84,"
+                + "\"validationErrors\" : {\"4xx\":2,\"5xx\":3}, \"clock_error\":null }";
+
+        HttpSample sample = parser.getSample(line, "TEST");
+        assertEquals(105, sample.getSummarizerMax());
+        assertEquals(1, sample.getSummarizerMin());
+        assertEquals(85, sample.getSummarizerSamples());
+        assertEquals((float) 6.0, sample.getSummarizerErrors(), 0.0);
+        assertEquals(3, sample.getDuration());
+    }
+
+    @Test
+    void testMissingStats() throws Exception {
+        IagoParser parser = new IagoParser(null, PerformanceReportTest.DEFAULT_PERCENTILES);
+
+        String line = "INF [20140611-21:34:01.224] stats: {\"client\\/request_latency_ms_average\":3,"
+                + "\"client\\/request_latency_ms_maximum\":105,\"client\\/request_latency_ms_minimum\":1,"
+                + "\"client\\/requests\":85,\"client\\/sent_bytes\":11919}";
+        assertThrows(IllegalArgumentException.class, () -> parser.getSample(line, "TEST"));
+
+        String complete = line.replace("11919}", "11919,\"client\\/success\":84}");
+        assertEquals(3, parser.getSample(complete, "TEST").getDuration());
+        assertThrows(IllegalArgumentException.class,
+                () -> parser.getSample(complete.replace("\":3,", "\":3.5,"), "TEST"));
+    }
 }
@@ -5,12 +5,20 @@ import hudson.plugins.performance.reports.PerformanceReportTest;
 import hudson.plugins.performance.reports.UriReport;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 class JMeterCsvParserTest {
@@ -19,6 +27,9 @@ class JMeterCsvParserTest {
     private File reportFile2;
     private File reportFile3;
 
+    @TempDir
+    File tempDir;
+
     @BeforeEach
     void beforeMethod() throws Exception {
         reportFile = new File(getClass().getResource("/JMeterCsvResults.csv").toURI());
@@ -114,4 +125,96 @@ class JMeterCsvParserTest {
         assertEquals(33, reportMap.get("Search").samplesCount());
         assertEquals(33, reportMap.get("Scenario").samplesCount());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testParseChunked() throws Exception {
+        final File file = new File(tempDir, "large.csv");
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8)) {
+            writer.print("timeStamp,elapsed,label,responseCode,responseMessage,success,bytes\n");
+            for (int i = 0; i < 5000; i++) {
+                // quoted messages with line breaks must not be cut into two records
+                String message = (i % 7 == 0) ? "\"line one, \"\"quoted\"\"\nline two\"" : "OK";
+                writer.print((1500000000000L + i) + "," + (i % 997) + ",label" + (i % 13) + "," + ((i % 50 == 0) ? "500" : "200")
+                        + "," + message + "," + (i % 50 != 0) + "," + i + "\n");
+            }
+        }
+
+        final JMeterCsvParser parser = new JMeterCsvParser(NO_GLOB, PerformanceReportTest.DEFAULT_PERCENTILES);
+        final PerformanceReport expected = parser.parse(file);
+
+        final JMeterCsvParser chunkedParser = new JMeterCsvParser(NO_GLOB, PerformanceReportTest.DEFAULT_PERCENTILES);
+        final String[] header = chunkedParser.readCSVHeader("timeStamp,elapsed,label,responseCode,responseMessage,success,bytes");
+        final PerformanceReport actual = chunkedParser.parseChunked(file, header, 4, 4096);
+
+        assertEquals(5000, actual.samplesCount());
+        assertEquals(expected.countErrors(), actual.countErrors());
+        assertEquals(expected.getTotalTrafficInKb(), actual.getTotalTrafficInKb(), 0.001);
+        assertEquals(expected.getAverage(), actual.getAverage());
+        assertEquals(expected.getPercentilesValues(), actual.getPercentilesValues());
+        assertEquals(new ArrayList<>(expected.getUriReportMap().keySet()), new ArrayList<>(actual.getUriReportMap().keySet()));
+        for (UriReport uriReport : expected.getUriReportMap().values()) {
+            UriReport other = actual.getUriReportMap().get(uriReport.getStaplerUri());
+            assertEquals(uriReport.getDurations(), other.getDurations());
+            assertEquals(uriReport.getHttpCode(), other.getHttpCode());
+            assertEquals(uriReport.getStart(), other.getStart());
+            assertEquals(uriReport.getEnd(), other.getEnd());
+            assertEquals(uriReport.countErrors(), other.countErrors());
+        }
+    }
+
+    @Test
+    void testParseIncrement() throws Exception {
+        final StringBuilder content = new StringBuilder("timeStamp,elapsed,label,responseCode,responseMessage,success,bytes\n");
+        for (int i = 0; i < 500; i++) {
+            String message = (i % 7 == 0) ? "\"line one\nline two\"" : "OK";
+            content.append(1500000000000L + i).append(',').append(i % 97).append(",label").append(i % 5).append(',')
+                    .append((i % 50 == 0) ? "500" : "200").append(',').append(message).append(',')
+                    .append(i % 50 != 0).append(',').append(i).append('\n');
+        }
+        final byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        final File file = new File(tempDir, "growing.csv");
+
+        // the file grows in pieces that end within the header, within records and within quoted values
+        final JMeterCsvParser parser = new JMeterCsvParser(NO_GLOB, PerformanceReportTest.DEFAULT_PERCENTILES);
+        PerformanceReport live = null;
+        long offset = 0;
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            for (int written = 0; written < bytes.length; ) {
+                final int length = Math.min(bytes.length - written, 10 + written % 773);
+                out.write(bytes, written, length);
+                out.flush();
+                written += length;
+
+                final PerformanceReport increment = parser.createIncrementReport(file);
+                offset = parser.parseIncrement(file, offset, increment);
+                assertTrue(offset <= written);
+                if (live == null) {
+                    live = increment;
+                } else if (increment.samplesCount() > 0) {
+                    live.merge(increment);
+                }
+            }
+        }
+        assertEquals(bytes.length, offset);
+        assertEquals(offset, parser.parseIncrement(file, offset, parser.createIncrementReport(file)));
+
+        final PerformanceReport expected = new JMeterCsvParser(NO_GLOB, PerformanceReportTest.DEFAULT_PERCENTILES).parse(file);
+        assertEquals(500, live.samplesCount());
+        assertEquals(expected.countErrors(), live.countErrors());
+        assertEquals(expected.getAverage(), live.getAverage());
+        assertEquals(expected.getPercentilesValues(), live.getPercentilesValues());
+        for (UriReport uriReport : expected.getUriReportMap().values()) {
+            UriReport other = live.getUriReportMap().get(uriReport.getStaplerUri());
+            assertEquals(uriReport.getDurations(), other.getDurations());
+            assertEquals(uriReport.getStart(), other.getStart());
+            assertEquals(uriReport.getEnd(), other.getEnd());
+        }
+
+        // a file that was replaced by a shorter one cannot be continued
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes, 0, 100);
+        }
+        final long parsed = offset;
+        assertThrows(IOException.class, () -> parser.parseIncrement(file, parsed, parser.createIncrementReport(file)));
+    }
+}
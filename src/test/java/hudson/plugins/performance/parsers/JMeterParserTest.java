@@ -2,9 +2,17 @@ package hudson.plugins.performance.parsers;
 
 import hudson.plugins.performance.reports.PerformanceReport;
 import hudson.plugins.performance.reports.PerformanceReportTest;
+import hudson.plugins.performance.reports.UriReport;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -19,6 +27,10 @@ import static org.junit.jupiter.api.Assertions.fail;
  * @author Guus der Kinderen, guus.der.kinderen@gmail.com
  */
 class JMeterParserTest {
+
+    @TempDir
+    File tempDir;
+
     /**
      * Verifies that {@link JMeterParser#isXmlFile(File)} correctly identifies an
      * XML file.
@@ -129,6 +141,68 @@ class JMeterParserTest {
     }
 
 
+    /**
+     * Verifies that a gzip compressed XML report is parsed like the plain file.
+     */
+    @Test
+    void testParseCompressedXml() throws Exception {
+        // Setup fixture.
+        final AbstractParser parser = new JMeterParser(null, PerformanceReportTest.DEFAULT_PERCENTILES);
+        final File reportFile = new File(getClass().getResource("/JMeterResults.jtl").toURI());
+        final File compressedFile = new File(tempDir, "JMeterResults.jtl");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressedFile.toPath()))) {
+            Files.copy(reportFile.toPath(), out);
+        }
+
+        // Execute system under test.
+        final PerformanceReport expected = parser.parse(reportFile);
+        final PerformanceReport result = parser.parse(compressedFile);
+
+        // Verify results.
+        assertEquals(expected.samplesCount(), result.samplesCount());
+        assertEquals(expected.getAverage(), result.getAverage());
+        assertEquals(expected.getUriReportMap().keySet(), result.getUriReportMap().keySet());
+    }
+
+    /**
+     * Verifies that only top level samples are added to the report, that both the v2.0 and v2.1 attribute names are
+     * read, and that the values of one sample do not leak into the next one.
+     */
+    @Test
+    void testParseXmlNestedSamples() throws Exception {
+        // Setup fixture.
+        final AbstractParser parser = new JMeterParser(null, PerformanceReportTest.DEFAULT_PERCENTILES);
+        final File reportFile = new File(tempDir, "nested.jtl");
+        Files.write(reportFile.toPath(), ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<testResults version=\"1.2\">\n"
+                + "<httpSample t=\"100\" ts=\"1000\" s=\"true\" lb=\"Home\" rc=\"200\" by=\"2048\">\n"
+                + "  <httpSample t=\"60\" ts=\"1000\" s=\"true\" lb=\"Home-0\" rc=\"302\"/>\n"
+                + "  <httpSample t=\"40\" ts=\"1060\" s=\"true\" lb=\"Home-1\" rc=\"200\"/>\n"
+                + "</httpSample>\n"
+                + "<sample time=\"300\" timeStamp=\"2000\" success=\"false\" label=\"Login\">\n"
+                + "  <sample time=\"300\" timeStamp=\"2000\" success=\"false\" label=\"Login-0\"/>\n"
+                + "</sample>\n"
+                + "<httpSample t=\"50\" ts=\"500\" s=\"true\" lb=\"Home\" rc=\"Non HTTP response code\"/>\n"
+                + "</testResults>\n").getBytes(StandardCharsets.UTF_8));
+
+        // Execute system under test.
+        final PerformanceReport result = parser.parse(reportFile);
+
+        // Verify results.
+        assertEquals(3, result.samplesCount());
+        assertEquals(1, result.countErrors());
+        assertEquals(2d, result.getTotalTrafficInKb(), 0.001);
+        assertEquals(new HashSet<>(Arrays.asList("Home", "Login")), result.getUriReportMap().keySet());
+        final UriReport home = result.getUriReportMap().get("Home");
+        assertEquals(2, home.samplesCount());
+        assertEquals(500, home.getStart().getTime());
+        assertEquals(1100, home.getEnd().getTime());
+        assertEquals(new HashSet<>(Arrays.asList("200", "0")), new HashSet<>(Arrays.asList(home.getHttpCode().split(","))));
+        final UriReport login = result.getUriReportMap().get("Login");
+        assertEquals(300, login.getAverage());
+        assertEquals(2000, login.getStart().getTime());
+    }
+
   /*
   @Test
   public void parseXmlTest() throws Exception
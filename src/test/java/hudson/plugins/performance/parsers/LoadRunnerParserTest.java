@@ -9,7 +9,10 @@ import java.io.File;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class LoadRunnerParserTest {
     private static final String NO_GLOB = null;
@@ -49,4 +52,28 @@ class LoadRunnerParserTest {
         assertEquals(4, report.countErrors());
         assertEquals(10043, report.getEnd().getTime()-report.getStart().getTime());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCustomResultQuery() throws Exception {
+        final LoadRunnerParser parser = new LoadRunnerParser(NO_GLOB, PerformanceReportTest.DEFAULT_PERCENTILES);
+        assertTrue(parser.isStreamed());
+        parser.setResultQuery(parser.getResultQuery() + " and [Event Name] = 'transaction2'");
+        assertFalse(parser.isStreamed());
+
+        final PerformanceReport result = parser.parse(new File(getClass().getResource("/lr-session.mdb").toURI()));
+        assertNull(result.getUriReportMap().get("transaction1"));
+        UriReport report = result.getUriReportMap().get("transaction2");
+        assertNotNull(report);
+        assertEquals(20, report.samplesCount());
+        assertEquals(1500, report.getAverage());
+        assertEquals(4, report.countErrors());
+    }
+
+    @Test
+    void testToMillis() {
+        assertEquals(1500, LoadRunnerParser.toMillis(1.5));
+        assertEquals(1000, LoadRunnerParser.toMillis(0.9999999));
+        assertEquals(2, LoadRunnerParser.toMillis(0.0025));
+        assertEquals(1499, LoadRunnerParser.toMillis(1.4994));
+    }
+}
@@ -2,10 +2,12 @@ package hudson.plugins.performance.parsers;
 
 import hudson.plugins.performance.reports.PerformanceReport;
 import hudson.plugins.performance.reports.PerformanceReportTest;
+import hudson.plugins.performance.reports.UriReport;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -71,4 +73,29 @@ class LocustParserTest {
     void reportShouldReturnProperFileName() throws Exception {
         assertEquals(FILE_NAME, report.getReportFileName());
     }
+
+    @Test
+    void reportShouldContainStatsHistoryIntervals() throws Exception {
+        final PerformanceReport history = locustParser.parse(
+                new File(getClass().getResource("/test_results_stats_history.csv").toURI()));
+
+        assertArrayEquals(new String[]{"_login", "_search"}, history.getUriReportMap().keySet().toArray(new String[0]));
+        assertEquals(2, history.getSummarizerSize());
+        assertEquals(156, history.getSummarizerAvg());
+        assertEquals(90, history.getSummarizerMin());
+        assertEquals(400, history.getSummarizerMax());
+
+        final UriReport login = history.getUriReportMap().get("_login");
+        assertEquals(2, login.samplesCount());
+        assertEquals(250, login.getAverage());
+        assertEquals(1, login.countErrors());
+        assertEquals(1609459201000L, login.getStart().getTime());
+        assertEquals(1609459261300L, login.getEnd().getTime());
+
+        final UriReport search = history.getUriReportMap().get("_search");
+        final List<Long> medians = search.getDurations();
+        assertEquals(3, medians.size());
+        assertEquals(110, search.getAverage());
+        assertEquals(3 * 10 * 2048, search.getTotalTrafficInKb(), 0.001);
+    }
 }
@@ -1,19 +1,29 @@
 package hudson.plugins.performance.parsers;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.jvnet.hudson.test.Issue;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 public class ParserDetectorTest {
 
+    @TempDir
+    File tempDir;
+
     @Test
     void testFlow() throws Exception {
         String filePath;
@@ -44,6 +54,9 @@ public class ParserDetectorTest {
 
         filePath = getClass().getResource("/test_results_stats.csv").toURI().getPath();
         assertEquals(LocustParser.class.getSimpleName(), ParserDetector.detect(filePath));
+
+        filePath = getClass().getResource("/test_results_stats_history.csv").toURI().getPath();
+        assertEquals(LocustParser.class.getSimpleName(), ParserDetector.detect(filePath));
     }
 
     @Issue("JENKINS-44317")
@@ -66,6 +79,67 @@ public class ParserDetectorTest {
         assertEquals(JMeterParser.class.getSimpleName(), ParserDetector.detectXMLFileType(getHugeJMeterInputStream()));
     }
 
+    @Test
+    void testReadsOnlyPrefix() throws Exception {
+        final StringBuilder log = new StringBuilder();
+        while (log.length() < ParserDetector.PREFIX_BYTES) {
+            log.append("2017/01/01 00:00:00 INFO  - jmeter.engine.StandardJMeterEngine: Running the test!\n");
+        }
+        log.append("2017/01/01 00:00:01 INFO  - jmeter.reporters.Summariser: Generate Summary Results +  1 in 1s\n");
+        final File file = new File(tempDir, "late-summary.log");
+        Files.write(file.toPath(), log.toString().getBytes(StandardCharsets.UTF_8));
+
+        final ReportSignature.Prefix prefix = ParserDetector.readPrefix(file, ParserDetector.PREFIX_BYTES);
+        assertTrue(prefix.isTruncated());
+        assertEquals(ParserDetector.PREFIX_BYTES, prefix.getLength());
+        assertThrows(IllegalArgumentException.class, () -> ParserDetector.detect(file.getPath()));
+
+        final File summary = new File(getClass().getResource("/summary.log").toURI());
+        assertFalse(ParserDetector.readPrefix(summary, ParserDetector.PREFIX_BYTES).isTruncated());
+        assertEquals("2017/01/01 00:00:00 INFO  - jmeter.engine.StandardJMeterEngine: Running the test!",
+                ParserDetector.readPrefix(file, 100).getFirstLine());
+    }
+
+    @Test
+    void testRegisteredSignature() throws Exception {
+        final ReportSignature signature = new ReportSignature("MyToolParser") {
+            @Override
+            public boolean matches(Prefix prefix) {
+                return prefix.getFirstLine().startsWith("mytool-report");
+            }
+        };
+        ParserDetector.register(signature);
+        try {
+            final File file = new File(tempDir, "report.txt");
+            Files.write(file.toPath(), "mytool-report v1\n/login,12\n".getBytes(StandardCharsets.UTF_8));
+
+            assertEquals("MyToolParser", ParserDetector.detect(file.getPath()));
+            assertEquals("MyToolParser", ParserDetector.getSignature("MyToolParser").getParserName());
+            // the parsers of this plugin are still detected first
+            assertEquals(LocustParser.class.getSimpleName(),
+                    ParserDetector.detect(getClass().getResource("/test_results_stats.csv").toURI().getPath()));
+        } finally {
+            ParserDetector.unregister(signature);
+        }
+        assertNull(ParserDetector.getSignature("MyToolParser"));
+    }
+
+    @Test
+    void testCachesDetectedFiles() throws Exception {
+        final File file = new File(tempDir, "results.csv");
+        Files.write(file.toPath(), "timeStamp,elapsed,label\n".getBytes(StandardCharsets.UTF_8));
+        final long lastModified = file.lastModified();
+        assertEquals(JMeterCsvParser.class.getSimpleName(), ParserDetector.detect(file.getPath()));
+
+        // a file of the same size and modification time is not read again
+        Files.write(file.toPath(), "Running 1s test @ local\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(file.setLastModified(lastModified));
+        assertEquals(JMeterCsvParser.class.getSimpleName(), ParserDetector.detect(file.getPath()));
+
+        assertTrue(file.setLastModified(lastModified + 10000));
+        assertEquals(WrkSummarizerParser.class.getSimpleName(), ParserDetector.detect(file.getPath()));
+    }
+
     public static InputStream getHugeJMeterInputStream() {
         return new SequenceInputStream(getPrefixInputStream(), getInfiniteSampleInputStream());
     }
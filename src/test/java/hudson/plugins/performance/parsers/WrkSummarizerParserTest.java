@@ -3,6 +3,7 @@ package hudson.plugins.performance.parsers;
 import hudson.model.TaskListener;
 import hudson.plugins.performance.reports.PerformanceReport;
 import hudson.plugins.performance.reports.PerformanceReportTest;
+import hudson.plugins.performance.reports.UriReport;
 import hudson.util.StreamTaskListener;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,6 +17,7 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class WrkSummarizerParserTest {
@@ -71,6 +73,55 @@ class WrkSummarizerParserTest {
         });
     }
 
+    @Test
+    void testPercentilesOfLatencyDistribution() throws Exception {
+        final PerformanceReport report = parser.parse(new File(getClass().getResource("/WrkResultsWithLatencyFlag.wrk").toURI()));
+
+        final UriReport uriReport = report.getUriReportMap().get(PerformanceReport.asStaplerURI("http://www.google.com"));
+        assertNotNull(uriReport);
+        assertEquals(42, uriReport.getAverage());
+        assertEquals(40, uriReport.getMedian());
+        assertEquals(46, uriReport.get90Line());
+        assertEquals(46, uriReport.getMax());
+        assertEquals(18, uriReport.getDurationHistogram().getCount());
+        assertEquals(40, report.getMedian());
+    }
+
+    @Test
+    void testPercentilesOfWrk2Spectrum() throws Exception {
+        final PerformanceReport report = parser.parse(new File(getClass().getResource("/Wrk2ResultsWithSpectrum.wrk").toURI()));
+
+        final UriReport uriReport = report.getUriReportMap().get(PerformanceReport.asStaplerURI("http://localhost:8080/index.html"));
+        assertNotNull(uriReport);
+        assertEquals(1, uriReport.samplesCount());
+        assertEquals(5, uriReport.getAverage());
+        // the recorded latencies, not the uncorrected ones
+        assertEquals(100, uriReport.getDurationHistogram().getCount());
+        assertEquals(1, uriReport.getMin());
+        assertEquals(2, uriReport.getMedian());
+        assertEquals(20, uriReport.get90Line());
+        assertEquals(25, uriReport.get95Line());
+        assertEquals(30, uriReport.getMax());
+        assertEquals(20, report.get90Line());
+    }
+
+    @Test
+    void testTokenizeAndLineTypes() {
+        final List<String> tokens = new ArrayList<>();
+        assertEquals(2, WrkSummarizerParser.tokenize("  99.900%   18.35S ", tokens));
+        assertEquals("99.900%", tokens.get(0));
+        assertEquals("18.35s", tokens.get(1));
+        assertEquals(0, WrkSummarizerParser.tokenize("   ", tokens));
+
+        assertEquals(WrkSummarizerParser.LineType.LATENCY_DIST_BUCKET, parser.determineLineType("50%", "40.25ms"));
+        assertEquals(WrkSummarizerParser.LineType.LATENCY_DIST_BUCKET, parser.determineLineType("99.900%", "18.35s"));
+        assertEquals(WrkSummarizerParser.LineType.SPECTRUM_HEADER, parser.determineLineType("detailed", "percentile"));
+        assertEquals(WrkSummarizerParser.LineType.SPECTRUM, parser.determineLineType("1258.495", "0.000000"));
+        assertEquals(WrkSummarizerParser.LineType.SUMMARY, parser.determineLineType("18", "requests"));
+        assertEquals(WrkSummarizerParser.LineType.UNKNOWN, parser.determineLineType("value", "percentile"));
+        assertEquals(WrkSummarizerParser.LineType.UNKNOWN, parser.determineLineType("#[mean", "="));
+    }
+
     @Test
     void testParseWithErrors() {
         List<File> files = new ArrayList<File>(1);
@@ -95,6 +146,8 @@ class WrkSummarizerParserTest {
         assertEquals(5000, parser.getTime("5s", WrkSummarizerParser.TimeUnit.MILLISECOND));
         assertEquals(5000 * 60, parser.getTime("5m", WrkSummarizerParser.TimeUnit.MILLISECOND));
         assertEquals(1000 * 60 * 60, parser.getTime("1h", WrkSummarizerParser.TimeUnit.MILLISECOND));
+        assertEquals(0, parser.getTime("55.33us", WrkSummarizerParser.TimeUnit.MILLISECOND));
+        assertEquals(1, parser.getTime("1500us", WrkSummarizerParser.TimeUnit.MILLISECOND));
 
         // seconds
         assertEquals(1, parser.getTime("1005ms", WrkSummarizerParser.TimeUnit.SECOND));
@@ -1,6 +1,7 @@
 package hudson.plugins.performance.reports;
 
 import hudson.plugins.performance.actions.PerformanceBuildAction;
+import hudson.plugins.performance.data.DurationHistogram;
 import hudson.plugins.performance.data.HttpSample;
 import hudson.plugins.performance.data.TaurusFinalStats;
 import hudson.plugins.performance.parsers.JMeterParser;
@@ -331,4 +332,136 @@ public class PerformanceReportTest {
         report.addSample(stats, true);
         assertEquals(10, report.getThroughput().longValue());
     }
+
+    private static HttpSample createSample(String uri, long duration, boolean successful) {
+        HttpSample sample = new HttpSample();
+        sample.setUri(uri);
+        sample.setDate(new Date(1500000000000L + duration * 10));
+        sample.setDuration(duration);
+        sample.setSuccessful(successful);
+        sample.setHttpCode(successful ? "200" : "500");
+        sample.setSizeInKb(2);
+        return sample;
+    }
+
+    private static TaurusFinalStats createStats(int succ, int fail, double perc0, double perc50, double perc100) {
+        TaurusFinalStats stats = new TaurusFinalStats();
+        stats.setLabel("summary");
+        stats.setSucc(succ);
+        stats.setFail(fail);
+        stats.setAverageResponseTime(perc50);
+        stats.setPerc0(perc0);
+        stats.setPerc50(perc50);
+        stats.setPerc90(perc100 - 10);
+        stats.setPerc95(perc100 - 5);
+        stats.setPerc100(perc100);
+        stats.setThroughput(succ + fail);
+        return stats;
+    }
+
+    @Test
+    void testMergeWithSamples() {
+        PerformanceReport expected = new PerformanceReport(DEFAULT_PERCENTILES);
+        PerformanceReport first = new PerformanceReport(DEFAULT_PERCENTILES);
+        PerformanceReport second = new PerformanceReport(DEFAULT_PERCENTILES);
+        for (int i = 1; i <= 200; i++) {
+            HttpSample sample = createSample((i % 3 == 0) ? "/login" : "/search", i, i % 7 != 0);
+            expected.addSample(sample);
+            ((i <= 120) ? first : second).addSample(sample);
+        }
+        assertEquals(1, first.getMin());
+
+        first.merge(second);
+
+        assertEquals(expected.samplesCount(), first.samplesCount());
+        assertEquals(expected.countErrors(), first.countErrors());
+        assertEquals(expected.getAverage(), first.getAverage());
+        assertEquals(expected.getMin(), first.getMin());
+        assertEquals(expected.getMedian(), first.getMedian());
+        assertEquals(expected.get90Line(), first.get90Line());
+        assertEquals(expected.getMax(), first.getMax());
+        assertEquals(expected.getTotalTrafficInKb(), first.getTotalTrafficInKb(), 0.001);
+        assertEquals(expected.getPercentilesValues(), first.getPercentilesValues());
+        for (UriReport uriReport : expected.getUriListOrdered()) {
+            UriReport merged = first.getUriReportMap().get(uriReport.getStaplerUri());
+            assertEquals(uriReport.getDurations(), merged.getDurations());
+            assertEquals(uriReport.get95Line(), merged.get95Line());
+            assertEquals(uriReport.getHttpCode(), merged.getHttpCode());
+            assertEquals(uriReport.getStart(), merged.getStart());
+            assertEquals(uriReport.getEnd(), merged.getEnd());
+        }
+        assertThrows(IllegalArgumentException.class, () -> first.merge(first));
+    }
+
+    @Test
+    void testMergeStreamingStatistics() {
+        PerformanceReport expected = new PerformanceReport(DEFAULT_PERCENTILES);
+        PerformanceReport first = new PerformanceReport(DEFAULT_PERCENTILES);
+        PerformanceReport second = new PerformanceReport(DEFAULT_PERCENTILES);
+        second.setStreamingStatistics(true);
+        for (int i = 1; i <= 200; i++) {
+            HttpSample sample = createSample("/search", i, true);
+            expected.addSample(sample);
+            ((i % 2 == 0) ? first : second).addSample(sample);
+        }
+
+        first.merge(second);
+
+        assertTrue(first.isStreamingStatistics());
+        assertNotNull(first.getDurationHistogram());
+        assertEquals(200, first.getDurationHistogram().getCount());
+        assertEquals(expected.samplesCount(), first.samplesCount());
+        assertEquals(expected.getAverage(), first.getAverage());
+        assertEquals(expected.getMin(), first.getMin());
+        assertEquals(expected.getMedian(), first.getMedian());
+        assertEquals(expected.get90Line(), first.get90Line());
+        assertEquals(expected.getMax(), first.getMax());
+        assertEquals(200, first.getUriReportMap().get("_search").getDurationHistogram().getCount());
+    }
+
+    @Test
+    void testMergeAggregatesOnly() {
+        PerformanceReport first = new PerformanceReport(DEFAULT_PERCENTILES);
+        first.addSample(createStats(90, 10, 5, 100, 400), true);
+        PerformanceReport second = new PerformanceReport(DEFAULT_PERCENTILES);
+        second.addSample(createStats(290, 10, 2, 200, 300), true);
+
+        first.merge(second);
+
+        assertEquals(400, first.samplesCount());
+        assertEquals(20, first.countErrors());
+        assertEquals(2, first.getMin());
+        assertEquals(400, first.getMax());
+        assertEquals(175, first.getAverage());
+        assertEquals(175, first.getMedian());
+        assertEquals(315, first.get90Line());
+        assertEquals(400, first.getThroughput().longValue());
+        assertEquals(Long.valueOf(175), first.getPercentilesValues().get(50.0));
+        assertEquals(Long.valueOf(400), first.getPercentilesValues().get(100.0));
+
+        // an empty report takes the aggregates of the merged one
+        PerformanceReport empty = new PerformanceReport(DEFAULT_PERCENTILES);
+        empty.merge(second);
+        assertEquals(2, empty.getMin());
+        assertEquals(200, empty.getMedian());
+        assertEquals(300, empty.getMax());
+    }
+
+    @Test
+    void testDurationDistributionRecordsLaterSamples() {
+        performanceReport.addSample(createSample("/search", 10, true));
+        DurationHistogram durations = new DurationHistogram();
+        durations.record(10, 99);
+        performanceReport.setDurationDistribution("/search", durations);
+
+        performanceReport.addSample(createSample("/search", 200, true));
+        performanceReport.addSample(createSample("/login", 250, true));
+
+        UriReport uriReport = performanceReport.getUriReportMap().get(PerformanceReport.asStaplerURI("/search"));
+        assertTrue(uriReport.isStreamingStatistics());
+        assertEquals(200, uriReport.getMax());
+        assertEquals(10, uriReport.getMedian());
+        assertEquals(250, performanceReport.getMax());
+        assertEquals(250, performanceReport.getPercentilesValues().get(100.0).longValue());
+    }
 }
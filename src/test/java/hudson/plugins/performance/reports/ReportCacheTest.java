@@ -0,0 +1,162 @@
+package hudson.plugins.performance.reports;
+
+import hudson.plugins.performance.data.HttpSample;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportCacheTest {
+
+    private static PerformanceReport createReport(int samples) {
+        final PerformanceReport report = new PerformanceReport(PerformanceReportTest.DEFAULT_PERCENTILES);
+        final HttpSample sample = new HttpSample();
+        sample.setUri("/home");
+        sample.setSuccessful(true);
+        sample.setHttpCode("200");
+        for (int i = 0; i < samples; i++) {
+            sample.setDate(new Date(i));
+            sample.setDuration(i);
+            report.addSample(sample);
+        }
+        return report;
+    }
+
+    private static Callable<PerformanceReport> loader(final PerformanceReport report, final AtomicInteger loads) {
+        return new Callable<PerformanceReport>() {
+            @Override
+            public PerformanceReport call() {
+                loads.incrementAndGet();
+                return report;
+            }
+        };
+    }
+
+    @Test
+    void testParseBudget() {
+        assertEquals(100, ReportCache.parseBudget(null, 1000));
+        assertEquals(250, ReportCache.parseBudget(" 25% ", 1000));
+        assertEquals(4096, ReportCache.parseBudget("4096", 1000));
+        assertEquals(512L << 20, ReportCache.parseBudget("512M", 1000));
+        assertEquals(2L << 30, ReportCache.parseBudget("2g", 1000));
+        assertEquals(100, ReportCache.parseBudget("200%", 1000));
+        assertEquals(100, ReportCache.parseBudget("lots", 1000));
+        assertEquals(100, ReportCache.parseBudget("-1k", 1000));
+    }
+
+    @Test
+    void testGetLoadsOnce() throws Exception {
+        final ReportCache cache = new ReportCache(1 << 20);
+        final PerformanceReport report = createReport(10);
+        final AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.getIfPresent("a"));
+        assertSame(report, cache.get("a", loader(report, loads)));
+        assertSame(report, cache.get("a", loader(report, loads)));
+        assertSame(report, cache.getIfPresent("a"));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getLoadCount());
+        assertEquals(ReportCache.estimateSize(report), cache.getWeight());
+
+        assertNull(cache.get("b", loader(null, loads)));
+        assertNull(cache.getIfPresent("b"));
+
+        cache.invalidate("a");
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    void testGetRethrowsLoadFailure() {
+        final ReportCache cache = new ReportCache(1 << 20);
+        final IOException failure = new IOException("broken snapshot");
+        IOException e = assertThrows(IOException.class, () -> cache.get("a", new Callable<PerformanceReport>() {
+            @Override
+            public PerformanceReport call() throws IOException {
+                throw failure;
+            }
+        }));
+        assertSame(failure, e);
+        assertEquals(1, cache.getLoadFailureCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void testEvictsByWeight() throws Exception {
+        final PerformanceReport small = createReport(10);
+        final PerformanceReport large = createReport(10000);
+        final long largeSize = ReportCache.estimateSize(large);
+        assertTrue(largeSize > 10 * ReportCache.estimateSize(small));
+
+        final ReportCache cache = new ReportCache(largeSize + ReportCache.estimateSize(small));
+        for (int i = 0; i < 5; i++) {
+            cache.put("small" + i, small);
+        }
+        assertEquals(5, cache.getSize());
+        cache.put("large", large);
+        assertSame(large, cache.getIfPresent("large"));
+        assertTrue(cache.getWeight() <= cache.getBudget());
+        assertTrue(cache.getEvictionCount() >= 4);
+        cache.invalidateAll();
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    void testConcurrentLoadsOfOneReport() throws Exception {
+        final ReportCache cache = new ReportCache(1 << 20);
+        final PerformanceReport report = createReport(10);
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Callable<PerformanceReport> slowLoad = new Callable<PerformanceReport>() {
+                @Override
+                public PerformanceReport call() throws Exception {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    assertTrue(release.await(10, TimeUnit.SECONDS));
+                    return report;
+                }
+            };
+            final Callable<PerformanceReport> get = new Callable<PerformanceReport>() {
+                @Override
+                public PerformanceReport call() throws Exception {
+                    return cache.get("slow", slowLoad);
+                }
+            };
+            final Future<PerformanceReport> first = executor.submit(get);
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            final Future<PerformanceReport> second = executor.submit(get);
+
+            // other reports load while the first one is still loading
+            final AtomicInteger otherLoads = new AtomicInteger();
+            assertSame(report, executor.submit(new Callable<PerformanceReport>() {
+                @Override
+                public PerformanceReport call() throws Exception {
+                    return cache.get("other", loader(report, otherLoads));
+                }
+            }).get(10, TimeUnit.SECONDS));
+
+            release.countDown();
+            assertSame(report, first.get(10, TimeUnit.SECONDS));
+            assertSame(report, second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
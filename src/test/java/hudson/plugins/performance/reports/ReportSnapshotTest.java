@@ -0,0 +1,187 @@
+package hudson.plugins.performance.reports;
+
+import hudson.plugins.performance.data.HttpSample;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ReportSnapshotTest {
+
+    @TempDir
+    File tempDir;
+
+    private static PerformanceReport createReport() {
+        PerformanceReport report = new PerformanceReport(PerformanceReportTest.DEFAULT_PERCENTILES);
+        report.setReportFileName("results.jtl");
+        for (int i = 1; i <= 300; i++) {
+            HttpSample sample = new HttpSample();
+            sample.setUri((i % 3 == 0) ? "/login" : "/search");
+            sample.setDate(new Date(1500000000000L + i * 100L));
+            sample.setDuration(i);
+            sample.setSuccessful(i % 10 != 0);
+            sample.setHttpCode((i % 10 != 0) ? "200" : "500");
+            sample.setSizeInKb(1.5);
+            report.addSample(sample);
+        }
+        return report;
+    }
+
+    private static void assertSameAggregates(PerformanceReport expected, PerformanceReport actual) {
+        assertEquals(expected.getReportFileName(), actual.getReportFileName());
+        assertEquals(expected.samplesCount(), actual.samplesCount());
+        assertEquals(expected.countErrors(), actual.countErrors());
+        assertEquals(expected.getAverage(), actual.getAverage());
+        assertEquals(expected.getMedian(), actual.getMedian());
+        assertEquals(expected.get90Line(), actual.get90Line());
+        assertEquals(expected.getMax(), actual.getMax());
+        assertEquals(expected.getTotalTrafficInKb(), actual.getTotalTrafficInKb(), 0.001);
+        assertEquals(expected.getPercentilesValues(), actual.getPercentilesValues());
+        assertEquals(expected.getUriReportMap().keySet(), actual.getUriReportMap().keySet());
+        for (UriReport uriReport : expected.getUriListOrdered()) {
+            UriReport other = actual.getUriReportMap().get(uriReport.getStaplerUri());
+            assertNotNull(other);
+            assertEquals(uriReport.getUri(), other.getUri());
+            assertEquals(uriReport.samplesCount(), other.samplesCount());
+            assertEquals(uriReport.countErrors(), other.countErrors());
+            assertEquals(uriReport.getMedian(), other.getMedian());
+            assertEquals(uriReport.get95Line(), other.get95Line());
+            assertEquals(uriReport.getHttpCode(), other.getHttpCode());
+            assertEquals(uriReport.getStart(), other.getStart());
+            assertEquals(uriReport.getEnd(), other.getEnd());
+            assertEquals(uriReport.getPercentilesValues(), other.getPercentilesValues());
+        }
+    }
+
+    @Test
+    void testWriteAndReadWithSamples() throws Exception {
+        PerformanceReport report = createReport();
+        File file = new File(tempDir, "results.jtl" + ReportSnapshot.FILE_SUFFIX);
+
+        ReportSnapshot.write(file, report);
+        PerformanceReport restored = ReportSnapshot.read(file, true);
+
+        assertSameAggregates(report, restored);
+        for (UriReport uriReport : report.getUriListOrdered()) {
+            UriReport other = restored.getUriReportMap().get(uriReport.getStaplerUri());
+            assertTrue(other.hasSamples());
+            assertEquals(uriReport.getHttpSampleList(), other.getHttpSampleList());
+            assertEquals(uriReport.getDurations(), other.getDurations());
+        }
+    }
+
+    @Test
+    void testReadAggregatesOnly() throws Exception {
+        PerformanceReport report = createReport();
+        File file = new File(tempDir, "results.jtl" + ReportSnapshot.FILE_SUFFIX);
+
+        ReportSnapshot.write(file, report);
+        PerformanceReport restored = ReportSnapshot.read(file, false);
+
+        assertSameAggregates(report, restored);
+        for (UriReport uriReport : restored.getUriListOrdered()) {
+            assertFalse(uriReport.hasSamples());
+        }
+    }
+
+    @Test
+    void testStreamingStatistics() throws Exception {
+        PerformanceReport report = new PerformanceReport(PerformanceReportTest.DEFAULT_PERCENTILES);
+        report.setStreamingStatistics(true);
+        for (int i = 0; i < 1000; i++) {
+            HttpSample sample = new HttpSample();
+            sample.setUri("/streaming");
+            sample.setDate(new Date(i));
+            sample.setDuration(i * 10L);
+            sample.setSuccessful(true);
+            report.addSample(sample);
+        }
+        File file = new File(tempDir, "streaming.jtl" + ReportSnapshot.FILE_SUFFIX);
+
+        ReportSnapshot.write(file, report);
+        PerformanceReport restored = ReportSnapshot.read(file, true);
+
+        assertNotNull(restored.getDurationHistogram());
+        assertEquals(1000, restored.getDurationHistogram().getCount());
+        assertEquals(report.getDurationAt(99), restored.getDurationAt(99));
+    }
+
+    @Test
+    void testWriteAndReadIndex() throws Exception {
+        PerformanceReport report = createReport();
+        PerformanceReport other = new PerformanceReport(PerformanceReportTest.DEFAULT_PERCENTILES);
+        other.setReportFileName("other.jtl");
+        other.setStreamingStatistics(true);
+        HttpSample sample = new HttpSample();
+        sample.setUri("/other");
+        sample.setDate(new Date(1500000000000L));
+        sample.setDuration(42);
+        sample.setSuccessful(true);
+        other.addSample(sample);
+        File file = new File(tempDir, ReportSnapshot.INDEX_FILE_NAME);
+
+        ReportSnapshot.writeIndex(file, Arrays.asList(report, other));
+        Map<String, PerformanceReport> index = ReportSnapshot.readIndex(file);
+
+        assertEquals(Arrays.asList("results.jtl", "other.jtl"), Arrays.asList(index.keySet().toArray()));
+        assertSameAggregates(report, index.get("results.jtl"));
+        assertSameAggregates(other, index.get("other.jtl"));
+        // the index holds aggregates only
+        assertNull(index.get("other.jtl").getDurationHistogram());
+        assertFalse(index.get("results.jtl").getUriReportMap().get("_search").hasSamples());
+        assertThrows(IOException.class, () -> ReportSnapshot.read(file, false));
+    }
+
+    @Test
+    void testInvalidFile() throws Exception {
+        File file = new File(tempDir, "invalid" + ReportSnapshot.FILE_SUFFIX);
+        Files.write(file.toPath(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        assertThrows(IOException.class, () -> ReportSnapshot.read(file, true));
+    }
+
+    @Test
+    void testIsDerivedFile() {
+        assertTrue(ReportSnapshot.isDerivedFile("results.jtl.snapshot"));
+        assertTrue(ReportSnapshot.isDerivedFile("results.jtl.serialized"));
+        assertTrue(ReportSnapshot.isDerivedFile("results.jtl.serialized-v2"));
+        assertTrue(ReportSnapshot.isDerivedFile("results.jtl.snapshot.123456.snapshot.tmp"));
+        assertFalse(ReportSnapshot.isDerivedFile("results.jtl"));
+    }
+
+    @Test
+    void testListReportFilesSkipsTemporaryFiles() throws Exception {
+        File reportFile = new File(tempDir, "results.jtl");
+        ReportSnapshot.write(new File(tempDir, "results.jtl" + ReportSnapshot.FILE_SUFFIX), createReport());
+        // left behind by a crash while writing a snapshot
+        Files.write(new File(tempDir, "results.jtl.snapshot.123456.snapshot.tmp").toPath(), new byte[]{1, 2, 3});
+
+        assertEquals(Arrays.asList(reportFile), Arrays.asList(ReportSnapshot.listReportFiles(tempDir)));
+        assertEquals(2, tempDir.list().length);
+    }
+
+    @Test
+    void testSnapshotHasDefaultPermissions() throws Exception {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        File plainFile = new File(tempDir, "results.jtl");
+        Files.write(plainFile.toPath(), new byte[]{1});
+        File file = new File(tempDir, "results.jtl" + ReportSnapshot.FILE_SUFFIX);
+        ReportSnapshot.write(file, createReport());
+
+        assertEquals(Files.getPosixFilePermissions(plainFile.toPath()), Files.getPosixFilePermissions(file.toPath()));
+    }
+}
@@ -0,0 +1,91 @@
+package hudson.plugins.performance.reports;
+
+import hudson.plugins.performance.reports.UriReport.Sample;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SampleStoreTest {
+
+    private static List<Sample> createSamples(int count) {
+        List<Sample> samples = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            samples.add(new Sample(new Date(1000L * i), i % 500, (i % 3 == 0) ? "500" : "200", i % 3 != 0, i % 7 == 0));
+        }
+        return samples;
+    }
+
+    private static void assertSameSamples(List<Sample> expected, SampleStore actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Sample sample = actual.get(i);
+            assertEquals(expected.get(i), sample);
+            assertEquals(expected.get(i).getHttpCode(), sample.getHttpCode());
+            assertEquals(expected.get(i).isSuccessful(), sample.isSuccessful());
+            assertEquals(expected.get(i).isSummarizer(), sample.isSummarizer());
+        }
+    }
+
+    @Test
+    void testAddAndGetAcrossChunks() {
+        List<Sample> samples = createSamples(20000);
+        SampleStore store = new SampleStore(samples);
+
+        assertSameSamples(samples, store);
+        assertEquals(1000L * 12345, store.getTimestamp(12345));
+        assertEquals(12345 % 500, store.getDuration(12345));
+        assertEquals("500", store.getHttpCode(12345));
+        assertFalse(store.isSuccessful(12345));
+        assertTrue(store.isSummarizer(7));
+    }
+
+    @Test
+    void testSampleWithoutDate() {
+        SampleStore store = new SampleStore();
+        store.add(new Sample(null, 10, null, true, false));
+
+        assertFalse(store.hasDate(0));
+        assertNull(store.get(0).getDate());
+        assertNull(store.get(0).getHttpCode());
+    }
+
+    @Test
+    void testGetDurations() {
+        SampleStore store = new SampleStore();
+        store.add(new Sample(new Date(), 10, "200", true, false));
+        store.add(new Sample(new Date(), 20, "500", false, false));
+        store.add(new Sample(new Date(), 30, "500", false, true));
+
+        assertArrayEquals(new long[]{10, 20, 30}, store.getDurations(false));
+        assertArrayEquals(new long[]{10, 30}, store.getDurations(true));
+    }
+
+    @Test
+    void testSerialization() throws Exception {
+        List<Sample> samples = createSamples(10000);
+        SampleStore store = new SampleStore(samples);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(store);
+        }
+        SampleStore restored;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (SampleStore) in.readObject();
+        }
+
+        assertSameSamples(samples, restored);
+    }
+}
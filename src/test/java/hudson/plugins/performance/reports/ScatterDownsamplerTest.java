@@ -0,0 +1,73 @@
+package hudson.plugins.performance.reports;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScatterDownsamplerTest {
+
+    @Test
+    void testKeepsPointsOfDistinctCells() {
+        final ScatterDownsampler downsampler = new ScatterDownsampler(400, 200);
+        final long[][] points = {{1000, 5}, {3000, 10}, {2000, 500}};
+        for (long[] point : points) {
+            downsampler.expand(point[0], point[1]);
+        }
+        for (long[] point : points) {
+            downsampler.add(point[0], point[1]);
+        }
+
+        assertEquals(3, downsampler.size());
+        assertEquals(1000, downsampler.getX(0));
+        assertEquals(5, downsampler.getY(0));
+        assertEquals(2000, downsampler.getX(1));
+        assertEquals(500, downsampler.getY(1));
+        assertEquals(3000, downsampler.getX(2));
+        assertEquals(10, downsampler.getY(2));
+    }
+
+    @Test
+    void testBoundsPointsAndKeepsExtremes() {
+        final int columns = 100;
+        final int rows = 50;
+        final ScatterDownsampler downsampler = new ScatterDownsampler(columns, rows);
+        final int count = 1000000;
+        final long start = 1500000000000L;
+        final long[] xs = new long[count];
+        final long[] ys = new long[count];
+        final Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            // samples are not quite in time order, as with concurrent threads
+            xs[i] = start + i + random.nextInt(1000);
+            ys[i] = (long) Math.abs(random.nextGaussian() * 200);
+            downsampler.expand(xs[i], ys[i]);
+        }
+        long maxY = 0;
+        for (int i = 0; i < count; i++) {
+            downsampler.add(xs[i], ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        assertTrue(downsampler.size() <= columns * rows);
+        boolean hasMax = false;
+        for (int i = 0; i < downsampler.size(); i++) {
+            if (i > 0) {
+                assertTrue(downsampler.getX(i - 1) <= downsampler.getX(i));
+            }
+            hasMax |= downsampler.getY(i) == maxY;
+        }
+        assertTrue(hasMax);
+    }
+
+    @Test
+    void testSinglePoint() {
+        final ScatterDownsampler downsampler = new ScatterDownsampler(400, 200);
+        downsampler.expand(7, 7);
+        downsampler.add(7, 7);
+        downsampler.add(7, 7);
+        assertEquals(1, downsampler.size());
+    }
+}
@@ -1,6 +1,7 @@
 package hudson.plugins.performance.reports;
 
 import hudson.plugins.performance.data.HttpSample;
+import hudson.plugins.performance.data.TaurusFinalStats;
 import hudson.plugins.performance.reports.UriReport.Sample;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,6 +14,7 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class UriReportTest {
@@ -75,6 +77,33 @@ class UriReportTest {
         assertTrue(uriReport.isFailed());
     }
 
+    @Test
+    void testStreamingStatistics() {
+        PerformanceReport performanceReport = new PerformanceReport(PerformanceReportTest.DEFAULT_PERCENTILES);
+        performanceReport.setStreamingStatistics(true);
+        Date date = new Date();
+        for (long duration = 1; duration <= 100; duration++) {
+            HttpSample httpSample = new HttpSample();
+            httpSample.setUri("/streaming");
+            httpSample.setDuration(duration);
+            httpSample.setDate(date);
+            httpSample.setSuccessful(duration % 10 != 0);
+            performanceReport.addSample(httpSample);
+        }
+
+        UriReport streamingReport = performanceReport.getUriListOrdered().get(0);
+        assertFalse(streamingReport.hasSamples());
+        assertEquals(100, streamingReport.samplesCount());
+        assertEquals(10, streamingReport.countErrors());
+        assertEquals(1, streamingReport.getMin());
+        assertEquals(50, streamingReport.getMedian());
+        assertEquals(90, streamingReport.get90Line());
+        assertEquals(100, streamingReport.getMax());
+        assertEquals(50, streamingReport.getAverage());
+        assertEquals(90, performanceReport.get90Line());
+        assertEquals(95L, streamingReport.getPercentilesValues().get(95.0).longValue());
+    }
+
     /**
      * Same dates, different duration. Shortest duration should be ordered first.
      */
@@ -147,4 +176,55 @@ class UriReportTest {
             Collections.sort(samples);
         }, "A NullPointerException was thrown (which should not have happened).");
     }
+
+    @Test
+    void testMergeAggregatesOnly() {
+        TaurusFinalStats stats = new TaurusFinalStats();
+        stats.setSucc(5);
+        stats.setFail(1);
+        stats.setAverageResponseTime(20);
+        stats.setPerc0(2);
+        stats.setPerc50(20);
+        stats.setPerc90(30);
+        stats.setPerc95(35);
+        stats.setPerc100(40);
+        UriReport other = new UriReport(uriReport.getPerformanceReport(), null, null);
+        other.setFromTaurusFinalStats(stats);
+
+        uriReport.merge(other);
+
+        assertEquals(9, uriReport.samplesCount());
+        assertEquals(3, uriReport.countErrors());
+        assertEquals(MIN, uriReport.getMin());
+        assertEquals(40, uriReport.getMax());
+        assertEquals(15, uriReport.getAverage());
+        assertEquals(13, uriReport.getMedian());
+        assertEquals(Long.valueOf(40), uriReport.getPercentilesValues().get(100.0));
+        // exact durations are gone once aggregates are merged in
+        assertFalse(uriReport.hasSamples());
+    }
+
+    @Test
+    void testMergeStreamingStatistics() {
+        UriReport other = new UriReport(uriReport.getPerformanceReport(), null, null);
+        other.setStreamingStatistics(true);
+        for (long duration : new long[]{20, 30}) {
+            HttpSample httpSample = new HttpSample();
+            httpSample.setDuration(duration);
+            httpSample.setDate(new Date());
+            httpSample.setSuccessful(true);
+            other.addHttpSample(httpSample);
+        }
+
+        uriReport.merge(other);
+
+        assertEquals(5, uriReport.samplesCount());
+        assertEquals(2, uriReport.countErrors());
+        assertEquals(MIN, uriReport.getMin());
+        assertEquals(30, uriReport.getMax());
+        assertEquals(AVERAGE, uriReport.getMedian());
+        // the durations are kept in the histogram only, not as samples
+        assertTrue(uriReport.isStreamingStatistics());
+        assertFalse(uriReport.hasSamples());
+    }
 }
@@ -0,0 +1,76 @@
+package hudson.plugins.performance.tools;
+
+import hudson.FilePath;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportCompressionTest {
+
+    private static final byte[] CONTENT = "timeStamp,elapsed,label\n1500000000000,42,/login\n".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    File tempDir;
+
+    private File writeCompressed(String name, byte[] content) throws IOException {
+        File file = new File(tempDir, name);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file.toPath()))) {
+            out.write(content);
+        }
+        return file;
+    }
+
+    private static byte[] readAll(File file) throws IOException {
+        try (InputStream in = ReportCompression.open(file)) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void testOpen() throws Exception {
+        File plain = new File(tempDir, "plain.csv");
+        Files.write(plain.toPath(), CONTENT);
+        File compressed = writeCompressed("compressed.csv", CONTENT);
+
+        assertFalse(ReportCompression.isCompressed(plain));
+        assertTrue(ReportCompression.isCompressed(compressed));
+        assertArrayEquals(CONTENT, readAll(plain));
+        assertArrayEquals(CONTENT, readAll(compressed));
+    }
+
+    @Test
+    void testGetArchiveName() {
+        assertEquals("results.jtl", ReportCompression.getArchiveName("results.jtl.gz"));
+        assertEquals("results.csv", ReportCompression.getArchiveName("results.csv"));
+        assertEquals(".gz", ReportCompression.getArchiveName(".gz"));
+    }
+
+    @Test
+    void testCopyCompressed() throws Exception {
+        File plain = new File(tempDir, "plain.csv");
+        Files.write(plain.toPath(), CONTENT);
+        File compressed = writeCompressed("compressed.csv.gz", CONTENT);
+        File target = new File(tempDir, "archive/plain.csv");
+        File compressedTarget = new File(tempDir, "archive/compressed.csv");
+
+        ReportCompression.copyCompressed(new FilePath(plain), target);
+        ReportCompression.copyCompressed(new FilePath(compressed), compressedTarget);
+
+        assertTrue(ReportCompression.isCompressed(target));
+        assertArrayEquals(CONTENT, readAll(target));
+        // compressed files are copied as they are
+        assertArrayEquals(Files.readAllBytes(compressed.toPath()), Files.readAllBytes(compressedTarget.toPath()));
+    }
+}
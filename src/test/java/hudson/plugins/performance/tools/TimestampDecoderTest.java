@@ -0,0 +1,149 @@
+package hudson.plugins.performance.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimestampDecoderTest {
+
+    private static long parse(String pattern, String timestamp, TimeZone zone) throws Exception {
+        final SimpleDateFormat format = new SimpleDateFormat(pattern);
+        format.setTimeZone(zone);
+        return format.parse(timestamp).getTime();
+    }
+
+    @Test
+    void testEpochMillis() {
+        assertSame(TimestampDecoder.EPOCH_MILLIS, TimestampDecoder.detect("1393227741256"));
+        assertEquals(1393227741256L, TimestampDecoder.EPOCH_MILLIS.decode("1393227741256"));
+        assertEquals(-5L, TimestampDecoder.EPOCH_MILLIS.decode("-5"));
+        assertThrows(IllegalArgumentException.class, () -> TimestampDecoder.EPOCH_MILLIS.decode("1393227741256 "));
+        assertThrows(IllegalArgumentException.class, () -> TimestampDecoder.EPOCH_MILLIS.decode("99999999999999999999"));
+        assertThrows(IllegalArgumentException.class, () -> TimestampDecoder.EPOCH_MILLIS.decode(""));
+    }
+
+    @Test
+    void testDetect() throws Exception {
+        final TimeZone zone = TimeZone.getDefault();
+        for (String timestamp : Arrays.asList("2014/02/24 07:42:21.256", "2014-02-24 07:42:21.256",
+                "2014-02-24 07:42:21,256", "2014/05/22 14:50:15 ")) {
+            final TimestampDecoder decoder = TimestampDecoder.detect(timestamp);
+            final String pattern = decoder.toString();
+            assertTrue(TimestampDecoder.PATTERNS.contains(pattern));
+            assertEquals(parse(pattern, timestamp, zone), decoder.decode(timestamp), timestamp);
+        }
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> TimestampDecoder.detect("24.02.2014 07:42"));
+        assertTrue(e.getMessage().startsWith("Cannot parse timestamp: 24.02.2014 07:42."));
+        assertThrows(IllegalArgumentException.class, () -> TimestampDecoder.detect(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> TimestampDecoder.detect("2014-02-24 07:42:21.256").decode("1393227741256"));
+    }
+
+    /**
+     * Timestamps without milliseconds were parsed with the pattern <code>yyyy/mm/dd HH:mm:ss</code>, which read the
+     * minutes instead of the month and dropped the month of the timestamp.
+     */
+    @Test
+    void testDateWithoutMillisKeepsMonth() throws Exception {
+        final TimeZone zone = TimeZone.getDefault();
+        final String timestamp = "2014/05/22 14:50:15";
+        final TimestampDecoder decoder = TimestampDecoder.detect(timestamp);
+
+        assertEquals("yyyy/MM/dd HH:mm:ss", decoder.toString());
+        assertEquals(parse("yyyy/MM/dd HH:mm:ss", timestamp, zone), decoder.decode(timestamp));
+        // the old pattern put the timestamp in January
+        assertEquals(parse("yyyy/MM/dd HH:mm:ss", "2014/01/22 14:50:15", zone),
+                parse("yyyy/mm/dd HH:mm:ss", timestamp, zone));
+        assertNotEquals(parse("yyyy/mm/dd HH:mm:ss", timestamp, zone), decoder.decode(timestamp));
+    }
+
+    /**
+     * Decoding is as lenient as a lenient {@link SimpleDateFormat}: fields may have fewer digits than in the
+     * pattern or be out of their range, and text after the timestamp is ignored.
+     */
+    @Test
+    void testLenient() throws Exception {
+        final String pattern = "yyyy/MM/dd HH:mm:ss.SSS";
+        final TimeZone zone = TimeZone.getTimeZone("Europe/Berlin");
+        final TimestampDecoder decoder = TimestampDecoder.ofPattern(pattern, zone.toZoneId());
+        for (String timestamp : Arrays.asList("2001/20/20 12:05:05.123", "2014/2/4 7:2:1.5", "2014/02/30 25:61:61.999",
+                "2016/02/29 00:00:00.000", "2014/02/24 07:42:21.256 INFO", "1900/01/01 00:00:00.000")) {
+            assertEquals(parse(pattern, timestamp, zone), decoder.decode(timestamp), timestamp);
+        }
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode("2014-02-24 07:42:21.256"));
+        assertThrows(IllegalArgumentException.class, () -> TimestampDecoder.ofPattern("dd.MM.yy HH:mm a"));
+    }
+
+    /**
+     * Every hour of a year with two daylight saving time transitions, including local times that do not exist or
+     * exist twice.
+     */
+    @Test
+    void testDaylightSavingTime() throws Exception {
+        final String pattern = "yyyy-MM-dd HH:mm:ss,SSS";
+        for (String zoneId : Arrays.asList("Europe/Berlin", "America/New_York", "Australia/Lord_Howe", "UTC")) {
+            final TimeZone zone = TimeZone.getTimeZone(zoneId);
+            final TimestampDecoder decoder = TimestampDecoder.ofPattern(pattern, ZoneId.of(zoneId));
+            final SimpleDateFormat format = new SimpleDateFormat(pattern);
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            final long start = format.parse("2021-01-01 00:30:00,000").getTime();
+            for (long local = start; local < start + 366L * 24 * 3600 * 1000; local += 1800 * 1000) {
+                final String timestamp = format.format(local);
+                final long expected = parse(pattern, timestamp, zone);
+                if (zone.getOffset(expected) == zone.getOffset(expected - 3 * 3600 * 1000)
+                        && zone.getOffset(expected) == zone.getOffset(expected + 3 * 3600 * 1000)) {
+                    assertEquals(expected, decoder.decode(timestamp), zoneId + " " + timestamp);
+                } else {
+                    // around transitions: the same instant as java.time
+                    assertEquals(java.time.LocalDateTime.parse(timestamp.replace(' ', 'T').replace(',', '.'))
+                            .atZone(ZoneId.of(zoneId)).toInstant().toEpochMilli(), decoder.decode(timestamp),
+                            zoneId + " " + timestamp);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSharedByThreads() throws Exception {
+        final TimestampDecoder decoder = TimestampDecoder.ofPattern("yyyy/MM/dd HH:mm:ss.SSS",
+                ZoneId.of("Europe/Berlin"));
+        final TimeZone zone = TimeZone.getTimeZone("Europe/Berlin");
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Callable<Boolean> task = new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    for (int month = 1; month <= 12; month++) {
+                        for (int day = 1; day <= 28; day++) {
+                            final String timestamp = String.format("2021/%02d/%02d 12:00:00.000", month, day);
+                            if (parse("yyyy/MM/dd HH:mm:ss.SSS", timestamp, zone) != decoder.decode(timestamp)) {
+                                return false;
+                            }
+                        }
+                    }
+                    return true;
+                }
+            };
+            for (Future<Boolean> result : executor.invokeAll(Collections.nCopies(8, task))) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}